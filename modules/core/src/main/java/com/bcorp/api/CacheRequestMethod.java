@@ -10,6 +10,10 @@ public interface CacheRequestMethod {
     record Remove() implements CacheRequestMethod {
     }
 
+    // commands of native data types, the handler is resolved by the class of the command
+    record Execute() implements CacheRequestMethod {
+    }
+
     static CacheRequestMethod get() {
         return new Get();
     }
@@ -22,5 +26,9 @@ public interface CacheRequestMethod {
         return new Remove();
     }
 
+    static CacheRequestMethod execute() {
+        return new Execute();
+    }
+
 }
 
@@ -44,4 +44,13 @@ public class KeyValueStoreEngine {
         KeyOnlyRequestHandler<K, R> getHandler = handlerResolver.resolveHandler(method, key);
         return getHandler.handle(key, Collections.emptyList(), keyValueStore);
     }
+
+    /**
+     * Runs a command of a native data type, e.g. a hash field update. The handler is resolved by the
+     * class of the key and of the command.
+     */
+    public <K, C, R> CompletableFuture<R> execute(K key, C command) {
+        KeyValueRequestHandler<K, C, R> commandHandler = handlerResolver.resolveHandler(CacheRequestMethod.execute(), key, command);
+        return commandHandler.handle(key, command, Collections.emptyList(), keyValueStore);
+    }
 }
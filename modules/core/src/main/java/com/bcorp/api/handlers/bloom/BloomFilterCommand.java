@@ -0,0 +1,18 @@
+package com.bcorp.api.handlers.bloom;
+
+import java.util.List;
+
+/**
+ * Commands of the bloom filter data type.
+ */
+public interface BloomFilterCommand {
+    /**
+     * @param capacity  number of items a new filter is sized for, ignored if the filter exists
+     * @param errorRate false positive rate of a new filter, ignored if the filter exists
+     */
+    record Add(List<byte[]> items, long capacity, double errorRate) implements BloomFilterCommand {
+    }
+
+    record Exists(List<byte[]> items) implements BloomFilterCommand {
+    }
+}
@@ -0,0 +1,48 @@
+package com.bcorp.api.handlers.bloom;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.BloomFilterValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * BF.ADD / BF.MADD / BF.EXISTS / BF.MEXISTS. The filter is sized when the first add creates it.
+ */
+public class BloomFilterHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, BloomFilterCommand.Add.class, BloomFilterHandlers::add);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, BloomFilterCommand.Exists.class, BloomFilterHandlers::exists);
+    }
+
+    static CompletableFuture<BloomFilterResult> add(String key, BloomFilterCommand.Add command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), BloomFilterValue.class,
+                () -> new BloomFilterValue(command.capacity(), command.errorRate()), bloomFilter -> {
+                    List<Boolean> added = new ArrayList<>(command.items().size());
+                    for (byte[] item : command.items()) {
+                        added.add(bloomFilter.add(item));
+                    }
+                    return added;
+                }).thenApply(result -> new BloomFilterResult(result.result(), result.version()));
+    }
+
+    static CompletableFuture<BloomFilterResult> exists(String key, BloomFilterCommand.Exists command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), BloomFilterValue.class, bloomFilter -> {
+            if (bloomFilter == null) {
+                return Collections.nCopies(command.items().size(), false);
+            }
+            List<Boolean> exists = new ArrayList<>(command.items().size());
+            for (byte[] item : command.items()) {
+                exists.add(bloomFilter.mightContain(item));
+            }
+            return exists;
+        }).thenApply(result -> new BloomFilterResult(result.result(), result.version()));
+    }
+}
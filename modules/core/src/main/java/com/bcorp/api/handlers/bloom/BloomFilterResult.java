@@ -0,0 +1,11 @@
+package com.bcorp.api.handlers.bloom;
+
+import java.util.List;
+
+/**
+ * @param results one flag per item of the command, for an add whether the item is new, for an exists
+ *                whether the item may have been added
+ * @param version version of the filter after the command, null if the key doesn't exist
+ */
+public record BloomFilterResult(List<Boolean> results, Long version) {
+}
@@ -0,0 +1,26 @@
+package com.bcorp.api.handlers.countmin;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Commands of the count-min sketch data type.
+ */
+public interface CountMinSketchCommand {
+    /**
+     * @param errorRate          overestimate bound of a new sketch, ignored if the sketch exists
+     * @param failureProbability probability of exceeding the bound for a new sketch, ignored if the sketch exists
+     */
+    record Increment(Map<String, Long> increments, double errorRate, double failureProbability) implements CountMinSketchCommand {
+    }
+
+    record Query(List<String> items) implements CountMinSketchCommand {
+    }
+
+    /**
+     * Adds the counts of {@code sourceKeys} to the key, missing sources are skipped. A new sketch takes the
+     * dimensions of the first source.
+     */
+    record Merge(List<String> sourceKeys) implements CountMinSketchCommand {
+    }
+}
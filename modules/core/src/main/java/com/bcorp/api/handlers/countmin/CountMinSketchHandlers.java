@@ -0,0 +1,75 @@
+package com.bcorp.api.handlers.countmin;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.CountMinSketchValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * CMS.INCRBY / CMS.QUERY / CMS.MERGE. The sketch is sized when the first increment creates it.
+ *
+ * <p>A merge copies every source on the partition owning it, and then merges the copies on the partition
+ * of the destination, it's not atomic across the keys.</p>
+ */
+public class CountMinSketchHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, CountMinSketchCommand.Increment.class, CountMinSketchHandlers::increment);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, CountMinSketchCommand.Query.class, CountMinSketchHandlers::query);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, CountMinSketchCommand.Merge.class, CountMinSketchHandlers::merge);
+    }
+
+    static CompletableFuture<CountMinSketchResult> increment(String key, CountMinSketchCommand.Increment command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), CountMinSketchValue.class,
+                () -> new CountMinSketchValue(command.errorRate(), command.failureProbability()), sketch -> {
+                    Map<String, Long> estimates = new LinkedHashMap<>();
+                    command.increments().forEach((item, by) ->
+                            estimates.put(item, sketch.increment(item.getBytes(StandardCharsets.UTF_8), by)));
+                    return new CountMinSketchResult(estimates, null);
+                }).thenApply(result -> new CountMinSketchResult(result.result().estimates(), result.version()));
+    }
+
+    static CompletableFuture<CountMinSketchResult> query(String key, CountMinSketchCommand.Query command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), CountMinSketchValue.class, sketch -> {
+            Map<String, Long> estimates = new LinkedHashMap<>();
+            for (String item : command.items()) {
+                estimates.put(item, sketch == null ? 0L : sketch.estimate(item.getBytes(StandardCharsets.UTF_8)));
+            }
+            return new CountMinSketchResult(estimates, null);
+        }).thenApply(result -> new CountMinSketchResult(result.result().estimates(), result.version()));
+    }
+
+    static CompletableFuture<CountMinSketchResult> merge(String key, CountMinSketchCommand.Merge command, List<Filter> filters, KeyValueStore keyValueStore) {
+        List<CompletableFuture<CountMinSketchValue>> sources = command.sourceKeys().stream()
+                .map(sourceKey -> keyValueStore.readNative(new DataKey(sourceKey), CountMinSketchValue.class,
+                                sketch -> sketch == null ? null : sketch.copy())
+                        .thenApply(result -> result.result()))
+                .toList();
+
+        return CompletableFuture.allOf(sources.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> {
+                    List<CountMinSketchValue> copies = sources.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList();
+                    if (copies.isEmpty()) {
+                        return keyValueStore.readNative(new DataKey(key), CountMinSketchValue.class,
+                                sketch -> new CountMinSketchResult(Map.of(), null));
+                    }
+                    return keyValueStore.updateNative(new DataKey(key), CountMinSketchValue.class,
+                            () -> new CountMinSketchValue(copies.get(0).width(), copies.get(0).depth()), sketch -> {
+                                // all or nothing, there is no rollback of a partial merge
+                                copies.forEach(sketch::checkMergeable);
+                                copies.forEach(sketch::merge);
+                                return new CountMinSketchResult(Map.of(), null);
+                            });
+                })
+                .thenApply(result -> new CountMinSketchResult(result.result().estimates(), result.version()));
+    }
+}
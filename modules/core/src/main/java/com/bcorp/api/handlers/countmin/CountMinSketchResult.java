@@ -0,0 +1,10 @@
+package com.bcorp.api.handlers.countmin;
+
+import java.util.Map;
+
+/**
+ * @param estimates estimated count of every item of the command, after the increment for an increment
+ * @param version   version of the sketch after the command, null if the key doesn't exist
+ */
+public record CountMinSketchResult(Map<String, Long> estimates, Long version) {
+}
@@ -0,0 +1,21 @@
+package com.bcorp.api.handlers.hash;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Commands of the hash data type. Field values are opaque byte slices, the store never decodes them.
+ */
+public interface HashCommand {
+    record Get(List<String> fields) implements HashCommand {
+    }
+
+    record GetAll() implements HashCommand {
+    }
+
+    record Set(Map<String, byte[]> fields) implements HashCommand {
+    }
+
+    record Delete(List<String> fields) implements HashCommand {
+    }
+}
@@ -0,0 +1,29 @@
+package com.bcorp.api.handlers.hash;
+
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.KeyValueRequestHandler;
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HDEL, the key is removed together with its last field.
+ */
+public class HashDeleteHandler implements KeyValueRequestHandler<String, HashCommand.Delete, HashResult> {
+
+    @Override
+    public CompletableFuture<HashResult> handle(String key, HashCommand.Delete command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), HashValue.class, HashValue::new, hash -> {
+            int removed = 0;
+            for (String field : command.fields()) {
+                if (hash.remove(field)) {
+                    removed++;
+                }
+            }
+            return removed;
+        }).thenApply(result -> HashResult.ofCount(result.result(), result.version()));
+    }
+}
@@ -0,0 +1,24 @@
+package com.bcorp.api.handlers.hash;
+
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.KeyValueRequestHandler;
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HGETALL
+ */
+public class HashGetAllHandler implements KeyValueRequestHandler<String, HashCommand.GetAll, HashResult> {
+
+    @Override
+    public CompletableFuture<HashResult> handle(String key, HashCommand.GetAll command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), HashValue.class,
+                        hash -> hash == null ? Map.<String, byte[]>of() : hash.getAll())
+                .thenApply(result -> HashResult.ofFields(result.result(), result.version()));
+    }
+}
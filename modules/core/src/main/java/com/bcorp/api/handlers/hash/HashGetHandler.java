@@ -0,0 +1,34 @@
+package com.bcorp.api.handlers.hash;
+
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.KeyValueRequestHandler;
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HGET / HMGET, reads only the named fields.
+ */
+public class HashGetHandler implements KeyValueRequestHandler<String, HashCommand.Get, HashResult> {
+
+    @Override
+    public CompletableFuture<HashResult> handle(String key, HashCommand.Get command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), HashValue.class, hash -> {
+            Map<String, byte[]> fields = new LinkedHashMap<>();
+            if (hash != null) {
+                for (String field : command.fields()) {
+                    byte[] value = hash.get(field);
+                    if (value != null) {
+                        fields.put(field, value);
+                    }
+                }
+            }
+            return fields;
+        }).thenApply(result -> HashResult.ofFields(result.result(), result.version()));
+    }
+}
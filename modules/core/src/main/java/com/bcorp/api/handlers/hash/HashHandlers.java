@@ -0,0 +1,14 @@
+package com.bcorp.api.handlers.hash;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.handlers.HandlerResolver;
+
+public class HashHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, HashCommand.Get.class, new HashGetHandler());
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, HashCommand.GetAll.class, new HashGetAllHandler());
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, HashCommand.Set.class, new HashSetHandler());
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, HashCommand.Delete.class, new HashDeleteHandler());
+    }
+}
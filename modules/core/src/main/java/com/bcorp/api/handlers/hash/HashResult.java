@@ -0,0 +1,19 @@
+package com.bcorp.api.handlers.hash;
+
+import java.util.Map;
+
+/**
+ * @param fields  fields read by the command, missing fields are left out
+ * @param count   fields created by a set or removed by a delete
+ * @param version version of the hash after the command, null if the key doesn't exist
+ */
+public record HashResult(Map<String, byte[]> fields, int count, Long version) {
+
+    public static HashResult ofFields(Map<String, byte[]> fields, Long version) {
+        return new HashResult(fields, fields.size(), version);
+    }
+
+    public static HashResult ofCount(int count, Long version) {
+        return new HashResult(Map.of(), count, version);
+    }
+}
@@ -0,0 +1,30 @@
+package com.bcorp.api.handlers.hash;
+
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.KeyValueRequestHandler;
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HSET, creates the hash if the key doesn't exist. Only the given fields are written.
+ */
+public class HashSetHandler implements KeyValueRequestHandler<String, HashCommand.Set, HashResult> {
+
+    @Override
+    public CompletableFuture<HashResult> handle(String key, HashCommand.Set command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), HashValue.class, HashValue::new, hash -> {
+            int created = 0;
+            for (Map.Entry<String, byte[]> field : command.fields().entrySet()) {
+                if (hash.put(field.getKey(), field.getValue())) {
+                    created++;
+                }
+            }
+            return created;
+        }).thenApply(result -> HashResult.ofCount(result.result(), result.version()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.bcorp.api.handlers.hyperloglog;
+
+import java.util.List;
+
+/**
+ * Commands of the HyperLogLog data type.
+ */
+public interface HyperLogLogCommand {
+    record Add(List<byte[]> elements) implements HyperLogLogCommand {
+    }
+
+    record Count() implements HyperLogLogCommand {
+    }
+
+    /**
+     * Merges the estimates of {@code sourceKeys} into the key, missing sources are skipped.
+     */
+    record Merge(List<String> sourceKeys) implements HyperLogLogCommand {
+    }
+}
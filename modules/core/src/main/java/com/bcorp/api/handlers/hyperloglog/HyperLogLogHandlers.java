@@ -0,0 +1,58 @@
+package com.bcorp.api.handlers.hyperloglog;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.HyperLogLogValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * PFADD / PFCOUNT / PFMERGE.
+ *
+ * <p>A merge copies the registers of every source on the partition owning it, and then merges the copies
+ * on the partition of the destination, it's not atomic across the keys.</p>
+ */
+public class HyperLogLogHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, HyperLogLogCommand.Add.class, HyperLogLogHandlers::add);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, HyperLogLogCommand.Count.class, HyperLogLogHandlers::count);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, HyperLogLogCommand.Merge.class, HyperLogLogHandlers::merge);
+    }
+
+    static CompletableFuture<HyperLogLogResult> add(String key, HyperLogLogCommand.Add command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), HyperLogLogValue.class, HyperLogLogValue::new, hyperLogLog -> {
+            boolean changed = false;
+            for (byte[] element : command.elements()) {
+                changed |= hyperLogLog.add(element);
+            }
+            return changed ? 1L : 0L;
+        }).thenApply(result -> new HyperLogLogResult(result.result(), result.version()));
+    }
+
+    static CompletableFuture<HyperLogLogResult> count(String key, HyperLogLogCommand.Count command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), HyperLogLogValue.class,
+                hyperLogLog -> hyperLogLog == null ? 0L : hyperLogLog.count()
+        ).thenApply(result -> new HyperLogLogResult(result.result(), result.version()));
+    }
+
+    static CompletableFuture<HyperLogLogResult> merge(String key, HyperLogLogCommand.Merge command, List<Filter> filters, KeyValueStore keyValueStore) {
+        List<CompletableFuture<HyperLogLogValue>> sources = command.sourceKeys().stream()
+                .map(sourceKey -> keyValueStore.readNative(new DataKey(sourceKey), HyperLogLogValue.class,
+                                hyperLogLog -> hyperLogLog == null ? null : hyperLogLog.copy())
+                        .thenApply(result -> result.result()))
+                .toList();
+
+        return CompletableFuture.allOf(sources.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> keyValueStore.updateNative(new DataKey(key), HyperLogLogValue.class, HyperLogLogValue::new, hyperLogLog -> {
+                    sources.stream().map(CompletableFuture::join).filter(Objects::nonNull).forEach(hyperLogLog::merge);
+                    return hyperLogLog.count();
+                }))
+                .thenApply(result -> new HyperLogLogResult(result.result(), result.version()));
+    }
+}
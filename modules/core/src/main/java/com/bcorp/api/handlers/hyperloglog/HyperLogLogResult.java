@@ -0,0 +1,8 @@
+package com.bcorp.api.handlers.hyperloglog;
+
+/**
+ * @param count   estimated number of distinct elements, for an add 1 if the estimate changed and 0 otherwise
+ * @param version version of the key after the command, null if the key doesn't exist
+ */
+public record HyperLogLogResult(long count, Long version) {
+}
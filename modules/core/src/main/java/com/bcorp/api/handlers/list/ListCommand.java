@@ -0,0 +1,33 @@
+package com.bcorp.api.handlers.list;
+
+import java.util.List;
+
+/**
+ * Commands of the list data type.
+ */
+public interface ListCommand {
+    /**
+     * @param left pushes to the head if true, to the tail otherwise. Values pushed to the head end up
+     *             in reverse order, like pushing them one by one.
+     */
+    record Push(List<byte[]> values, boolean left) implements ListCommand {
+    }
+
+    /**
+     * Pops up to {@code count} values, returns right away even if the list doesn't exist.
+     */
+    record Pop(int count, boolean left) implements ListCommand {
+    }
+
+    /**
+     * Pops one value, waiting up to {@code timeoutMs} for the list to be created if it doesn't exist.
+     */
+    record BlockingPop(boolean left, long timeoutMs) implements ListCommand {
+    }
+
+    /**
+     * Both ends inclusive, negative indexes count from the tail.
+     */
+    record Range(long start, long stop) implements ListCommand {
+    }
+}
@@ -0,0 +1,66 @@
+package com.bcorp.api.handlers.list;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.ListValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * LPUSH / RPUSH / LPOP / RPOP / BLPOP / BRPOP / LRANGE. Pushes and pops are O(1) per value on the
+ * partition loop, a blocking pop on a missing list is parked by the partition without holding a thread.
+ */
+public class ListHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, ListCommand.Push.class, ListHandlers::push);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, ListCommand.Pop.class, ListHandlers::pop);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, ListCommand.BlockingPop.class, ListHandlers::blockingPop);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, ListCommand.Range.class, ListHandlers::range);
+    }
+
+    static CompletableFuture<ListResult> push(String key, ListCommand.Push command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), ListValue.class, ListValue::new, list -> {
+            for (byte[] value : command.values()) {
+                if (command.left()) {
+                    list.pushLeft(value);
+                } else {
+                    list.pushRight(value);
+                }
+            }
+            return list.size();
+        }).thenApply(result -> new ListResult(List.of(), result.result(), result.version()));
+    }
+
+    static CompletableFuture<ListResult> pop(String key, ListCommand.Pop command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), ListValue.class, ListValue::new, list -> {
+            List<byte[]> popped = new ArrayList<>(Math.min(command.count(), list.size()));
+            while (popped.size() < command.count() && !list.isEmpty()) {
+                popped.add(command.left() ? list.popLeft() : list.popRight());
+            }
+            return new ListResult(popped, list.size(), null);
+        }).thenApply(result -> new ListResult(result.result().values(), result.result().length(), result.version()));
+    }
+
+    static CompletableFuture<ListResult> blockingPop(String key, ListCommand.BlockingPop command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.awaitNative(new DataKey(key), ListValue.class, list -> {
+            byte[] popped = command.left() ? list.popLeft() : list.popRight();
+            return new ListResult(List.of(popped), list.size(), null);
+        }, command.timeoutMs()).thenApply(result -> result.result() == null
+                // timed out
+                ? new ListResult(List.of(), 0, null)
+                : new ListResult(result.result().values(), result.result().length(), result.version()));
+    }
+
+    static CompletableFuture<ListResult> range(String key, ListCommand.Range command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), ListValue.class, list -> list == null
+                ? new ListResult(List.of(), 0, null)
+                : new ListResult(list.range(command.start(), command.stop()), list.size(), null)
+        ).thenApply(result -> new ListResult(result.result().values(), result.result().length(), result.version()));
+    }
+}
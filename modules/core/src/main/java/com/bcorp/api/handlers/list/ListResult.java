@@ -0,0 +1,11 @@
+package com.bcorp.api.handlers.list;
+
+import java.util.List;
+
+/**
+ * @param values  values popped or read by the command
+ * @param length  length of the list after the command
+ * @param version version of the list after the command, null if the key doesn't exist
+ */
+public record ListResult(List<byte[]> values, int length, Long version) {
+}
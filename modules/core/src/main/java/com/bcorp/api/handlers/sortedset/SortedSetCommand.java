@@ -0,0 +1,30 @@
+package com.bcorp.api.handlers.sortedset;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Commands of the sorted set data type.
+ */
+public interface SortedSetCommand {
+    record Add(Map<String, Double> members) implements SortedSetCommand {
+    }
+
+    record Remove(List<String> members) implements SortedSetCommand {
+    }
+
+    record Rank(String member) implements SortedSetCommand {
+    }
+
+    /**
+     * @param limit negative for no limit
+     */
+    record RangeByScore(double min, double max, int offset, int limit) implements SortedSetCommand {
+    }
+
+    /**
+     * Both ends inclusive, negative indexes count from the highest score.
+     */
+    record RangeByRank(long start, long stop) implements SortedSetCommand {
+    }
+}
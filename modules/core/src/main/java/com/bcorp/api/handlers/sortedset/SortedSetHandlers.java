@@ -0,0 +1,82 @@
+package com.bcorp.api.handlers.sortedset;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.ScoredMember;
+import com.bcorp.datatypes.SortedSetValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ZADD / ZREM / ZRANK / ZRANGEBYSCORE / ZRANGE. Every command runs on the partition loop and touches
+ * O(log n) nodes of the skiplist, plus the members it returns.
+ */
+public class SortedSetHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, SortedSetCommand.Add.class, SortedSetHandlers::add);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, SortedSetCommand.Remove.class, SortedSetHandlers::remove);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, SortedSetCommand.Rank.class, SortedSetHandlers::rank);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, SortedSetCommand.RangeByScore.class, SortedSetHandlers::rangeByScore);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, SortedSetCommand.RangeByRank.class, SortedSetHandlers::rangeByRank);
+    }
+
+    static CompletableFuture<SortedSetResult> add(String key, SortedSetCommand.Add command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), SortedSetValue.class, SortedSetValue::new, sortedSet -> {
+            int added = 0;
+            for (Map.Entry<String, Double> member : command.members().entrySet()) {
+                if (sortedSet.add(member.getKey(), member.getValue())) {
+                    added++;
+                }
+            }
+            return added;
+        }).thenApply(result -> SortedSetResult.ofCount(result.result(), result.version()));
+    }
+
+    static CompletableFuture<SortedSetResult> remove(String key, SortedSetCommand.Remove command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), SortedSetValue.class, SortedSetValue::new, sortedSet -> {
+            int removed = 0;
+            for (String member : command.members()) {
+                if (sortedSet.remove(member)) {
+                    removed++;
+                }
+            }
+            return removed;
+        }).thenApply(result -> SortedSetResult.ofCount(result.result(), result.version()));
+    }
+
+    static CompletableFuture<SortedSetResult> rank(String key, SortedSetCommand.Rank command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), SortedSetValue.class, sortedSet -> {
+            if (sortedSet == null) {
+                return SortedSetResult.ofRank(null, null, 0, null);
+            }
+            Long rank = sortedSet.rank(command.member());
+            ScoredMember member = rank == null ? null : new ScoredMember(command.member(), sortedSet.score(command.member()));
+            return SortedSetResult.ofRank(member, rank, sortedSet.size(), null);
+        }).thenApply(result -> withVersion(result.result(), result.version()));
+    }
+
+    static CompletableFuture<SortedSetResult> rangeByScore(String key, SortedSetCommand.RangeByScore command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), SortedSetValue.class, sortedSet -> sortedSet == null
+                ? SortedSetResult.ofMembers(List.of(), 0, null)
+                : SortedSetResult.ofMembers(sortedSet.rangeByScore(command.min(), command.max(), command.offset(), command.limit()),
+                sortedSet.size(), null)
+        ).thenApply(result -> withVersion(result.result(), result.version()));
+    }
+
+    static CompletableFuture<SortedSetResult> rangeByRank(String key, SortedSetCommand.RangeByRank command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), SortedSetValue.class, sortedSet -> sortedSet == null
+                ? SortedSetResult.ofMembers(List.of(), 0, null)
+                : SortedSetResult.ofMembers(sortedSet.rangeByRank(command.start(), command.stop()), sortedSet.size(), null)
+        ).thenApply(result -> withVersion(result.result(), result.version()));
+    }
+
+    private static SortedSetResult withVersion(SortedSetResult result, Long version) {
+        return new SortedSetResult(result.members(), result.rank(), result.count(), version);
+    }
+}
@@ -0,0 +1,26 @@
+package com.bcorp.api.handlers.sortedset;
+
+import com.bcorp.datatypes.ScoredMember;
+
+import java.util.List;
+
+/**
+ * @param members members read by the command
+ * @param rank    0 based rank of the member for a rank command, null if the member doesn't exist
+ * @param count   members added or removed by a write, size of the set for a read
+ * @param version version of the sorted set after the command, null if the key doesn't exist
+ */
+public record SortedSetResult(List<ScoredMember> members, Long rank, int count, Long version) {
+
+    public static SortedSetResult ofMembers(List<ScoredMember> members, int size, Long version) {
+        return new SortedSetResult(members, null, size, version);
+    }
+
+    public static SortedSetResult ofRank(ScoredMember member, Long rank, int size, Long version) {
+        return new SortedSetResult(member == null ? List.of() : List.of(member), rank, size, version);
+    }
+
+    public static SortedSetResult ofCount(int count, Long version) {
+        return new SortedSetResult(List.of(), null, count, version);
+    }
+}
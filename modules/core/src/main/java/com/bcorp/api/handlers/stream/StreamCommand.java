@@ -0,0 +1,40 @@
+package com.bcorp.api.handlers.stream;
+
+import java.util.List;
+
+/**
+ * Commands of the stream data type.
+ */
+public interface StreamCommand {
+    /**
+     * @param maxLength if positive, the oldest entries are trimmed so that at most this many are kept
+     */
+    record Append(List<byte[]> values, long maxLength) implements StreamCommand {
+    }
+
+    /**
+     * Reads up to {@code limit} entries from {@code fromOffset}. If there is nothing to read yet, waits up
+     * to {@code timeoutMs} for an append.
+     */
+    record Read(long fromOffset, int limit, long timeoutMs) implements StreamCommand {
+    }
+
+    /**
+     * Reads up to {@code limit} entries from the offset of the group and moves the group past them. If there
+     * is nothing to read yet, waits up to {@code timeoutMs} for an append.
+     */
+    record ReadGroup(String group, int limit, long timeoutMs) implements StreamCommand {
+    }
+
+    /**
+     * Moves the group to {@code offset}, the next read of the group starts there.
+     */
+    record SeekGroup(String group, long offset) implements StreamCommand {
+    }
+
+    /**
+     * Trims by length, by age or both, a null bound isn't applied.
+     */
+    record Trim(Long maxLength, Long maxAgeMs) implements StreamCommand {
+    }
+}
@@ -0,0 +1,100 @@
+package com.bcorp.api.handlers.stream;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.StreamEntry;
+import com.bcorp.datatypes.StreamValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.NativeResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * XADD / XRANGE / XREAD / XREADGROUP / XTRIM. Appends and reads touch only the entries they move, a read
+ * with nothing to return yet is parked by the partition until an append, without holding a thread.
+ */
+public class StreamHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, StreamCommand.Append.class, StreamHandlers::append);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, StreamCommand.Read.class, StreamHandlers::read);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, StreamCommand.ReadGroup.class, StreamHandlers::readGroup);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, StreamCommand.SeekGroup.class, StreamHandlers::seekGroup);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, StreamCommand.Trim.class, StreamHandlers::trim);
+    }
+
+    static CompletableFuture<StreamResult> append(String key, StreamCommand.Append command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), StreamValue.class, StreamValue::new, stream -> {
+            // taken on the loop, so the entries of a stream are in time order as trimming by age expects
+            long timestampMs = keyValueStore.clock().currentTimeMs();
+            List<StreamEntry> appended = new ArrayList<>(command.values().size());
+            for (byte[] value : command.values()) {
+                appended.add(new StreamEntry(stream.append(value, timestampMs), timestampMs, value));
+            }
+            if (command.maxLength() > 0) {
+                stream.trimToLength(command.maxLength());
+            }
+            return new StreamResult(appended, stream.length(), null);
+        }).thenApply(StreamHandlers::withVersion);
+    }
+
+    static CompletableFuture<StreamResult> read(String key, StreamCommand.Read command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return withVersionOf(keyValueStore.readNative(new DataKey(key), StreamValue.class, stream -> {
+            List<StreamEntry> entries = stream.read(command.fromOffset(), command.limit());
+            // nothing to read yet, wait for an append
+            return entries.isEmpty() ? null : new StreamResult(entries, stream.length(), null);
+        }, command.timeoutMs()));
+    }
+
+    static CompletableFuture<StreamResult> readGroup(String key, StreamCommand.ReadGroup command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return withVersionOf(keyValueStore.awaitNative(new DataKey(key), StreamValue.class, stream -> {
+            List<StreamEntry> entries = stream.readGroup(command.group(), command.limit());
+            return entries.isEmpty() ? null : new StreamResult(entries, stream.length(), null);
+        }, command.timeoutMs()));
+    }
+
+    static CompletableFuture<StreamResult> seekGroup(String key, StreamCommand.SeekGroup command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.updateNative(new DataKey(key), StreamValue.class, StreamValue::new, stream -> {
+            stream.seekGroup(command.group(), command.offset());
+            return new StreamResult(List.of(), stream.groupOffset(command.group()), null);
+        }).thenApply(StreamHandlers::withVersion);
+    }
+
+    static CompletableFuture<StreamResult> trim(String key, StreamCommand.Trim command, List<Filter> filters, KeyValueStore keyValueStore) {
+        long nowMs = keyValueStore.clock().currentTimeMs();
+        return keyValueStore.updateNative(new DataKey(key), StreamValue.class, StreamValue::new, stream -> {
+            long trimmed = 0;
+            if (command.maxLength() != null) {
+                trimmed += stream.trimToLength(command.maxLength());
+            }
+            if (command.maxAgeMs() != null) {
+                trimmed += stream.trimOlderThan(nowMs - command.maxAgeMs());
+            }
+            return new StreamResult(List.of(), trimmed, null);
+        }).thenApply(StreamHandlers::withVersion);
+    }
+
+    /**
+     * Cancelling the returned read cancels the parked one, so a reader which went away doesn't consume entries.
+     */
+    private static CompletableFuture<StreamResult> withVersionOf(CompletableFuture<NativeResult<StreamResult>> parkedRead) {
+        CompletableFuture<StreamResult> read = parkedRead.thenApply(StreamHandlers::withVersion);
+        read.whenComplete((ignored, error) -> {
+            if (read.isCancelled()) {
+                parkedRead.cancel(false);
+            }
+        });
+        return read;
+    }
+
+    private static StreamResult withVersion(NativeResult<StreamResult> result) {
+        // a timed out read has no result
+        return result.result() == null
+                ? new StreamResult(List.of(), 0, null)
+                : new StreamResult(result.result().entries(), result.result().count(), result.version());
+    }
+}
@@ -0,0 +1,13 @@
+package com.bcorp.api.handlers.stream;
+
+import com.bcorp.datatypes.StreamEntry;
+
+import java.util.List;
+
+/**
+ * @param entries entries appended or read by the command
+ * @param count   entries trimmed by a trim, offset of the group after a seek, length of the stream otherwise
+ * @param version version of the stream after the command, null if the key doesn't exist
+ */
+public record StreamResult(List<StreamEntry> entries, long count, Long version) {
+}
@@ -0,0 +1,24 @@
+package com.bcorp.api.handlers.timeseries;
+
+import com.bcorp.datatypes.TimeSeriesSample;
+
+import java.util.List;
+
+/**
+ * Commands of the time series data type.
+ */
+public interface TimeSeriesCommand {
+    /**
+     * @param retentionMs if set, replaces the retention of the series, 0 keeps the samples forever
+     */
+    record Add(List<TimeSeriesSample> samples, Long retentionMs) implements TimeSeriesCommand {
+    }
+
+    /**
+     * Reads the samples in {@code [fromMs, toMs]}, or their aggregates per bucket if {@code bucketMs} is positive.
+     *
+     * @param limit maximum number of samples or buckets returned
+     */
+    record Range(long fromMs, long toMs, long bucketMs, int limit) implements TimeSeriesCommand {
+    }
+}
@@ -0,0 +1,62 @@
+package com.bcorp.api.handlers.timeseries;
+
+import com.bcorp.api.CacheRequestMethod;
+import com.bcorp.api.filters.Filter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.TimeSeriesSample;
+import com.bcorp.datatypes.TimeSeriesValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * TS.ADD / TS.MADD / TS.RANGE. Aggregation runs on the partition while the chunks are decoded, only the
+ * buckets leave the loop.
+ */
+public class TimeSeriesHandlers {
+
+    public static void register(HandlerResolver handlerResolver) {
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, TimeSeriesCommand.Add.class, TimeSeriesHandlers::add);
+        handlerResolver.registerKeyValueHandler(CacheRequestMethod.execute(), String.class, TimeSeriesCommand.Range.class, TimeSeriesHandlers::range);
+    }
+
+    static CompletableFuture<TimeSeriesResult> add(String key, TimeSeriesCommand.Add command, List<Filter> filters, KeyValueStore keyValueStore) {
+        // sorted here, off the loop, so a batch which arrives out of order isn't rejected sample by sample
+        List<TimeSeriesSample> samples = command.samples().stream()
+                .sorted(Comparator.comparingLong(TimeSeriesSample::timestampMs))
+                .toList();
+
+        return keyValueStore.updateNative(new DataKey(key), TimeSeriesValue.class, TimeSeriesValue::new, series -> {
+            if (command.retentionMs() != null) {
+                series.setRetentionMs(command.retentionMs());
+            }
+
+            long added = 0;
+            for (TimeSeriesSample sample : samples) {
+                if (series.add(sample.timestampMs(), sample.value())) {
+                    added++;
+                }
+            }
+            return added;
+        }).thenApply(result -> new TimeSeriesResult(List.of(), List.of(), result.result(), result.version()));
+    }
+
+    static CompletableFuture<TimeSeriesResult> range(String key, TimeSeriesCommand.Range command, List<Filter> filters, KeyValueStore keyValueStore) {
+        return keyValueStore.readNative(new DataKey(key), TimeSeriesValue.class, series -> {
+            if (series == null) {
+                return new TimeSeriesResult(List.of(), List.of(), 0, null);
+            }
+            if (command.bucketMs() > 0) {
+                return new TimeSeriesResult(List.of(),
+                        series.aggregate(command.fromMs(), command.toMs(), command.bucketMs(), command.limit()),
+                        series.size(), null);
+            }
+            return new TimeSeriesResult(series.range(command.fromMs(), command.toMs(), command.limit()),
+                    List.of(), series.size(), null);
+        }).thenApply(result -> new TimeSeriesResult(result.result().samples(), result.result().buckets(),
+                result.result().count(), result.version()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.bcorp.api.handlers.timeseries;
+
+import com.bcorp.datatypes.TimeSeriesBucket;
+import com.bcorp.datatypes.TimeSeriesSample;
+
+import java.util.List;
+
+/**
+ * @param samples samples read by a range without buckets
+ * @param buckets buckets read by a range with buckets
+ * @param count   samples added by an add, samples stored otherwise
+ * @param version version of the series after the command, null if the key doesn't exist
+ */
+public record TimeSeriesResult(List<TimeSeriesSample> samples, List<TimeSeriesBucket> buckets, long count, Long version) {
+}
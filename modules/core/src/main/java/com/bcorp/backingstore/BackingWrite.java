@@ -0,0 +1,22 @@
+package com.bcorp.backingstore;
+
+import com.bcorp.pojos.DataKey;
+
+/**
+ * The latest change of a key, to be written to the backing store.
+ *
+ * @param data     the value, null if the key was removed
+ * @param dataType type of the value, null if the key was removed
+ * @param version  version of the value, or of the removed value, -1 for a key removed which the store
+ *                 didn't hold
+ */
+public record BackingWrite(DataKey key, byte[] data, Class<?> dataType, long version) {
+
+    public static BackingWrite removed(DataKey key, long version) {
+        return new BackingWrite(key, null, null, version);
+    }
+
+    public boolean isRemove() {
+        return data == null;
+    }
+}
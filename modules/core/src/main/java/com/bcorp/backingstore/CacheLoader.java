@@ -0,0 +1,22 @@
+package com.bcorp.backingstore;
+
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads the keys missing from the store from its backing store, e.g. a database, so reads go through the
+ * store instead of every client running its own cache aside logic.
+ */
+@FunctionalInterface
+public interface CacheLoader {
+
+    /**
+     * Called on the partition loop, once per missing key however many reads wait for it, so the lookup must
+     * not block the calling thread.
+     *
+     * @return the value, completed with null if the backing store doesn't hold the key either
+     */
+    CompletableFuture<RequestDataValue> load(DataKey key);
+}
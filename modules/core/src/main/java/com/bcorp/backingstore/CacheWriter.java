@@ -0,0 +1,18 @@
+package com.bcorp.backingstore;
+
+import java.util.List;
+
+/**
+ * Writes the changes of the store to its backing store, in batches, behind the writes acknowledged to the
+ * clients.
+ */
+@FunctionalInterface
+public interface CacheWriter {
+
+    /**
+     * Called from the single write behind thread, never concurrently, and may block. Every key appears at
+     * most once in a batch, with its latest change. An exception fails the whole batch, which is retried
+     * later unless the keys changed again meanwhile.
+     */
+    void writeAll(List<BackingWrite> writes);
+}
@@ -0,0 +1,82 @@
+package com.bcorp.backingstore;
+
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A backing store held in memory, standing in for a database in tests and benchmarks.
+ *
+ * <p>Loads complete after {@code loadLatencyMs} on a timer thread, the way a remote lookup would, and the
+ * loads and writes it served are counted. Writes can be made to fail, to see them retried.</p>
+ */
+public class InMemoryBackingStore implements CacheLoader, CacheWriter {
+    private final ConcurrentHashMap<DataKey, RequestDataValue> values = new ConcurrentHashMap<>();
+    private final long loadLatencyMs;
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean failingWrites;
+
+    public InMemoryBackingStore(long _loadLatencyMs) {
+        this.loadLatencyMs = _loadLatencyMs;
+    }
+
+    @Override
+    public CompletableFuture<RequestDataValue> load(DataKey key) {
+        loads.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> values.get(key),
+                CompletableFuture.delayedExecutor(loadLatencyMs, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void writeAll(List<BackingWrite> batch) {
+        if (failingWrites) {
+            throw new IllegalStateException("The backing store is failing writes");
+        }
+        for (BackingWrite write : batch) {
+            if (write.isRemove()) {
+                values.remove(write.key());
+            } else {
+                values.put(write.key(), new RequestDataValue(write.data(), write.dataType()));
+            }
+        }
+        writes.addAndGet(batch.size());
+        batches.incrementAndGet();
+    }
+
+    /**
+     * Puts a value straight into the backing store, as another writer of the database would.
+     */
+    public void put(DataKey key, RequestDataValue value) {
+        values.put(key, value);
+    }
+
+    /**
+     * @return the value held by the backing store, null if it holds none
+     */
+    public RequestDataValue get(DataKey key) {
+        return values.get(key);
+    }
+
+    public void setFailingWrites(boolean failingWrites) {
+        this.failingWrites = failingWrites;
+    }
+
+    public long loads() {
+        return loads.get();
+    }
+
+    public long writes() {
+        return writes.get();
+    }
+
+    public long batches() {
+        return batches.get();
+    }
+}
@@ -0,0 +1,35 @@
+package com.bcorp.backingstore;
+
+/**
+ * How the changes of the store are written to its backing store, used once the store has a {@link CacheWriter}.
+ */
+public class WriteBehindConfig {
+    // longest time a change waits before it's written, and time between two attempts of a failed batch
+    private long flushIntervalMs = 1000;
+    // changes written in one call of the writer, a full batch is written right away
+    private int batchSize = 1000;
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindConfig{" +
+                "flushIntervalMs=" + flushIntervalMs +
+                ", batchSize=" + batchSize +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+package com.bcorp.backingstore;
+
+import com.bcorp.pojos.DataKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The changes of the store waiting to be written to its backing store.
+ *
+ * <p>Partitions queue their changes from their loop without waiting. Only the latest change of a key is
+ * kept, so a key updated a thousand times between two rounds is written once. A round takes the keys
+ * pending when it starts and hands them to the writer in batches, every {@code flushIntervalMs} and as soon
+ * as a batch is full. Rounds run on a single thread, so the changes of a key reach the writer in order.</p>
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final CacheWriter writer;
+    private final int batchSize;
+    private final ConcurrentHashMap<DataKey, BackingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+    // a round was queued because a batch filled up, cleared once it starts
+    private final AtomicBoolean roundQueued = new AtomicBoolean();
+    private final AtomicLong writtenWrites = new AtomicLong();
+    private final AtomicLong writtenBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public WriteBehindQueue(CacheWriter _writer, WriteBehindConfig _config) {
+        this.writer = _writer;
+        this.batchSize = Math.max(1, _config.getBatchSize());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = Math.max(1, _config.getFlushIntervalMs());
+        this.executor.scheduleWithFixedDelay(this::writePending, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a change, replacing the change of the key which wasn't written yet.
+     */
+    public void add(BackingWrite write) {
+        if (pendingWrites.put(write.key(), write) == null
+                && pendingWrites.size() >= batchSize
+                && !roundQueued.getAndSet(true)) {
+            try {
+                executor.execute(this::writePending);
+            } catch (RejectedExecutionException e) {
+                // closing, the last round writes it
+            }
+        }
+    }
+
+    /**
+     * Writes the changes queued so far, on top of the periodic rounds.
+     */
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(this::writePending, executor);
+    }
+
+    public WriteBehindStats stats() {
+        return new WriteBehindStats(pendingWrites.size(), writtenWrites.get(), writtenBatches.get(), failedBatches.get());
+    }
+
+    /**
+     * Stops the periodic rounds and writes what is left, once the partitions stopped queueing changes. Changes
+     * the writer still fails are dropped.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePending();
+    }
+
+    /**
+     * A round, stops at the first batch which fails and leaves the rest for the next one.
+     */
+    private void writePending() {
+        roundQueued.set(false);
+        List<BackingWrite> batch = new ArrayList<>(batchSize);
+        for (DataKey key : new ArrayList<>(pendingWrites.keySet())) {
+            BackingWrite write = pendingWrites.remove(key);
+            if (write != null) {
+                batch.add(write);
+            }
+            if (batch.size() == batchSize && !write(batch)) {
+                return;
+            }
+        }
+        write(batch);
+    }
+
+    private boolean write(List<BackingWrite> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            writer.writeAll(batch);
+            writtenWrites.addAndGet(batch.size());
+            writtenBatches.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            // a change queued meanwhile is more recent and replaces the failed one
+            for (BackingWrite write : batch) {
+                pendingWrites.putIfAbsent(write.key(), write);
+            }
+            failedBatches.incrementAndGet();
+            return false;
+        } finally {
+            batch.clear();
+        }
+    }
+}
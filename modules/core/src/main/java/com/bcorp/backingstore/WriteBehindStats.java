@@ -0,0 +1,12 @@
+package com.bcorp.backingstore;
+
+/**
+ * What the write behind queue of the store holds and wrote so far.
+ *
+ * @param pendingWrites  keys whose latest change isn't written yet
+ * @param writtenWrites  changes written to the backing store
+ * @param writtenBatches calls of the writer which succeeded
+ * @param failedBatches  calls of the writer which failed, their changes were queued again
+ */
+public record WriteBehindStats(long pendingWrites, long writtenWrites, long writtenBatches, long failedBatches) {
+}
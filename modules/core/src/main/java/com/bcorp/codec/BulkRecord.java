@@ -0,0 +1,13 @@
+package com.bcorp.codec;
+
+/**
+ * A line of a bulk import, as read by a {@link BulkRecordReader}. Every field is null when the line doesn't
+ * have it.
+ *
+ * @param line    number of the line, starting at 1
+ * @param value   the json value exactly as it was sent
+ * @param version version the key is expected to have, -1 for a key which must not exist
+ * @param ttl     expiry of the key
+ */
+public record BulkRecord(long line, String key, byte[] value, Long version, Long ttl) {
+}
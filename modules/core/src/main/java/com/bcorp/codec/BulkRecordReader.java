@@ -0,0 +1,195 @@
+package com.bcorp.codec;
+
+import com.bcorp.exceptions.JsonDecodingFailed;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Reads a bulk import, newline delimited json with one {@code {"key": ..., "value": ...}} object per line and
+ * optional {@code version} and {@code ttl} fields, chunk by chunk as the body arrives.
+ *
+ * <p>Json strings can't hold a raw newline, so the lines are cut on the bytes and only the partial last line
+ * of a chunk is kept for the next one. Every complete line is read with a streaming token parser, the value
+ * is copied out of the chunk exactly as it was sent, no tree is built and it isn't serialized again.
+ * Blank lines are skipped. A line which isn't complete yet is only buffered up to the maximum line size.</p>
+ *
+ * <p>Not thread safe, one instance is meant to be used for a single request body.</p>
+ */
+public class BulkRecordReader {
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    private final JsonFactory jsonFactory;
+    private final Consumer<BulkRecord> consumer;
+    // 0 for no limit
+    private final int maxLineSize;
+
+    private byte[] buffer = new byte[INITIAL_SIZE];
+    private int size;
+    // start of the line which isn't complete yet
+    private int lineStart;
+    private long line;
+
+    public BulkRecordReader(JsonFactory _jsonFactory, Consumer<BulkRecord> _consumer) {
+        this(_jsonFactory, _consumer, 0);
+    }
+
+    /**
+     * @param _maxLineSize size in bytes of the longest line which is buffered until its end, 0 for no limit
+     */
+    public BulkRecordReader(JsonFactory _jsonFactory, Consumer<BulkRecord> _consumer, int _maxLineSize) {
+        this.jsonFactory = _jsonFactory;
+        this.consumer = _consumer;
+        this.maxLineSize = _maxLineSize;
+    }
+
+    /**
+     * Appends the next chunk of the body and hands the records of the lines it completes to the consumer.
+     *
+     * @param length number of bytes in the chunk
+     * @param writer copies the chunk into the given array starting at the given offset
+     * @throws JsonDecodingFailed if a line isn't a json object with a string key and a value, or the incomplete
+     *                             line is longer than the maximum line size
+     */
+    public void append(int length, ObjIntConsumer<byte[]> writer) {
+        if (length == 0) {
+            return;
+        }
+        makeRoom(length);
+        int scanFrom = size;
+        writer.accept(buffer, size);
+        size += length;
+
+        for (int i = scanFrom; i < size; i++) {
+            if (buffer[i] == '\n') {
+                readLine(lineStart, i - lineStart);
+                lineStart = i + 1;
+            }
+        }
+        if (maxLineSize > 0 && size - lineStart > maxLineSize) {
+            line++;
+            throw invalidLine("is longer than " + maxLineSize + " bytes");
+        }
+    }
+
+    /**
+     * Marks the end of the body, reading the last line when it isn't terminated by a newline.
+     *
+     * @return number of lines read
+     */
+    public long finish() {
+        if (lineStart < size) {
+            readLine(lineStart, size - lineStart);
+            lineStart = size;
+        }
+        return line;
+    }
+
+    private void readLine(int offset, int length) {
+        line++;
+        if (isBlank(offset, length)) {
+            return;
+        }
+
+        try (JsonParser parser = jsonFactory.createParser(buffer, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw invalidLine("is not a json object");
+            }
+
+            String key = null;
+            byte[] value = null;
+            Long version = null;
+            Long ttl = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "key" -> {
+                        if (token != JsonToken.VALUE_STRING) {
+                            throw invalidLine("has a key which is not a string");
+                        }
+                        key = parser.getText();
+                    }
+                    case "value" -> value = copyValue(parser, offset);
+                    case "version" -> version = longValue(parser, token, field);
+                    case "ttl" -> ttl = longValue(parser, token, field);
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (parser.nextToken() != null) {
+                throw invalidLine("holds more than one json value");
+            }
+            if (key == null || key.isEmpty()) {
+                throw invalidLine("has no key");
+            }
+            if (value == null) {
+                throw invalidLine("has no value");
+            }
+            consumer.accept(new BulkRecord(line, key, value, version, ttl));
+        } catch (JsonProcessingException e) {
+            throw invalidLine("is not valid json, " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new JsonDecodingFailed(e);
+        }
+    }
+
+    /**
+     * Copies the value the parser is at, offsets of the parser are relative to the start of the line.
+     */
+    private byte[] copyValue(JsonParser parser, int lineOffset) throws IOException {
+        int start = lineOffset + (int) parser.currentTokenLocation().getByteOffset();
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+        } else {
+            // strings are decoded lazily, the parser is only past the closing quote once they are
+            parser.finishToken();
+        }
+        int end = lineOffset + (int) parser.currentLocation().getByteOffset();
+        return Arrays.copyOfRange(buffer, start, end);
+    }
+
+    private Long longValue(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+            throw invalidLine("has a " + field + " which is not an integral number");
+        }
+        return parser.getLongValue();
+    }
+
+    private boolean isBlank(int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the incomplete line to the front of the buffer before a chunk is appended, growing the buffer
+     * only when the line and the chunk don't fit.
+     */
+    private void makeRoom(int length) {
+        if (lineStart > 0) {
+            System.arraycopy(buffer, lineStart, buffer, 0, size - lineStart);
+            size -= lineStart;
+            lineStart = 0;
+        }
+        if (size + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(size + length, buffer.length * 2));
+        }
+    }
+
+    private JsonDecodingFailed invalidLine(String reason) {
+        return new JsonDecodingFailed(new IOException("Line " + line + " " + reason));
+    }
+}
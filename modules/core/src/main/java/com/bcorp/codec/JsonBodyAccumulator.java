@@ -0,0 +1,163 @@
+package com.bcorp.codec;
+
+import com.bcorp.exceptions.JsonDecodingFailed;
+import com.bcorp.exceptions.ValueTooLargeException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Collects a json request body chunk by chunk and validates it with a non-blocking token parser
+ * while the chunks arrive.
+ *
+ * <p>Every chunk is copied exactly once and the parser reads the tokens straight from the copy. No
+ * {@code String} or tree is built, the validated bytes are stored as-is. With the size of a small body known the
+ * chunks are copied into the final array. Otherwise they are kept apart and joined once at the end, so a large
+ * body doesn't go through a series of ever larger arrays, each of them a humongous allocation past a few MB,
+ * and an announced size is never trusted for a large allocation before the bytes arrived.</p>
+ *
+ * <p>Not thread safe, one instance is meant to be used for a single request body.</p>
+ */
+public class JsonBodyAccumulator {
+    // larger bodies are collected in chunks whatever their announced size
+    static final int MAX_PREALLOCATED_BYTES = 256 << 10;
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    // 0 for no limit
+    private final int maxSize;
+
+    // the final array, null once the body turned out larger than expected or when its size isn't known or large
+    private byte[] body;
+    // chunks of a body of unknown size
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int size;
+    private int depth;
+    private boolean rootValueCompleted;
+
+    public JsonBodyAccumulator(JsonFactory _jsonFactory, int _expectedSize) {
+        this(_jsonFactory, _expectedSize, 0);
+    }
+
+    /**
+     * @param _expectedSize size of the body if known, 0 otherwise
+     * @param _maxSize      size above which the body is rejected, 0 for no limit
+     */
+    public JsonBodyAccumulator(JsonFactory _jsonFactory, int _expectedSize, int _maxSize) {
+        try {
+            this.parser = _jsonFactory.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new JsonDecodingFailed(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.maxSize = _maxSize;
+        if (_maxSize > 0 && _expectedSize > _maxSize) {
+            throw new ValueTooLargeException(_expectedSize, _maxSize);
+        }
+        this.body = _expectedSize > 0 && _expectedSize <= MAX_PREALLOCATED_BYTES ? new byte[_expectedSize] : null;
+    }
+
+    /**
+     * Appends the next chunk of the body.
+     *
+     * @param length number of bytes in the chunk
+     * @param writer copies the chunk into the given array starting at the given offset
+     * @throws ValueTooLargeException once the body grows past the limit, before the chunk is copied
+     */
+    public void append(int length, ObjIntConsumer<byte[]> writer) {
+        if (length == 0) {
+            return;
+        }
+        if (maxSize > 0 && (long) size + length > maxSize) {
+            throw new ValueTooLargeException((long) size + length, maxSize);
+        }
+
+        byte[] target;
+        int offset;
+        if (body != null && size + length <= body.length) {
+            target = body;
+            offset = size;
+        } else {
+            if (body != null) {
+                // larger than announced, the part received so far becomes the first chunk
+                chunks.add(size == body.length ? body : Arrays.copyOf(body, size));
+                body = null;
+            }
+            target = new byte[length];
+            offset = 0;
+            chunks.add(target);
+        }
+        writer.accept(target, offset);
+
+        try {
+            feeder.feedInput(target, offset, offset + length);
+            size += length;
+            consumeAvailableTokens();
+        } catch (IOException e) {
+            throw new JsonDecodingFailed(e);
+        }
+    }
+
+    /**
+     * Marks the end of the body and returns the validated bytes.
+     *
+     * @throws JsonDecodingFailed if the body is not exactly one complete json value
+     */
+    public byte[] finish() {
+        try {
+            feeder.endOfInput();
+            consumeAvailableTokens();
+            parser.close();
+        } catch (IOException e) {
+            throw new JsonDecodingFailed(e);
+        }
+
+        if (!rootValueCompleted) {
+            throw new JsonDecodingFailed(new IOException("Body doesn't contain a complete json value"));
+        }
+
+        if (body != null) {
+            return size == body.length ? body : Arrays.copyOf(body, size);
+        }
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+        byte[] joined = new byte[size];
+        int offset = 0;
+        for (byte[] chunk : chunks) {
+            System.arraycopy(chunk, 0, joined, offset, chunk.length);
+            offset += chunk.length;
+        }
+        return joined;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void consumeAvailableTokens() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (rootValueCompleted) {
+                throw new IOException("Body contains more than one json value");
+            }
+
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+
+            if (depth == 0 && token != JsonToken.FIELD_NAME) {
+                rootValueCompleted = true;
+            }
+        }
+    }
+}
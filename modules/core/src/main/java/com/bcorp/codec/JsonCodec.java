@@ -8,9 +8,12 @@ import com.bcorp.pojos.RequestDataValue;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 public class JsonCodec implements Codec<JsonNode> {
     ObjectMapper mapper = new ObjectMapper();
@@ -19,7 +22,7 @@ public class JsonCodec implements Codec<JsonNode> {
     public RequestDataValue encode(JsonNode data) {
         try {
             byte[] encodedData = mapper.writeValueAsBytes(data);
-            return new RequestDataValue(encodedData, ObjectNode.class);
+            return new RequestDataValue(encodedData, dataTypeOf(data));
         } catch (JsonProcessingException e) {
             throw new JsonEncodingFailed(e);
         }
@@ -35,6 +38,57 @@ public class JsonCodec implements Codec<JsonNode> {
         }
     }
 
+    /**
+     * Wraps bytes which are already known to be valid json, e.g. validated by a {@link JsonBodyAccumulator}.
+     * The data type is taken from the first token of the root value, like {@link #encode} does for a tree.
+     */
+    public RequestDataValue fromValidatedBytes(byte[] jsonBytes) {
+        return new RequestDataValue(jsonBytes, dataTypeOf(jsonBytes));
+    }
+
+    static Class<? extends JsonNode> dataTypeOf(JsonNode node) {
+        if (node.isObject()) {
+            return ObjectNode.class;
+        }
+        return node.isArray() ? ArrayNode.class : ValueNode.class;
+    }
+
+    static Class<? extends JsonNode> dataTypeOf(byte[] validatedJson) {
+        for (byte b : validatedJson) {
+            switch (b) {
+                // whitespace and the utf-8 byte order mark before the root value
+                case ' ', '\t', '\n', '\r', (byte) 0xEF, (byte) 0xBB, (byte) 0xBF -> {
+                }
+                case '{' -> {
+                    return ObjectNode.class;
+                }
+                case '[' -> {
+                    return ArrayNode.class;
+                }
+                default -> {
+                    return ValueNode.class;
+                }
+            }
+        }
+        return ValueNode.class;
+    }
+
+    public JsonBodyAccumulator newBodyAccumulator(int expectedSize) {
+        return new JsonBodyAccumulator(mapper.getFactory(), expectedSize);
+    }
+
+    public JsonBodyAccumulator newBodyAccumulator(int expectedSize, int maxSize) {
+        return new JsonBodyAccumulator(mapper.getFactory(), expectedSize, maxSize);
+    }
+
+    public BulkRecordReader newBulkRecordReader(Consumer<BulkRecord> consumer) {
+        return new BulkRecordReader(mapper.getFactory(), consumer);
+    }
+
+    public BulkRecordReader newBulkRecordReader(Consumer<BulkRecord> consumer, int maxLineSize) {
+        return new BulkRecordReader(mapper.getFactory(), consumer, maxLineSize);
+    }
+
     public JsonNode fromString(String jsonBody) {
         try {
             return mapper.readTree(jsonBody);
@@ -0,0 +1,126 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.utils.XxHash64;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Bloom filter sized on creation for an expected number of items and a false positive rate. The filter
+ * never grows, adding more items than it was sized for raises the false positive rate instead.
+ */
+public class BloomFilterValue implements NativeValue {
+    // 64 MB of bits
+    public static final long MAX_BITS = 1L << 29;
+    // keeps the hashes of an item below 30
+    public static final double MIN_ERROR_RATE = 1e-9;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param capacity  number of items the filter is sized for
+     * @param errorRate false positive rate expected at {@code capacity} items, from {@link #MIN_ERROR_RATE} to 1
+     * @throws IllegalArgumentException if the filter would take more than {@link #MAX_BITS} bits
+     */
+    public BloomFilterValue(long capacity, double errorRate) {
+        if (capacity < 1 || !(errorRate >= MIN_ERROR_RATE && errorRate < 1)) {
+            throw new IllegalArgumentException("The capacity must be positive and the error rate between "
+                    + MIN_ERROR_RATE + " and 1");
+        }
+        this.bitCount = bitsFor(capacity, errorRate);
+        if (bitCount > MAX_BITS) {
+            throw new IllegalArgumentException("A bloom filter of " + capacity + " items at an error rate of "
+                    + errorRate + " takes more than " + MAX_BITS + " bits");
+        }
+        this.bits = new long[(int) ((bitCount + 63) / 64)];
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+    }
+
+    private BloomFilterValue(long[] _bits, long _bitCount, int _hashCount) {
+        this.bits = _bits;
+        this.bitCount = _bitCount;
+        this.hashCount = _hashCount;
+    }
+
+    /**
+     * @return bits of a filter of {@code capacity} items at {@code errorRate}
+     */
+    public static long bitsFor(long capacity, double errorRate) {
+        return Math.max(64, (long) Math.ceil(-capacity * Math.log(errorRate) / (Math.log(2) * Math.log(2))));
+    }
+
+    public static BloomFilterValue readFrom(DataInput in) throws IOException {
+        long bitCount = in.readLong();
+        int hashCount = in.readInt();
+        long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilterValue(bits, bitCount, hashCount);
+    }
+
+    /**
+     * @return true if the item wasn't in the filter before, false if it may have been
+     */
+    public boolean add(byte[] item) {
+        long hash1 = XxHash64.hash(item);
+        long hash2 = XxHash64.hash(item, 0, item.length, hash1);
+
+        boolean added = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @return false if the item was never added, true if it may have been
+     */
+    public boolean mightContain(byte[] item) {
+        long hash1 = XxHash64.hash(item);
+        long hash2 = XxHash64.hash(item, 0, item.length, hash1);
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * A filter is kept once created, even if nothing was added to it.
+     */
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(bitCount);
+        out.writeInt(hashCount);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.exceptions.WrongTypeException;
+import com.bcorp.utils.XxHash64;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Count-min sketch of item frequencies, a {@code depth x width} table of counters whatever the number of
+ * distinct items. An estimate is never below the real count, and exceeds it by at most
+ * {@code errorRate * total} with probability {@code 1 - failureProbability}.
+ */
+public class CountMinSketchValue implements NativeValue {
+    // a width of 27183 counters at most
+    public static final double MIN_ERROR_RATE = 0.0001;
+    // a depth of 21 rows at most
+    public static final double MIN_FAILURE_PROBABILITY = 1e-9;
+    // 32 MB of counters
+    public static final long MAX_COUNTERS = 1L << 22;
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long total;
+
+    /**
+     * @param errorRate          overestimate bound, as a fraction of the total of all increments, from
+     *                           {@link #MIN_ERROR_RATE} to 1
+     * @param failureProbability probability that an estimate exceeds the bound, from
+     *                           {@link #MIN_FAILURE_PROBABILITY} to 1
+     */
+    public CountMinSketchValue(double errorRate, double failureProbability) {
+        this(widthFor(errorRate), depthFor(failureProbability));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the sketch would have more than {@link #MAX_COUNTERS} counters
+     */
+    public CountMinSketchValue(int _width, int _depth) {
+        if (_width < 1 || (long) _width * Math.max(1, _depth) > MAX_COUNTERS) {
+            throw new IllegalArgumentException("Can't create a " + _depth + "x" + _width
+                    + " count-min sketch, of " + MAX_COUNTERS + " counters at most");
+        }
+        this.width = _width;
+        this.depth = Math.max(1, _depth);
+        this.counters = new long[width * depth];
+    }
+
+    private static int widthFor(double errorRate) {
+        if (!(errorRate >= MIN_ERROR_RATE && errorRate < 1)) {
+            throw new IllegalArgumentException("The error rate must be between " + MIN_ERROR_RATE + " and 1");
+        }
+        return (int) Math.ceil(Math.E / errorRate);
+    }
+
+    private static int depthFor(double failureProbability) {
+        if (!(failureProbability >= MIN_FAILURE_PROBABILITY && failureProbability < 1)) {
+            throw new IllegalArgumentException("The failure probability must be between "
+                    + MIN_FAILURE_PROBABILITY + " and 1");
+        }
+        return (int) Math.ceil(Math.log(1 / failureProbability));
+    }
+
+    public static CountMinSketchValue readFrom(DataInput in) throws IOException {
+        CountMinSketchValue sketch = new CountMinSketchValue(in.readInt(), in.readInt());
+        sketch.total = in.readLong();
+        for (int i = 0; i < sketch.counters.length; i++) {
+            sketch.counters[i] = in.readLong();
+        }
+        return sketch;
+    }
+
+    /**
+     * @return the estimate of the item after the increment
+     */
+    public long increment(byte[] item, long by) {
+        long hash1 = XxHash64.hash(item);
+        long hash2 = XxHash64.hash(item, 0, item.length, hash1);
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash1, hash2, row);
+            counters[index] += by;
+            estimate = Math.min(estimate, counters[index]);
+        }
+        total += by;
+        return estimate;
+    }
+
+    public long estimate(byte[] item) {
+        long hash1 = XxHash64.hash(item);
+        long hash2 = XxHash64.hash(item, 0, item.length, hash1);
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + column(hash1, hash2, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Adds the counts of {@code other}, which must have the same dimensions.
+     *
+     * @throws WrongTypeException if the dimensions differ
+     */
+    public void merge(CountMinSketchValue other) {
+        checkMergeable(other);
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * @throws WrongTypeException if {@code other} can't be merged into this sketch
+     */
+    public void checkMergeable(CountMinSketchValue other) {
+        if (other.width != width || other.depth != depth) {
+            throw new WrongTypeException("Can't merge a " + other.depth + "x" + other.width
+                    + " count-min sketch into a " + depth + "x" + width + " one");
+        }
+    }
+
+    public CountMinSketchValue copy() {
+        CountMinSketchValue copy = new CountMinSketchValue(width, depth);
+        System.arraycopy(counters, 0, copy.counters, 0, counters.length);
+        copy.total = total;
+        return copy;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    /**
+     * A sketch is kept once created, even if nothing was counted.
+     */
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(depth);
+        out.writeLong(total);
+        for (long counter : counters) {
+            out.writeLong(counter);
+        }
+    }
+
+    private int column(long hash1, long hash2, int row) {
+        return (int) (((hash1 + row * hash2) & Long.MAX_VALUE) % width);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.utils.BinaryIo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Field map where every field holds its own byte slice, so reading or writing one field costs the size
+ * of that field and not of the whole value.
+ */
+public class HashValue implements NativeValue {
+    private final Map<String, byte[]> fields;
+
+    public HashValue() {
+        this.fields = new HashMap<>();
+    }
+
+    public static HashValue readFrom(DataInput in) throws IOException {
+        HashValue hash = new HashValue();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            hash.fields.put(BinaryIo.readString(in), BinaryIo.readBytes(in));
+        }
+        return hash;
+    }
+
+    public byte[] get(String field) {
+        return fields.get(field);
+    }
+
+    /**
+     * @return true if the field didn't exist before
+     */
+    public boolean put(String field, byte[] value) {
+        return fields.put(field, value) == null;
+    }
+
+    /**
+     * @return true if the field existed
+     */
+    public boolean remove(String field) {
+        return fields.remove(field) != null;
+    }
+
+    public int size() {
+        return fields.size();
+    }
+
+    /**
+     * The slices are shared, they are never modified once stored.
+     *
+     * @return copy of the field map
+     */
+    public Map<String, byte[]> getAll() {
+        return new LinkedHashMap<>(fields);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(fields.size());
+        for (Map.Entry<String, byte[]> field : fields.entrySet()) {
+            BinaryIo.writeString(out, field.getKey());
+            BinaryIo.writeBytes(out, field.getValue());
+        }
+    }
+}
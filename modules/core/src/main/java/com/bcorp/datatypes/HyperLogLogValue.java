@@ -0,0 +1,95 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.utils.XxHash64;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * HyperLogLog cardinality estimate with 2^14 registers of one byte, 16 KB per key whatever the number of
+ * distinct elements added. The standard error of the estimate is about 0.81%.
+ */
+public class HyperLogLogValue implements NativeValue {
+    static final int PRECISION = 14;
+    static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLogValue() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLogValue(byte[] _registers) {
+        this.registers = _registers;
+    }
+
+    public static HyperLogLogValue readFrom(DataInput in) throws IOException {
+        byte[] registers = new byte[REGISTERS];
+        in.readFully(registers);
+        return new HyperLogLogValue(registers);
+    }
+
+    /**
+     * @return true if the estimate may have changed
+     */
+    public boolean add(byte[] element) {
+        long hash = XxHash64.hash(element);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // the guard bit bounds the rank when the remaining bits are all 0
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+
+        if (rank > registers[index]) {
+            registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    public long count() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // linear counting is more accurate while many registers are still empty
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Adds every element counted by {@code other} to this estimate.
+     */
+    public void merge(HyperLogLogValue other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public HyperLogLogValue copy() {
+        return new HyperLogLogValue(registers.clone());
+    }
+
+    /**
+     * An estimate is kept once created, even if nothing was added to it.
+     */
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.write(registers);
+    }
+}
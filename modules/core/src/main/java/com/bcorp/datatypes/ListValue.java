@@ -0,0 +1,126 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.utils.BinaryIo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List of opaque byte slices kept in a ring buffer, so pushing and popping at either end is O(1)
+ * and reading an index range is O(range).
+ */
+public class ListValue implements NativeValue {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private byte[][] elements;
+    private int head;
+    private int size;
+
+    public ListValue() {
+        this.elements = new byte[INITIAL_CAPACITY][];
+    }
+
+    public static ListValue readFrom(DataInput in) throws IOException {
+        ListValue list = new ListValue();
+        int size = in.readInt();
+        list.elements = new byte[Math.max(INITIAL_CAPACITY, size)][];
+        for (int i = 0; i < size; i++) {
+            list.elements[i] = BinaryIo.readBytes(in);
+        }
+        list.size = size;
+        return list;
+    }
+
+    public void pushLeft(byte[] value) {
+        ensureCapacity();
+        head = (head - 1 + elements.length) % elements.length;
+        elements[head] = value;
+        size++;
+    }
+
+    public void pushRight(byte[] value) {
+        ensureCapacity();
+        elements[(head + size) % elements.length] = value;
+        size++;
+    }
+
+    /**
+     * @return the first element, null if the list is empty
+     */
+    public byte[] popLeft() {
+        if (size == 0) {
+            return null;
+        }
+        byte[] value = elements[head];
+        elements[head] = null;
+        head = (head + 1) % elements.length;
+        size--;
+        return value;
+    }
+
+    /**
+     * @return the last element, null if the list is empty
+     */
+    public byte[] popRight() {
+        if (size == 0) {
+            return null;
+        }
+        int last = (head + size - 1) % elements.length;
+        byte[] value = elements[last];
+        elements[last] = null;
+        size--;
+        return value;
+    }
+
+    /**
+     * Elements {@code start} to {@code stop}, both inclusive. Negative indexes count from the end,
+     * -1 being the last element.
+     */
+    public List<byte[]> range(long start, long stop) {
+        if (start < 0) {
+            start = Math.max(0, size + start);
+        }
+        if (stop < 0) {
+            stop = size + stop;
+        }
+        stop = Math.min(stop, size - 1L);
+
+        List<byte[]> range = new ArrayList<>();
+        for (long index = start; index <= stop; index++) {
+            range.add(elements[(int) ((head + index) % elements.length)]);
+        }
+        return range;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            BinaryIo.writeBytes(out, elements[(head + i) % elements.length]);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size < elements.length) {
+            return;
+        }
+        // unroll the ring so the elements start at 0 again
+        byte[][] grown = new byte[elements.length * 2][];
+        System.arraycopy(elements, head, grown, 0, elements.length - head);
+        System.arraycopy(elements, 0, grown, elements.length - head, head);
+        elements = grown;
+        head = 0;
+    }
+}
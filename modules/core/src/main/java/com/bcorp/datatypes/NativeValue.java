@@ -0,0 +1,26 @@
+package com.bcorp.datatypes;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A value kept by the store as a data structure instead of encoded bytes.
+ *
+ * <p>Native values are only ever touched on the loop of the partition owning the key, which lets the
+ * operations modify them in place and pay for the part they touch instead of the whole value.
+ * Implementations are therefore not thread safe and must never be handed out of the loop, operations
+ * copy whatever they return.</p>
+ */
+public interface NativeValue {
+
+    /**
+     * An empty value is removed from the store once the operation which emptied it completes.
+     */
+    boolean isEmpty();
+
+    /**
+     * Writes the value for a snapshot. Every implementation reads it back with a static
+     * {@code readFrom(DataInput)}.
+     */
+    void writeTo(DataOutput out) throws IOException;
+}
@@ -0,0 +1,4 @@
+package com.bcorp.datatypes;
+
+public record ScoredMember(String member, double score) {
+}
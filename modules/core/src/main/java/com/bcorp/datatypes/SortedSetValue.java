@@ -0,0 +1,288 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.utils.BinaryIo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Members ordered by score, ties ordered by member.
+ *
+ * <p>Backed by a skiplist whose links also store their span, the number of members they skip, which makes
+ * add, remove, rank and the start of a range O(log n). A map from member to score answers score lookups
+ * in O(1) and finds the node to unlink when a member's score changes.</p>
+ */
+public class SortedSetValue implements NativeValue {
+    private static final int MAX_LEVEL = 32;
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    private static final class Node {
+        final String member;
+        final double score;
+        final Node[] forward;
+        final long[] span;
+
+        Node(String member, double score, int level) {
+            this.member = member;
+            this.score = score;
+            this.forward = new Node[level];
+            this.span = new long[level];
+        }
+    }
+
+    private final Map<String, Double> scores;
+    private final Node header;
+    private int level;
+    private int length;
+
+    public SortedSetValue() {
+        this.scores = new HashMap<>();
+        this.header = new Node(null, 0, MAX_LEVEL);
+        this.level = 1;
+    }
+
+    /**
+     * Members are written in order, so every insert lands at the tail of the skiplist.
+     */
+    public static SortedSetValue readFrom(DataInput in) throws IOException {
+        SortedSetValue set = new SortedSetValue();
+        int length = in.readInt();
+        for (int i = 0; i < length; i++) {
+            String member = BinaryIo.readString(in);
+            double score = in.readDouble();
+            set.scores.put(member, score);
+            set.insert(member, score);
+        }
+        return set;
+    }
+
+    /**
+     * Adds the member or moves it to its new score.
+     *
+     * @return true if the member didn't exist before
+     */
+    public boolean add(String member, double score) {
+        Double currentScore = scores.put(member, score);
+        if (currentScore != null) {
+            if (currentScore == score) {
+                return false;
+            }
+            delete(member, currentScore);
+        }
+        insert(member, score);
+        return currentScore == null;
+    }
+
+    /**
+     * @return true if the member existed
+     */
+    public boolean remove(String member) {
+        Double score = scores.remove(member);
+        if (score == null) {
+            return false;
+        }
+        delete(member, score);
+        return true;
+    }
+
+    public Double score(String member) {
+        return scores.get(member);
+    }
+
+    /**
+     * @return 0 based rank of the member in ascending score order, null if it doesn't exist
+     */
+    public Long rank(String member) {
+        Double score = scores.get(member);
+        if (score == null) {
+            return null;
+        }
+
+        long rank = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && compare(x.forward[i], score, member) <= 0) {
+                rank += x.span[i];
+                x = x.forward[i];
+            }
+            if (x != header && x.member.equals(member)) {
+                return rank - 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Members with {@code min <= score <= max} in ascending order.
+     *
+     * @param offset number of matching members to skip
+     * @param limit  maximum number of members to return, negative for no limit
+     */
+    public List<ScoredMember> rangeByScore(double min, double max, int offset, int limit) {
+        List<ScoredMember> range = new ArrayList<>();
+        if (min > max || length == 0) {
+            return range;
+        }
+
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && x.forward[i].score < min) {
+                x = x.forward[i];
+            }
+        }
+
+        x = x.forward[0];
+        for (int skipped = 0; x != null && skipped < offset; skipped++) {
+            x = x.forward[0];
+        }
+        while (x != null && x.score <= max && (limit < 0 || range.size() < limit)) {
+            range.add(new ScoredMember(x.member, x.score));
+            x = x.forward[0];
+        }
+        return range;
+    }
+
+    /**
+     * Members ranked {@code start} to {@code stop}, both inclusive and 0 based. Negative indexes count from
+     * the highest score, -1 being the last member.
+     */
+    public List<ScoredMember> rangeByRank(long start, long stop) {
+        if (start < 0) {
+            start = Math.max(0, length + start);
+        }
+        if (stop < 0) {
+            stop = length + stop;
+        }
+        stop = Math.min(stop, length - 1L);
+
+        List<ScoredMember> range = new ArrayList<>();
+        if (start > stop) {
+            return range;
+        }
+
+        Node x = nodeAtRank(start + 1);
+        for (long rank = start; x != null && rank <= stop; rank++) {
+            range.add(new ScoredMember(x.member, x.score));
+            x = x.forward[0];
+        }
+        return range;
+    }
+
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(length);
+        for (Node x = header.forward[0]; x != null; x = x.forward[0]) {
+            BinaryIo.writeString(out, x.member);
+            out.writeDouble(x.score);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    private void insert(String member, double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        long[] rank = new long[MAX_LEVEL];
+
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.forward[i] != null && compare(x.forward[i], score, member) < 0) {
+                rank[i] += x.span[i];
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = header;
+                header.span[i] = length;
+            }
+            level = newLevel;
+        }
+
+        x = new Node(member, score, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            x.forward[i] = update[i].forward[i];
+            update[i].forward[i] = x;
+
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        // links above the new node now skip one more member
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+    }
+
+    private void delete(String member, double score) {
+        Node[] update = new Node[MAX_LEVEL];
+
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && compare(x.forward[i], score, member) < 0) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+
+        x = x.forward[0];
+        for (int i = 0; i < level; i++) {
+            if (update[i].forward[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].forward[i] = x.forward[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && header.forward[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    /**
+     * @param rank 1 based rank
+     */
+    private Node nodeAtRank(long rank) {
+        long traversed = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private static int compare(Node node, double score, String member) {
+        int byScore = Double.compare(node.score, score);
+        return byScore != 0 ? byScore : node.member.compareTo(member);
+    }
+
+    private static int randomLevel() {
+        int newLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (newLevel < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            newLevel++;
+        }
+        return newLevel;
+    }
+}
@@ -0,0 +1,9 @@
+package com.bcorp.datatypes;
+
+/**
+ * @param offset      position of the entry in the stream, offsets start at 0 and are never reused
+ * @param timestampMs time the entry was appended at
+ * @param value       json of the entry
+ */
+public record StreamEntry(long offset, long timestampMs, byte[] value) {
+}
@@ -0,0 +1,240 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.utils.BinaryIo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of opaque byte slices, stored in fixed size segments.
+ *
+ * <p>An append only ever writes to the last segment, and trimming drops whole segments from the head, so
+ * neither copies the entries which stay. The segment holding an offset is found by arithmetic, a read from
+ * an offset costs O(1) plus the entries it returns.</p>
+ *
+ * <p>Consumer groups are tracked next to the entries, every group remembers the next offset it reads from.</p>
+ */
+public class StreamValue implements NativeValue {
+    static final int SEGMENT_SIZE = 256;
+
+    private static final class Segment {
+        private final long firstOffset;
+        private final byte[][] values = new byte[SEGMENT_SIZE][];
+        private final long[] timestamps = new long[SEGMENT_SIZE];
+        private int size;
+
+        private Segment(long _firstOffset) {
+            this.firstOffset = _firstOffset;
+        }
+    }
+
+    // segments in offset order, every segment but the last is full
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, Long> groupOffsets = new HashMap<>();
+    // first offset which wasn't trimmed
+    private long firstOffset;
+    private long nextOffset;
+
+    /**
+     * Only the entries which weren't trimmed are written, they are read back into segments starting at the
+     * same offsets as before.
+     */
+    public static StreamValue readFrom(DataInput in) throws IOException {
+        StreamValue stream = new StreamValue();
+        long firstOffset = in.readLong();
+        long nextOffset = in.readLong();
+
+        // segments start at multiples of the segment size, the slots trimmed from the first one stay empty
+        stream.nextOffset = firstOffset - firstOffset % SEGMENT_SIZE;
+        while (stream.nextOffset < firstOffset) {
+            stream.append(null, 0);
+        }
+        for (long offset = firstOffset; offset < nextOffset; offset++) {
+            long timestampMs = in.readLong();
+            stream.append(BinaryIo.readBytes(in), timestampMs);
+        }
+        stream.firstOffset = firstOffset;
+        // a stream trimmed to nothing keeps its offset
+        stream.nextOffset = nextOffset;
+
+        int groups = in.readInt();
+        for (int i = 0; i < groups; i++) {
+            stream.groupOffsets.put(BinaryIo.readString(in), in.readLong());
+        }
+        return stream;
+    }
+
+    /**
+     * @return offset of the appended entry
+     */
+    public long append(byte[] value, long timestampMs) {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last == null || last.size == SEGMENT_SIZE) {
+            last = new Segment(nextOffset);
+            segments.add(last);
+        }
+
+        last.values[last.size] = value;
+        last.timestamps[last.size] = timestampMs;
+        last.size++;
+        return nextOffset++;
+    }
+
+    /**
+     * Reads up to {@code limit} entries starting at {@code fromOffset}, or at the first entry still kept
+     * if {@code fromOffset} was trimmed already.
+     */
+    public List<StreamEntry> read(long fromOffset, int limit) {
+        long offset = Math.max(fromOffset, firstOffset);
+        List<StreamEntry> entries = new ArrayList<>((int) Math.max(0, Math.min(limit, nextOffset - offset)));
+        if (segments.isEmpty()) {
+            return entries;
+        }
+
+        long segmentsStart = segments.get(0).firstOffset;
+        while (entries.size() < limit && offset < nextOffset) {
+            Segment segment = segments.get((int) ((offset - segmentsStart) / SEGMENT_SIZE));
+            int index = (int) (offset - segment.firstOffset);
+            entries.add(new StreamEntry(offset, segment.timestamps[index], segment.values[index]));
+            offset++;
+        }
+        return entries;
+    }
+
+    /**
+     * Reads like {@link #read} from the offset of the group and moves the group past the entries read.
+     * A new group starts at the first entry still kept.
+     */
+    public List<StreamEntry> readGroup(String group, int limit) {
+        List<StreamEntry> entries = read(groupOffsets.getOrDefault(group, firstOffset), limit);
+        if (!entries.isEmpty()) {
+            groupOffsets.put(group, entries.get(entries.size() - 1).offset() + 1);
+        }
+        return entries;
+    }
+
+    /**
+     * @return the next offset the group reads from
+     */
+    public long groupOffset(String group) {
+        return Math.max(groupOffsets.getOrDefault(group, firstOffset), firstOffset);
+    }
+
+    /**
+     * Moves the group to {@code offset}, to replay or to skip entries.
+     */
+    public void seekGroup(String group, long offset) {
+        groupOffsets.put(group, Math.max(0, Math.min(offset, nextOffset)));
+    }
+
+    /**
+     * @return whether the group existed
+     */
+    public boolean removeGroup(String group) {
+        return groupOffsets.remove(group) != null;
+    }
+
+    /**
+     * Drops the oldest entries until at most {@code maxLength} are left.
+     *
+     * @return number of entries dropped
+     */
+    public long trimToLength(long maxLength) {
+        return trimBefore(Math.max(firstOffset, nextOffset - Math.max(0, maxLength)));
+    }
+
+    /**
+     * Drops the entries appended before {@code minTimestampMs}. Entries are appended in time order, so this
+     * stops at the first entry which is recent enough.
+     *
+     * @return number of entries dropped
+     */
+    public long trimOlderThan(long minTimestampMs) {
+        long offset = firstOffset;
+        // whole segments first, their last entry is the most recent one
+        for (Segment segment : segments) {
+            if (segment.timestamps[segment.size - 1] >= minTimestampMs) {
+                int index = (int) (Math.max(offset, segment.firstOffset) - segment.firstOffset);
+                while (index < segment.size && segment.timestamps[index] < minTimestampMs) {
+                    index++;
+                }
+                offset = segment.firstOffset + index;
+                return trimBefore(offset);
+            }
+            offset = segment.firstOffset + segment.size;
+        }
+        return trimBefore(offset);
+    }
+
+    public long firstOffset() {
+        return firstOffset;
+    }
+
+    public long nextOffset() {
+        return nextOffset;
+    }
+
+    public long length() {
+        return nextOffset - firstOffset;
+    }
+
+    /**
+     * A stream is kept once something was appended, even when it's trimmed to nothing, so its offsets
+     * keep growing and its groups keep their position.
+     */
+    @Override
+    public boolean isEmpty() {
+        return nextOffset == 0;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(firstOffset);
+        out.writeLong(nextOffset);
+        for (Segment segment : segments) {
+            for (int i = (int) Math.max(0, firstOffset - segment.firstOffset); i < segment.size; i++) {
+                out.writeLong(segment.timestamps[i]);
+                BinaryIo.writeBytes(out, segment.values[i]);
+            }
+        }
+
+        out.writeInt(groupOffsets.size());
+        for (Map.Entry<String, Long> group : groupOffsets.entrySet()) {
+            BinaryIo.writeString(out, group.getKey());
+            out.writeLong(group.getValue());
+        }
+    }
+
+    private long trimBefore(long offset) {
+        long trimmed = offset - firstOffset;
+        if (trimmed <= 0) {
+            return 0;
+        }
+
+        int fullSegments = 0;
+        while (fullSegments < segments.size()) {
+            Segment segment = segments.get(fullSegments);
+            if (segment.firstOffset + segment.size > offset || segment.size < SEGMENT_SIZE) {
+                break;
+            }
+            fullSegments++;
+        }
+        segments.subList(0, fullSegments).clear();
+
+        if (!segments.isEmpty()) {
+            // release the trimmed entries of the segment now at the head
+            Segment head = segments.get(0);
+            for (long dropped = Math.max(firstOffset, head.firstOffset); dropped < offset && dropped < head.firstOffset + head.size; dropped++) {
+                head.values[(int) (dropped - head.firstOffset)] = null;
+            }
+        }
+
+        firstOffset = offset;
+        return trimmed;
+    }
+}
@@ -0,0 +1,7 @@
+package com.bcorp.datatypes;
+
+/**
+ * Aggregate of the samples in {@code [startMs, startMs + bucketMs)}.
+ */
+public record TimeSeriesBucket(long startMs, long count, double min, double max, double avg) {
+}
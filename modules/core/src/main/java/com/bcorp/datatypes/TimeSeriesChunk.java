@@ -0,0 +1,266 @@
+package com.bcorp.datatypes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A run of samples compressed the way Gorilla does it. The first sample is written as is, every following
+ * timestamp as the delta of its delta to the previous one, and every following value as the XOR with the
+ * previous value, of which only the meaningful bits are kept.
+ *
+ * <p>Samples taken at a regular interval cost a single bit for the timestamp, and a value which didn't
+ * change a single bit for the value, so a series of slow moving metrics takes a couple of bytes per sample.</p>
+ */
+final class TimeSeriesChunk {
+    static final int MAX_SAMPLES = 256;
+
+    private long[] bits = new long[4];
+    private long bitLength;
+    private int size;
+
+    private long firstTimestampMs;
+    private long lastTimestampMs;
+    private long lastDeltaMs;
+    private long lastValueBits;
+    // leading and trailing zeros of the last XOR block written, -1 until the first block
+    private int lastLeadingZeros = -1;
+    private int lastTrailingZeros;
+
+    void append(long timestampMs, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (size == 0) {
+            write(timestampMs, 64);
+            write(valueBits, 64);
+            firstTimestampMs = timestampMs;
+        } else {
+            long deltaMs = timestampMs - lastTimestampMs;
+            writeDeltaOfDelta(deltaMs - lastDeltaMs);
+            writeValue(valueBits ^ lastValueBits);
+            lastDeltaMs = deltaMs;
+        }
+
+        lastTimestampMs = timestampMs;
+        lastValueBits = valueBits;
+        size++;
+    }
+
+    /**
+     * Drops the unused tail of the buffer, called once the chunk is full.
+     */
+    void seal() {
+        bits = Arrays.copyOf(bits, (int) ((bitLength + 63) >>> 6));
+    }
+
+    boolean isFull() {
+        return size == MAX_SAMPLES;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long firstTimestampMs() {
+        return firstTimestampMs;
+    }
+
+    long lastTimestampMs() {
+        return lastTimestampMs;
+    }
+
+    long encodedBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    Reader reader() {
+        return new Reader();
+    }
+
+    /**
+     * Writes the compressed bits as they are, along with the state the next append continues from.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeLong(bitLength);
+        int words = (int) ((bitLength + 63) >>> 6);
+        for (int i = 0; i < words; i++) {
+            out.writeLong(bits[i]);
+        }
+        out.writeLong(firstTimestampMs);
+        out.writeLong(lastTimestampMs);
+        out.writeLong(lastDeltaMs);
+        out.writeLong(lastValueBits);
+        out.writeInt(lastLeadingZeros);
+        out.writeInt(lastTrailingZeros);
+    }
+
+    static TimeSeriesChunk readFrom(DataInput in) throws IOException {
+        TimeSeriesChunk chunk = new TimeSeriesChunk();
+        chunk.size = in.readInt();
+        chunk.bitLength = in.readLong();
+        int words = (int) ((chunk.bitLength + 63) >>> 6);
+        // a full chunk is sealed, only the last one keeps room to grow
+        chunk.bits = new long[chunk.isFull() ? words : Math.max(words, 4)];
+        for (int i = 0; i < words; i++) {
+            chunk.bits[i] = in.readLong();
+        }
+        chunk.firstTimestampMs = in.readLong();
+        chunk.lastTimestampMs = in.readLong();
+        chunk.lastDeltaMs = in.readLong();
+        chunk.lastValueBits = in.readLong();
+        chunk.lastLeadingZeros = in.readInt();
+        chunk.lastTrailingZeros = in.readInt();
+        return chunk;
+    }
+
+    private void writeDeltaOfDelta(long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            write(0b0, 1);
+        } else if (fitsSigned(deltaOfDelta, 7)) {
+            write(0b10, 2);
+            write(deltaOfDelta, 7);
+        } else if (fitsSigned(deltaOfDelta, 9)) {
+            write(0b110, 3);
+            write(deltaOfDelta, 9);
+        } else if (fitsSigned(deltaOfDelta, 12)) {
+            write(0b1110, 4);
+            write(deltaOfDelta, 12);
+        } else {
+            write(0b1111, 4);
+            write(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeValue(long xor) {
+        if (xor == 0) {
+            write(0b0, 1);
+            return;
+        }
+
+        // 5 bits hold the leading zeros, anything past 31 is written as meaningful bits
+        int leadingZeros = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+
+        if (lastLeadingZeros >= 0 && leadingZeros >= lastLeadingZeros && trailingZeros >= lastTrailingZeros) {
+            // fits in the block of the previous value
+            write(0b10, 2);
+            write(xor >>> lastTrailingZeros, 64 - lastLeadingZeros - lastTrailingZeros);
+        } else {
+            int meaningfulBits = 64 - leadingZeros - trailingZeros;
+            write(0b11, 2);
+            write(leadingZeros, 5);
+            // 64 meaningful bits don't fit in 6 bits and are written as 0
+            write(meaningfulBits & 63, 6);
+            write(xor >>> trailingZeros, meaningfulBits);
+            lastLeadingZeros = leadingZeros;
+            lastTrailingZeros = trailingZeros;
+        }
+    }
+
+    private static boolean fitsSigned(long value, int bitCount) {
+        return value >= -(1L << (bitCount - 1)) && value < (1L << (bitCount - 1));
+    }
+
+    private void write(long value, int bitCount) {
+        if (bitLength + bitCount > (long) bits.length * 64) {
+            bits = Arrays.copyOf(bits, bits.length * 2);
+        }
+
+        long masked = bitCount == 64 ? value : value & ((1L << bitCount) - 1);
+        int index = (int) (bitLength >>> 6);
+        int free = 64 - (int) (bitLength & 63);
+        if (bitCount <= free) {
+            bits[index] |= masked << (free - bitCount);
+        } else {
+            bits[index] |= masked >>> (bitCount - free);
+            bits[index + 1] |= masked << (64 - (bitCount - free));
+        }
+        bitLength += bitCount;
+    }
+
+    /**
+     * Decodes the samples of the chunk in order, {@link #next()} moves to the next sample.
+     */
+    final class Reader {
+        private long position;
+        private int read;
+
+        private long timestampMs;
+        private long deltaMs;
+        private long valueBits;
+        private int leadingZeros;
+        private int trailingZeros;
+
+        boolean next() {
+            if (read == size) {
+                return false;
+            }
+
+            if (read == 0) {
+                timestampMs = read(64);
+                valueBits = read(64);
+            } else {
+                deltaMs += readDeltaOfDelta();
+                timestampMs += deltaMs;
+                valueBits ^= readXor();
+            }
+            read++;
+            return true;
+        }
+
+        long timestampMs() {
+            return timestampMs;
+        }
+
+        double value() {
+            return Double.longBitsToDouble(valueBits);
+        }
+
+        private long readDeltaOfDelta() {
+            if (read(1) == 0) {
+                return 0;
+            } else if (read(1) == 0) {
+                return readSigned(7);
+            } else if (read(1) == 0) {
+                return readSigned(9);
+            } else if (read(1) == 0) {
+                return readSigned(12);
+            }
+            return read(64);
+        }
+
+        private long readXor() {
+            if (read(1) == 0) {
+                return 0;
+            }
+            if (read(1) == 1) {
+                leadingZeros = (int) read(5);
+                int meaningfulBits = (int) read(6);
+                if (meaningfulBits == 0) {
+                    meaningfulBits = 64;
+                }
+                trailingZeros = 64 - leadingZeros - meaningfulBits;
+            }
+            return read(64 - leadingZeros - trailingZeros) << trailingZeros;
+        }
+
+        private long readSigned(int bitCount) {
+            return (read(bitCount) << (64 - bitCount)) >> (64 - bitCount);
+        }
+
+        private long read(int bitCount) {
+            int index = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            int free = 64 - offset;
+            position += bitCount;
+
+            if (bitCount <= free) {
+                return (bits[index] << offset) >>> (64 - bitCount);
+            }
+            int lowBits = bitCount - free;
+            long high = bits[index] & ((1L << free) - 1);
+            return (high << lowBits) | (bits[index + 1] >>> (64 - lowBits));
+        }
+    }
+}
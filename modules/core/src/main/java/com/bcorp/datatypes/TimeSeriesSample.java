@@ -0,0 +1,4 @@
+package com.bcorp.datatypes;
+
+public record TimeSeriesSample(long timestampMs, double value) {
+}
@@ -0,0 +1,207 @@
+package com.bcorp.datatypes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Samples of a metric in timestamp order, stored in compressed chunks of {@link TimeSeriesChunk#MAX_SAMPLES}.
+ *
+ * <p>Only the last chunk is written to, a full chunk is sealed and never decoded again unless a read
+ * covers it. Reads skip the chunks outside the range by their first and last timestamp.</p>
+ *
+ * <p>With a retention set, the samples older than the retention relative to the newest sample are expired.
+ * Expired samples are never returned, a chunk is dropped once all of its samples expired.</p>
+ */
+public class TimeSeriesValue implements NativeValue {
+
+    // chunks in timestamp order, every chunk but the last is full
+    private final List<TimeSeriesChunk> chunks = new ArrayList<>();
+    // 0 keeps the samples forever
+    private long retentionMs;
+    private long size;
+
+    public static TimeSeriesValue readFrom(DataInput in) throws IOException {
+        TimeSeriesValue series = new TimeSeriesValue();
+        series.retentionMs = in.readLong();
+        int chunkCount = in.readInt();
+        for (int i = 0; i < chunkCount; i++) {
+            TimeSeriesChunk chunk = TimeSeriesChunk.readFrom(in);
+            series.chunks.add(chunk);
+            series.size += chunk.size();
+        }
+        return series;
+    }
+
+    public long retentionMs() {
+        return retentionMs;
+    }
+
+    /**
+     * Sets the retention, the samples it expires are dropped right away.
+     */
+    public void setRetentionMs(long _retentionMs) {
+        this.retentionMs = _retentionMs;
+        trimExpired();
+    }
+
+    /**
+     * Appends a sample. Samples have to arrive in timestamp order, a sample which isn't newer than the last
+     * one is rejected.
+     *
+     * @return whether the sample was added
+     */
+    public boolean add(long timestampMs, double value) {
+        TimeSeriesChunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (last != null && timestampMs <= last.lastTimestampMs()) {
+            return false;
+        }
+
+        if (last == null || last.isFull()) {
+            if (last != null) {
+                last.seal();
+            }
+            last = new TimeSeriesChunk();
+            chunks.add(last);
+        }
+
+        last.append(timestampMs, value);
+        size++;
+        trimExpired();
+        return true;
+    }
+
+    /**
+     * @return up to {@code limit} samples with a timestamp in {@code [fromMs, toMs]}
+     */
+    public List<TimeSeriesSample> range(long fromMs, long toMs, int limit) {
+        List<TimeSeriesSample> samples = new ArrayList<>();
+        long startMs = Math.max(fromMs, expiredBeforeMs());
+
+        for (TimeSeriesChunk chunk : chunks) {
+            if (chunk.firstTimestampMs() > toMs || samples.size() >= limit) {
+                break;
+            }
+            if (chunk.lastTimestampMs() < startMs) {
+                continue;
+            }
+
+            TimeSeriesChunk.Reader reader = chunk.reader();
+            while (reader.next() && reader.timestampMs() <= toMs && samples.size() < limit) {
+                if (reader.timestampMs() >= startMs) {
+                    samples.add(new TimeSeriesSample(reader.timestampMs(), reader.value()));
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Aggregates the samples in {@code [fromMs, toMs]} into buckets of {@code bucketMs}, aligned to the epoch.
+     * Buckets without samples are left out.
+     *
+     * @return up to {@code limit} buckets in timestamp order
+     */
+    public List<TimeSeriesBucket> aggregate(long fromMs, long toMs, long bucketMs, int limit) {
+        List<TimeSeriesBucket> buckets = new ArrayList<>();
+        long startMs = Math.max(fromMs, expiredBeforeMs());
+
+        long bucketStartMs = 0;
+        long count = 0;
+        double min = 0;
+        double max = 0;
+        double sum = 0;
+
+        for (TimeSeriesChunk chunk : chunks) {
+            if (chunk.firstTimestampMs() > toMs) {
+                break;
+            }
+            if (chunk.lastTimestampMs() < startMs) {
+                continue;
+            }
+
+            TimeSeriesChunk.Reader reader = chunk.reader();
+            while (reader.next() && reader.timestampMs() <= toMs) {
+                long timestampMs = reader.timestampMs();
+                if (timestampMs < startMs) {
+                    continue;
+                }
+
+                long sampleBucketMs = Math.floorDiv(timestampMs, bucketMs) * bucketMs;
+                if (count > 0 && sampleBucketMs != bucketStartMs) {
+                    buckets.add(new TimeSeriesBucket(bucketStartMs, count, min, max, sum / count));
+                    if (buckets.size() == limit) {
+                        return buckets;
+                    }
+                    count = 0;
+                }
+
+                double value = reader.value();
+                if (count == 0) {
+                    bucketStartMs = sampleBucketMs;
+                    min = value;
+                    max = value;
+                    sum = 0;
+                }
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+                count++;
+            }
+        }
+
+        if (count > 0) {
+            buckets.add(new TimeSeriesBucket(bucketStartMs, count, min, max, sum / count));
+        }
+        return buckets;
+    }
+
+    /**
+     * @return number of samples stored, including the expired samples of a chunk which wasn't dropped yet
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return bytes taken by the compressed samples
+     */
+    public long encodedBytes() {
+        long bytes = 0;
+        for (TimeSeriesChunk chunk : chunks) {
+            bytes += chunk.encodedBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(retentionMs);
+        out.writeInt(chunks.size());
+        for (TimeSeriesChunk chunk : chunks) {
+            chunk.writeTo(out);
+        }
+    }
+
+    private long expiredBeforeMs() {
+        if (retentionMs <= 0 || chunks.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        return chunks.get(chunks.size() - 1).lastTimestampMs() - retentionMs;
+    }
+
+    private void trimExpired() {
+        long expiredBeforeMs = expiredBeforeMs();
+        // the last chunk holds the newest sample, which never expires
+        while (chunks.size() > 1 && chunks.get(0).lastTimestampMs() < expiredBeforeMs) {
+            size -= chunks.remove(0).size();
+        }
+    }
+}
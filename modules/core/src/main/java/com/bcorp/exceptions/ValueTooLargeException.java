@@ -0,0 +1,7 @@
+package com.bcorp.exceptions;
+
+public class ValueTooLargeException extends RuntimeException {
+    public ValueTooLargeException(long size, long maxSize) {
+        super("Value of " + size + " bytes is larger than the limit of " + maxSize + " bytes");
+    }
+}
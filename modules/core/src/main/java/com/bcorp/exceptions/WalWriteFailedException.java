@@ -0,0 +1,7 @@
+package com.bcorp.exceptions;
+
+public class WalWriteFailedException extends RuntimeException {
+    public WalWriteFailedException(Throwable cause) {
+        super("Write ahead log failed, the value was applied in memory but isn't durable", cause);
+    }
+}
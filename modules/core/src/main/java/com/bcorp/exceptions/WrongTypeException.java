@@ -0,0 +1,7 @@
+package com.bcorp.exceptions;
+
+public class WrongTypeException extends RuntimeException {
+    public WrongTypeException(String message) {
+        super(message);
+    }
+}
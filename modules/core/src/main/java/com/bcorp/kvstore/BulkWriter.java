@@ -0,0 +1,133 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.pojos.BulkWrite;
+import com.bcorp.pojos.BulkWriteStats;
+import com.bcorp.pojos.DataKey;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToIntFunction;
+
+/**
+ * Writes the records of a bulk import to the store, see {@link KeyValueStore#newBulkWriter()}.
+ *
+ * <p>Records are grouped by partition and every full group is handed to its partition as one batch, applied in a
+ * single hop on the loop instead of one operation per key. Only a bounded number of batches is in flight per
+ * partition, the reader of the import waits on {@link #ready()} before it reads more, so a loop which falls behind
+ * slows the import down instead of piling records up in memory. Batches of the other partitions don't wait for
+ * it until then.</p>
+ *
+ * <p>The writes of a key are applied in the order they were added. Not thread safe, one instance is meant to be
+ * used for a single import.</p>
+ */
+public class BulkWriter {
+    private final KeyValuePartition[] partitions;
+    private final ToIntFunction<DataKey> partitionOf;
+    private final int batchSize;
+    // per partition
+    private final int maxPendingBatches;
+    private final PartitionBatches[] partitionBatches;
+    // partitions which were handed more batches than the limit, ready() waits for them
+    private final Deque<Integer> fullPartitions = new ArrayDeque<>();
+    // stats of the batches done so far
+    private BulkWriteStats stats = BulkWriteStats.NONE;
+
+    private static final class PartitionBatches {
+        // null until the first write of the partition
+        private List<BulkWrite> batch;
+        // batches handed to the partition which weren't counted yet, oldest first
+        private final Deque<CompletableFuture<BulkWriteStats>> pending = new ArrayDeque<>();
+    }
+
+    BulkWriter(KeyValuePartition[] _partitions,
+               ToIntFunction<DataKey> _partitionOf,
+               int _batchSize,
+               int _maxPendingBatches) {
+        this.partitions = _partitions;
+        this.partitionOf = _partitionOf;
+        this.batchSize = _batchSize;
+        this.maxPendingBatches = _maxPendingBatches;
+        this.partitionBatches = new PartitionBatches[_partitions.length];
+        for (int partition = 0; partition < _partitions.length; partition++) {
+            partitionBatches[partition] = new PartitionBatches();
+        }
+    }
+
+    public void add(BulkWrite write) {
+        int partition = partitionOf.applyAsInt(write.key());
+        PartitionBatches batches = partitionBatches[partition];
+        if (batches.batch == null) {
+            batches.batch = new ArrayList<>(batchSize);
+        }
+        List<BulkWrite> batch = batches.batch;
+        batch.add(write);
+        if (batch.size() == batchSize) {
+            send(partition);
+        }
+    }
+
+    /**
+     * @return completes once no partition has too many batches in flight to add more records, right away most of
+     * the time
+     */
+    public CompletableFuture<Void> ready() {
+        Integer partition;
+        while ((partition = fullPartitions.peekFirst()) != null) {
+            Deque<CompletableFuture<BulkWriteStats>> pending = partitionBatches[partition].pending;
+            collectDoneBatches(pending);
+            if (pending.size() > maxPendingBatches) {
+                return pending.peekFirst().thenApply(ignored -> null);
+            }
+            fullPartitions.removeFirst();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Sends the batches which aren't full yet.
+     *
+     * @return what all the writes did, once they were applied
+     */
+    public CompletableFuture<BulkWriteStats> finish() {
+        for (int partition = 0; partition < partitionBatches.length; partition++) {
+            List<BulkWrite> batch = partitionBatches[partition].batch;
+            if (batch != null && !batch.isEmpty()) {
+                send(partition);
+            }
+        }
+        CompletableFuture<BulkWriteStats> result = CompletableFuture.completedFuture(stats);
+        for (PartitionBatches batches : partitionBatches) {
+            for (CompletableFuture<BulkWriteStats> batch : batches.pending) {
+                result = result.thenCombine(batch, BulkWriteStats::plus);
+            }
+            batches.pending.clear();
+        }
+        fullPartitions.clear();
+        return result;
+    }
+
+    private void send(int partition) {
+        PartitionBatches batches = partitionBatches[partition];
+        Deque<CompletableFuture<BulkWriteStats>> pending = batches.pending;
+        collectDoneBatches(pending);
+        pending.addLast(partitions[partition].setAll(batches.batch));
+        batches.batch = new ArrayList<>(batchSize);
+        if (pending.size() == maxPendingBatches + 1) {
+            fullPartitions.addLast(partition);
+        }
+    }
+
+    /**
+     * Counts the batches of a partition done at the head of its queue, one still running keeps the ones behind it.
+     */
+    private void collectDoneBatches(Deque<CompletableFuture<BulkWriteStats>> pending) {
+        CompletableFuture<BulkWriteStats> batch;
+        while ((batch = pending.peekFirst()) != null && batch.isDone() && !batch.isCompletedExceptionally()) {
+            stats = stats.plus(batch.join());
+            pending.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.pojos.ExportEntry;
+
+import java.util.List;
+
+/**
+ * Values read from a partition in one hop for an export.
+ *
+ * @param next position in the keys of the partition the next chunk starts at
+ */
+record ExportChunk(List<ExportEntry> entries, int next) {
+}
@@ -1,41 +1,114 @@
 package com.bcorp.kvstore;
 
+import com.bcorp.backingstore.CacheLoader;
+import com.bcorp.datatypes.NativeValue;
 import com.bcorp.exceptions.ConcurrentUpdateException;
+import com.bcorp.exceptions.ValueTooLargeException;
+import com.bcorp.exceptions.WrongTypeException;
+import com.bcorp.persistence.RecoveryStats;
+import com.bcorp.persistence.SnapshotReader;
+import com.bcorp.persistence.SnapshotWriter;
+import com.bcorp.pojos.BulkWrite;
+import com.bcorp.pojos.BulkWriteStats;
 import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.ExportEntry;
+import com.bcorp.pojos.NativeResult;
 import com.bcorp.pojos.RequestDataValue;
 import com.bcorp.pojos.DataKey;
+import com.bcorp.tiering.TieringStats;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class KeyValuePartition {
+    // upper bound of operations handled by one drain, so a busy partition still yields to its other drain tasks
+    private static final int MAX_DRAIN_BATCH = 1024;
+    // larger values aren't compared byte by byte on the loop, writing one equal to the stored value bumps its version
+    static final int MAX_COMPARED_BYTES = 1 << 20;
+
     protected int partitionId;
     protected ExecutorService eventLoop;
-    private final Map<DataKey, CachedDataValue> keyValueStore;
+    private Map<DataKey, CachedDataValue> keyValueStore;
     private final NavigableSet<DataKey> sortedKeys;
-    private final KvStoreClock clock;
+    // shards of sharded counters, a long[1] is a mutable cell
+    private Map<DataKey, long[]> counterShards;
+    final KvStoreClock clock;
+    private final ValueDeduplicator deduplicator;
+    private final Queue<PartitionTask> pendingTasks;
+    // operations waiting for a native value to change, see awaitNative
+    private final Map<DataKey, Deque<ParkedOperation>> parkedOperations;
+    final PartitionLog log;
+    final PartitionSnapshots snapshots;
+    // null when the store has no disk tier
+    private final PartitionTiering tiering;
+    private final PartitionBackingStore backingStore;
+    // 0 for no limit
+    private final int maxNativeBytes;
+    private boolean shuttingDown;
+
+    interface PartitionTask {
+        /**
+         * @return the key the task touches, or null if it reads the whole partition
+         */
+        DataKey key();
+    }
+
+    /**
+     * @param resultFuture completed exceptionally if the action throws, null if the action has no result
+     */
+    private record LoopTask(DataKey key, CompletableFuture<?> resultFuture, Runnable action) implements PartitionTask {
+    }
+
+    private record WriteTask(DataKey key,
+                             Function<CachedDataValue, RequestDataValue> remapping,
+                             Long expectedOldVersion,
+                             CompletableFuture<CachedDataValue> resultFuture) implements PartitionTask {
+    }
 
-    public KeyValuePartition(int _partitionId, KvStoreClock _clock) {
+    private record WriteResult(CompletableFuture<CachedDataValue> resultFuture, CachedDataValue value) {
+    }
+
+    private record ParkedOperation(CompletableFuture<?> resultFuture, BooleanSupplier tryServe) {
+    }
+
+    public KeyValuePartition(int _partitionId, KvStoreClock _clock, PartitionConfig _config) {
         this.clock = _clock;
+        this.deduplicator = _config.deduplicator();
         this.partitionId = _partitionId;
         this.eventLoop = Executors.newSingleThreadExecutor();
         this.keyValueStore = new HashMap<>();
         this.sortedKeys = new TreeSet<>();
+        this.counterShards = new HashMap<>();
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.parkedOperations = new HashMap<>();
+        this.log = new PartitionLog(this, _config.wal());
+        this.snapshots = new PartitionSnapshots(this);
+        this.tiering = _config.diskTier() == null ? null : new PartitionTiering(this, _config.diskTier());
+        this.backingStore = new PartitionBackingStore(this, _config.loader(), _config.writeBehind());
+        this.maxNativeBytes = _config.maxValueBytes();
     }
 
+    /**
+     * Reads a key, a missing key is read through from the backing store if the store has a {@link CacheLoader}.
+     */
     public CompletableFuture<CachedDataValue> get(DataKey key) {
         CompletableFuture<CachedDataValue> resultFuture = new CompletableFuture<>();
-        eventLoop.execute(() -> {
-            CachedDataValue value = keyValueStore.get(key);
+        runOnLoop(key, resultFuture, () -> {
+            CachedDataValue value = lookup(key);
 
-            if (value == null) {
+            if (value == null && backingStore.readsThrough()) {
+                backingStore.readThrough(key, resultFuture);
+            } else if (value == null) {
                 resultFuture.complete(null);
             } else {
                 // to update the last access time
-                CachedDataValue updatedValue = new CachedDataValue(value.data(),
-                        value.dataType(),
-                        clock.currentTimeMs(),
-                        value.version());
+                CachedDataValue updatedValue = value.withLastAccessTimeMs(clock.currentTimeMs());
 
                 keyValueStore.put(key, updatedValue);
                 resultFuture.complete(updatedValue);
@@ -48,65 +121,263 @@ public class KeyValuePartition {
                                                   RequestDataValue value,
                                                   Long expectedOldVersion) {
         CompletableFuture<CachedDataValue> resultFuture = new CompletableFuture<>();
+        enqueue(new WriteTask(key, existingValue -> value, expectedOldVersion, resultFuture));
+        return resultFuture;
+    }
 
-        eventLoop.execute(() -> {
-            CachedDataValue existingValue = keyValueStore.get(key);
-            OperationType operationType = existingValue == null
-                    ? OperationType.INSERT
-                    : operationType(key, value, existingValue, expectedOldVersion);
+    /**
+     * Atomically replaces the value of a key with the result of {@code remapping}, which receives the existing
+     * value or null. Returning null leaves the key untouched. The function runs on the loop, it must not do I/O.
+     */
+    public CompletableFuture<CachedDataValue> compute(DataKey key,
+                                                      Function<CachedDataValue, RequestDataValue> remapping) {
+        CompletableFuture<CachedDataValue> resultFuture = new CompletableFuture<>();
+        enqueue(new WriteTask(key, remapping, null, resultFuture));
+        return resultFuture;
+    }
 
-            switch (operationType) {
-                case INSERT -> {
-                    CachedDataValue updatedValue = CachedDataValue.createNewFrom(value, clock.currentTimeMs());
-                    keyValueStore.put(key, updatedValue); // returns null if the value doesn't exist
-                    resultFuture.complete(updatedValue);
-                }
-                case UPDATE -> {
-                    CachedDataValue updatedValue = CachedDataValue.createUpdatedFrom(
-                            value,
-                            clock.currentTimeMs(),
-                            existingValue.version() + 1);
+    /**
+     * Runs a read-only operation on the native value of a key, null if the key doesn't exist.
+     * Completes exceptionally with {@link WrongTypeException} if the key holds another type of value.
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> readNative(DataKey key,
+                                                                                   Class<T> type,
+                                                                                   Function<T, R> operation) {
+        CompletableFuture<NativeResult<R>> resultFuture = new CompletableFuture<>();
+
+        runOnLoop(key, resultFuture, () -> {
+            try {
+                CachedDataValue existingValue = keyValueStore.get(key);
+                T nativeValue = nativeValueOf(existingValue, type);
+                resultFuture.complete(new NativeResult<>(operation.apply(nativeValue),
+                        existingValue == null ? null : existingValue.version()));
+            } catch (RuntimeException e) {
+                resultFuture.completeExceptionally(e);
+            }
+        });
 
-                    keyValueStore.put(key, updatedValue);
-                    resultFuture.complete(updatedValue);
+        return resultFuture;
+    }
+
+    /**
+     * Modifies the native value of a key in place, a missing key is created with {@code factory} first and a
+     * value left empty is removed. There is no rollback, the operation validates its input before modifying.
+     * Only a value which grew past the limit of the store is rolled back, failing with
+     * {@link ValueTooLargeException}.
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> updateNative(DataKey key,
+                                                                                     Class<T> type,
+                                                                                     Supplier<T> factory,
+                                                                                     Function<T, R> operation) {
+        CompletableFuture<NativeResult<R>> resultFuture = new CompletableFuture<>();
+
+        runOnLoop(key, resultFuture, () -> {
+            try {
+                CachedDataValue existingValue = keyValueStore.get(key);
+                T nativeValue = nativeValueOf(existingValue, type);
+                if (nativeValue == null) {
+                    nativeValue = factory.get();
+                } else {
+                    snapshots.preserve(nativeValue);
                 }
-                case SKIP -> resultFuture.complete(keyValueStore.get(key));
-                case VERSION_MISMATCH -> resultFuture.completeExceptionally(new ConcurrentUpdateException());
+
+                byte[] imageBefore = imageBeforeUpdate(existingValue);
+                R result = operation.apply(nativeValue);
+                storeNative(key, existingValue, imageBefore, nativeValue, result, resultFuture);
+            } catch (RuntimeException e) {
+                resultFuture.completeExceptionally(e);
             }
+            serveParkedOperations(key);
         });
 
         return resultFuture;
     }
 
+    /**
+     * Like {@link #updateNative} on an existing key, but an operation returning null is parked and retried after
+     * every native update of the key. Completes with a null result if it couldn't complete within {@code timeoutMs}.
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> awaitNative(DataKey key,
+                                                                                    Class<T> type,
+                                                                                    Function<T, R> operation,
+                                                                                    long timeoutMs) {
+        return runOrPark(key, type, operation, timeoutMs, true);
+    }
+
+    /**
+     * Read-only counterpart of {@link #awaitNative}, the version isn't changed.
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> readNative(DataKey key,
+                                                                                   Class<T> type,
+                                                                                   Function<T, R> operation,
+                                                                                   long timeoutMs) {
+        return runOrPark(key, type, operation, timeoutMs, false);
+    }
+
     public CompletableFuture<CachedDataValue> remove(DataKey key) {
         CompletableFuture<CachedDataValue> resultFuture = new CompletableFuture<>();
 
-        eventLoop.execute(() -> {
-                    CachedDataValue value = keyValueStore.remove(key);
-                    resultFuture.complete(value);
+        runOnLoop(key, resultFuture, () -> {
+                    CachedDataValue value = lookup(key);
+                    if (value != null) {
+                        keyValueStore.remove(key);
+                        release(value);
+                        log.logRemove(key, value);
+                    }
+                    backingStore.removed(key, value);
+                    log.complete(resultFuture, value, value != null);
                 }
         );
 
         return resultFuture;
     }
 
+    /**
+     * Writes a batch of a bulk import in one hop on the loop, each write checked against the version its key
+     * has at that point. A write to a key read back from the disk tier is applied once the value is back.
+     */
+    public CompletableFuture<BulkWriteStats> setAll(List<BulkWrite> writes) {
+        CompletableFuture<BulkWriteStats> resultFuture = new CompletableFuture<>();
+
+        runOnLoop(null, resultFuture, () -> {
+            long written = 0;
+            long unchanged = 0;
+            long conflicts = 0;
+            List<CompletableFuture<CachedDataValue>> waitingWrites = new ArrayList<>(0);
+
+            for (BulkWrite write : writes) {
+                List<PartitionTask> waiting = tiering == null ? null : tiering.waitingFor(write.key());
+                if (waiting != null) {
+                    CompletableFuture<CachedDataValue> waitingWrite = new CompletableFuture<>();
+                    waiting.add(new WriteTask(write.key(), existingValue -> {
+                        if (!versionMatches(existingValue, write.expectedVersion())) {
+                            throw new ConcurrentUpdateException();
+                        }
+                        return write.value();
+                    }, null, waitingWrite));
+                    waitingWrites.add(waitingWrite);
+                    continue;
+                }
+
+                CachedDataValue existingValue = keyValueStore.get(write.key());
+                if (!versionMatches(existingValue, write.expectedVersion())) {
+                    conflicts++;
+                } else if (store(write.key(), write.value(), existingValue) == existingValue) {
+                    unchanged++;
+                } else {
+                    written++;
+                }
+            }
+
+            BulkWriteStats stats = new BulkWriteStats(written, unchanged, conflicts);
+            CompletableFuture<CachedDataValue> durable = new CompletableFuture<>();
+            log.complete(durable, null, written > 0);
+            durable.thenCompose(ignored -> countWaitingWrites(waitingWrites))
+                    .whenComplete((waitingStats, error) -> {
+                        if (error == null) {
+                            resultFuture.complete(stats.plus(waitingStats));
+                        } else {
+                            resultFuture.completeExceptionally(error);
+                        }
+                    });
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * @return the keys the partition holds, the start of an export
+     */
+    CompletableFuture<DataKey[]> exportKeys() {
+        CompletableFuture<DataKey[]> resultFuture = new CompletableFuture<>();
+        runOnLoop(null, resultFuture, () -> resultFuture.complete(keyValueStore.keySet().toArray(new DataKey[0])));
+        return resultFuture;
+    }
+
+    /**
+     * Reads the byte values of {@code keys} from {@code from} on, until {@code maxValues} were read or they take
+     * {@code maxBytes}. Removed keys and native values are skipped, the access times aren't touched.
+     *
+     * @param reader reads the values of mapped snapshots and of the disk tier, off the loop and without
+     *               bringing them back into the partition
+     */
+    CompletableFuture<ExportChunk> exportChunk(DataKey[] keys, int from, int maxValues, int maxBytes, Executor reader) {
+        CompletableFuture<ExportChunk> resultFuture = new CompletableFuture<>();
+
+        runOnLoop(null, resultFuture, () -> {
+            List<DataKey> chunkKeys = new ArrayList<>(Math.min(maxValues, keys.length - from));
+            List<CachedDataValue> values = new ArrayList<>(chunkKeys.size());
+            boolean deferred = false;
+            long bytes = 0;
+            int next = from;
+            while (next < keys.length && values.size() < maxValues && (bytes < maxBytes || values.isEmpty())) {
+                DataKey key = keys[next++];
+                CachedDataValue value = keyValueStore.get(key);
+                if (value == null || value.isNative()) {
+                    continue;
+                }
+                chunkKeys.add(key);
+                values.add(value);
+                deferred |= value.isDeferred();
+                bytes += value.isDeferred() ? value.deferredData().length() : value.data().length;
+            }
+
+            int chunkEnd = next;
+            if (!deferred) {
+                resultFuture.complete(new ExportChunk(exportEntries(chunkKeys, values), chunkEnd));
+                return;
+            }
+            if (tiering != null) {
+                tiering.startSegmentRead();
+            }
+            CompletableFuture.supplyAsync(() -> new ExportChunk(exportEntries(chunkKeys, values), chunkEnd), reader)
+                    .whenComplete((chunk, error) -> {
+                        if (error == null) {
+                            resultFuture.complete(chunk);
+                        } else {
+                            resultFuture.completeExceptionally(error);
+                        }
+                        if (tiering != null) {
+                            runOnLoop(null, tiering::finishSegmentRead);
+                        }
+                    });
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * @return the entries of the values, skipping the deferred ones whose bytes are corrupted
+     */
+    private static List<ExportEntry> exportEntries(List<DataKey> keys, List<CachedDataValue> values) {
+        List<ExportEntry> entries = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            CachedDataValue value = values.get(i);
+            byte[] data = value.isDeferred() ? value.deferredData().load() : value.data();
+            if (data != null) {
+                entries.add(new ExportEntry(keys.get(i), data, value.version()));
+            }
+        }
+        return entries;
+    }
+
     public CompletableFuture<Boolean> containsKey(DataKey key) {
         CompletableFuture<Boolean> resultFuture = new CompletableFuture<>();
 
-        eventLoop.execute(() -> resultFuture.complete(keyValueStore.containsKey(key)));
+        runOnLoop(key, resultFuture, () -> resultFuture.complete(keyValueStore.containsKey(key)));
 
         return resultFuture;
     }
 
     public CompletableFuture<Integer> totalKeys() {
         CompletableFuture<Integer> resultFuture = new CompletableFuture<>();
-        eventLoop.execute(() -> resultFuture.complete(keyValueStore.size()));
+        runOnLoop(null, resultFuture, () -> resultFuture.complete(keyValueStore.size()));
         return resultFuture;
     }
 
     public CompletableFuture<Set<DataKey>> getAllKeys() {
         CompletableFuture<Set<DataKey>> resultFuture = new CompletableFuture<>();
-        eventLoop.execute(() -> {
+        runOnLoop(null, resultFuture, () -> {
             resultFuture.complete(keyValueStore.keySet());
         });
 
@@ -114,20 +385,560 @@ public class KeyValuePartition {
     }
 
 
-    private OperationType operationType(DataKey key, RequestDataValue newValue, CachedDataValue oldValue, Long expectedOldVersion) {
+    /**
+     * @return the new value of this partition's shard, not of the whole counter
+     */
+    public CompletableFuture<Long> incrementCounterShard(DataKey key, long by) {
+        CompletableFuture<Long> resultFuture = new CompletableFuture<>();
+
+        runOnLoop(key, resultFuture, () -> {
+            long[] shard = counterShards.computeIfAbsent(key, k -> new long[1]);
+            shard[0] += by;
+            log.logCounter(key, shard[0]);
+            log.complete(resultFuture, shard[0], true);
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * @return value of this partition's shard of the counter, 0 if it was never incremented here
+     */
+    public CompletableFuture<Long> getCounterShard(DataKey key) {
+        CompletableFuture<Long> resultFuture = new CompletableFuture<>();
+
+        runOnLoop(key, resultFuture, () -> {
+            long[] shard = counterShards.get(key);
+            resultFuture.complete(shard == null ? 0L : shard[0]);
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * @return value of the removed shard, 0 if it was never incremented here
+     */
+    public CompletableFuture<Long> removeCounterShard(DataKey key) {
+        CompletableFuture<Long> resultFuture = new CompletableFuture<>();
+
+        runOnLoop(key, resultFuture, () -> {
+            long[] shard = counterShards.remove(key);
+            if (shard != null) {
+                log.logCounterRemove(key);
+            }
+            log.complete(resultFuture, shard == null ? 0L : shard[0], shard != null);
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * Writes a point-in-time snapshot on {@code executor}, the loop only takes the cut and serializes the
+     * native values a few at a time. Only one snapshot of a partition runs at a time.
+     *
+     * @return the snapshot file
+     */
+    public CompletableFuture<Path> snapshot(SnapshotWriter.Opener opener, Executor executor) {
+        return snapshots.snapshot(opener, executor);
+    }
+
+    /**
+     * Loads the latest snapshot of the partition and replays the log written after it, on the loop.
+     *
+     * @param keepValuesMapped leave the values of mapped snapshots in the file until they're accessed
+     */
+    public CompletableFuture<RecoveryStats> recover(Path dataDirectory, boolean keepValuesMapped) {
+        CompletableFuture<RecoveryStats> resultFuture = new CompletableFuture<>();
+        runOnLoop(null, resultFuture, () -> {
+            try {
+                resultFuture.complete(snapshots.recover(dataDirectory, keepValuesMapped));
+            } catch (IOException | RuntimeException e) {
+                resultFuture.completeExceptionally(e);
+            }
+        });
+        return resultFuture;
+    }
+
+    /**
+     * Moves the byte values not accessed since {@code coldBeforeMs} to the disk tier, writing them on the calling
+     * thread. A value accessed meanwhile stays in memory.
+     *
+     * @param minValueBytes smaller values stay in memory
+     */
+    public TieringStats moveColdValues(long coldBeforeMs, int minValueBytes) {
+        if (tiering == null) {
+            throw new IllegalStateException("Partition " + partitionId + " has no disk tier");
+        }
+        return tiering.moveColdValues(coldBeforeMs, minValueBytes);
+    }
+
+    /**
+     * Stops the loop once the operations queued so far ran, including those waiting for the disk tier or the
+     * backing store. Later operations are rejected.
+     */
+    public void shutdown() {
+        if (tiering == null && !backingStore.readsThrough()) {
+            eventLoop.shutdown();
+            return;
+        }
+        runOnLoop(null, () -> {
+            shuttingDown = true;
+            shutdownWhenIdle();
+        });
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return eventLoop.awaitTermination(timeout, unit);
+    }
+
+    void runOnLoop(DataKey key, Runnable action) {
+        runOnLoop(key, null, action);
+    }
+
+    /**
+     * Runs an action which completes {@code resultFuture}, the future fails if the action throws before.
+     */
+    void runOnLoop(DataKey key, CompletableFuture<?> resultFuture, Runnable action) {
+        enqueue(new LoopTask(key, resultFuture, action));
+    }
+
+    private void enqueue(PartitionTask task) {
+        pendingTasks.add(task);
+        eventLoop.execute(this::drainPendingTasks);
+    }
+
+    /**
+     * Runs the queued operations in order. Writes are held back per key until an operation which can observe
+     * them, or the end of the batch, and applied together by {@link #applyWrites}.
+     */
+    private void drainPendingTasks() {
+        Map<DataKey, List<WriteTask>> heldWrites = null;
+        PartitionTask task;
+        int drained = 0;
+
+        while (drained < MAX_DRAIN_BATCH && (task = pendingTasks.poll()) != null) {
+            drained++;
+
+            if (tiering != null && tiering.holdsBack(task)) {
+                continue;
+            }
+
+            if (task instanceof WriteTask write) {
+                if (heldWrites == null) {
+                    heldWrites = new LinkedHashMap<>();
+                }
+                heldWrites.computeIfAbsent(write.key(), k -> new ArrayList<>(1)).add(write);
+                continue;
+            }
+
+            if (heldWrites != null) {
+                if (task.key() == null) {
+                    heldWrites.forEach(this::applyWrites);
+                    heldWrites.clear();
+                } else {
+                    List<WriteTask> writes = heldWrites.remove(task.key());
+                    if (writes != null) {
+                        applyWrites(task.key(), writes);
+                    }
+                }
+            }
+
+            run((LoopTask) task);
+        }
+
+        if (heldWrites != null) {
+            heldWrites.forEach(this::applyWrites);
+        }
+        log.acknowledgeWhenDurable();
+    }
+
+    /**
+     * Runs the tasks which waited for the value of a key, in their arrival order.
+     */
+    void runWaiting(DataKey key, List<PartitionTask> waiting) {
+        List<WriteTask> writes = null;
+        for (PartitionTask task : waiting) {
+            if (task instanceof WriteTask write) {
+                if (writes == null) {
+                    writes = new ArrayList<>();
+                }
+                writes.add(write);
+                continue;
+            }
+            if (writes != null) {
+                applyWrites(key, writes);
+                writes = null;
+            }
+            run((LoopTask) task);
+        }
+        if (writes != null) {
+            applyWrites(key, writes);
+        }
+    }
+
+    private void run(LoopTask task) {
+        try {
+            task.action().run();
+        } catch (RuntimeException e) {
+            // reported instead of thrown, a failing task must not drop the writes drained with it
+            if (task.resultFuture() != null) {
+                task.resultFuture().completeExceptionally(e);
+            } else {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    void shutdownWhenIdle() {
+        if (shuttingDown && (tiering == null || tiering.isIdle()) && backingStore.isIdle()) {
+            eventLoop.shutdown();
+        }
+    }
+
+    /**
+     * Applies the writes queued for one key in order, each one seeing the value and version left by the previous
+     * ones and completing with the value it produced. Only the last value is stored.
+     */
+    private void applyWrites(DataKey key, List<WriteTask> writes) {
+        CachedDataValue existingValue = lookup(key);
+        CachedDataValue currentValue = existingValue;
+        RequestDataValue valueToStore = null;
+        List<WriteResult> results = new ArrayList<>(writes.size());
+
+        for (WriteTask write : writes) {
+            RequestDataValue value;
+            try {
+                value = write.remapping().apply(currentValue);
+            } catch (RuntimeException e) {
+                write.resultFuture().completeExceptionally(e);
+                continue;
+            }
+
+            if (value == null) {
+                results.add(new WriteResult(write.resultFuture(), currentValue));
+                continue;
+            }
+
+            OperationType operationType = currentValue == null
+                    ? OperationType.INSERT
+                    : operationType(value, currentValue, write.expectedOldVersion());
+
+            switch (operationType) {
+                case INSERT, UPDATE -> {
+                    valueToStore = value;
+                    currentValue = currentValue == null
+                            ? CachedDataValue.createNewFrom(value, clock.currentTimeMs())
+                            : CachedDataValue.createUpdatedFrom(value, clock.currentTimeMs(), currentValue.version() + 1);
+                    results.add(new WriteResult(write.resultFuture(), currentValue));
+                }
+                case SKIP -> results.add(new WriteResult(write.resultFuture(), currentValue));
+                case VERSION_MISMATCH -> write.resultFuture().completeExceptionally(new ConcurrentUpdateException());
+            }
+        }
+
+        CachedDataValue lastValue = currentValue;
+        CachedDataValue storedValue = valueToStore == null
+                ? existingValue
+                : store(key, valueToStore, existingValue, lastValue.version());
+        boolean logged = storedValue != existingValue;
+        for (WriteResult result : results) {
+            log.complete(result.resultFuture(), result.value() == lastValue ? storedValue : result.value(), logged);
+        }
+    }
+
+    private CachedDataValue store(DataKey key, RequestDataValue value, CachedDataValue existingValue) {
+        if (existingValue != null && operationType(value, existingValue, null) == OperationType.SKIP) {
+            return existingValue;
+        }
+        return store(key, value, existingValue, existingValue == null ? 0L : existingValue.version() + 1);
+    }
+
+    private CachedDataValue store(DataKey key, RequestDataValue value, CachedDataValue existingValue, long version) {
+        CachedDataValue storedValue = CachedDataValue.createUpdatedFrom(intern(value), clock.currentTimeMs(), version);
+        keyValueStore.put(key, storedValue);
+        release(existingValue);
+        log.logPut(key, storedValue);
+        backingStore.written(key, storedValue);
+        return storedValue;
+    }
+
+    private <T extends NativeValue, R> CompletableFuture<NativeResult<R>> runOrPark(DataKey key,
+                                                                                   Class<T> type,
+                                                                                   Function<T, R> operation,
+                                                                                   long timeoutMs,
+                                                                                   boolean update) {
+        CompletableFuture<NativeResult<R>> resultFuture = new CompletableFuture<>();
+        BooleanSupplier tryServe = () -> {
+            try {
+                CachedDataValue existingValue = keyValueStore.get(key);
+                T nativeValue = nativeValueOf(existingValue, type);
+                if (nativeValue == null) {
+                    return false;
+                }
+
+                byte[] imageBefore = null;
+                if (update) {
+                    snapshots.preserve(nativeValue);
+                    imageBefore = imageBeforeUpdate(existingValue);
+                }
+                R result = operation.apply(nativeValue);
+                if (result == null) {
+                    return false;
+                }
+                if (update) {
+                    storeNative(key, existingValue, imageBefore, nativeValue, result, resultFuture);
+                } else {
+                    resultFuture.complete(new NativeResult<>(result, existingValue.version()));
+                }
+            } catch (RuntimeException e) {
+                resultFuture.completeExceptionally(e);
+            }
+            return true;
+        };
+
+        runOnLoop(key, resultFuture, () -> {
+            if (tryServe.getAsBoolean()) {
+                return;
+            }
+            if (timeoutMs <= 0) {
+                resultFuture.complete(new NativeResult<>(null, null));
+                return;
+            }
+
+            ParkedOperation parkedOperation = new ParkedOperation(resultFuture, tryServe);
+            parkedOperations.computeIfAbsent(key, k -> new ArrayDeque<>()).add(parkedOperation);
+
+            // a cancelled operation leaves the queue right away instead of on the next update or its timeout
+            resultFuture.whenComplete((ignored, error) -> {
+                if (resultFuture.isCancelled()) {
+                    runOnLoop(key, () -> unpark(key, parkedOperation));
+                }
+            });
+            // the delayed executor only hands the timeout back to the loop, which owns the parked queue
+            CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS)
+                    .execute(() -> runOnLoop(key, () -> {
+                        unpark(key, parkedOperation);
+                        resultFuture.complete(new NativeResult<>(null, null));
+                    }));
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * Stores or removes the native value after an operation modified it and completes the operation once the
+     * change is logged. A value larger than the limit is put back the way it was before the operation.
+     *
+     * @param imageBefore the existing value before the operation, null without a limit or an existing value
+     */
+    private <T extends NativeValue, R> void storeNative(DataKey key,
+                                                       CachedDataValue existingValue,
+                                                       byte[] imageBefore,
+                                                       T nativeValue,
+                                                       R result,
+                                                       CompletableFuture<NativeResult<R>> resultFuture) {
+        if (nativeValue.isEmpty()) {
+            if (existingValue != null) {
+                keyValueStore.remove(key);
+                log.logRemove(key, existingValue);
+            }
+            log.complete(resultFuture, new NativeResult<>(result, null), existingValue != null);
+            return;
+        }
+
+        byte[] image = null;
+        if (maxNativeBytes > 0) {
+            image = SnapshotWriter.encodeNative(nativeValue);
+            if (image.length > maxNativeBytes) {
+                if (existingValue != null) {
+                    keyValueStore.put(key, CachedDataValue.fromNative(decodeNative(existingValue, imageBefore),
+                            existingValue.lastAccessTimeMs(), existingValue.version()));
+                }
+                throw new ValueTooLargeException(image.length, maxNativeBytes);
+            }
+        }
+
+        CachedDataValue updatedValue = CachedDataValue.fromNative(nativeValue, clock.currentTimeMs(),
+                existingValue == null ? 0L : existingValue.version() + 1);
+        keyValueStore.put(key, updatedValue);
+        log.logNative(key, updatedValue, image);
+        log.complete(resultFuture, new NativeResult<>(result, updatedValue.version()), true);
+    }
+
+    /**
+     * @return the serialized native value, to roll an update back to, null if there is no limit to enforce
+     */
+    private byte[] imageBeforeUpdate(CachedDataValue existingValue) {
+        if (maxNativeBytes == 0 || existingValue == null) {
+            return null;
+        }
+        return SnapshotWriter.encodeNative(existingValue.nativeValue());
+    }
+
+    private static NativeValue decodeNative(CachedDataValue value, byte[] image) {
+        try {
+            return SnapshotReader.decodeNative(value.dataType(), image);
+        } catch (IOException e) {
+            // the image was just serialized on the loop
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void serveParkedOperations(DataKey key) {
+        Deque<ParkedOperation> parked = parkedOperations.get(key);
+        if (parked == null) {
+            return;
+        }
+
+        Iterator<ParkedOperation> iterator = parked.iterator();
+        while (iterator.hasNext() && keyValueStore.containsKey(key)) {
+            ParkedOperation parkedOperation = iterator.next();
+            // a timed out or cancelled operation can still be queued
+            if (parkedOperation.resultFuture().isDone() || parkedOperation.tryServe().getAsBoolean()) {
+                iterator.remove();
+            }
+        }
+
+        if (parked.isEmpty()) {
+            parkedOperations.remove(key);
+        }
+    }
+
+    private void unpark(DataKey key, ParkedOperation parkedOperation) {
+        Deque<ParkedOperation> parked = parkedOperations.get(key);
+        if (parked != null && parked.remove(parkedOperation) && parked.isEmpty()) {
+            parkedOperations.remove(key);
+        }
+    }
+
+    private <T extends NativeValue> T nativeValueOf(CachedDataValue value, Class<T> type) {
+        if (value == null) {
+            return null;
+        }
+        if (!type.isInstance(value.nativeValue())) {
+            throw new WrongTypeException("Key holds a " + value.dataType().getSimpleName()
+                    + " value, not a " + type.getSimpleName());
+        }
+        return type.cast(value.nativeValue());
+    }
+
+    Map<DataKey, CachedDataValue> values() {
+        return keyValueStore;
+    }
+
+    Map<DataKey, long[]> counterShards() {
+        return counterShards;
+    }
+
+    /**
+     * Replaces the tables with empty ones of the given capacities, for the recovery.
+     */
+    void resetTables(int valueCapacity, int counterCapacity) {
+        keyValueStore = new HashMap<>(valueCapacity);
+        counterShards = new HashMap<>(counterCapacity);
+    }
+
+    /**
+     * Looks a key up, loading a value left in a mapped snapshot into the heap. Values of the disk tier were
+     * read back before the operation ran.
+     */
+    CachedDataValue lookup(DataKey key) {
+        CachedDataValue value = keyValueStore.get(key);
+        if (value == null || !value.isDeferred()) {
+            return value;
+        }
+
+        CachedDataValue loadedValue = loaded(value);
+        release(value);
+        if (loadedValue == null) {
+            keyValueStore.remove(key);
+        } else {
+            keyValueStore.put(key, loadedValue);
+        }
+        return loadedValue;
+    }
+
+    /**
+     * @return the value with its bytes in the heap, null for a deferred value whose bytes are corrupted
+     */
+    private CachedDataValue loaded(CachedDataValue value) {
+        if (value == null || !value.isDeferred()) {
+            return value;
+        }
+        return withData(value, value.deferredData().load());
+    }
+
+    /**
+     * @return the deferred value with the bytes it was loaded with, null if they were corrupted
+     */
+    CachedDataValue withData(CachedDataValue value, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return value.withData(deduplicator == null ? data : deduplicator.intern(data, value.contentHash()));
+    }
+
+    RequestDataValue intern(RequestDataValue value) {
+        if (deduplicator == null || value.data() == null) {
+            return value;
+        }
+
+        byte[] sharedData = deduplicator.intern(value.data(), value.contentHash());
+        return sharedData == value.data()
+                ? value
+                : new RequestDataValue(sharedData, value.dataType(), value.contentHash());
+    }
+
+    void release(CachedDataValue value) {
+        if (deduplicator != null && value != null && value.data() != null) {
+            deduplicator.release(value.data(), value.contentHash());
+        }
+        if (tiering != null && value != null) {
+            tiering.free(value);
+        }
+    }
+
+    /**
+     * Version check of a bulk write, -1 expects the key to be absent.
+     */
+    private static boolean versionMatches(CachedDataValue existingValue, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return true;
+        }
+        return existingValue == null
+                ? expectedVersion == -1
+                : expectedVersion == existingValue.version();
+    }
+
+    private static CompletableFuture<BulkWriteStats> countWaitingWrites(List<CompletableFuture<CachedDataValue>> writes) {
+        CompletableFuture<BulkWriteStats> counted = CompletableFuture.completedFuture(BulkWriteStats.NONE);
+        for (CompletableFuture<CachedDataValue> write : writes) {
+            counted = counted.thenCombine(write.handle((value, error) -> {
+                if (error == null) {
+                    return new BulkWriteStats(1, 0, 0);
+                }
+                if (error instanceof ConcurrentUpdateException) {
+                    return new BulkWriteStats(0, 0, 1);
+                }
+                throw new CompletionException(error);
+            }), BulkWriteStats::plus);
+        }
+        return counted;
+    }
+
+    private OperationType operationType(RequestDataValue newValue, CachedDataValue oldValue, Long expectedOldVersion) {
         long actualOldVersion = oldValue.version();
 
         if (expectedOldVersion == null || actualOldVersion == expectedOldVersion) {
-            if (Arrays.equals(newValue.data(), oldValue.data())) return OperationType.SKIP;
+            // hashes are computed off the loop, the bytes are compared only when the hashes match
+            if (newValue.contentHash() == oldValue.contentHash()
+                    && (newValue.data() == null || newValue.data().length <= MAX_COMPARED_BYTES)
+                    && Arrays.equals(newValue.data(), oldValue.data())) return OperationType.SKIP;
             return OperationType.UPDATE;
         }
 
-        if (expectedOldVersion == -1) {
-            return keyValueStore.containsKey(key)
-                    ? OperationType.VERSION_MISMATCH
-                    : OperationType.INSERT;
-        }
-
+        // includes -1, which expects the key to be absent
         return OperationType.VERSION_MISMATCH;
     }
 
@@ -1,25 +1,135 @@
 package com.bcorp.kvstore;
 
+import com.bcorp.backingstore.CacheLoader;
+import com.bcorp.backingstore.CacheWriter;
+import com.bcorp.backingstore.WriteBehindQueue;
+import com.bcorp.backingstore.WriteBehindStats;
+import com.bcorp.datatypes.NativeValue;
+import com.bcorp.exceptions.ValueTooLargeException;
+import com.bcorp.persistence.CompactionStats;
+import com.bcorp.persistence.RecoveryStats;
+import com.bcorp.persistence.WalWriter;
 import com.bcorp.pojos.CachedDataValue;
 import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.DeduplicationStats;
+import com.bcorp.pojos.NativeResult;
 import com.bcorp.pojos.RequestDataValue;
+import com.bcorp.tiering.TierStorage;
+import com.bcorp.tiering.TierUsage;
+import com.bcorp.tiering.TieringStats;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class KeyValueStore {
+public class KeyValueStore implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+    // writes of a bulk import applied in one hop on a loop, and batches of an import in flight per partition
+    private static final int BULK_BATCH_SIZE = 1024;
+    private static final int BULK_PENDING_BATCHES_PER_PARTITION = 2;
+
     private final KeyValuePartition[] partitions;
     private final KvStoreClock clock;
+    private final ValueDeduplicator deduplicator;
+    private final int counterShards;
+    // 0 for no limit
+    private final int maxValueBytes;
+    private final Map<DataKey, CounterSnapshot> counterSnapshots;
+    // null when the store isn't persistent
+    private final WalWriter walWriter;
+    // null when the store isn't persistent
+    private final SnapshotScheduler snapshotScheduler;
+    // null when the store isn't persistent
+    private final LogCompactionScheduler compactionScheduler;
+    // null when the store has no disk tier
+    private final TierStorage tierStorage;
+    // null when the store has no disk tier
+    private final TieringScheduler tieringScheduler;
+    // null when the store has no cache writer
+    private final WriteBehindQueue writeBehind;
+    private final CompletableFuture<RecoveryStats> recovery;
+    private final AtomicInteger recoveredPartitions;
+
+    // stripes are handed out round robin, so a fixed pool of request threads spreads evenly over the shards
+    private static final AtomicInteger nextStripe = new AtomicInteger();
+    private static final ThreadLocal<Integer> threadStripe = ThreadLocal.withInitial(nextStripe::getAndIncrement);
+
+    private record CounterSnapshot(long value, long readAtMs) {
+    }
 
     public KeyValueStore(KvStoreClock _clock) {
+        this(_clock, new KeyValueStoreConfig());
+    }
+
+    public KeyValueStore(KvStoreClock _clock, KeyValueStoreConfig _config) {
+        this(_clock, _config, null, null);
+    }
+
+    /**
+     * A store in front of a backing store, e.g. a database.
+     *
+     * @param _loader reads the keys missing from the store, null to leave missing keys missing
+     * @param _writer writes the changes of the store behind them, null to keep them in the store
+     */
+    public KeyValueStore(KvStoreClock _clock, KeyValueStoreConfig _config, CacheLoader _loader, CacheWriter _writer) {
         this.clock = _clock;
+        this.deduplicator = _config.isDeduplicateValues() ? new ValueDeduplicator() : null;
         this.partitions = new KeyValuePartition[32];
+        this.counterShards = Math.max(1, Math.min(_config.getCounterShards(), partitions.length));
+        this.maxValueBytes = Math.max(0, _config.getMaxValueBytes());
+        this.counterSnapshots = new ConcurrentHashMap<>();
+        this.walWriter = _config.getPersistence().isEnabled()
+                ? new WalWriter(_config.getPersistence(), partitions.length)
+                : null;
+        this.tierStorage = _config.getTiering().isEnabled()
+                ? new TierStorage(_config.getTiering(), partitions.length)
+                : null;
+        this.writeBehind = _writer != null ? new WriteBehindQueue(_writer, _config.getWriteBehind()) : null;
         for (int i = 0; i < this.partitions.length; i++) {
-            this.partitions[i] = new KeyValuePartition(i, clock);
+            this.partitions[i] = new KeyValuePartition(i, clock, new PartitionConfig(deduplicator,
+                    walWriter != null ? walWriter.log(i) : null,
+                    tierStorage != null ? tierStorage.tier(i) : null,
+                    _loader,
+                    writeBehind,
+                    maxValueBytes));
         }
+        this.recoveredPartitions = new AtomicInteger();
+        this.recovery = walWriter != null
+                ? recover(Path.of(_config.getPersistence().getDataDirectory()), _config.getPersistence().isSnapshotMapValues())
+                : CompletableFuture.completedFuture(RecoveryStats.NONE);
+        this.snapshotScheduler = walWriter != null
+                ? new SnapshotScheduler(_config.getPersistence(), partitions, clock)
+                : null;
+        this.compactionScheduler = walWriter != null
+                ? new LogCompactionScheduler(_config.getPersistence(), walWriter, partitions.length, recovery)
+                : null;
+        this.tieringScheduler = tierStorage != null
+                ? new TieringScheduler(_config.getTiering(), partitions, clock)
+                : null;
+    }
+
+    private CompletableFuture<RecoveryStats> recover(Path dataDirectory, boolean keepValuesMapped) {
+        long startNs = System.nanoTime();
+        List<CompletableFuture<RecoveryStats>> futures = new ArrayList<>(partitions.length);
+        for (KeyValuePartition partition : partitions) {
+            futures.add(partition.recover(dataDirectory, keepValuesMapped)
+                    .whenComplete((stats, error) -> recoveredPartitions.incrementAndGet()));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> futures.stream()
+                        .map(CompletableFuture::join)
+                        .reduce(RecoveryStats.NONE, RecoveryStats::plus)
+                        .withDurationMs((System.nanoTime() - startNs) / 1_000_000));
     }
 
     // 2 options:
@@ -33,18 +143,171 @@ public class KeyValueStore {
         return partitions[getPartition(key)].get(key);
     }
 
+    /**
+     * @return the size above which values are rejected, 0 if there is no limit
+     */
+    public int maxValueBytes() {
+        return maxValueBytes;
+    }
+
+    /**
+     * @return a writer for the records of one bulk import
+     */
+    public BulkWriter newBulkWriter() {
+        return new BulkWriter(partitions, this::getPartition, BULK_BATCH_SIZE, BULK_PENDING_BATCHES_PER_PARTITION);
+    }
+
+    /**
+     * @return an export of the byte values of the store, read a chunk at a time
+     */
+    public StoreExport newExport() {
+        // without a tier only the values of mapped snapshots are read off the loops, on the common pool
+        return new StoreExport(partitions, tierStorage != null ? tierStorage.readers() : ForkJoinPool.commonPool());
+    }
+
     public CompletableFuture<Boolean> containsKey(DataKey key) {
         return partitions[getPartition(key)].containsKey(key);
     }
 
+    /**
+     * Completes exceptionally with {@link ValueTooLargeException} right away if the value is larger than the
+     * limit of the store, without queueing the write.
+     */
     public CompletableFuture<CachedDataValue> set(DataKey key, RequestDataValue value, Long prevVersion) {
+        if (isTooLarge(value)) {
+            return CompletableFuture.failedFuture(new ValueTooLargeException(value.data().length, maxValueBytes));
+        }
         return partitions[getPartition(key)].set(key, value, prevVersion);
     }
 
+    /**
+     * Atomic read-modify-write of a single key, executed in one hop on the key's partition loop. A result larger
+     * than the limit of the store fails the write with {@link ValueTooLargeException}.
+     *
+     * @see KeyValuePartition#compute(DataKey, Function)
+     */
+    public CompletableFuture<CachedDataValue> compute(DataKey key,
+                                                      Function<CachedDataValue, RequestDataValue> remapping) {
+        if (maxValueBytes == 0) {
+            return partitions[getPartition(key)].compute(key, remapping);
+        }
+        return partitions[getPartition(key)].compute(key, existingValue -> {
+            RequestDataValue value = remapping.apply(existingValue);
+            if (isTooLarge(value)) {
+                throw new ValueTooLargeException(value.data().length, maxValueBytes);
+            }
+            return value;
+        });
+    }
+
+    /**
+     * @see KeyValuePartition#readNative(DataKey, Class, Function)
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> readNative(DataKey key,
+                                                                                   Class<T> type,
+                                                                                   Function<T, R> operation) {
+        return partitions[getPartition(key)].readNative(key, type, operation);
+    }
+
+    /**
+     * @see KeyValuePartition#readNative(DataKey, Class, Function, long)
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> readNative(DataKey key,
+                                                                                   Class<T> type,
+                                                                                   Function<T, R> operation,
+                                                                                   long timeoutMs) {
+        return partitions[getPartition(key)].readNative(key, type, operation, timeoutMs);
+    }
+
+    /**
+     * @see KeyValuePartition#updateNative(DataKey, Class, Supplier, Function)
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> updateNative(DataKey key,
+                                                                                     Class<T> type,
+                                                                                     Supplier<T> factory,
+                                                                                     Function<T, R> operation) {
+        return partitions[getPartition(key)].updateNative(key, type, factory, operation);
+    }
+
+    /**
+     * @see KeyValuePartition#awaitNative(DataKey, Class, Function, long)
+     */
+    public <T extends NativeValue, R> CompletableFuture<NativeResult<R>> awaitNative(DataKey key,
+                                                                                    Class<T> type,
+                                                                                    Function<T, R> operation,
+                                                                                    long timeoutMs) {
+        return partitions[getPartition(key)].awaitNative(key, type, operation, timeoutMs);
+    }
+
     public CompletableFuture<CachedDataValue> remove(DataKey key) {
         return partitions[getPartition(key)].remove(key);
     }
 
+    /**
+     * Adds {@code by} to a sharded counter. The counter is split into {@code counterShards} sub-counters
+     * living on consecutive partitions and every thread increments its own stripe, so increments of a
+     * single hot counter are spread over several partition loops instead of queueing on one.
+     *
+     * <p>Sharded counters are kept apart from the key values, the same key can hold both.</p>
+     */
+    public CompletableFuture<Void> incrementCounter(DataKey key, long by) {
+        int shard = Math.floorMod(threadStripe.get(), counterShards);
+        return partitions[counterPartition(key, shard)].incrementCounterShard(key, by)
+                .thenAccept(ignoredShardValue -> {
+                });
+    }
+
+    /**
+     * Sums all shards of the counter. Every shard is read on its own partition, so the sum contains
+     * all increments completed before the call but isn't a point in time snapshot of concurrent ones.
+     */
+    public CompletableFuture<Long> getCounter(DataKey key) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>(counterShards);
+        for (int shard = 0; shard < counterShards; shard++) {
+            futures.add(partitions[counterPartition(key, shard)].getCounterShard(key));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    long sum = futures.stream()
+                            .mapToLong(CompletableFuture::join)
+                            .sum();
+                    counterSnapshots.put(key, new CounterSnapshot(sum, clock.currentTimeMs()));
+                    return sum;
+                });
+    }
+
+    /**
+     * Approximate read of a sharded counter. Returns the last summed value if it's at most
+     * {@code maxStalenessMs} old, otherwise sums the shards again like {@link #getCounter(DataKey)}.
+     */
+    public CompletableFuture<Long> getCounter(DataKey key, long maxStalenessMs) {
+        CounterSnapshot snapshot = counterSnapshots.get(key);
+        if (snapshot != null && clock.currentTimeMs() - snapshot.readAtMs() <= maxStalenessMs) {
+            return CompletableFuture.completedFuture(snapshot.value());
+        }
+        return getCounter(key);
+    }
+
+    /**
+     * Removes all shards of the counter.
+     *
+     * @return value of the counter before it was removed
+     */
+    public CompletableFuture<Long> removeCounter(DataKey key) {
+        counterSnapshots.remove(key);
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>(counterShards);
+        for (int shard = 0; shard < counterShards; shard++) {
+            futures.add(partitions[counterPartition(key, shard)].removeCounterShard(key));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> futures.stream()
+                        .mapToLong(CompletableFuture::join)
+                        .sum());
+    }
+
     public CompletableFuture<Long> totalKeys() {
         CompletableFuture<Long>[] futures = Arrays.stream(partitions)
                 .map(KeyValuePartition::totalKeys)
@@ -74,9 +337,157 @@ public class KeyValueStore {
     }
 
 
+    /**
+     * @return stats of the shared value store, or null when deduplication is not enabled
+     */
+    public DeduplicationStats deduplicationStats() {
+        return deduplicator != null ? deduplicator.stats() : null;
+    }
+
+    /**
+     * Clock of the store, for commands which need to timestamp what they store.
+     */
+    public KvStoreClock clock() {
+        return clock;
+    }
+
+    /**
+     * Recovery of a persistent store from its snapshots and log, which every partition starts with. Operations
+     * can be issued right away, they wait for the recovery of their partition.
+     *
+     * @return stats of the recovery once every partition recovered, completed right away for a store which
+     * isn't persistent
+     * @see KeyValuePartition#recover
+     */
+    public CompletableFuture<RecoveryStats> recovery() {
+        return recovery;
+    }
+
+    /**
+     * @return partitions which are done recovering, successfully or not
+     */
+    public int recoveredPartitions() {
+        return recovery.isDone() ? partitions.length : recoveredPartitions.get();
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Writes a snapshot of every partition, in parallel, on top of the periodic ones. A round which is
+     * running already is joined instead of starting another one.
+     *
+     * @return the snapshot files, in partition order
+     * @see KeyValuePartition#snapshot
+     */
+    public CompletableFuture<List<Path>> snapshot() {
+        if (snapshotScheduler == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The store isn't persistent"));
+        }
+        return snapshotScheduler.snapshotAll();
+    }
+
+    /**
+     * Compacts the logs of every partition, on top of the periodic compactions. A round which is running
+     * already is joined instead of starting another one.
+     *
+     * @see com.bcorp.persistence.WalCompactor
+     */
+    public CompletableFuture<CompactionStats> compactLog() {
+        if (compactionScheduler == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The store isn't persistent"));
+        }
+        return compactionScheduler.compactAll();
+    }
+
+    /**
+     * Moves the cold values of every partition to the disk tier, on top of the periodic rounds. A round which
+     * is running already is joined instead of starting another one.
+     *
+     * @see KeyValuePartition#moveColdValues
+     */
+    public CompletableFuture<TieringStats> moveColdValues() {
+        if (tieringScheduler == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The store has no disk tier"));
+        }
+        return tieringScheduler.moveAll();
+    }
+
+    /**
+     * @return what the disk tier holds, or null when the store has no disk tier
+     */
+    public TierUsage tierUsage() {
+        return tierStorage != null ? tierStorage.usage() : null;
+    }
+
+    /**
+     * Writes the changes queued for the backing store so far, on top of the periodic rounds.
+     */
+    public CompletableFuture<Void> flushWriteBehind() {
+        if (writeBehind == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The store has no cache writer"));
+        }
+        return writeBehind.flush();
+    }
+
+    /**
+     * @return stats of the changes written to the backing store, or null when the store has no cache writer
+     */
+    public WriteBehindStats writeBehindStats() {
+        return writeBehind != null ? writeBehind.stats() : null;
+    }
+
+    /**
+     * Stops the moves to the disk tier and the log compaction, waits for a running snapshot, runs the
+     * operations queued so far, stops the partitions and then writes and forces what is left in the write
+     * ahead log, writes the changes left for the backing store and deletes the disk tier. Operations issued
+     * after the call are rejected.
+     */
+    @Override
+    public void close() {
+        if (tieringScheduler != null) {
+            tieringScheduler.close();
+        }
+        if (compactionScheduler != null) {
+            compactionScheduler.close();
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.close();
+        }
+        for (KeyValuePartition partition : partitions) {
+            partition.shutdown();
+        }
+        try {
+            for (KeyValuePartition partition : partitions) {
+                partition.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (walWriter != null) {
+            walWriter.close();
+        }
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (tierStorage != null) {
+            tierStorage.close();
+        }
+    }
+
+    private boolean isTooLarge(RequestDataValue value) {
+        return maxValueBytes > 0 && value != null && value.data() != null && value.data().length > maxValueBytes;
+    }
+
     private int getPartition(DataKey key) {
         return (key.hashCode() & 0x7fffffff) % partitions.length;
     }
+
+    private int counterPartition(DataKey key, int shard) {
+        return (getPartition(key) + shard) % partitions.length;
+    }
 }
 
 
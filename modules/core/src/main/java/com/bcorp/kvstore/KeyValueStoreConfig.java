@@ -0,0 +1,81 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.backingstore.WriteBehindConfig;
+import com.bcorp.persistence.PersistenceConfig;
+import com.bcorp.tiering.TieringConfig;
+
+/**
+ * Tunables of the {@link KeyValueStore}. Defaults keep the store fully in memory with no extra features enabled.
+ */
+public class KeyValueStoreConfig {
+    private boolean deduplicateValues = false;
+    // number of partitions a sharded counter spreads its increments over
+    private int counterShards = 8;
+    // values larger than this are rejected before they reach a partition, 0 for no limit. Accepted values are
+    // stored as one array, large ones aren't split into chunks. A native value is measured serialized after
+    // each update and rolled back if it grew past the limit
+    private int maxValueBytes = 0;
+    private PersistenceConfig persistence = new PersistenceConfig();
+    private TieringConfig tiering = new TieringConfig();
+    private WriteBehindConfig writeBehind = new WriteBehindConfig();
+
+    public boolean isDeduplicateValues() {
+        return deduplicateValues;
+    }
+
+    public void setDeduplicateValues(boolean deduplicateValues) {
+        this.deduplicateValues = deduplicateValues;
+    }
+
+    public int getCounterShards() {
+        return counterShards;
+    }
+
+    public void setCounterShards(int counterShards) {
+        this.counterShards = counterShards;
+    }
+
+    public int getMaxValueBytes() {
+        return maxValueBytes;
+    }
+
+    public void setMaxValueBytes(int maxValueBytes) {
+        this.maxValueBytes = maxValueBytes;
+    }
+
+    public PersistenceConfig getPersistence() {
+        return persistence;
+    }
+
+    public void setPersistence(PersistenceConfig persistence) {
+        this.persistence = persistence;
+    }
+
+    public TieringConfig getTiering() {
+        return tiering;
+    }
+
+    public void setTiering(TieringConfig tiering) {
+        this.tiering = tiering;
+    }
+
+    public WriteBehindConfig getWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(WriteBehindConfig writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyValueStoreConfig{" +
+                "deduplicateValues=" + deduplicateValues +
+                ", counterShards=" + counterShards +
+                ", maxValueBytes=" + maxValueBytes +
+                ", persistence=" + persistence +
+                ", tiering=" + tiering +
+                ", writeBehind=" + writeBehind +
+                '}';
+    }
+}
@@ -0,0 +1,112 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.persistence.BandwidthThrottle;
+import com.bcorp.persistence.CompactionStats;
+import com.bcorp.persistence.PersistenceConfig;
+import com.bcorp.persistence.SnapshotReader;
+import com.bcorp.persistence.WalCompactor;
+import com.bcorp.persistence.WalWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+/**
+ * Compacts the logs of every partition of a persistent store, every {@code walCompactionIntervalMs} and
+ * on demand, on a thread of its own.
+ *
+ * <p>The partitions are compacted one after the other under a single bandwidth throttle, so the compaction
+ * never takes more of the disk than it's allowed. Rounds wait for the recovery of the store, which reads the
+ * same segments, and a round starts only once the previous one is over.</p>
+ */
+class LogCompactionScheduler implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final PersistenceConfig config;
+    private final Path dataDirectory;
+    private final WalWriter walWriter;
+    private final int partitionCount;
+    private final CompletableFuture<?> recovery;
+    private final BandwidthThrottle throttle;
+    private final ScheduledExecutorService executor;
+    private CompletableFuture<CompactionStats> runningRound;
+
+    LogCompactionScheduler(PersistenceConfig _config,
+                           WalWriter _walWriter,
+                           int _partitionCount,
+                           CompletableFuture<?> _recovery) {
+        this.config = _config;
+        this.dataDirectory = Path.of(_config.getDataDirectory());
+        this.walWriter = _walWriter;
+        this.partitionCount = _partitionCount;
+        this.recovery = _recovery;
+        this.throttle = new BandwidthThrottle(_config.getWalCompactionMaxBytesPerSecond());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (_config.getWalCompactionIntervalMs() > 0) {
+            // the round runs on the same thread right after, so the interval runs from the start of a round
+            this.executor.scheduleWithFixedDelay(this::compactAll,
+                    _config.getWalCompactionIntervalMs(), _config.getWalCompactionIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Starts a round of compactions, or returns the running one.
+     */
+    synchronized CompletableFuture<CompactionStats> compactAll() {
+        if (runningRound != null && !runningRound.isDone()) {
+            return runningRound;
+        }
+        runningRound = CompletableFuture.supplyAsync(this::compactPartitions, executor);
+        return runningRound;
+    }
+
+    /**
+     * Stops the compactions, a compaction interrupted halfway leaves the log as it was.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompactionStats compactPartitions() {
+        recovery.join();
+
+        CompactionStats stats = CompactionStats.NONE;
+        try {
+            for (int i = 0; i < partitionCount; i++) {
+                stats = stats.plus(WalCompactor.compact(walWriter.log(i).directory(),
+                        config.getWalCompactionMinSegments(), snapshotSequence(i), throttle));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stats;
+    }
+
+    /**
+     * @return sequence of the last record the latest snapshot of the partition includes, -1 without one
+     */
+    private long snapshotSequence(int partitionId) throws IOException {
+        Path snapshot = SnapshotReader.latest(dataDirectory, partitionId);
+        if (snapshot == null) {
+            return -1;
+        }
+        try {
+            return SnapshotReader.readHeader(snapshot).walSequence();
+        } catch (IOException e) {
+            // a snapshot which can't be read won't be recovered from, removes are kept as if there was none
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.backingstore.BackingWrite;
+import com.bcorp.backingstore.CacheLoader;
+import com.bcorp.backingstore.WriteBehindQueue;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Backing store of a partition, the missing keys are read through from it and the changes written behind to it.
+ */
+final class PartitionBackingStore {
+    private final KeyValuePartition partition;
+    // null when the store has no backing store to read from
+    private final CacheLoader loader;
+    // null when the changes aren't written to a backing store
+    private final WriteBehindQueue writeBehind;
+    // missing keys read from the backing store, to the reads waiting for them
+    private final Map<DataKey, PendingLoad> pendingLoads = new HashMap<>();
+
+    private static final class PendingLoad {
+        private final List<CompletableFuture<CachedDataValue>> waiters = new ArrayList<>(1);
+        // the key was removed while it loaded, the loaded value is stale
+        private boolean superseded;
+    }
+
+    PartitionBackingStore(KeyValuePartition _partition, CacheLoader _loader, WriteBehindQueue _writeBehind) {
+        this.partition = _partition;
+        this.loader = _loader;
+        this.writeBehind = _writeBehind;
+    }
+
+    boolean readsThrough() {
+        return loader != null;
+    }
+
+    boolean isIdle() {
+        return pendingLoads.isEmpty();
+    }
+
+    /**
+     * Reads a missing key, once however many reads miss it while it loads. A key written while it loads keeps
+     * the written value and a key removed meanwhile stays removed. The loaded value isn't logged.
+     */
+    void readThrough(DataKey key, CompletableFuture<CachedDataValue> resultFuture) {
+        PendingLoad load = pendingLoads.get(key);
+        if (load == null) {
+            PendingLoad newLoad = new PendingLoad();
+            pendingLoads.put(key, newLoad);
+            CompletableFuture<RequestDataValue> loadedValue;
+            try {
+                loadedValue = loader.load(key);
+            } catch (RuntimeException e) {
+                loadedValue = CompletableFuture.failedFuture(e);
+            }
+            loadedValue.whenComplete((value, error) ->
+                    partition.runOnLoop(key, () -> finishLoad(key, newLoad, value, error)));
+            load = newLoad;
+        }
+        load.waiters.add(resultFuture);
+    }
+
+    void written(DataKey key, CachedDataValue value) {
+        if (writeBehind != null) {
+            writeBehind.add(new BackingWrite(key, value.data(), value.dataType(), value.version()));
+        }
+    }
+
+    /**
+     * @param removedValue null if the partition didn't hold the key, the backing store may hold it anyway
+     */
+    void removed(DataKey key, CachedDataValue removedValue) {
+        PendingLoad load = pendingLoads.get(key);
+        if (load != null) {
+            load.superseded = true;
+        }
+        if (writeBehind != null) {
+            writeBehind.add(BackingWrite.removed(key, removedValue == null ? -1 : removedValue.version()));
+        }
+    }
+
+    private void finishLoad(DataKey key, PendingLoad load, RequestDataValue loadedValue, Throwable error) {
+        pendingLoads.remove(key);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            load.waiters.forEach(waiter -> waiter.completeExceptionally(cause));
+        } else {
+            CachedDataValue value = partition.lookup(key);
+            if (value == null && loadedValue != null && !load.superseded) {
+                value = CachedDataValue.createNewFrom(partition.intern(loadedValue), partition.clock.currentTimeMs());
+                partition.values().put(key, value);
+            }
+            for (CompletableFuture<CachedDataValue> waiter : load.waiters) {
+                waiter.complete(value);
+            }
+        }
+        partition.shutdownWhenIdle();
+    }
+}
@@ -0,0 +1,29 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.backingstore.CacheLoader;
+import com.bcorp.backingstore.WriteBehindQueue;
+import com.bcorp.persistence.PartitionWal;
+import com.bcorp.tiering.DiskTier;
+
+/**
+ * What a {@link KeyValuePartition} is built with besides its id and clock, every part is optional.
+ *
+ * @param deduplicator  null to store every value on its own
+ * @param wal           null when the store isn't persistent
+ * @param diskTier      null when the store has no disk tier
+ * @param loader        reads the keys missing from the partition, null to leave missing keys missing
+ * @param writeBehind   null when the store has no cache writer
+ * @param maxValueBytes size above which a native value is rolled back after an operation, 0 for no limit
+ */
+public record PartitionConfig(ValueDeduplicator deduplicator,
+                              PartitionWal wal,
+                              DiskTier diskTier,
+                              CacheLoader loader,
+                              WriteBehindQueue writeBehind,
+                              int maxValueBytes) {
+
+    /**
+     * A plain in-memory partition.
+     */
+    public static final PartitionConfig DEFAULTS = new PartitionConfig(null, null, null, null, null, 0);
+}
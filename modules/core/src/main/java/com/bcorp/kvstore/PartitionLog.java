@@ -0,0 +1,165 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.datatypes.NativeValue;
+import com.bcorp.persistence.PartitionWal;
+import com.bcorp.persistence.SnapshotReader;
+import com.bcorp.persistence.SnapshotWriter;
+import com.bcorp.persistence.WalReader;
+import com.bcorp.persistence.WalRecord;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Write ahead log of a partition, used on its loop. Without a log every write completes right away.
+ */
+final class PartitionLog {
+    private final KeyValuePartition partition;
+    // null when the store isn't persistent
+    private final PartitionWal wal;
+    // writes of the current drain which are acknowledged once their log records are durable
+    private List<DurableCompletion<?>> awaitingDurability = new ArrayList<>();
+    private long lastLoggedSequence = -1;
+
+    private record DurableCompletion<T>(CompletableFuture<T> resultFuture, T value) {
+        void complete(Throwable error) {
+            if (error == null) {
+                resultFuture.complete(value);
+            } else {
+                resultFuture.completeExceptionally(error);
+            }
+        }
+    }
+
+    PartitionLog(KeyValuePartition _partition, PartitionWal _wal) {
+        this.partition = _partition;
+        this.wal = _wal;
+    }
+
+    /**
+     * @return sequence of the last record written, -1 without a log
+     */
+    long lastSequence() {
+        return wal != null ? wal.nextSequence() - 1 : -1;
+    }
+
+    void logPut(DataKey key, CachedDataValue value) {
+        if (wal != null) {
+            lastLoggedSequence = wal.logPut(key.key(), value.version(), value.dataType(), value.data());
+        }
+    }
+
+    /**
+     * Logs the whole native value, serializing it on the loop unless it was already.
+     *
+     * @param image the value as {@link SnapshotWriter#encodeNative} serialized it, null if it wasn't yet
+     */
+    void logNative(DataKey key, CachedDataValue value, byte[] image) {
+        if (wal != null) {
+            lastLoggedSequence = wal.logNative(key.key(), value.version(), value.dataType(),
+                    image != null ? image : SnapshotWriter.encodeNative(value.nativeValue()));
+        }
+    }
+
+    void logRemove(DataKey key, CachedDataValue removedValue) {
+        if (wal != null) {
+            lastLoggedSequence = wal.logRemove(key.key(), removedValue.version());
+        }
+    }
+
+    void logCounter(DataKey key, long value) {
+        if (wal != null) {
+            lastLoggedSequence = wal.logCounter(key.key(), value);
+        }
+    }
+
+    void logCounterRemove(DataKey key) {
+        if (wal != null) {
+            lastLoggedSequence = wal.logCounterRemove(key.key());
+        }
+    }
+
+    /**
+     * Completes a write right away, or once the drain is over and its log records are durable if the log
+     * acknowledges writes only after a force.
+     */
+    <T> void complete(CompletableFuture<T> resultFuture, T value, boolean logged) {
+        if (logged && wal != null && wal.awaitsDurability()) {
+            awaitingDurability.add(new DurableCompletion<>(resultFuture, value));
+        } else {
+            resultFuture.complete(value);
+        }
+    }
+
+    /**
+     * Hands the writes of the drain to the log as one group, they are completed back on the loop once
+     * the last record of the drain was forced.
+     */
+    void acknowledgeWhenDurable() {
+        if (awaitingDurability.isEmpty()) {
+            return;
+        }
+
+        List<DurableCompletion<?>> completions = awaitingDurability;
+        awaitingDurability = new ArrayList<>();
+        wal.whenDurable(lastLoggedSequence).whenComplete((ignored, error) -> {
+            Runnable acknowledge = () -> completions.forEach(completion -> completion.complete(error));
+            try {
+                partition.eventLoop.execute(acknowledge);
+            } catch (RejectedExecutionException e) {
+                // the partition is shut down, the log is flushed by the store afterwards
+                acknowledge.run();
+            }
+        });
+    }
+
+    /**
+     * Replays the records written after {@code walSequence}, on the loop.
+     *
+     * @return the records replayed and the bytes read
+     */
+    long[] replayAfter(long walSequence) throws IOException {
+        if (wal == null) {
+            return new long[2];
+        }
+        long fromSequence = walSequence + 1;
+        long[] replayed = {0, WalReader.bytesFrom(wal.directory(), fromSequence)};
+        WalReader.read(wal.directory(), fromSequence, record -> {
+            replay(record);
+            replayed[0]++;
+        });
+        // the log may have lost the records of the snapshot, new ones have to come after them anyway
+        wal.continueAfter(walSequence);
+        return replayed;
+    }
+
+    private void replay(WalRecord record) {
+        DataKey key = new DataKey(record.key());
+        switch (record.type()) {
+            case PUT -> partition.release(partition.values().put(key, CachedDataValue.createUpdatedFrom(
+                    partition.intern(new RequestDataValue(record.value(), record.dataType())),
+                    partition.clock.currentTimeMs(),
+                    record.version())));
+            case REMOVE -> partition.release(partition.values().remove(key));
+            case COUNTER -> partition.counterShards().put(key, new long[]{record.version()});
+            case COUNTER_REMOVE -> partition.counterShards().remove(key);
+            case NATIVE -> partition.release(partition.values().put(key, CachedDataValue.fromNative(
+                    decodeNative(record), partition.clock.currentTimeMs(), record.version())));
+        }
+    }
+
+    private static NativeValue decodeNative(WalRecord record) {
+        try {
+            return SnapshotReader.decodeNative(record.dataType(), record.value());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Native value of " + record.key() + " is corrupted", e);
+        }
+    }
+}
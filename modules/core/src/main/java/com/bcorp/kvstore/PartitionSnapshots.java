@@ -0,0 +1,282 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.datatypes.NativeValue;
+import com.bcorp.persistence.RecoveryStats;
+import com.bcorp.persistence.SnapshotHeader;
+import com.bcorp.persistence.SnapshotReader;
+import com.bcorp.persistence.SnapshotWriter;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.DeferredData;
+import com.bcorp.pojos.RequestDataValue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Snapshots of a partition and its recovery from them. Only the cut is taken on the loop, the snapshot is
+ * written off it.
+ */
+final class PartitionSnapshots {
+    // bounds of the native values a snapshot serializes in one hop on the loop
+    private static final int CHUNK_VALUES = 256;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final KeyValuePartition partition;
+    // cut of the snapshot being written, null when there is none
+    private SnapshotCut runningCut;
+
+    /**
+     * The partition as it was when a snapshot started. Byte values are never modified, so holding on to them
+     * is enough. Native values are serialized on the loop while the snapshot is written, or right before an
+     * operation modifies one which wasn't serialized yet.
+     */
+    private static final class SnapshotCut {
+        private final long walSequence;
+        private final DataKey[] keys;
+        private final CachedDataValue[] values;
+        private final DataKey[] counterKeys;
+        private final long[] counterValues;
+        // positions of the native values in keys and values
+        private final int[] nativeIndexes;
+        private final byte[][] nativeImages;
+        // native values not serialized yet, to their position in nativeIndexes
+        private final IdentityHashMap<NativeValue, Integer> unserializedNatives = new IdentityHashMap<>();
+
+        private SnapshotCut(long _walSequence, int size, int counterCount, int nativeCount) {
+            this.walSequence = _walSequence;
+            this.keys = new DataKey[size];
+            this.values = new CachedDataValue[size];
+            this.counterKeys = new DataKey[counterCount];
+            this.counterValues = new long[counterCount];
+            this.nativeIndexes = new int[nativeCount];
+            this.nativeImages = new byte[nativeCount][];
+        }
+    }
+
+    PartitionSnapshots(KeyValuePartition _partition) {
+        this.partition = _partition;
+    }
+
+    boolean isRunning() {
+        return runningCut != null;
+    }
+
+    CompletableFuture<Path> snapshot(SnapshotWriter.Opener opener, Executor executor) {
+        CompletableFuture<SnapshotCut> cutFuture = new CompletableFuture<>();
+        partition.runOnLoop(null, cutFuture, () -> {
+            if (runningCut != null) {
+                cutFuture.completeExceptionally(new IllegalStateException(
+                        "A snapshot of partition " + partition.partitionId + " is running already"));
+                return;
+            }
+            runningCut = takeCut();
+            cutFuture.complete(runningCut);
+        });
+
+        return cutFuture.thenApplyAsync(cut -> {
+            try {
+                return write(cut, opener);
+            } finally {
+                partition.runOnLoop(null, () -> runningCut = null);
+            }
+        }, executor);
+    }
+
+    /**
+     * Copy on write for a running snapshot, serializes a native value of the cut before an operation modifies it.
+     */
+    void preserve(NativeValue nativeValue) {
+        if (runningCut == null) {
+            return;
+        }
+        Integer nativeIndex = runningCut.unserializedNatives.remove(nativeValue);
+        if (nativeIndex != null) {
+            runningCut.nativeImages[nativeIndex] = SnapshotWriter.encodeNative(nativeValue);
+        }
+    }
+
+    /**
+     * Loads the latest snapshot and replays the log written after it, on the loop. A snapshot which fails to
+     * read is discarded and the partition is rebuilt from the whole log.
+     */
+    RecoveryStats recover(Path dataDirectory, boolean keepValuesMapped) throws IOException {
+        long startNs = System.nanoTime();
+        long entries = 0;
+        long bytesRead = 0;
+        long mappedBytes = 0;
+        int discardedSnapshots = 0;
+        long walSequence = -1;
+
+        Path snapshot = SnapshotReader.latest(dataDirectory, partition.partitionId);
+        if (snapshot != null) {
+            try {
+                SnapshotHeader header = SnapshotReader.readHeader(snapshot);
+                partition.resetTables(tableCapacity(header.entryCount()), tableCapacity(header.counterShardCount()));
+                SnapshotLoader loader = new SnapshotLoader(keepValuesMapped);
+                SnapshotReader.read(snapshot, loader);
+                entries = header.entryCount() + header.counterShardCount();
+                mappedBytes = loader.mappedBytes;
+                bytesRead += Files.size(snapshot) - mappedBytes;
+                walSequence = header.walSequence();
+            } catch (IOException e) {
+                partition.values().values().forEach(partition::release);
+                partition.resetTables(16, 16);
+                discardedSnapshots++;
+            }
+        }
+
+        long[] replayed = partition.log.replayAfter(walSequence);
+        return new RecoveryStats(entries, replayed[0], bytesRead + replayed[1], mappedBytes, discardedSnapshots,
+                (System.nanoTime() - startNs) / 1_000_000);
+    }
+
+    private SnapshotCut takeCut() {
+        Map<DataKey, CachedDataValue> values = partition.values();
+        Map<DataKey, long[]> counterShards = partition.counterShards();
+        int nativeCount = 0;
+        for (CachedDataValue value : values.values()) {
+            if (value.isNative()) {
+                nativeCount++;
+            }
+        }
+
+        SnapshotCut cut = new SnapshotCut(partition.log.lastSequence(), values.size(), counterShards.size(), nativeCount);
+        int index = 0;
+        int nativeIndex = 0;
+        for (Map.Entry<DataKey, CachedDataValue> entry : values.entrySet()) {
+            cut.keys[index] = entry.getKey();
+            cut.values[index] = entry.getValue();
+            if (entry.getValue().isNative()) {
+                cut.nativeIndexes[nativeIndex] = index;
+                cut.unserializedNatives.put(entry.getValue().nativeValue(), nativeIndex);
+                nativeIndex++;
+            }
+            index++;
+        }
+
+        int counterIndex = 0;
+        for (Map.Entry<DataKey, long[]> shard : counterShards.entrySet()) {
+            cut.counterKeys[counterIndex] = shard.getKey();
+            cut.counterValues[counterIndex] = shard.getValue()[0];
+            counterIndex++;
+        }
+        return cut;
+    }
+
+    /**
+     * Runs on the snapshot executor, blocking on the loop only to have the native values serialized.
+     */
+    private Path write(SnapshotCut cut, SnapshotWriter.Opener opener) {
+        try (SnapshotWriter writer = opener.open(cut.walSequence, cut.keys.length, cut.counterKeys.length)) {
+            int nativeIndex = 0;
+            int serializedNatives = 0;
+            for (int i = 0; i < cut.keys.length; i++) {
+                CachedDataValue value = cut.values[i];
+                long version = value.version() == null ? 0 : value.version();
+
+                if (value.isNative()) {
+                    if (nativeIndex == serializedNatives) {
+                        serializedNatives = serializeNatives(cut, nativeIndex).join();
+                    }
+                    writer.writeNative(cut.keys[i].key(), version, value.lastAccessTimeMs(), value.dataType(),
+                            cut.nativeImages[nativeIndex]);
+                    cut.nativeImages[nativeIndex++] = null;
+                } else {
+                    byte[] data = value.isDeferred() ? value.deferredData().load() : value.data();
+                    // a corrupted mapped value is dropped when its key is accessed, it isn't carried over
+                    if (data != null) {
+                        writer.writeValue(cut.keys[i].key(), version, value.lastAccessTimeMs(), value.dataType(),
+                                value.contentHash(), data);
+                    }
+                }
+                // what was written can be collected while the rest is
+                cut.values[i] = null;
+            }
+
+            for (int i = 0; i < cut.counterKeys.length; i++) {
+                writer.writeCounterShard(cut.counterKeys[i].key(), cut.counterValues[i]);
+            }
+            return writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return position of the first native value of the cut which wasn't serialized by this chunk
+     */
+    private CompletableFuture<Integer> serializeNatives(SnapshotCut cut, int fromNative) {
+        CompletableFuture<Integer> resultFuture = new CompletableFuture<>();
+        partition.runOnLoop(null, resultFuture, () -> {
+            int nativeIndex = fromNative;
+            long serializedBytes = 0;
+            while (nativeIndex < cut.nativeIndexes.length
+                    && nativeIndex - fromNative < CHUNK_VALUES
+                    && serializedBytes < CHUNK_BYTES) {
+                NativeValue nativeValue = cut.values[cut.nativeIndexes[nativeIndex]].nativeValue();
+                if (cut.unserializedNatives.remove(nativeValue) != null) {
+                    cut.nativeImages[nativeIndex] = SnapshotWriter.encodeNative(nativeValue);
+                }
+                serializedBytes += cut.nativeImages[nativeIndex].length;
+                nativeIndex++;
+            }
+            resultFuture.complete(nativeIndex);
+        });
+        return resultFuture;
+    }
+
+    /**
+     * @return initial capacity of a table which holds {@code size} entries without resizing
+     */
+    private static int tableCapacity(long size) {
+        return (int) Math.min(1 << 30, size * 4 / 3 + 1);
+    }
+
+    private final class SnapshotLoader implements SnapshotReader.Visitor {
+        private final boolean keepValuesMapped;
+        private long mappedBytes;
+
+        private SnapshotLoader(boolean _keepValuesMapped) {
+            this.keepValuesMapped = _keepValuesMapped;
+        }
+
+        @Override
+        public void value(String key, long version, long lastAccessTimeMs, Class<?> dataType, byte[] value) {
+            partition.values().put(new DataKey(key), CachedDataValue.createUpdatedFrom(
+                    partition.intern(new RequestDataValue(value, dataType)), lastAccessTimeMs, version));
+        }
+
+        @Override
+        public void mappedValue(String key,
+                                long version,
+                                long lastAccessTimeMs,
+                                Class<?> dataType,
+                                long contentHash,
+                                DeferredData value) {
+            if (!keepValuesMapped) {
+                SnapshotReader.Visitor.super.mappedValue(key, version, lastAccessTimeMs, dataType, contentHash, value);
+                return;
+            }
+            partition.values().put(new DataKey(key),
+                    CachedDataValue.deferred(value, dataType, lastAccessTimeMs, version, contentHash));
+            mappedBytes += value.length();
+        }
+
+        @Override
+        public void nativeValue(String key, long version, long lastAccessTimeMs, NativeValue value) {
+            partition.values().put(new DataKey(key), CachedDataValue.fromNative(value, lastAccessTimeMs, version));
+        }
+
+        @Override
+        public void counterShard(String key, long value) {
+            partition.counterShards().put(new DataKey(key), new long[]{value});
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.tiering.DiskTier;
+import com.bcorp.tiering.TieredData;
+import com.bcorp.tiering.TieringStats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Disk tier of a partition. Cold byte values are moved to the tier, and read back off the loop before an
+ * operation on their key runs.
+ */
+final class PartitionTiering {
+    // values moved to the disk tier between two hops on the loop swapping them
+    private static final int CHUNK_VALUES = 1024;
+
+    private final KeyValuePartition partition;
+    private final DiskTier diskTier;
+    // keys whose value is read back from the tier, to the operations waiting for it in arrival order
+    private final Map<DataKey, List<KeyValuePartition.PartitionTask>> loadingKeys = new HashMap<>();
+    // exports reading values of the tier off the loop, no segment is detached meanwhile
+    private int segmentReads;
+
+    private record TierMove(DataKey key, CachedDataValue value) {
+    }
+
+    PartitionTiering(KeyValuePartition _partition, DiskTier _diskTier) {
+        this.partition = _partition;
+        this.diskTier = _diskTier;
+    }
+
+    boolean isIdle() {
+        return loadingKeys.isEmpty();
+    }
+
+    /**
+     * @return the operations waiting for the value of the key to be read back, null if it isn't
+     */
+    List<KeyValuePartition.PartitionTask> waitingFor(DataKey key) {
+        return loadingKeys.get(key);
+    }
+
+    void startSegmentRead() {
+        segmentReads++;
+    }
+
+    void finishSegmentRead() {
+        segmentReads--;
+    }
+
+    void free(CachedDataValue value) {
+        if (value.deferredData() instanceof TieredData tieredData) {
+            diskTier.free(tieredData);
+        }
+    }
+
+    /**
+     * Holds a task back while the value of its key is read from the tier, starting the read if the value is
+     * still in the tier. Writes held back by the drain were applied before, a move is a partition wide task.
+     *
+     * @return true if the task waits, it runs once the value is back in memory
+     */
+    boolean holdsBack(KeyValuePartition.PartitionTask task) {
+        DataKey key = task.key();
+        if (key == null) {
+            return false;
+        }
+
+        List<KeyValuePartition.PartitionTask> waiting = loadingKeys.get(key);
+        if (waiting == null) {
+            CachedDataValue value = partition.values().get(key);
+            if (value == null || !(value.deferredData() instanceof TieredData tieredData)) {
+                return false;
+            }
+            waiting = new ArrayList<>(2);
+            loadingKeys.put(key, waiting);
+            diskTier.load(tieredData).whenComplete((data, error) ->
+                    partition.runOnLoop(null, () -> promote(key, value, error == null ? data : null)));
+        }
+        waiting.add(task);
+        return true;
+    }
+
+    /**
+     * Values written on the calling thread, see {@link KeyValuePartition#moveColdValues}.
+     */
+    TieringStats moveColdValues(long coldBeforeMs, int minValueBytes) {
+        CompletableFuture<List<TierMove>> movesFuture = new CompletableFuture<>();
+        partition.runOnLoop(null, movesFuture, () -> movesFuture.complete(pickMoves(coldBeforeMs, minValueBytes)));
+        List<TierMove> moves = movesFuture.join();
+
+        TieringStats stats = TieringStats.NONE;
+        for (int from = 0; from < moves.size(); from += CHUNK_VALUES) {
+            List<TierMove> chunk = moves.subList(from, Math.min(moves.size(), from + CHUNK_VALUES));
+            stats = stats.plus(swapMoves(chunk, writeMoves(chunk)).join());
+        }
+        try {
+            return stats.plus(new TieringStats(0, 0, 0, diskTier.deleteDetachedSegments()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param data the bytes read, null if they couldn't be read or were corrupted
+     */
+    private void promote(DataKey key, CachedDataValue tieredValue, byte[] data) {
+        List<KeyValuePartition.PartitionTask> waiting = loadingKeys.remove(key);
+        Map<DataKey, CachedDataValue> values = partition.values();
+        if (values.get(key) == tieredValue) {
+            partition.release(tieredValue);
+            if (data == null) {
+                // dropped like a corrupted value of a mapped snapshot
+                values.remove(key);
+            } else {
+                values.put(key, partition.withData(tieredValue, data));
+            }
+        }
+        partition.runWaiting(key, waiting);
+        partition.shutdownWhenIdle();
+    }
+
+    private List<TierMove> pickMoves(long coldBeforeMs, int minValueBytes) {
+        diskTier.markSparseSegments();
+        if (!partition.snapshots.isRunning() && segmentReads == 0) {
+            // a running snapshot may still read the values its cut holds from the tier
+            diskTier.detachEmptySegments();
+        }
+
+        List<TierMove> moves = new ArrayList<>();
+        for (Map.Entry<DataKey, CachedDataValue> entry : partition.values().entrySet()) {
+            CachedDataValue value = entry.getValue();
+            boolean move = value.deferredData() instanceof TieredData tieredData
+                    ? diskTier.isRelocating(tieredData) && !loadingKeys.containsKey(entry.getKey())
+                    : value.data() != null
+                    && value.data().length >= minValueBytes
+                    && value.lastAccessTimeMs() < coldBeforeMs;
+            if (move) {
+                moves.add(new TierMove(entry.getKey(), value));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * @return where every value was written, null for a relocated value which turned out to be corrupted
+     */
+    private TieredData[] writeMoves(List<TierMove> moves) {
+        TieredData[] written = new TieredData[moves.size()];
+        boolean complete = false;
+        try {
+            for (int i = 0; i < moves.size(); i++) {
+                CachedDataValue value = moves.get(i).value();
+                byte[] data = value.isDeferred() ? value.deferredData().load() : value.data();
+                if (data != null) {
+                    written[i] = diskTier.append(data, value.contentHash());
+                }
+            }
+            complete = true;
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!complete) {
+                // none of the chunk is swapped in
+                Arrays.stream(written).filter(Objects::nonNull).forEach(diskTier::free);
+            }
+        }
+    }
+
+    /**
+     * Swaps the written values in, unless their key was accessed or modified since they were picked.
+     */
+    private CompletableFuture<TieringStats> swapMoves(List<TierMove> moves, TieredData[] written) {
+        CompletableFuture<TieringStats> resultFuture = new CompletableFuture<>();
+        partition.runOnLoop(null, resultFuture, () -> {
+            Map<DataKey, CachedDataValue> values = partition.values();
+            long movedValues = 0;
+            long movedBytes = 0;
+            long relocatedValues = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                TierMove move = moves.get(i);
+                TieredData data = written[i];
+                if (data == null) {
+                    continue;
+                }
+                if (values.get(move.key()) != move.value() || loadingKeys.containsKey(move.key())) {
+                    diskTier.free(data);
+                    continue;
+                }
+
+                CachedDataValue value = move.value();
+                values.put(move.key(), CachedDataValue.deferred(data, value.dataType(),
+                        value.lastAccessTimeMs(), value.version(), value.contentHash()));
+                partition.release(value);
+                if (value.isDeferred()) {
+                    relocatedValues++;
+                } else {
+                    movedValues++;
+                    movedBytes += data.length();
+                }
+            }
+            resultFuture.complete(new TieringStats(movedValues, movedBytes, relocatedValues, 0));
+        });
+        return resultFuture;
+    }
+}
@@ -0,0 +1,102 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.persistence.BandwidthThrottle;
+import com.bcorp.persistence.PersistenceConfig;
+import com.bcorp.persistence.SnapshotHeader;
+import com.bcorp.persistence.SnapshotWriter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the snapshots of every partition of a persistent store, every {@code snapshotIntervalMs} and on demand.
+ *
+ * <p>The partitions are written in parallel by {@code snapshotThreads} threads which share a single bandwidth
+ * throttle. A round of snapshots starts only once the previous one is over, a failed round is simply retried
+ * by the next one.</p>
+ */
+class SnapshotScheduler implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final PersistenceConfig config;
+    private final Path dataDirectory;
+    private final KeyValuePartition[] partitions;
+    private final KvStoreClock clock;
+    private final BandwidthThrottle throttle;
+    private final ExecutorService writers;
+    // null when the periodic snapshots are off
+    private final ScheduledExecutorService timer;
+    private CompletableFuture<List<Path>> runningRound;
+
+    SnapshotScheduler(PersistenceConfig _config, KeyValuePartition[] _partitions, KvStoreClock _clock) {
+        this.config = _config;
+        this.dataDirectory = Path.of(_config.getDataDirectory());
+        this.partitions = _partitions;
+        this.clock = _clock;
+        this.throttle = new BandwidthThrottle(_config.getSnapshotMaxBytesPerSecond());
+
+        AtomicInteger writerCount = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(Math.max(1, _config.getSnapshotThreads()),
+                runnable -> daemon(runnable, "snapshot-writer-" + writerCount.getAndIncrement()));
+
+        if (_config.getSnapshotIntervalMs() > 0) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "snapshot-timer"));
+            // waiting for the round delays the next one, so the interval runs from the end of a round
+            this.timer.scheduleWithFixedDelay(() -> snapshotAll().exceptionally(error -> null).join(),
+                    _config.getSnapshotIntervalMs(), _config.getSnapshotIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            this.timer = null;
+        }
+    }
+
+    /**
+     * Starts a round of snapshots, or returns the running one.
+     *
+     * @return the snapshot files of the round, in partition order
+     */
+    synchronized CompletableFuture<List<Path>> snapshotAll() {
+        if (runningRound != null && !runningRound.isDone()) {
+            return runningRound;
+        }
+
+        List<CompletableFuture<Path>> snapshots = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            snapshots.add(partitions[i].snapshot(opener(i), writers));
+        }
+        runningRound = CompletableFuture.allOf(snapshots.toArray(CompletableFuture[]::new))
+                .thenApply(v -> snapshots.stream().map(CompletableFuture::join).toList());
+        return runningRound;
+    }
+
+    /**
+     * Stops the periodic snapshots and waits for the running round to finish.
+     */
+    @Override
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        writers.shutdown();
+        try {
+            writers.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SnapshotWriter.Opener opener(int partitionId) {
+        return (walSequence, entryCount, counterShardCount) -> SnapshotWriter.create(dataDirectory, partitionId,
+                new SnapshotHeader(walSequence, entryCount, counterShardCount, clock.currentTimeMs(),
+                        config.isSnapshotCompression()),
+                throttle);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
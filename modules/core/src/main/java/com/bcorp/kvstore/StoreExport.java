@@ -0,0 +1,67 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.ExportEntry;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads the byte values of the store a chunk at a time, see {@link KeyValueStore#newExport()}.
+ *
+ * <p>Partitions are read one after the other. The keys of a partition are taken in one hop on its loop, and
+ * their values are read in chunks bounded by count and size, one hop per chunk, so the loop is only held up
+ * briefly and the export holds a single chunk of values at a time next to the keys of one partition. Values
+ * left in a mapped snapshot or moved to the disk tier are read on {@code reader}, they stay where they are.</p>
+ *
+ * <p>The export is weakly consistent: a value is read as it is when its chunk is read, keys removed meanwhile
+ * are skipped and keys added after the keys of their partition were taken are missed. Values of native types,
+ * e.g. hashes or lists, have no encoded form and are skipped.</p>
+ *
+ * <p>Not thread safe, one instance is meant to be used for a single export, a chunk at a time.</p>
+ */
+public class StoreExport {
+    // bounds of the values read in one hop on a loop
+    private static final int CHUNK_VALUES = 1024;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final KeyValuePartition[] partitions;
+    private final Executor reader;
+    private int partition;
+    // keys of the partition being read, null until they are taken
+    private DataKey[] keys;
+    private int next;
+
+    StoreExport(KeyValuePartition[] _partitions, Executor _reader) {
+        this.partitions = _partitions;
+        this.reader = _reader;
+    }
+
+    /**
+     * @return the next values, an empty list once every partition was read
+     */
+    public CompletableFuture<List<ExportEntry>> next() {
+        if (partition == partitions.length) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        if (keys == null) {
+            return partitions[partition].exportKeys().thenCompose(partitionKeys -> {
+                keys = partitionKeys;
+                next = 0;
+                return next();
+            });
+        }
+        if (next == keys.length) {
+            partition++;
+            keys = null;
+            return next();
+        }
+
+        return partitions[partition].exportChunk(keys, next, CHUNK_VALUES, CHUNK_BYTES, reader).thenCompose(chunk -> {
+            next = chunk.next();
+            // every key of the chunk was removed or native, an empty list would end the export
+            return chunk.entries().isEmpty() ? next() : CompletableFuture.completedFuture(chunk.entries());
+        });
+    }
+}
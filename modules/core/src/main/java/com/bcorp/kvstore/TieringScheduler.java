@@ -0,0 +1,73 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.tiering.TieringConfig;
+import com.bcorp.tiering.TieringStats;
+
+import java.util.concurrent.*;
+
+/**
+ * Moves the cold values of every partition to the disk tier, every {@code moveIntervalMs} and on demand, on
+ * a thread of its own.
+ *
+ * <p>The partitions are handled one after the other and the tiers share a single bandwidth throttle, so the
+ * moves never take more of the disk than they're allowed. A round starts only once the previous one is over,
+ * a failed round is simply retried by the next one.</p>
+ */
+class TieringScheduler implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final TieringConfig config;
+    private final KeyValuePartition[] partitions;
+    private final KvStoreClock clock;
+    private final ScheduledExecutorService executor;
+    private CompletableFuture<TieringStats> runningRound;
+
+    TieringScheduler(TieringConfig _config, KeyValuePartition[] _partitions, KvStoreClock _clock) {
+        this.config = _config;
+        this.partitions = _partitions;
+        this.clock = _clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tier-mover");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (_config.getMoveIntervalMs() > 0) {
+            this.executor.scheduleWithFixedDelay(this::moveAll,
+                    _config.getMoveIntervalMs(), _config.getMoveIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Starts a round of moves, or returns the running one.
+     */
+    synchronized CompletableFuture<TieringStats> moveAll() {
+        if (runningRound != null && !runningRound.isDone()) {
+            return runningRound;
+        }
+        runningRound = CompletableFuture.supplyAsync(this::movePartitions, executor);
+        return runningRound;
+    }
+
+    /**
+     * Stops the moves, a value written to the tier but not swapped in yet stays in memory.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TieringStats movePartitions() {
+        long coldBeforeMs = clock.currentTimeMs() - config.getColdAfterMs();
+        TieringStats stats = TieringStats.NONE;
+        for (KeyValuePartition partition : partitions) {
+            stats = stats.plus(partition.moveColdValues(coldBeforeMs, config.getMinValueBytes()));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,100 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.pojos.DeduplicationStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content addressed store of value payloads shared by all partitions of a node.
+ *
+ * <p>Identical payloads are interned into a single {@code byte[]} which is reference counted.
+ * Entries are looked up by the content hash of the value and the bytes are compared on a hash match,
+ * so a hash collision never makes two different values share a payload. Payloads larger than
+ * {@link #MAX_SHARED_BYTES} are left alone, comparing one with its twin would hold up the partition loop.</p>
+ *
+ * <p>Partitions run on different threads, all the bookkeeping happens inside {@link ConcurrentHashMap#compute}.</p>
+ */
+public class ValueDeduplicator {
+    static final int MAX_SHARED_BYTES = 1 << 20;
+
+    private final ConcurrentHashMap<Long, List<InternedValue>> valuesByHash = new ConcurrentHashMap<>();
+
+    private final AtomicLong uniqueValues = new AtomicLong();
+    private final AtomicLong references = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * Returns the shared payload equal to {@code data}, registering {@code data} itself if there is none yet.
+     */
+    public byte[] intern(byte[] data, long contentHash) {
+        if (data.length > MAX_SHARED_BYTES) {
+            // never registered, so releasing it finds nothing either
+            return data;
+        }
+        byte[][] canonical = new byte[1][];
+
+        valuesByHash.compute(contentHash, (hash, bucket) -> {
+            List<InternedValue> values = bucket == null ? new ArrayList<>(1) : bucket;
+            for (InternedValue value : values) {
+                if (value.data == data || Arrays.equals(value.data, data)) {
+                    value.refCount++;
+                    savedBytes.addAndGet(data.length);
+                    canonical[0] = value.data;
+                    return values;
+                }
+            }
+
+            values.add(new InternedValue(data));
+            uniqueValues.incrementAndGet();
+            storedBytes.addAndGet(data.length);
+            canonical[0] = data;
+            return values;
+        });
+
+        references.incrementAndGet();
+        return canonical[0];
+    }
+
+    /**
+     * Drops one reference to a payload previously returned by {@link #intern(byte[], long)}.
+     */
+    public void release(byte[] data, long contentHash) {
+        valuesByHash.computeIfPresent(contentHash, (hash, values) -> {
+            for (int i = 0; i < values.size(); i++) {
+                InternedValue value = values.get(i);
+                if (value.data != data) {
+                    continue;
+                }
+
+                references.decrementAndGet();
+                if (--value.refCount > 0) {
+                    savedBytes.addAndGet(-data.length);
+                } else {
+                    values.remove(i);
+                    uniqueValues.decrementAndGet();
+                    storedBytes.addAndGet(-data.length);
+                }
+                break;
+            }
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    public DeduplicationStats stats() {
+        return new DeduplicationStats(uniqueValues.get(), references.get(), storedBytes.get(), savedBytes.get());
+    }
+
+    private static class InternedValue {
+        private final byte[] data;
+        private int refCount = 1;
+
+        private InternedValue(byte[] data) {
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.bcorp.persistence;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spreads the writes of every thread sharing it over time so that together they stay under a bandwidth.
+ *
+ * <p>Every write books the next free slot of the bandwidth and waits until the slot starts, so a single
+ * thread never writes faster than the limit and several threads share it.</p>
+ */
+public class BandwidthThrottle {
+    private final long bytesPerSecond;
+    // time the bandwidth is booked until
+    private long bookedUntilNs;
+
+    /**
+     * @param _bytesPerSecond bandwidth to stay under, 0 or less for no limit
+     */
+    public BandwidthThrottle(long _bytesPerSecond) {
+        this.bytesPerSecond = _bytesPerSecond;
+    }
+
+    /**
+     * Waits until {@code bytes} may be written.
+     */
+    public void acquire(long bytes) {
+        if (bytesPerSecond <= 0 || bytes <= 0) {
+            return;
+        }
+
+        long startNs;
+        synchronized (this) {
+            long nowNs = System.nanoTime();
+            startNs = Math.max(bookedUntilNs, nowNs);
+            bookedUntilNs = startNs + bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        }
+
+        long waitNs;
+        while ((waitNs = startNs - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNs);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.bcorp.persistence;
+
+/**
+ * What a compaction of the log, of one partition or of all of them, rewrote.
+ *
+ * @param segments      segments rewritten into compacted ones
+ * @param recordsBefore records of those segments
+ * @param recordsAfter  records kept, the latest one of every key
+ * @param bytesBefore   size of those segments
+ * @param bytesAfter    size of the compacted segments
+ */
+public record CompactionStats(int segments, long recordsBefore, long recordsAfter, long bytesBefore, long bytesAfter) {
+
+    public static final CompactionStats NONE = new CompactionStats(0, 0, 0, 0, 0);
+
+    public CompactionStats plus(CompactionStats other) {
+        return new CompactionStats(segments + other.segments,
+                recordsBefore + other.recordsBefore,
+                recordsAfter + other.recordsAfter,
+                bytesBefore + other.bytesBefore,
+                bytesAfter + other.bytesAfter);
+    }
+}
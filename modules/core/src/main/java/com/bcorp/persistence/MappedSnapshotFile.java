@@ -0,0 +1,129 @@
+package com.bcorp.persistence;
+
+import com.bcorp.pojos.DeferredData;
+import com.bcorp.utils.XxHash64;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A snapshot in the mapped layout, mapped read only into memory. A buffer maps at most 2 GB, so the file is
+ * mapped in windows and a slice may span two of them.
+ *
+ * <p>Reads use absolute positions only, so the file can be read from any thread. It stays mapped as long as
+ * one of its values is referenced, even once the snapshot was replaced and deleted.</p>
+ */
+final class MappedSnapshotFile {
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final MappedByteBuffer[] windows;
+    private final long size;
+
+    private MappedSnapshotFile(MappedByteBuffer[] _windows, long _size) {
+        this.windows = _windows;
+        this.size = _size;
+    }
+
+    static MappedSnapshotFile map(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+            for (int i = 0; i < windows.length; i++) {
+                long position = i * WINDOW_BYTES;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+            }
+            return new MappedSnapshotFile(windows, size);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    void read(long offset, byte[] target, int targetOffset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IOException("Slice [" + offset + ", " + (offset + length) + ") lies outside of the snapshot");
+        }
+        while (length > 0) {
+            MappedByteBuffer window = windows[(int) (offset / WINDOW_BYTES)];
+            int windowOffset = (int) (offset % WINDOW_BYTES);
+            int chunk = Math.min(length, window.limit() - windowOffset);
+            window.get(windowOffset, target, targetOffset, chunk);
+            offset += chunk;
+            targetOffset += chunk;
+            length -= chunk;
+        }
+    }
+
+    long readLong(long offset) throws IOException {
+        return readNumber(offset, Long.BYTES);
+    }
+
+    int readInt(long offset) throws IOException {
+        return (int) readNumber(offset, Integer.BYTES);
+    }
+
+    private long readNumber(long offset, int bytes) throws IOException {
+        byte[] number = new byte[bytes];
+        read(offset, number, 0, bytes);
+        long value = 0;
+        for (byte b : number) {
+            value = value << 8 | (b & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * @return the bytes of {@code [from, to)} as a stream
+     */
+    InputStream inputStream(long from, long to) {
+        return new InputStream() {
+            private long position = from;
+
+            @Override
+            public int read() throws IOException {
+                if (position >= to) {
+                    return -1;
+                }
+                byte[] b = new byte[1];
+                MappedSnapshotFile.this.read(position++, b, 0, 1);
+                return b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= to) {
+                    return -1;
+                }
+                int chunk = (int) Math.min(len, to - position);
+                MappedSnapshotFile.this.read(position, b, off, chunk);
+                position += chunk;
+                return chunk;
+            }
+        };
+    }
+
+    DeferredData value(long offset, int length, long contentHash) {
+        return new MappedValue(this, offset, length, contentHash);
+    }
+
+    /**
+     * A value left in the mapped snapshot.
+     */
+    private record MappedValue(MappedSnapshotFile file, long offset, int length, long contentHash) implements DeferredData {
+        @Override
+        public byte[] load() {
+            byte[] data = new byte[length];
+            try {
+                file.read(offset, data, 0, length);
+            } catch (IOException e) {
+                return null;
+            }
+            return XxHash64.hash(data) == contentHash ? data : null;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.bcorp.persistence;
+
+import com.bcorp.exceptions.WalWriteFailedException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32C;
+
+/**
+ * Write ahead log of one partition, a directory of segments named after the first sequence they hold.
+ *
+ * <p>The partition loop only assigns the sequence and queues the record, which never blocks.
+ * Everything touching the files runs on the thread of the {@link WalWriter}.</p>
+ */
+public class PartitionWal {
+    private final int partitionId;
+    private final Path directory;
+    private final PersistenceConfig config;
+    private final WalWriter writer;
+    private final Queue<WalRecord> pendingRecords = new ConcurrentLinkedQueue<>();
+    private final Queue<DurabilityWaiter> waiters = new ConcurrentLinkedQueue<>();
+
+    // owned by the partition loop
+    private long nextSequence;
+
+    // owned by the writer thread
+    private FileChannel segment;
+    private long segmentBytes;
+    private long writtenSequence;
+    private boolean dirty;
+
+    private volatile long durableSequence;
+    private volatile Throwable failure;
+
+    private record DurabilityWaiter(long sequence, CompletableFuture<Void> durableFuture) {
+    }
+
+    PartitionWal(int _partitionId, Path _dataDirectory, PersistenceConfig _config, WalWriter _writer) {
+        this.partitionId = _partitionId;
+        this.directory = WalFormat.partitionDirectory(_dataDirectory, _partitionId);
+        this.config = _config;
+        this.writer = _writer;
+
+        try {
+            Files.createDirectories(directory);
+            // a restarted log continues after the last record which made it to disk
+            long lastSequence = WalReader.lastSequence(directory);
+            this.nextSequence = lastSequence + 1;
+            this.writtenSequence = lastSequence;
+            this.durableSequence = lastSequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open the log of partition " + _partitionId, e);
+        }
+    }
+
+    public int partitionId() {
+        return partitionId;
+    }
+
+    /**
+     * Moves the next sequence past {@code sequence}. Called on the partition loop by the recovery, for a
+     * snapshot which includes records the log doesn't hold anymore.
+     */
+    public void continueAfter(long sequence) {
+        nextSequence = Math.max(nextSequence, sequence + 1);
+    }
+
+    /**
+     * Queues a put, called on the partition loop.
+     *
+     * @return sequence of the record
+     */
+    public long logPut(String key, long version, Class<?> dataType, byte[] value) {
+        return append(new WalRecord(nextSequence, WalRecord.Type.PUT, key, version, dataType, value));
+    }
+
+    /**
+     * Queues the image of a native value after a mutation, called on the partition loop.
+     *
+     * @return sequence of the record
+     */
+    public long logNative(String key, long version, Class<?> dataType, byte[] image) {
+        return append(new WalRecord(nextSequence, WalRecord.Type.NATIVE, key, version, dataType, image));
+    }
+
+    /**
+     * Queues a remove, called on the partition loop.
+     *
+     * @return sequence of the record
+     */
+    public long logRemove(String key, long version) {
+        return append(new WalRecord(nextSequence, WalRecord.Type.REMOVE, key, version, null, null));
+    }
+
+    /**
+     * Queues the new value of a counter shard, called on the partition loop. The value is logged rather than
+     * the increment, so the compaction can keep only the latest record of the shard.
+     *
+     * @return sequence of the record
+     */
+    public long logCounter(String key, long value) {
+        return append(new WalRecord(nextSequence, WalRecord.Type.COUNTER, key, value, null, null));
+    }
+
+    /**
+     * Queues the removal of a counter shard, called on the partition loop.
+     *
+     * @return sequence of the record
+     */
+    public long logCounterRemove(String key) {
+        return append(new WalRecord(nextSequence, WalRecord.Type.COUNTER_REMOVE, key, 0, null, null));
+    }
+
+    /**
+     * @return whether writes have to wait for {@link #whenDurable} before they are acknowledged
+     */
+    public boolean awaitsDurability() {
+        return config.getWalFsyncMode() == WalFsyncMode.BATCH;
+    }
+
+    /**
+     * Completes once the record with the sequence, and every record before it, is durable as far as the
+     * fsync mode goes. Completes exceptionally with {@link WalWriteFailedException} if the log failed.
+     */
+    public CompletableFuture<Void> whenDurable(long sequence) {
+        if (failure != null) {
+            return CompletableFuture.failedFuture(new WalWriteFailedException(failure));
+        }
+        if (sequence <= durableSequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        DurabilityWaiter waiter = new DurabilityWaiter(sequence, new CompletableFuture<>());
+        waiters.add(waiter);
+        // the writer may have completed the waiters just before this one was added
+        writer.signal();
+        return waiter.durableFuture();
+    }
+
+    /**
+     * @return the error which stopped the log, null while it's healthy
+     */
+    public Throwable failure() {
+        return failure;
+    }
+
+    public long durableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Sequence the next record is going to get. Recovery moves it past the records it replayed.
+     */
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public List<Path> segments() throws IOException {
+        return WalReader.segments(directory);
+    }
+
+    private long append(WalRecord record) {
+        nextSequence++;
+        if (failure == null) {
+            pendingRecords.add(record);
+            writer.signal();
+        }
+        return record.sequence();
+    }
+
+    /**
+     * Writes the queued records through the buffer, called on the writer thread.
+     *
+     * @return whether anything was written
+     */
+    boolean writePending(ByteBuffer buffer, CRC32C crc) {
+        if (failure != null) {
+            pendingRecords.clear();
+            return false;
+        }
+
+        boolean wrote = false;
+        try {
+            WalRecord record;
+            while ((record = pendingRecords.poll()) != null) {
+                int size = WalFormat.encodedSize(record);
+                if (segment != null && segmentBytes > 0 && segmentBytes + size > config.getWalSegmentBytes()) {
+                    flush(buffer);
+                    closeSegment();
+                }
+                if (segment == null) {
+                    openSegment(record.sequence());
+                }
+
+                if (size > buffer.remaining()) {
+                    flush(buffer);
+                }
+                if (size > buffer.capacity()) {
+                    // larger than the shared buffer, written on its own
+                    ByteBuffer recordBuffer = ByteBuffer.allocate(size);
+                    WalFormat.encode(record, recordBuffer, crc);
+                    flush(recordBuffer);
+                } else {
+                    WalFormat.encode(record, buffer, crc);
+                }
+
+                segmentBytes += size;
+                writtenSequence = record.sequence();
+                wrote = true;
+            }
+            flush(buffer);
+            dirty |= wrote;
+        } catch (IOException | RuntimeException e) {
+            buffer.clear();
+            fail(e);
+        }
+        return wrote;
+    }
+
+    /**
+     * Forces the written records to disk, called on the writer thread.
+     */
+    void force() {
+        if (failure != null || !dirty) {
+            return;
+        }
+        try {
+            if (segment != null) {
+                segment.force(false);
+            }
+            dirty = false;
+            durableSequence = writtenSequence;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Treats the written records as durable without forcing them, for {@link WalFsyncMode#NONE}.
+     */
+    void markWrittenDurable() {
+        durableSequence = writtenSequence;
+    }
+
+    void completeWaiters() {
+        DurabilityWaiter waiter;
+        if (failure != null) {
+            while ((waiter = waiters.poll()) != null) {
+                waiter.durableFuture().completeExceptionally(new WalWriteFailedException(failure));
+            }
+            return;
+        }
+
+        while ((waiter = waiters.peek()) != null && waiter.sequence() <= durableSequence) {
+            waiters.poll();
+            waiter.durableFuture().complete(null);
+        }
+    }
+
+    void close() {
+        try {
+            if (segment != null) {
+                closeSegment();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+        completeWaiters();
+
+        // nothing is written past this point, later writes must not wait for the log
+        if (failure == null) {
+            fail(new IllegalStateException("Log of partition " + partitionId + " is closed"));
+        }
+        completeWaiters();
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        // an existing file of that name can only be one without a single complete record
+        segment = FileChannel.open(directory.resolve(WalFormat.segmentName(firstSequence)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentBytes = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        // a closed segment is never forced again, so it's forced now whatever the mode
+        if (config.getWalFsyncMode() != WalFsyncMode.NONE) {
+            segment.force(false);
+            dirty = false;
+            durableSequence = writtenSequence;
+        }
+        segment.close();
+        segment = null;
+    }
+
+    private void fail(Throwable e) {
+        failure = e;
+        pendingRecords.clear();
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException ignored) {
+            // the log is failed already
+        }
+        segment = null;
+    }
+}
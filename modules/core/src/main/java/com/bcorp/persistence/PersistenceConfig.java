@@ -0,0 +1,146 @@
+package com.bcorp.persistence;
+
+/**
+ * On disk state of the store. Persistence is off unless {@code dataDirectory} is set.
+ */
+public class PersistenceConfig {
+    private String dataDirectory;
+    private WalFsyncMode walFsyncMode = WalFsyncMode.INTERVAL;
+    private long walFsyncIntervalMs = 1000;
+    // a segment is closed and a new one started once it grows past this size
+    private long walSegmentBytes = 64L * 1024 * 1024;
+    // time between two compactions of the logs, 0 turns compaction off
+    private long walCompactionIntervalMs = 5 * 60 * 1000;
+    // closed segments a log needs before it's compacted
+    private int walCompactionMinSegments = 4;
+    // disk bandwidth the compaction reads and writes through, 0 for no limit
+    private long walCompactionMaxBytesPerSecond = 32L * 1024 * 1024;
+    // time between two snapshots of every partition, 0 turns the periodic snapshots off
+    private long snapshotIntervalMs = 15 * 60 * 1000;
+    // compressed snapshots can't be mapped, they are read back into the heap whole
+    private boolean snapshotCompression = false;
+    // the recovery leaves the values of mapped snapshots in the file until they're accessed
+    private boolean snapshotMapValues = true;
+    // disk bandwidth shared by all the snapshots being written, 0 for no limit
+    private long snapshotMaxBytesPerSecond = 0;
+    // partitions written at the same time
+    private int snapshotThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    public boolean isEnabled() {
+        return dataDirectory != null && !dataDirectory.isBlank();
+    }
+
+    public String getDataDirectory() {
+        return dataDirectory;
+    }
+
+    public void setDataDirectory(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
+    public WalFsyncMode getWalFsyncMode() {
+        return walFsyncMode;
+    }
+
+    public void setWalFsyncMode(WalFsyncMode walFsyncMode) {
+        this.walFsyncMode = walFsyncMode;
+    }
+
+    public long getWalFsyncIntervalMs() {
+        return walFsyncIntervalMs;
+    }
+
+    public void setWalFsyncIntervalMs(long walFsyncIntervalMs) {
+        this.walFsyncIntervalMs = walFsyncIntervalMs;
+    }
+
+    public long getWalSegmentBytes() {
+        return walSegmentBytes;
+    }
+
+    public void setWalSegmentBytes(long walSegmentBytes) {
+        this.walSegmentBytes = walSegmentBytes;
+    }
+
+    public long getWalCompactionIntervalMs() {
+        return walCompactionIntervalMs;
+    }
+
+    public void setWalCompactionIntervalMs(long walCompactionIntervalMs) {
+        this.walCompactionIntervalMs = walCompactionIntervalMs;
+    }
+
+    public int getWalCompactionMinSegments() {
+        return walCompactionMinSegments;
+    }
+
+    public void setWalCompactionMinSegments(int walCompactionMinSegments) {
+        this.walCompactionMinSegments = walCompactionMinSegments;
+    }
+
+    public long getWalCompactionMaxBytesPerSecond() {
+        return walCompactionMaxBytesPerSecond;
+    }
+
+    public void setWalCompactionMaxBytesPerSecond(long walCompactionMaxBytesPerSecond) {
+        this.walCompactionMaxBytesPerSecond = walCompactionMaxBytesPerSecond;
+    }
+
+    public long getSnapshotIntervalMs() {
+        return snapshotIntervalMs;
+    }
+
+    public void setSnapshotIntervalMs(long snapshotIntervalMs) {
+        this.snapshotIntervalMs = snapshotIntervalMs;
+    }
+
+    public boolean isSnapshotCompression() {
+        return snapshotCompression;
+    }
+
+    public void setSnapshotCompression(boolean snapshotCompression) {
+        this.snapshotCompression = snapshotCompression;
+    }
+
+    public boolean isSnapshotMapValues() {
+        return snapshotMapValues;
+    }
+
+    public void setSnapshotMapValues(boolean snapshotMapValues) {
+        this.snapshotMapValues = snapshotMapValues;
+    }
+
+    public long getSnapshotMaxBytesPerSecond() {
+        return snapshotMaxBytesPerSecond;
+    }
+
+    public void setSnapshotMaxBytesPerSecond(long snapshotMaxBytesPerSecond) {
+        this.snapshotMaxBytesPerSecond = snapshotMaxBytesPerSecond;
+    }
+
+    public int getSnapshotThreads() {
+        return snapshotThreads;
+    }
+
+    public void setSnapshotThreads(int snapshotThreads) {
+        this.snapshotThreads = snapshotThreads;
+    }
+
+    @Override
+    public String toString() {
+        return "PersistenceConfig{" +
+                "dataDirectory='" + dataDirectory + '\'' +
+                ", walFsyncMode=" + walFsyncMode +
+                ", walFsyncIntervalMs=" + walFsyncIntervalMs +
+                ", walSegmentBytes=" + walSegmentBytes +
+                ", walCompactionIntervalMs=" + walCompactionIntervalMs +
+                ", walCompactionMinSegments=" + walCompactionMinSegments +
+                ", walCompactionMaxBytesPerSecond=" + walCompactionMaxBytesPerSecond +
+                ", snapshotIntervalMs=" + snapshotIntervalMs +
+                ", snapshotCompression=" + snapshotCompression +
+                ", snapshotMapValues=" + snapshotMapValues +
+                ", snapshotMaxBytesPerSecond=" + snapshotMaxBytesPerSecond +
+                ", snapshotThreads=" + snapshotThreads +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.bcorp.persistence;
+
+/**
+ * What the recovery of a store, or of one of its partitions, read back from disk.
+ *
+ * @param entries            values and counter shards loaded from the snapshots
+ * @param replayedRecords    log records replayed on top of the snapshots
+ * @param bytesRead          size of the snapshots and log segments read
+ * @param mappedBytes        size of the values left in mapped snapshots, read once they're accessed
+ * @param discardedSnapshots snapshots which failed to read, their partitions were replayed from the whole log
+ * @param durationMs         time the recovery took
+ */
+public record RecoveryStats(long entries,
+                            long replayedRecords,
+                            long bytesRead,
+                            long mappedBytes,
+                            int discardedSnapshots,
+                            long durationMs) {
+
+    public static final RecoveryStats NONE = new RecoveryStats(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Sums the stats of two partitions. They are recovered in parallel, so the longest duration is kept.
+     */
+    public RecoveryStats plus(RecoveryStats other) {
+        return new RecoveryStats(entries + other.entries,
+                replayedRecords + other.replayedRecords,
+                bytesRead + other.bytesRead,
+                mappedBytes + other.mappedBytes,
+                discardedSnapshots + other.discardedSnapshots,
+                Math.max(durationMs, other.durationMs));
+    }
+
+    public RecoveryStats withDurationMs(long _durationMs) {
+        return new RecoveryStats(entries, replayedRecords, bytesRead, mappedBytes, discardedSnapshots, _durationMs);
+    }
+
+    public double megabytesPerSecond() {
+        return durationMs == 0 ? 0 : bytesRead / 1024.0 / 1024.0 * 1000.0 / durationMs;
+    }
+}
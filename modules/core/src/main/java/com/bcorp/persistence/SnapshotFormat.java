@@ -0,0 +1,89 @@
+package com.bcorp.persistence;
+
+import com.bcorp.datatypes.*;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Binary layout of a partition snapshot.
+ *
+ * <p>The file starts with an uncompressed header,
+ * {@code [int magic][byte formatVersion][byte flags][long walSequence][long entryCount][long counterShardCount][long createdAtMs]}.
+ * Compressed snapshots are written in the stream layout, uncompressed ones in the mapped layout.
+ * Strings and byte slices are int length prefixed, all numbers are big endian.</p>
+ *
+ * <p>In the stream layout, format version 1, the header is followed by the body, GZIP compressed if the flags
+ * say so. The body is a list of entries, each starting with its kind:</p>
+ * <ul>
+ *     <li>{@code VALUE [key][long version][long lastAccessTimeMs][type name][value]}</li>
+ *     <li>{@code NATIVE [key][long version][long lastAccessTimeMs][type name][image]}, the image being
+ *     what {@link NativeValue#writeTo} wrote</li>
+ *     <li>{@code COUNTER_SHARD [key][long value]}</li>
+ * </ul>
+ * <p>and ends with {@code [END][int crc32c]}, the checksum covering the uncompressed body up to {@code END}.</p>
+ *
+ * <p>The mapped layout, format version 2, is meant to be mapped into memory and leaves the values where they
+ * are. The header is followed by the data, the bytes of the values and native images back to back, then by
+ * the index and a trailer {@code [long indexOffset][int crc32c]}, the checksum covering the index. The index
+ * lists the entries with the position of their bytes in the file:</p>
+ * <ul>
+ *     <li>{@code VALUE [key][long version][long lastAccessTimeMs][type name][long contentHash][long offset][int length]}</li>
+ *     <li>{@code NATIVE [key][long version][long lastAccessTimeMs][type name][long offset][int length]}</li>
+ *     <li>{@code COUNTER_SHARD [key][long value]}</li>
+ * </ul>
+ * <p>and ends with {@code END}. A value is checked against its content hash when it's loaded, so reading
+ * the index never touches the data.</p>
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x494B5653;
+    static final byte STREAM_FORMAT_VERSION = 1;
+    static final byte MAPPED_FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 4 + 1 + 1 + 4 * 8;
+    static final int TRAILER_BYTES = 8 + 4;
+    static final byte FLAG_COMPRESSED = 1;
+    static final String SUFFIX = ".snap";
+    static final String TEMP_SUFFIX = ".tmp";
+    static final String INDEX_TEMP_SUFFIX = ".idx.tmp";
+
+    static final byte END = 0;
+    static final byte VALUE = 1;
+    static final byte NATIVE = 2;
+    static final byte COUNTER_SHARD = 3;
+
+    interface NativeReader {
+        NativeValue read(DataInput in) throws IOException;
+    }
+
+    private static final Map<Class<?>, NativeReader> nativeReaders = Map.of(
+            ListValue.class, ListValue::readFrom,
+            HashValue.class, HashValue::readFrom,
+            SortedSetValue.class, SortedSetValue::readFrom,
+            StreamValue.class, StreamValue::readFrom,
+            HyperLogLogValue.class, HyperLogLogValue::readFrom,
+            BloomFilterValue.class, BloomFilterValue::readFrom,
+            CountMinSketchValue.class, CountMinSketchValue::readFrom,
+            TimeSeriesValue.class, TimeSeriesValue::readFrom);
+
+    private SnapshotFormat() {
+    }
+
+    static Path partitionDirectory(Path dataDirectory, int partitionId) {
+        return dataDirectory.resolve("snapshots").resolve(String.format("partition-%03d", partitionId));
+    }
+
+    static String fileName(long walSequence, long createdAtMs) {
+        // the sequence doesn't move while nothing is written, the time tells two snapshots of it apart
+        return String.format("%020d-%020d", walSequence + 1, createdAtMs) + SUFFIX;
+    }
+
+    static NativeReader nativeReader(Class<?> type) {
+        NativeReader reader = nativeReaders.get(type);
+        if (reader == null) {
+            throw new IllegalStateException("Snapshot holds native values of an unknown type " + type.getName());
+        }
+        return reader;
+    }
+}
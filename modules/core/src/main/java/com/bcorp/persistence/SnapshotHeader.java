@@ -0,0 +1,16 @@
+package com.bcorp.persistence;
+
+/**
+ * @param walSequence       sequence of the last log record the snapshot includes, -1 if it includes none.
+ *                          Only the records after it have to be replayed on top of the snapshot
+ * @param entryCount        number of values in the snapshot, byte and native values alike
+ * @param counterShardCount number of sharded counter shards in the snapshot
+ * @param createdAtMs       time the snapshot was cut at
+ * @param compressed        whether the body is GZIP compressed
+ */
+public record SnapshotHeader(long walSequence,
+                             long entryCount,
+                             long counterShardCount,
+                             long createdAtMs,
+                             boolean compressed) {
+}
@@ -0,0 +1,210 @@
+package com.bcorp.persistence;
+
+import com.bcorp.datatypes.NativeValue;
+import com.bcorp.pojos.DeferredData;
+import com.bcorp.utils.BinaryIo;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the snapshots written by {@link SnapshotWriter}, in either layout.
+ *
+ * <p>Unlike the log, a snapshot is only ever visible once it was completely written and forced, a snapshot
+ * which doesn't read back fully is corrupted and fails the read. Snapshots in the mapped layout are mapped
+ * into memory and only their index is read, their values are checked when they're loaded.</p>
+ */
+public class SnapshotReader {
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Receives the entries of a snapshot in the order they were written.
+     */
+    public interface Visitor {
+        void value(String key, long version, long lastAccessTimeMs, Class<?> dataType, byte[] value);
+
+        /**
+         * A value left in a mapped snapshot, loaded right away unless the visitor keeps it mapped.
+         *
+         * @throws UncheckedIOException if the value is corrupted
+         */
+        default void mappedValue(String key,
+                                 long version,
+                                 long lastAccessTimeMs,
+                                 Class<?> dataType,
+                                 long contentHash,
+                                 DeferredData value) {
+            byte[] data = value.load();
+            if (data == null) {
+                throw new UncheckedIOException(new IOException("Value of " + key + " is corrupted"));
+            }
+            value(key, version, lastAccessTimeMs, dataType, data);
+        }
+
+        void nativeValue(String key, long version, long lastAccessTimeMs, NativeValue value);
+
+        void counterShard(String key, long value);
+    }
+
+    private SnapshotReader() {
+    }
+
+    /**
+     * Reads back a native value serialized by {@link SnapshotWriter#encodeNative}.
+     */
+    public static NativeValue decodeNative(Class<?> dataType, byte[] image) throws IOException {
+        return SnapshotFormat.nativeReader(dataType).read(new DataInputStream(new ByteArrayInputStream(image)));
+    }
+
+    /**
+     * @return the most recent snapshot of the partition, null if it has none
+     */
+    public static Path latest(Path dataDirectory, int partitionId) throws IOException {
+        Path directory = SnapshotFormat.partitionDirectory(dataDirectory, partitionId);
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SnapshotFormat.SUFFIX))
+                    .max(Comparator.comparing(file -> file.getFileName().toString()))
+                    .orElse(null);
+        }
+    }
+
+    public static SnapshotHeader readHeader(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            return readHeader(in, snapshot);
+        }
+    }
+
+    /**
+     * Hands every entry of the snapshot to the visitor.
+     *
+     * @throws IOException if the snapshot is corrupted
+     */
+    public static SnapshotHeader read(Path snapshot, Visitor visitor) throws IOException {
+        if (formatVersion(snapshot) == SnapshotFormat.MAPPED_FORMAT_VERSION) {
+            try {
+                return readMapped(snapshot, visitor);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshot), READ_BUFFER_BYTES)) {
+            SnapshotHeader header = readHeader(new DataInputStream(file), snapshot);
+
+            CRC32C crc = new CRC32C();
+            InputStream body = header.compressed() ? new GZIPInputStream(file, READ_BUFFER_BYTES) : file;
+            // the checksum is taken above the buffer, so it covers exactly what was read
+            DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(body, READ_BUFFER_BYTES), crc));
+
+            byte kind;
+            while ((kind = in.readByte()) != SnapshotFormat.END) {
+                switch (kind) {
+                    case SnapshotFormat.VALUE -> visitor.value(BinaryIo.readString(in), in.readLong(), in.readLong(),
+                            WalFormat.dataType(BinaryIo.readString(in)), BinaryIo.readBytes(in));
+                    case SnapshotFormat.NATIVE -> {
+                        String key = BinaryIo.readString(in);
+                        long version = in.readLong();
+                        long lastAccessTimeMs = in.readLong();
+                        Class<?> dataType = WalFormat.dataType(BinaryIo.readString(in));
+                        visitor.nativeValue(key, version, lastAccessTimeMs,
+                                decodeNative(dataType, BinaryIo.readBytes(in)));
+                    }
+                    case SnapshotFormat.COUNTER_SHARD -> visitor.counterShard(BinaryIo.readString(in), in.readLong());
+                    default -> throw new IOException("Snapshot " + snapshot + " holds an entry of unknown kind " + kind);
+                }
+            }
+
+            int expectedCrc = (int) crc.getValue();
+            if (in.readInt() != expectedCrc) {
+                throw new IOException("Snapshot " + snapshot + " is corrupted, its checksum doesn't match");
+            }
+            return header;
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + snapshot + " is truncated", e);
+        }
+    }
+
+    /**
+     * Reads the index of a snapshot in the mapped layout, handing its values over as they lie in the file.
+     */
+    private static SnapshotHeader readMapped(Path snapshot, Visitor visitor) throws IOException {
+        MappedSnapshotFile file = MappedSnapshotFile.map(snapshot);
+        if (file.size() < SnapshotFormat.HEADER_BYTES + SnapshotFormat.TRAILER_BYTES) {
+            throw new IOException("Snapshot " + snapshot + " is truncated");
+        }
+        long trailerOffset = file.size() - SnapshotFormat.TRAILER_BYTES;
+        long indexOffset = file.readLong(trailerOffset);
+        if (indexOffset < SnapshotFormat.HEADER_BYTES || indexOffset > trailerOffset) {
+            throw new IOException("Snapshot " + snapshot + " is corrupted, its index lies outside of it");
+        }
+
+        SnapshotHeader header = readHeader(new DataInputStream(file.inputStream(0, SnapshotFormat.HEADER_BYTES)), snapshot);
+        CRC32C crc = new CRC32C();
+        DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(file.inputStream(indexOffset, trailerOffset), READ_BUFFER_BYTES), crc));
+        try {
+            byte kind;
+            while ((kind = in.readByte()) != SnapshotFormat.END) {
+                switch (kind) {
+                    case SnapshotFormat.VALUE -> {
+                        String key = BinaryIo.readString(in);
+                        long version = in.readLong();
+                        long lastAccessTimeMs = in.readLong();
+                        Class<?> dataType = WalFormat.dataType(BinaryIo.readString(in));
+                        long contentHash = in.readLong();
+                        DeferredData value = file.value(in.readLong(), in.readInt(), contentHash);
+                        visitor.mappedValue(key, version, lastAccessTimeMs, dataType, contentHash, value);
+                    }
+                    case SnapshotFormat.NATIVE -> {
+                        String key = BinaryIo.readString(in);
+                        long version = in.readLong();
+                        long lastAccessTimeMs = in.readLong();
+                        Class<?> dataType = WalFormat.dataType(BinaryIo.readString(in));
+                        long offset = in.readLong();
+                        byte[] image = new byte[in.readInt()];
+                        file.read(offset, image, 0, image.length);
+                        visitor.nativeValue(key, version, lastAccessTimeMs, decodeNative(dataType, image));
+                    }
+                    case SnapshotFormat.COUNTER_SHARD -> visitor.counterShard(BinaryIo.readString(in), in.readLong());
+                    default -> throw new IOException("Snapshot " + snapshot + " holds an entry of unknown kind " + kind);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + snapshot + " is truncated", e);
+        }
+
+        if (file.readInt(trailerOffset + Long.BYTES) != (int) crc.getValue()) {
+            throw new IOException("Snapshot " + snapshot + " is corrupted, its checksum doesn't match");
+        }
+        return header;
+    }
+
+    private static byte formatVersion(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            in.readInt();
+            return in.readByte();
+        } catch (EOFException e) {
+            throw new IOException(snapshot + " is not a snapshot", e);
+        }
+    }
+
+    private static SnapshotHeader readHeader(DataInputStream in, Path snapshot) throws IOException {
+        if (in.readInt() != SnapshotFormat.MAGIC) {
+            throw new IOException(snapshot + " is not a snapshot");
+        }
+        byte formatVersion = in.readByte();
+        if (formatVersion != SnapshotFormat.STREAM_FORMAT_VERSION && formatVersion != SnapshotFormat.MAPPED_FORMAT_VERSION) {
+            throw new IOException("Snapshot " + snapshot + " has an unsupported format version " + formatVersion);
+        }
+        boolean compressed = (in.readByte() & SnapshotFormat.FLAG_COMPRESSED) != 0;
+        return new SnapshotHeader(in.readLong(), in.readLong(), in.readLong(), in.readLong(), compressed);
+    }
+}
@@ -0,0 +1,259 @@
+package com.bcorp.persistence;
+
+import com.bcorp.datatypes.NativeValue;
+import com.bcorp.utils.BinaryIo;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes one snapshot of a partition, see {@link SnapshotFormat} for the layouts. Compressed snapshots are
+ * written in the stream layout, the others in the mapped layout.
+ *
+ * <p>The snapshot is written to a temporary file which replaces the previous snapshot of the partition
+ * only once {@link #commit()} forced it to disk, a snapshot which fails halfway leaves the previous one
+ * in place. Writes to the file go through the throttle, after compression. The index of the mapped layout
+ * is only known once every value was written, it goes to a second temporary file until then.</p>
+ */
+public class SnapshotWriter implements Closeable {
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Opens the writer of a snapshot once the partition knows what it holds.
+     */
+    public interface Opener {
+        SnapshotWriter open(long walSequence, long entryCount, long counterShardCount) throws IOException;
+    }
+
+    private final Path directory;
+    private final Path target;
+    private final Path temp;
+    private final FileOutputStream file;
+    private final CRC32C crc = new CRC32C();
+    // the body in the stream layout, the data in the mapped layout
+    private final DataOutputStream out;
+    // null in the stream layout
+    private final Path indexTemp;
+    private final DataOutputStream index;
+    private long dataOffset = SnapshotFormat.HEADER_BYTES;
+    private boolean committed;
+
+    private SnapshotWriter(Path _directory, SnapshotHeader header, BandwidthThrottle throttle) throws IOException {
+        this.directory = _directory;
+        this.target = _directory.resolve(SnapshotFormat.fileName(header.walSequence(), header.createdAtMs()));
+        this.temp = _directory.resolve(target.getFileName() + SnapshotFormat.TEMP_SUFFIX);
+        this.file = new FileOutputStream(temp.toFile());
+
+        DataOutputStream headerOut = new DataOutputStream(file);
+        headerOut.writeInt(SnapshotFormat.MAGIC);
+        headerOut.writeByte(header.compressed() ? SnapshotFormat.STREAM_FORMAT_VERSION : SnapshotFormat.MAPPED_FORMAT_VERSION);
+        headerOut.writeByte(header.compressed() ? SnapshotFormat.FLAG_COMPRESSED : 0);
+        headerOut.writeLong(header.walSequence());
+        headerOut.writeLong(header.entryCount());
+        headerOut.writeLong(header.counterShardCount());
+        headerOut.writeLong(header.createdAtMs());
+
+        OutputStream disk = new BufferedOutputStream(new ThrottledOutputStream(file, throttle), BUFFER_BYTES);
+        if (header.compressed()) {
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(new GZIPOutputStream(disk, BUFFER_BYTES), crc), BUFFER_BYTES));
+            this.indexTemp = null;
+            this.index = null;
+        } else {
+            this.out = new DataOutputStream(disk);
+            this.indexTemp = _directory.resolve(target.getFileName() + SnapshotFormat.INDEX_TEMP_SUFFIX);
+            this.index = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Files.newOutputStream(indexTemp), crc), BUFFER_BYTES));
+        }
+    }
+
+    /**
+     * Starts a snapshot in the snapshot directory of the partition.
+     */
+    public static SnapshotWriter create(Path dataDirectory,
+                                        int partitionId,
+                                        SnapshotHeader header,
+                                        BandwidthThrottle throttle) throws IOException {
+        Path directory = SnapshotFormat.partitionDirectory(dataDirectory, partitionId);
+        Files.createDirectories(directory);
+        return new SnapshotWriter(directory, header, throttle);
+    }
+
+    /**
+     * Serializes a native value into the image {@link #writeNative} takes. Native values aren't thread
+     * safe, this has to run on the loop of their partition.
+     */
+    public static byte[] encodeNative(NativeValue value) {
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        try {
+            value.writeTo(new DataOutputStream(image));
+        } catch (IOException e) {
+            // a ByteArrayOutputStream doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return image.toByteArray();
+    }
+
+    /**
+     * @param contentHash hash of the value, which a mapped value is checked against when it's loaded
+     */
+    public void writeValue(String key,
+                           long version,
+                           long lastAccessTimeMs,
+                           Class<?> dataType,
+                           long contentHash,
+                           byte[] value) throws IOException {
+        if (index == null) {
+            out.writeByte(SnapshotFormat.VALUE);
+            writeEntryHeader(out, key, version, lastAccessTimeMs, dataType);
+            BinaryIo.writeBytes(out, value);
+            return;
+        }
+        index.writeByte(SnapshotFormat.VALUE);
+        writeEntryHeader(index, key, version, lastAccessTimeMs, dataType);
+        index.writeLong(contentHash);
+        writeData(value);
+    }
+
+    /**
+     * @param image the value as {@link #encodeNative} serialized it
+     */
+    public void writeNative(String key, long version, long lastAccessTimeMs, Class<?> dataType, byte[] image) throws IOException {
+        if (index == null) {
+            out.writeByte(SnapshotFormat.NATIVE);
+            writeEntryHeader(out, key, version, lastAccessTimeMs, dataType);
+            BinaryIo.writeBytes(out, image);
+            return;
+        }
+        index.writeByte(SnapshotFormat.NATIVE);
+        writeEntryHeader(index, key, version, lastAccessTimeMs, dataType);
+        writeData(image);
+    }
+
+    public void writeCounterShard(String key, long value) throws IOException {
+        DataOutputStream entries = index == null ? out : index;
+        entries.writeByte(SnapshotFormat.COUNTER_SHARD);
+        BinaryIo.writeString(entries, key);
+        entries.writeLong(value);
+    }
+
+    /**
+     * Ends the snapshot, forces it to disk and replaces the previous snapshots of the partition with it.
+     *
+     * @return the snapshot file
+     */
+    public Path commit() throws IOException {
+        if (index == null) {
+            out.writeByte(SnapshotFormat.END);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        } else {
+            index.writeByte(SnapshotFormat.END);
+            index.close();
+            Files.copy(indexTemp, out);
+            Files.delete(indexTemp);
+            out.writeLong(dataOffset);
+            out.writeInt((int) crc.getValue());
+        }
+        out.close();
+        committed = true;
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteOlderSnapshots();
+        return target;
+    }
+
+    /**
+     * Drops the temporary file of a snapshot which wasn't committed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        try {
+            file.close();
+            if (index != null) {
+                index.close();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+            if (indexTemp != null) {
+                Files.deleteIfExists(indexTemp);
+            }
+        }
+    }
+
+    /**
+     * Appends the bytes to the data of the mapped layout and indexes where they went.
+     */
+    private void writeData(byte[] bytes) throws IOException {
+        index.writeLong(dataOffset);
+        index.writeInt(bytes.length);
+        out.write(bytes);
+        dataOffset += bytes.length;
+    }
+
+    private static void writeEntryHeader(DataOutputStream entries,
+                                         String key,
+                                         long version,
+                                         long lastAccessTimeMs,
+                                         Class<?> dataType) throws IOException {
+        BinaryIo.writeString(entries, key);
+        entries.writeLong(version);
+        entries.writeLong(lastAccessTimeMs);
+        BinaryIo.writeString(entries, dataType.getName());
+    }
+
+    private void deleteOlderSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path snapshot : files.filter(path -> path.getFileName().toString().endsWith(SnapshotFormat.SUFFIX))
+                    .filter(path -> path.getFileName().toString().compareTo(target.getFileName().toString()) < 0)
+                    .toList()) {
+                try {
+                    Files.deleteIfExists(snapshot);
+                } catch (IOException e) {
+                    // still mapped on a system which doesn't delete mapped files, the next snapshot retries
+                }
+            }
+        }
+    }
+
+    /**
+     * Charges the throttle for every write to the file, and forces the file when the stream chain is closed.
+     */
+    private static final class ThrottledOutputStream extends FilterOutputStream {
+        private final FileOutputStream file;
+        private final BandwidthThrottle throttle;
+
+        private ThrottledOutputStream(FileOutputStream _file, BandwidthThrottle _throttle) {
+            super(_file);
+            this.file = _file;
+            this.throttle = _throttle;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            throttle.acquire(1);
+            file.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            throttle.acquire(len);
+            file.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.getChannel().force(true);
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.bcorp.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Rewrites the closed segments of a partition log so that they keep only the latest record of every key,
+ * counter shards being keys of their own.
+ *
+ * <p>The segments compacted are always a prefix of the log, from its first segment up to the one before the
+ * segment being written, so replaying the log from its start still rebuilds the partition. Records keep their
+ * sequence, a recovery from a snapshot still replays exactly the records after it. A key whose latest record
+ * is a remove loses the remove as well, but only once a snapshot taken after the remove exists, a replay from
+ * an older snapshot would bring the key back otherwise.</p>
+ *
+ * <p>The compacted segment replaces the first segment of the prefix and the others are deleted after it.
+ * A crash in between leaves records the compacted segment holds already, {@link WalReader} skips records
+ * whose sequence it went past.</p>
+ */
+public class WalCompactor {
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final String TEMP_SUFFIX = ".compacting";
+
+    private record Latest(long sequence, boolean removed) {
+    }
+
+    private record RecordKey(String key, boolean counter) {
+        static RecordKey of(WalRecord record) {
+            return new RecordKey(record.key(), record.type().isCounter());
+        }
+    }
+
+    private WalCompactor() {
+    }
+
+    /**
+     * Compacts the closed segments of the partition log when there are at least {@code minSegments} of them.
+     * Runs on its own thread, never on the partition loop, and has to be the only compaction of the log.
+     *
+     * @param snapshotSequence sequence of the last record the latest snapshot of the partition includes,
+     *                         -1 without a snapshot
+     * @param throttle         bandwidth the compaction reads and writes through
+     */
+    public static CompactionStats compact(Path partitionDirectory,
+                                          int minSegments,
+                                          long snapshotSequence,
+                                          BandwidthThrottle throttle) throws IOException {
+        deleteLeftovers(partitionDirectory);
+        List<Path> segments = WalReader.segments(partitionDirectory);
+        // the last segment is the one being written
+        List<Path> closedSegments = segments.subList(0, Math.max(0, segments.size() - 1));
+        if (closedSegments.size() < Math.max(1, minSegments)) {
+            return CompactionStats.NONE;
+        }
+
+        Map<RecordKey, Latest> latestRecords = new HashMap<>();
+        long[] recordsBefore = new long[1];
+        long bytesBefore = 0;
+        for (Path segment : closedSegments) {
+            long size = Files.size(segment);
+            throttle.acquire(size);
+            bytesBefore += size;
+            WalReader.readSegment(segment, Long.MIN_VALUE, record -> {
+                latestRecords.put(RecordKey.of(record), new Latest(record.sequence(), record.type().isRemove()));
+                recordsBefore[0]++;
+            });
+        }
+
+        Path target = closedSegments.get(0);
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        long recordsAfter;
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            recordsAfter = rewrite(closedSegments, latestRecords, snapshotSequence, channel, throttle);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        long bytesAfter = Files.size(temp);
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path segment : closedSegments.subList(1, closedSegments.size())) {
+            Files.deleteIfExists(segment);
+        }
+        return new CompactionStats(closedSegments.size(), recordsBefore[0], recordsAfter, bytesBefore, bytesAfter);
+    }
+
+    private static long rewrite(List<Path> segments,
+                                Map<RecordKey, Latest> latestRecords,
+                                long snapshotSequence,
+                                FileChannel channel,
+                                BandwidthThrottle throttle) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        CRC32C crc = new CRC32C();
+        long[] written = new long[1];
+
+        for (Path segment : segments) {
+            throttle.acquire(Files.size(segment));
+            try {
+                WalReader.readSegment(segment, Long.MIN_VALUE, record -> {
+                    Latest latest = latestRecords.get(RecordKey.of(record));
+                    if (latest.sequence() != record.sequence()) {
+                        return;
+                    }
+                    if (latest.removed() && record.sequence() <= snapshotSequence) {
+                        return;
+                    }
+                    try {
+                        write(record, buffer, crc, channel, throttle);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    written[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        flush(buffer, channel);
+        return written[0];
+    }
+
+    private static void write(WalRecord record,
+                              ByteBuffer buffer,
+                              CRC32C crc,
+                              FileChannel channel,
+                              BandwidthThrottle throttle) throws IOException {
+        int size = WalFormat.encodedSize(record);
+        throttle.acquire(size);
+        if (size > buffer.remaining()) {
+            flush(buffer, channel);
+        }
+        if (size > buffer.capacity()) {
+            ByteBuffer recordBuffer = ByteBuffer.allocate(size);
+            WalFormat.encode(record, recordBuffer, crc);
+            flush(recordBuffer, channel);
+        } else {
+            WalFormat.encode(record, buffer, crc);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Drops the output of a compaction which didn't finish.
+     */
+    private static void deleteLeftovers(Path partitionDirectory) throws IOException {
+        if (!Files.isDirectory(partitionDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(partitionDirectory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
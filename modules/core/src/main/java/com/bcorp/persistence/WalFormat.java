@@ -0,0 +1,143 @@
+package com.bcorp.persistence;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of the log. Every record is framed as
+ * {@code [int bodyLength][int crc32c(body)][body]} and the body is
+ * {@code [long sequence][byte type][int keyLength][key][long version]}, followed for a put or a native record by
+ * {@code [short typeLength][type name][int valueLength][value]}. A counter record stores the shard value
+ * in place of the version. All numbers are big endian.
+ */
+final class WalFormat {
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    // a length past this can only come from a torn or corrupted header
+    static final int MAX_BODY_BYTES = Integer.MAX_VALUE - 64;
+    static final String SEGMENT_SUFFIX = ".wal";
+
+    private static final Map<String, Class<?>> dataTypes = new ConcurrentHashMap<>();
+    private static final ClassValue<byte[]> dataTypeNames = new ClassValue<>() {
+        @Override
+        protected byte[] computeValue(Class<?> type) {
+            return type.getName().getBytes(StandardCharsets.UTF_8);
+        }
+    };
+
+    private WalFormat() {
+    }
+
+    static Path partitionDirectory(Path dataDirectory, int partitionId) {
+        return dataDirectory.resolve("wal").resolve(String.format("partition-%03d", partitionId));
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%020d", firstSequence) + SEGMENT_SUFFIX;
+    }
+
+    static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static int encodedSize(WalRecord record) {
+        int size = HEADER_BYTES + Long.BYTES + 1 + Integer.BYTES + record.key().getBytes(StandardCharsets.UTF_8).length + Long.BYTES;
+        if (record.type().hasValue()) {
+            size += Short.BYTES + dataTypeNames.get(record.dataType()).length + Integer.BYTES + record.value().length;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the framed record at the position of the buffer, which must have {@link #encodedSize} bytes left.
+     */
+    static void encode(WalRecord record, ByteBuffer buffer, CRC32C crc) {
+        int start = buffer.position();
+        buffer.position(start + HEADER_BYTES);
+
+        buffer.putLong(record.sequence());
+        buffer.put((byte) record.type().ordinal());
+        byte[] key = record.key().getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(key.length);
+        buffer.put(key);
+        buffer.putLong(record.version());
+        if (record.type().hasValue()) {
+            byte[] dataType = dataTypeNames.get(record.dataType());
+            buffer.putShort((short) dataType.length);
+            buffer.put(dataType);
+            buffer.putInt(record.value().length);
+            buffer.put(record.value());
+        }
+
+        int end = buffer.position();
+        crc.reset();
+        crc.update(buffer.duplicate().position(start + HEADER_BYTES).limit(end));
+        buffer.putInt(start, end - start - HEADER_BYTES);
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * @return the next record, or null at the end of the segment or at a torn or corrupted record,
+     * nothing after which can be trusted
+     */
+    static WalRecord decode(DataInputStream input, CRC32C crc) throws IOException {
+        try {
+            int bodyLength = input.readInt();
+            int expectedCrc = input.readInt();
+            if (bodyLength <= 0 || bodyLength > MAX_BODY_BYTES) {
+                return null;
+            }
+
+            byte[] body = input.readNBytes(bodyLength);
+            if (body.length < bodyLength) {
+                return null;
+            }
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != expectedCrc) {
+                return null;
+            }
+            return decodeBody(ByteBuffer.wrap(body));
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static WalRecord decodeBody(ByteBuffer body) {
+        long sequence = body.getLong();
+        WalRecord.Type type = WalRecord.Type.values()[body.get()];
+        String key = readString(body, body.getInt());
+        long version = body.getLong();
+        if (!type.hasValue()) {
+            return new WalRecord(sequence, type, key, version, null, null);
+        }
+
+        Class<?> dataType = dataType(readString(body, body.getShort()));
+        byte[] value = new byte[body.getInt()];
+        body.get(value);
+        return new WalRecord(sequence, type, key, version, dataType, value);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    static Class<?> dataType(String name) {
+        return dataTypes.computeIfAbsent(name, className -> {
+            try {
+                return Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Found values of an unknown type " + className, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.bcorp.persistence;
+
+/**
+ * When the write ahead log forces its writes to disk.
+ */
+public enum WalFsyncMode {
+    /**
+     * Never forces, the OS flushes the page cache when it sees fit. A crash of the host can lose
+     * any number of acknowledged writes, a crash of the process alone loses none.
+     */
+    NONE,
+    /**
+     * Forces every {@code walFsyncIntervalMs}, a crash of the host loses at most that long of acknowledged writes.
+     */
+    INTERVAL,
+    /**
+     * Forces every batch the writer picks up and acknowledges a write only once its batch was forced.
+     * Writes arriving while a force is running are grouped into the next one.
+     */
+    BATCH
+}
@@ -0,0 +1,113 @@
+package com.bcorp.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the log of a partition back in sequence order.
+ *
+ * <p>A segment is read up to its first torn or corrupted record, a crash can only tear the tail of the
+ * segment which was being written. A log reopened after a crash starts a new segment after the last
+ * complete record, so reading goes on with the next segment.</p>
+ */
+public class WalReader {
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private WalReader() {
+    }
+
+    /**
+     * @return segments of the partition directory in sequence order
+     */
+    public static List<Path> segments(Path partitionDirectory) throws IOException {
+        if (!Files.isDirectory(partitionDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(partitionDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(WalFormat.SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(WalFormat::firstSequenceOf))
+                    .toList();
+        }
+    }
+
+    /**
+     * Hands every complete record with a sequence of at least {@code fromSequence} to the consumer, in order.
+     *
+     * @return sequence of the last record read, {@code fromSequence - 1} if there was none
+     */
+    public static long read(Path partitionDirectory, long fromSequence, Consumer<WalRecord> consumer) throws IOException {
+        long lastSequence = fromSequence - 1;
+        for (Path segment : segmentsFrom(partitionDirectory, fromSequence)) {
+            // a compaction which crashed halfway leaves segments whose records it holds already
+            lastSequence = Math.max(lastSequence, readSegment(segment, lastSequence + 1, consumer));
+        }
+        return lastSequence;
+    }
+
+    /**
+     * @return size of the segments {@link #read} goes through for {@code fromSequence}
+     */
+    public static long bytesFrom(Path partitionDirectory, long fromSequence) throws IOException {
+        long bytes = 0;
+        for (Path segment : segmentsFrom(partitionDirectory, fromSequence)) {
+            bytes += Files.size(segment);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return segments which may hold records with a sequence of at least {@code fromSequence}
+     */
+    private static List<Path> segmentsFrom(Path partitionDirectory, long fromSequence) throws IOException {
+        List<Path> segments = segments(partitionDirectory);
+        List<Path> segmentsFrom = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            // every record of this segment comes before the first one of the next segment
+            if (i + 1 < segments.size() && WalFormat.firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            segmentsFrom.add(segments.get(i));
+        }
+        return segmentsFrom;
+    }
+
+    /**
+     * @return sequence of the last complete record of the log, -1 if there is none
+     */
+    static long lastSequence(Path partitionDirectory) throws IOException {
+        List<Path> segments = new ArrayList<>(segments(partitionDirectory));
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            long lastSequence = readSegment(segments.get(i), Long.MIN_VALUE, record -> {
+            });
+            if (lastSequence >= 0) {
+                return lastSequence;
+            }
+        }
+        return -1;
+    }
+
+    static long readSegment(Path segment, long fromSequence, Consumer<WalRecord> consumer) throws IOException {
+        long lastSequence = -1;
+        CRC32C crc = new CRC32C();
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segment), READ_BUFFER_BYTES))) {
+            WalRecord record;
+            while ((record = WalFormat.decode(input, crc)) != null) {
+                lastSequence = record.sequence();
+                if (record.sequence() >= fromSequence) {
+                    consumer.accept(record);
+                }
+            }
+        }
+        return lastSequence;
+    }
+}
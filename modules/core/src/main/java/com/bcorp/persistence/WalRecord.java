@@ -0,0 +1,33 @@
+package com.bcorp.persistence;
+
+/**
+ * A mutation of one key as it is logged. Counter records carry the new value of the partition's counter shard
+ * in {@code version}, counters and values are separate keys. A native record carries the whole native value
+ * after the mutation, as {@link SnapshotWriter#encodeNative} serializes it.
+ *
+ * @param sequence position of the record in the log of its partition, strictly increasing
+ * @param dataType type of the value of a put or a native record, null otherwise
+ * @param value    bytes of the value of a put or a native record, null otherwise
+ */
+public record WalRecord(long sequence, Type type, String key, long version, Class<?> dataType, byte[] value) {
+
+    public enum Type {
+        PUT,
+        REMOVE,
+        COUNTER,
+        COUNTER_REMOVE,
+        NATIVE;
+
+        public boolean hasValue() {
+            return this == PUT || this == NATIVE;
+        }
+
+        public boolean isCounter() {
+            return this == COUNTER || this == COUNTER_REMOVE;
+        }
+
+        public boolean isRemove() {
+            return this == REMOVE || this == COUNTER_REMOVE;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.bcorp.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * The single thread writing the logs of all partitions.
+ *
+ * <p>Every round the writer drains the records queued by every partition since the last round, writes
+ * them, and forces the logs as the fsync mode asks. In {@link WalFsyncMode#BATCH} mode a round ends with
+ * a force, and the writes queued while it runs make up the next round, so a single fsync covers as many
+ * writes as arrived during the previous one. An idle writer is parked until a partition queues a record.</p>
+ */
+public class WalWriter implements AutoCloseable {
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final PersistenceConfig config;
+    private final PartitionWal[] logs;
+    private final Thread thread;
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private volatile boolean running = true;
+
+    public WalWriter(PersistenceConfig _config, int partitionCount) {
+        this.config = _config;
+        this.logs = new PartitionWal[partitionCount];
+        Path dataDirectory = Path.of(_config.getDataDirectory());
+        for (int i = 0; i < partitionCount; i++) {
+            logs[i] = new PartitionWal(i, dataDirectory, _config, this);
+        }
+
+        this.thread = new Thread(this::run, "wal-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public PartitionWal log(int partitionId) {
+        return logs[partitionId];
+    }
+
+    /**
+     * Wakes the writer up, cheap when it's awake already.
+     */
+    void signal() {
+        if (!signalled.getAndSet(true)) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Writes and forces whatever was queued so far and closes the segments.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (PartitionWal log : logs) {
+            log.writePending(buffer, crc);
+            log.force();
+            log.close();
+        }
+    }
+
+    private void run() {
+        long intervalNs = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getWalFsyncIntervalMs()));
+        long lastForceNs = System.nanoTime();
+
+        while (running) {
+            signalled.set(false);
+
+            boolean wrote = false;
+            for (PartitionWal log : logs) {
+                wrote |= log.writePending(buffer, crc);
+            }
+
+            long nowNs = System.nanoTime();
+            switch (config.getWalFsyncMode()) {
+                case NONE -> {
+                    for (PartitionWal log : logs) {
+                        log.markWrittenDurable();
+                    }
+                }
+                case INTERVAL -> {
+                    if (nowNs - lastForceNs >= intervalNs) {
+                        forceAll();
+                        lastForceNs = nowNs;
+                    }
+                }
+                case BATCH -> {
+                    if (wrote) {
+                        forceAll();
+                    }
+                }
+            }
+
+            for (PartitionWal log : logs) {
+                log.completeWaiters();
+            }
+
+            if (!wrote && !signalled.get()) {
+                if (config.getWalFsyncMode() == WalFsyncMode.INTERVAL) {
+                    LockSupport.parkNanos(this, Math.max(0, intervalNs - (System.nanoTime() - lastForceNs)));
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        }
+    }
+
+    private void forceAll() {
+        for (PartitionWal log : logs) {
+            log.force();
+        }
+    }
+}
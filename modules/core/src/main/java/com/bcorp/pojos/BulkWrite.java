@@ -0,0 +1,10 @@
+package com.bcorp.pojos;
+
+/**
+ * A write of a bulk import.
+ *
+ * @param expectedVersion version the key must have for the write to be applied, -1 for a key which must not
+ *                        exist, null to write regardless
+ */
+public record BulkWrite(DataKey key, RequestDataValue value, Long expectedVersion) {
+}
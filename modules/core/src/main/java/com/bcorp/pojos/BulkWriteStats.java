@@ -0,0 +1,19 @@
+package com.bcorp.pojos;
+
+/**
+ * What the writes of a bulk import, of one batch or of all of them, did.
+ *
+ * @param written   writes which inserted or updated their key
+ * @param unchanged writes whose value was the one held already
+ * @param conflicts writes which weren't applied because the key didn't have the expected version
+ */
+public record BulkWriteStats(long written, long unchanged, long conflicts) {
+
+    public static final BulkWriteStats NONE = new BulkWriteStats(0, 0, 0);
+
+    public BulkWriteStats plus(BulkWriteStats other) {
+        return new BulkWriteStats(written + other.written,
+                unchanged + other.unchanged,
+                conflicts + other.conflicts);
+    }
+}
@@ -1,13 +1,32 @@
 package com.bcorp.pojos;
 
+import com.bcorp.datatypes.NativeValue;
+import com.bcorp.utils.XxHash64;
+
 import java.nio.charset.StandardCharsets;
 
 public record CachedDataValue(
         byte[] data,
         Class<?> dataType,
         long lastAccessTimeMs,
-        Long version
+        Long version,
+        long contentHash,
+        NativeValue nativeValue,
+        DeferredData deferredData
 ) {
+    public CachedDataValue(byte[] data, Class<?> dataType, long lastAccessTimeMs, Long version, long contentHash,
+                           NativeValue nativeValue) {
+        this(data, dataType, lastAccessTimeMs, version, contentHash, nativeValue, null);
+    }
+
+    public CachedDataValue(byte[] data, Class<?> dataType, long lastAccessTimeMs, Long version, long contentHash) {
+        this(data, dataType, lastAccessTimeMs, version, contentHash, null);
+    }
+
+    public CachedDataValue(byte[] data, Class<?> dataType, long lastAccessTimeMs, Long version) {
+        this(data, dataType, lastAccessTimeMs, version, XxHash64.hash(data));
+    }
+
     public static CachedDataValue fromString(String str, long timeMs) {
         return new CachedDataValue(str.getBytes(StandardCharsets.UTF_8),
                 String.class,
@@ -19,13 +38,53 @@ public record CachedDataValue(
         return new CachedDataValue(value.data(),
                 value.dataType(),
                 timeMs,
-                0L);
+                0L,
+                value.contentHash());
     }
 
     public static CachedDataValue createUpdatedFrom(RequestDataValue value, long timeMs, long version) {
         return new CachedDataValue(value.data(),
                 value.dataType(),
                 timeMs,
-                version);
+                version,
+                value.contentHash());
+    }
+
+    /**
+     * A native value has no encoded bytes, {@code data} is null and {@code dataType} is the class of the value.
+     */
+    public static CachedDataValue fromNative(NativeValue value, long timeMs, long version) {
+        return new CachedDataValue(null, value.getClass(), timeMs, version, 0L, value);
+    }
+
+    /**
+     * A deferred value has no bytes on the heap, {@code data} is null until the partition loads them
+     * from {@code deferredData}.
+     */
+    public static CachedDataValue deferred(DeferredData deferredData,
+                                           Class<?> dataType,
+                                           long timeMs,
+                                           long version,
+                                           long contentHash) {
+        return new CachedDataValue(null, dataType, timeMs, version, contentHash, null, deferredData);
+    }
+
+    public boolean isNative() {
+        return nativeValue != null;
+    }
+
+    public boolean isDeferred() {
+        return deferredData != null;
+    }
+
+    public CachedDataValue withLastAccessTimeMs(long timeMs) {
+        return new CachedDataValue(data, dataType, timeMs, version, contentHash, nativeValue, deferredData);
+    }
+
+    /**
+     * @return the deferred value with its bytes loaded
+     */
+    public CachedDataValue withData(byte[] loadedData) {
+        return new CachedDataValue(loadedData, dataType, lastAccessTimeMs, version, contentHash, nativeValue, null);
     }
 }
\ No newline at end of file
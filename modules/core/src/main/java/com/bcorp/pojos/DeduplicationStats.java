@@ -0,0 +1,10 @@
+package com.bcorp.pojos;
+
+/**
+ * @param uniqueValues number of distinct payloads held by the store
+ * @param references   number of entries pointing at those payloads
+ * @param storedBytes  bytes actually held for the distinct payloads
+ * @param savedBytes   bytes that would have been held additionally without deduplication
+ */
+public record DeduplicationStats(long uniqueValues, long references, long storedBytes, long savedBytes) {
+}
@@ -0,0 +1,16 @@
+package com.bcorp.pojos;
+
+/**
+ * Bytes of a value which are kept outside of the heap, in a file, until the value is accessed.
+ */
+public interface DeferredData {
+
+    int length();
+
+    /**
+     * Copies the bytes into the heap. Safe to call from any thread.
+     *
+     * @return the bytes, null if they no longer match the content hash they were stored with
+     */
+    byte[] load();
+}
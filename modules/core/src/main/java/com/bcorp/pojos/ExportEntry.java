@@ -0,0 +1,9 @@
+package com.bcorp.pojos;
+
+/**
+ * A key of the store as read by an export.
+ *
+ * @param data the encoded value, never modified
+ */
+public record ExportEntry(DataKey key, byte[] data, long version) {
+}
@@ -0,0 +1,9 @@
+package com.bcorp.pojos;
+
+/**
+ * Result of an operation on a native value.
+ *
+ * @param version version of the value after the operation, null if the key doesn't exist
+ */
+public record NativeResult<R>(R result, Long version) {
+}
@@ -1,23 +1,37 @@
 package com.bcorp.pojos;
 
+import com.bcorp.utils.XxHash64;
+
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Value sent to the store.
+ *
+ * <p>The content hash is computed when the value is built, on the caller's thread, so the
+ * partition loop can compare values by hash without touching the bytes.</p>
+ */
 public record RequestDataValue(
         byte[] data,
-        Class<?> dataType
+        Class<?> dataType,
+        long contentHash
 ) {
+    public RequestDataValue(byte[] data, Class<?> dataType) {
+        this(data, dataType, XxHash64.hash(data));
+    }
+
     public static RequestDataValue fromString(String str) {
         return new RequestDataValue(str.getBytes(StandardCharsets.UTF_8), String.class);
     }
 
     public static RequestDataValue createNewFrom(RequestDataValue value) {
         return new RequestDataValue(value.data(),
-                value.dataType());
+                value.dataType(),
+                value.contentHash());
     }
 
     public static RequestDataValue createUpdatedFrom(RequestDataValue value) {
         return new RequestDataValue(value.data(),
-                value.dataType());
+                value.dataType(),
+                value.contentHash());
     }
 }
-
@@ -0,0 +1,211 @@
+package com.bcorp.tiering;
+
+import com.bcorp.persistence.BandwidthThrottle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * The disk tier of one partition, append only segment files holding the values moved out of the heap.
+ *
+ * <p>Values are only ever appended to the newest segment, by the single thread moving the cold values, and
+ * read back with positional reads from any thread. A value read back or replaced is only counted out of
+ * its segment, the space is reclaimed by rewriting the live values of a sparse segment into the newest one,
+ * and a segment is deleted once none of its values is live anymore.</p>
+ *
+ * <p>The tier isn't durable, the values it holds are in the snapshots and the log of a persistent store.
+ * Segments left by a previous run are deleted when the tier is opened.</p>
+ */
+public class DiskTier implements AutoCloseable {
+    static final String SUFFIX = ".tier";
+
+    private final Path directory;
+    private final TieringConfig config;
+    private final BandwidthThrottle throttle;
+    private final Executor readers;
+    private final Map<Long, Segment> segments = new ConcurrentHashMap<>();
+    // segments without live values, deleted by the thread moving the values
+    private final Queue<Segment> detachedSegments = new ConcurrentLinkedQueue<>();
+    // the segment values are appended to
+    private volatile Segment activeSegment;
+
+    static final class Segment {
+        final Path file;
+        final FileChannel channel;
+        final long id;
+        final AtomicLong liveValues = new AtomicLong();
+        final AtomicLong liveBytes = new AtomicLong();
+        volatile long size;
+        // its live values are copied into the newest segment by the next move
+        volatile boolean relocating;
+
+        private Segment(Path _file, long _id) throws IOException {
+            this.file = _file;
+            this.id = _id;
+            this.channel = FileChannel.open(_file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    DiskTier(int _partitionId, Path _tierDirectory, TieringConfig _config, BandwidthThrottle _throttle, Executor _readers) {
+        this.directory = partitionDirectory(_tierDirectory, _partitionId);
+        this.config = _config;
+        this.throttle = _throttle;
+        this.readers = _readers;
+        try {
+            Files.createDirectories(directory);
+            deleteSegmentFiles(directory);
+            this.activeSegment = openSegment(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open the disk tier of partition " + _partitionId, e);
+        }
+    }
+
+    public static Path partitionDirectory(Path tierDirectory, int partitionId) {
+        return tierDirectory.resolve("partition-" + partitionId);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Appends the bytes of a value to the newest segment, starting a new one when it's full. Called by the
+     * thread moving the values only, never concurrently.
+     */
+    public TieredData append(byte[] data, long contentHash) throws IOException {
+        Segment segment = activeSegment;
+        if (segment.size > 0 && segment.size + data.length > config.getSegmentBytes()) {
+            segment = openSegment(segment.id + 1);
+            activeSegment = segment;
+        }
+
+        throttle.acquire(data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long offset = segment.size;
+        while (buffer.hasRemaining()) {
+            segment.channel.write(buffer, offset + buffer.position());
+        }
+        segment.size = offset + data.length;
+        segment.liveValues.incrementAndGet();
+        segment.liveBytes.addAndGet(data.length);
+        return new TieredData(segment, offset, data.length, contentHash);
+    }
+
+    /**
+     * Reads a value back on one of the reader threads of the tier.
+     *
+     * @return the bytes, null if they no longer match their content hash
+     */
+    public CompletableFuture<byte[]> load(TieredData data) {
+        return CompletableFuture.supplyAsync(data::load, readers);
+    }
+
+    /**
+     * Counts a value out of its segment once the partition no longer holds it.
+     */
+    public void free(TieredData data) {
+        data.segment.liveValues.decrementAndGet();
+        data.segment.liveBytes.addAndGet(-data.length());
+    }
+
+    /**
+     * Flags the closed segments whose live values take less than {@code minLiveRatio} of them, their values
+     * are relocated by the next move.
+     */
+    public void markSparseSegments() {
+        Segment active = activeSegment;
+        for (Segment segment : segments.values()) {
+            segment.relocating = segment != active
+                    && segment.liveBytes.get() > 0
+                    && segment.liveBytes.get() < segment.size * config.getMinLiveRatio();
+        }
+    }
+
+    public boolean isRelocating(TieredData data) {
+        return data.segment.relocating;
+    }
+
+    /**
+     * Takes the closed segments without live values out of the tier. The partition calls it on its loop
+     * while no snapshot runs, so nothing can read these segments anymore once it returns.
+     */
+    public void detachEmptySegments() {
+        Segment active = activeSegment;
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.liveValues.get() == 0) {
+                segments.remove(segment.id);
+                detachedSegments.add(segment);
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments which were detached, by the thread moving the values.
+     *
+     * @return segments deleted
+     */
+    public int deleteDetachedSegments() throws IOException {
+        int deleted = 0;
+        Segment segment;
+        while ((segment = detachedSegments.poll()) != null) {
+            segment.channel.close();
+            Files.deleteIfExists(segment.file);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    public TierUsage usage() {
+        long values = 0;
+        long liveBytes = 0;
+        long fileBytes = 0;
+        for (Segment segment : segments.values()) {
+            values += segment.liveValues.get();
+            liveBytes += segment.liveBytes.get();
+            fileBytes += segment.size;
+        }
+        return new TierUsage(values, liveBytes, fileBytes, segments.size());
+    }
+
+    /**
+     * Closes and deletes every segment, the values they hold are lost.
+     */
+    @Override
+    public void close() {
+        detachedSegments.addAll(segments.values());
+        segments.clear();
+        try {
+            deleteDetachedSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't delete the disk tier in " + directory, e);
+        }
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Segment segment = new Segment(directory.resolve(String.format("%020d%s", id, SUFFIX)), id);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static void deleteSegmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.bcorp.tiering;
+
+import com.bcorp.persistence.BandwidthThrottle;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The disk tiers of all partitions, with the bandwidth they write through and the threads reading their
+ * values back.
+ */
+public class TierStorage implements AutoCloseable {
+    private final DiskTier[] tiers;
+    private final ExecutorService readers;
+
+    public TierStorage(TieringConfig _config, int partitionCount) {
+        AtomicInteger readerCount = new AtomicInteger();
+        this.readers = Executors.newFixedThreadPool(Math.max(1, _config.getReadThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "tier-reader-" + readerCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        BandwidthThrottle throttle = new BandwidthThrottle(_config.getMaxBytesPerSecond());
+        Path directory = Path.of(_config.getDirectory());
+        this.tiers = new DiskTier[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            tiers[i] = new DiskTier(i, directory, _config, throttle, readers);
+        }
+    }
+
+    public DiskTier tier(int partitionId) {
+        return tiers[partitionId];
+    }
+
+    /**
+     * @return the threads reading values back from the tiers
+     */
+    public Executor readers() {
+        return readers;
+    }
+
+    public TierUsage usage() {
+        TierUsage usage = TierUsage.NONE;
+        for (DiskTier tier : tiers) {
+            usage = usage.plus(tier.usage());
+        }
+        return usage;
+    }
+
+    /**
+     * Stops the readers and deletes the segments, once the partitions are stopped.
+     */
+    @Override
+    public void close() {
+        readers.shutdownNow();
+        for (DiskTier tier : tiers) {
+            tier.close();
+        }
+    }
+}
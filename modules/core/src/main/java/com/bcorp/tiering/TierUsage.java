@@ -0,0 +1,21 @@
+package com.bcorp.tiering;
+
+/**
+ * What the disk tier, of one partition or of all of them, holds.
+ *
+ * @param values    values held by the tier
+ * @param liveBytes size of those values
+ * @param fileBytes size of the segments, which also hold the values that were read back or replaced since
+ * @param segments  segment files
+ */
+public record TierUsage(long values, long liveBytes, long fileBytes, int segments) {
+
+    public static final TierUsage NONE = new TierUsage(0, 0, 0, 0);
+
+    public TierUsage plus(TierUsage other) {
+        return new TierUsage(values + other.values,
+                liveBytes + other.liveBytes,
+                fileBytes + other.fileBytes,
+                segments + other.segments);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bcorp.tiering;
+
+import com.bcorp.pojos.DeferredData;
+import com.bcorp.utils.XxHash64;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A value moved to the disk tier, its bytes lie at {@code offset} of a segment of the partition's tier.
+ */
+public final class TieredData implements DeferredData {
+    final DiskTier.Segment segment;
+    final long offset;
+    private final int length;
+    private final long contentHash;
+
+    TieredData(DiskTier.Segment _segment, long _offset, int _length, long _contentHash) {
+        this.segment = _segment;
+        this.offset = _offset;
+        this.length = _length;
+        this.contentHash = _contentHash;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Reads the bytes back with a positional read, which blocks on the disk. The partitions call it from
+     * the tier's reader threads, never from their loop.
+     *
+     * @throws UncheckedIOException if the segment can't be read
+     */
+    @Override
+    public byte[] load() {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (segment.channel.read(buffer, offset + buffer.position()) < 0) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read a value of the disk tier", e);
+        }
+        byte[] data = buffer.array();
+        return XxHash64.hash(data) == contentHash ? data : null;
+    }
+}
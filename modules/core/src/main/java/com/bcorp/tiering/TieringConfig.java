@@ -0,0 +1,105 @@
+package com.bcorp.tiering;
+
+/**
+ * Disk tier of the store, which holds the values that weren't accessed for a while. The tier is off unless
+ * {@code directory} is set.
+ */
+public class TieringConfig {
+    private String directory;
+    // a value which wasn't accessed for this long is moved to the disk tier
+    private long coldAfterMs = 10 * 60 * 1000;
+    // time between two rounds moving the cold values, 0 turns the periodic rounds off
+    private long moveIntervalMs = 60 * 1000;
+    // smaller values stay in memory, their file pointer would take about as much
+    private int minValueBytes = 128;
+    // a segment is closed and a new one started once it grows past this size
+    private long segmentBytes = 256L * 1024 * 1024;
+    // a closed segment whose live values take less than this share of it is rewritten
+    private double minLiveRatio = 0.5;
+    // disk bandwidth the moves write through, 0 for no limit
+    private long maxBytesPerSecond = 64L * 1024 * 1024;
+    // threads reading cold values back, shared by all partitions
+    private int readThreads = 4;
+
+    public boolean isEnabled() {
+        return directory != null && !directory.isBlank();
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public long getColdAfterMs() {
+        return coldAfterMs;
+    }
+
+    public void setColdAfterMs(long coldAfterMs) {
+        this.coldAfterMs = coldAfterMs;
+    }
+
+    public long getMoveIntervalMs() {
+        return moveIntervalMs;
+    }
+
+    public void setMoveIntervalMs(long moveIntervalMs) {
+        this.moveIntervalMs = moveIntervalMs;
+    }
+
+    public int getMinValueBytes() {
+        return minValueBytes;
+    }
+
+    public void setMinValueBytes(int minValueBytes) {
+        this.minValueBytes = minValueBytes;
+    }
+
+    public long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(long segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public double getMinLiveRatio() {
+        return minLiveRatio;
+    }
+
+    public void setMinLiveRatio(double minLiveRatio) {
+        this.minLiveRatio = minLiveRatio;
+    }
+
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    public void setMaxBytesPerSecond(long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public int getReadThreads() {
+        return readThreads;
+    }
+
+    public void setReadThreads(int readThreads) {
+        this.readThreads = readThreads;
+    }
+
+    @Override
+    public String toString() {
+        return "TieringConfig{" +
+                "directory='" + directory + '\'' +
+                ", coldAfterMs=" + coldAfterMs +
+                ", moveIntervalMs=" + moveIntervalMs +
+                ", minValueBytes=" + minValueBytes +
+                ", segmentBytes=" + segmentBytes +
+                ", minLiveRatio=" + minLiveRatio +
+                ", maxBytesPerSecond=" + maxBytesPerSecond +
+                ", readThreads=" + readThreads +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.bcorp.tiering;
+
+/**
+ * What a round moving cold values to the disk tier, of one partition or of all of them, did.
+ *
+ * @param movedValues     values moved out of the heap
+ * @param movedBytes      size of those values
+ * @param relocatedValues values copied out of sparse segments into the segment being written
+ * @param deletedSegments segments deleted once none of their values was live anymore
+ */
+public record TieringStats(long movedValues, long movedBytes, long relocatedValues, int deletedSegments) {
+
+    public static final TieringStats NONE = new TieringStats(0, 0, 0, 0);
+
+    public TieringStats plus(TieringStats other) {
+        return new TieringStats(movedValues + other.movedValues,
+                movedBytes + other.movedBytes,
+                relocatedValues + other.relocatedValues,
+                deletedSegments + other.deletedSegments);
+    }
+}
@@ -0,0 +1,88 @@
+package com.bcorp.api.handlers.countmin;
+
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.api.handlers.hyperloglog.HyperLogLogCommand;
+import com.bcorp.api.handlers.hyperloglog.HyperLogLogHandlers;
+import com.bcorp.api.handlers.hyperloglog.HyperLogLogResult;
+import com.bcorp.exceptions.WrongTypeException;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.SystemClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchHandlersTest {
+
+    private KeyValueStoreEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        HandlerResolver handlerResolver = new HandlerResolver();
+        CountMinSketchHandlers.register(handlerResolver);
+        HyperLogLogHandlers.register(handlerResolver);
+        engine = new KeyValueStoreEngine(new KeyValueStore(new SystemClock()), handlerResolver);
+    }
+
+    private CountMinSketchResult execute(String key, CountMinSketchCommand command) {
+        return waitFuture(engine.execute(key, command));
+    }
+
+    @Test
+    void shouldIncrementAndQuery() {
+        CountMinSketchResult incremented = execute("views",
+                new CountMinSketchCommand.Increment(Map.of("home", 3L, "about", 1L), 0.001, 0.01));
+        assertEquals(3L, incremented.estimates().get("home"));
+        assertEquals(0L, incremented.version());
+
+        execute("views", new CountMinSketchCommand.Increment(Map.of("home", 2L), 0.001, 0.01));
+        CountMinSketchResult queried = execute("views", new CountMinSketchCommand.Query(List.of("home", "about", "missing")));
+        assertEquals(5L, queried.estimates().get("home"));
+        assertEquals(1L, queried.estimates().get("about"));
+        assertEquals(0L, queried.estimates().get("missing"));
+        assertEquals(1L, queried.version());
+
+        assertNull(execute("other", new CountMinSketchCommand.Query(List.of("home"))).version());
+    }
+
+    @Test
+    void shouldMergeSourcesIntoANewSketch() {
+        execute("day-1", new CountMinSketchCommand.Increment(Map.of("home", 3L), 0.001, 0.01));
+        execute("day-2", new CountMinSketchCommand.Increment(Map.of("home", 4L, "about", 1L), 0.001, 0.01));
+
+        CountMinSketchResult merged = execute("week", new CountMinSketchCommand.Merge(List.of("day-1", "day-2", "day-3")));
+        assertEquals(0L, merged.version());
+
+        CountMinSketchResult queried = execute("week", new CountMinSketchCommand.Query(List.of("home", "about")));
+        assertEquals(7L, queried.estimates().get("home"));
+        assertEquals(1L, queried.estimates().get("about"));
+    }
+
+    @Test
+    void shouldRejectSourcesWithDifferentDimensions() {
+        execute("fine", new CountMinSketchCommand.Increment(Map.of("home", 3L), 0.001, 0.01));
+        execute("coarse", new CountMinSketchCommand.Increment(Map.of("home", 3L), 0.01, 0.01));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> engine.execute("fine", new CountMinSketchCommand.Merge(List.of("coarse"))).join());
+        assertInstanceOf(WrongTypeException.class, exception.getCause());
+        assertEquals(3L, execute("fine", new CountMinSketchCommand.Query(List.of("home"))).estimates().get("home"));
+    }
+
+    @Test
+    void shouldRejectKeysOfADifferentType() {
+        execute("views", new CountMinSketchCommand.Increment(Map.of("home", 1L), 0.001, 0.01));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> engine.<String, HyperLogLogCommand, HyperLogLogResult>execute("views",
+                        new HyperLogLogCommand.Add(List.of("a".getBytes(StandardCharsets.UTF_8)))).join());
+        assertInstanceOf(WrongTypeException.class, exception.getCause());
+    }
+}
@@ -0,0 +1,83 @@
+package com.bcorp.api.handlers.hash;
+
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.exceptions.WrongTypeException;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashHandlersTest {
+
+    private KeyValueStore keyValueStore;
+    private KeyValueStoreEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        HandlerResolver handlerResolver = new HandlerResolver();
+        HashHandlers.register(handlerResolver);
+        keyValueStore = new KeyValueStore(new SystemClock());
+        engine = new KeyValueStoreEngine(keyValueStore, handlerResolver);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private HashResult execute(String key, HashCommand command) {
+        return waitFuture(engine.execute(key, command));
+    }
+
+    @Test
+    void shouldSetAndReadOnlyNamedFields() {
+        Map<String, byte[]> fields = new LinkedHashMap<>();
+        fields.put("name", bytes("\"John\""));
+        fields.put("age", bytes("42"));
+
+        HashResult created = execute("profile", new HashCommand.Set(fields));
+        assertEquals(2, created.count());
+        assertEquals(0L, created.version());
+
+        HashResult updated = execute("profile", new HashCommand.Set(Map.of("age", bytes("43"))));
+        assertEquals(0, updated.count());
+        assertEquals(1L, updated.version());
+
+        HashResult read = execute("profile", new HashCommand.Get(List.of("age", "missing")));
+        assertEquals(1, read.fields().size());
+        assertEquals("43", new String(read.fields().get("age"), StandardCharsets.UTF_8));
+
+        assertEquals(2, execute("profile", new HashCommand.GetAll()).fields().size());
+    }
+
+    @Test
+    void shouldRemoveKeyWithLastField() {
+        execute("profile", new HashCommand.Set(Map.of("name", bytes("\"John\""))));
+
+        HashResult deleted = execute("profile", new HashCommand.Delete(List.of("name", "missing")));
+
+        assertEquals(1, deleted.count());
+        assertNull(deleted.version());
+        assertNull(waitFuture(keyValueStore.get(new DataKey("profile"))));
+    }
+
+    @Test
+    void shouldRejectHashCommandsOnJsonValues() {
+        waitFuture(keyValueStore.set(new DataKey("json"), RequestDataValue.fromString("{}"), null));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> engine.execute("json", new HashCommand.GetAll()).join());
+        assertInstanceOf(WrongTypeException.class, exception.getCause());
+    }
+}
@@ -0,0 +1,105 @@
+package com.bcorp.api.handlers.list;
+
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.DataKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListHandlersTest {
+
+    private KeyValueStore keyValueStore;
+    private KeyValueStoreEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        HandlerResolver handlerResolver = new HandlerResolver();
+        ListHandlers.register(handlerResolver);
+        keyValueStore = new KeyValueStore(new SystemClock());
+        engine = new KeyValueStoreEngine(keyValueStore, handlerResolver);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> strings(ListResult result) {
+        return result.values().stream().map(value -> new String(value, StandardCharsets.UTF_8)).toList();
+    }
+
+    private ListResult execute(String key, ListCommand command) {
+        return waitFuture(engine.execute(key, command));
+    }
+
+    @Test
+    void shouldPushAndPopAtBothEnds() {
+        execute("queue", new ListCommand.Push(List.of(bytes("2"), bytes("3")), false));
+        ListResult pushed = execute("queue", new ListCommand.Push(List.of(bytes("1"), bytes("0")), true));
+        assertEquals(4, pushed.length());
+        assertEquals(1L, pushed.version());
+
+        assertEquals(List.of("0", "1", "2", "3"), strings(execute("queue", new ListCommand.Range(0, -1))));
+        assertEquals(List.of("1", "2"), strings(execute("queue", new ListCommand.Range(1, -2))));
+
+        assertEquals(List.of("0"), strings(execute("queue", new ListCommand.Pop(1, true))));
+        assertEquals(List.of("3", "2"), strings(execute("queue", new ListCommand.Pop(2, false))));
+
+        ListResult last = execute("queue", new ListCommand.Pop(5, true));
+        assertEquals(List.of("1"), strings(last));
+        assertNull(last.version());
+        assertNull(waitFuture(keyValueStore.get(new DataKey("queue"))));
+    }
+
+    @Test
+    void shouldKeepOrderWhileGrowingPastInitialCapacity() {
+        for (int i = 0; i < 100; i++) {
+            execute("queue", new ListCommand.Push(List.of(bytes(String.valueOf(i))), false));
+            if (i % 3 == 0) {
+                execute("queue", new ListCommand.Pop(1, true));
+            }
+        }
+
+        List<String> remaining = strings(execute("queue", new ListCommand.Range(0, -1)));
+        assertEquals(66, remaining.size());
+        assertEquals("34", remaining.get(0));
+        assertEquals("99", remaining.get(65));
+    }
+
+    @Test
+    void shouldCompleteParkedBlockingPopsInArrivalOrder() {
+        CompletableFuture<ListResult> first = engine.execute("queue", new ListCommand.BlockingPop(true, 5_000));
+        CompletableFuture<ListResult> second = engine.execute("queue", new ListCommand.BlockingPop(true, 5_000));
+        waitFuture(keyValueStore.totalKeys());
+        assertFalse(first.isDone());
+
+        execute("queue", new ListCommand.Push(List.of(bytes("a")), false));
+        assertEquals(List.of("a"), strings(waitFuture(first)));
+        assertFalse(second.isDone());
+
+        execute("queue", new ListCommand.Push(List.of(bytes("b"), bytes("c")), false));
+        ListResult popped = waitFuture(second);
+        assertEquals(List.of("b"), strings(popped));
+        assertEquals(1, popped.length());
+    }
+
+    @Test
+    void shouldCompleteBlockingPopEmptyOnTimeout() {
+        ListResult timedOut = execute("queue", new ListCommand.BlockingPop(false, 50));
+
+        assertTrue(timedOut.values().isEmpty());
+        assertNull(timedOut.version());
+
+        // the timed out pop must not take the next value
+        execute("queue", new ListCommand.Push(List.of(bytes("a")), false));
+        assertEquals(List.of("a"), strings(execute("queue", new ListCommand.Range(0, -1))));
+    }
+}
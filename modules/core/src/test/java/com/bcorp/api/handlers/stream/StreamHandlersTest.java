@@ -0,0 +1,139 @@
+package com.bcorp.api.handlers.stream;
+
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.StreamEntry;
+import com.bcorp.kvstore.KeyValueStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamHandlersTest {
+
+    private final AtomicLong nowMs = new AtomicLong(1_000);
+    private KeyValueStore keyValueStore;
+    private KeyValueStoreEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        HandlerResolver handlerResolver = new HandlerResolver();
+        StreamHandlers.register(handlerResolver);
+        keyValueStore = new KeyValueStore(nowMs::get);
+        engine = new KeyValueStoreEngine(keyValueStore, handlerResolver);
+    }
+
+    private static List<byte[]> values(int from, int to) {
+        List<byte[]> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static List<Long> offsets(StreamResult result) {
+        return result.entries().stream().map(StreamEntry::offset).toList();
+    }
+
+    private StreamResult execute(String key, StreamCommand command) {
+        return waitFuture(engine.execute(key, command));
+    }
+
+    @Test
+    void shouldReadByOffsetAcrossSegments() {
+        StreamResult appended = execute("events", new StreamCommand.Append(values(0, 600), 0));
+        assertEquals(600, appended.entries().size());
+        assertEquals(599L, appended.entries().get(599).offset());
+
+        StreamResult read = execute("events", new StreamCommand.Read(250, 10, 0));
+        assertEquals(List.of(250L, 251L, 252L, 253L, 254L, 255L, 256L, 257L, 258L, 259L), offsets(read));
+        assertEquals("256", new String(read.entries().get(6).value(), StandardCharsets.UTF_8));
+        assertEquals(600, read.count());
+
+        assertTrue(execute("events", new StreamCommand.Read(600, 10, 0)).entries().isEmpty());
+    }
+
+    @Test
+    void shouldKeepOffsetsWhenTrimming() {
+        execute("events", new StreamCommand.Append(values(0, 600), 0));
+
+        assertEquals(500, execute("events", new StreamCommand.Trim(100L, null)).count());
+
+        // trimmed offsets are skipped, the remaining entries keep their offsets
+        StreamResult read = execute("events", new StreamCommand.Read(0, 2, 0));
+        assertEquals(List.of(500L, 501L), offsets(read));
+        assertEquals(100, read.count());
+
+        nowMs.set(2_000);
+        StreamResult appended = execute("events", new StreamCommand.Append(values(600, 601), 50));
+        assertEquals(600L, appended.entries().get(0).offset());
+        assertEquals(50, appended.count());
+
+        // only the entry appended at 2000 is younger than 500ms
+        assertEquals(49, execute("events", new StreamCommand.Trim(null, 500L)).count());
+        assertEquals(List.of(600L), offsets(execute("events", new StreamCommand.Read(0, 10, 0))));
+    }
+
+    @Test
+    void shouldTrackOffsetsPerGroup() {
+        execute("events", new StreamCommand.Append(values(0, 5), 0));
+
+        assertEquals(List.of(0L, 1L, 2L), offsets(execute("events", new StreamCommand.ReadGroup("billing", 3, 0))));
+        assertEquals(List.of(3L, 4L), offsets(execute("events", new StreamCommand.ReadGroup("billing", 3, 0))));
+        assertTrue(execute("events", new StreamCommand.ReadGroup("billing", 3, 0)).entries().isEmpty());
+
+        // every group reads the whole stream
+        assertEquals(List.of(0L, 1L), offsets(execute("events", new StreamCommand.ReadGroup("audit", 2, 0))));
+
+        assertEquals(1, execute("events", new StreamCommand.SeekGroup("billing", 1)).count());
+        assertEquals(List.of(1L), offsets(execute("events", new StreamCommand.ReadGroup("billing", 1, 0))));
+    }
+
+    @Test
+    void shouldCompleteParkedReadsOnAppend() {
+        CompletableFuture<StreamResult> tail = engine.execute("events", new StreamCommand.Read(0, 10, 5_000));
+        CompletableFuture<StreamResult> group = engine.execute("events", new StreamCommand.ReadGroup("billing", 10, 5_000));
+        waitFuture(keyValueStore.totalKeys());
+        assertFalse(tail.isDone());
+        assertFalse(group.isDone());
+
+        execute("events", new StreamCommand.Append(values(0, 2), 0));
+
+        assertEquals(List.of(0L, 1L), offsets(waitFuture(tail)));
+        assertEquals(List.of(0L, 1L), offsets(waitFuture(group)));
+
+        // a read past the end waits for the next append
+        CompletableFuture<StreamResult> next = engine.execute("events", new StreamCommand.Read(2, 10, 5_000));
+        waitFuture(keyValueStore.totalKeys());
+        assertFalse(next.isDone());
+        execute("events", new StreamCommand.Append(values(2, 3), 0));
+        assertEquals(List.of(2L), offsets(waitFuture(next)));
+    }
+
+    @Test
+    void shouldNotServeACancelledParkedRead() {
+        CompletableFuture<StreamResult> group = engine.execute("events", new StreamCommand.ReadGroup("billing", 10, 5_000));
+        waitFuture(keyValueStore.totalKeys());
+        assertTrue(group.cancel(false));
+
+        execute("events", new StreamCommand.Append(values(0, 2), 0));
+
+        // the group of the cancelled read didn't move past the appended entries
+        assertEquals(List.of(0L, 1L), offsets(execute("events", new StreamCommand.ReadGroup("billing", 10, 0))));
+    }
+
+    @Test
+    void shouldCompleteParkedReadEmptyOnTimeout() {
+        StreamResult timedOut = execute("events", new StreamCommand.Read(0, 10, 50));
+
+        assertTrue(timedOut.entries().isEmpty());
+        assertNull(timedOut.version());
+    }
+}
@@ -0,0 +1,95 @@
+package com.bcorp.api.handlers.timeseries;
+
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.datatypes.TimeSeriesBucket;
+import com.bcorp.datatypes.TimeSeriesSample;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.DataKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesHandlersTest {
+
+    private KeyValueStore keyValueStore;
+    private KeyValueStoreEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        HandlerResolver handlerResolver = new HandlerResolver();
+        TimeSeriesHandlers.register(handlerResolver);
+        keyValueStore = new KeyValueStore(new SystemClock());
+        engine = new KeyValueStoreEngine(keyValueStore, handlerResolver);
+    }
+
+    private TimeSeriesResult execute(String key, TimeSeriesCommand command) {
+        return waitFuture(engine.execute(key, command));
+    }
+
+    @Test
+    void shouldAddOutOfOrderBatchesAndSkipOldSamples() {
+        TimeSeriesResult added = execute("cpu", new TimeSeriesCommand.Add(List.of(
+                new TimeSeriesSample(3000, 0.3),
+                new TimeSeriesSample(1000, 0.1),
+                new TimeSeriesSample(2000, 0.2)), null));
+        assertEquals(3L, added.count());
+        assertEquals(0L, added.version());
+
+        TimeSeriesResult late = execute("cpu", new TimeSeriesCommand.Add(List.of(
+                new TimeSeriesSample(2500, 0.25),
+                new TimeSeriesSample(4000, 0.4)), null));
+        assertEquals(1L, late.count());
+
+        TimeSeriesResult range = execute("cpu", new TimeSeriesCommand.Range(0, Long.MAX_VALUE, 0, 100));
+        assertEquals(List.of(
+                new TimeSeriesSample(1000, 0.1),
+                new TimeSeriesSample(2000, 0.2),
+                new TimeSeriesSample(3000, 0.3),
+                new TimeSeriesSample(4000, 0.4)), range.samples());
+        assertEquals(4L, range.count());
+        assertEquals(1L, range.version());
+    }
+
+    @Test
+    void shouldAggregateOnTheServer() {
+        execute("cpu", new TimeSeriesCommand.Add(List.of(
+                new TimeSeriesSample(0, 1),
+                new TimeSeriesSample(30_000, 3),
+                new TimeSeriesSample(60_000, 10),
+                new TimeSeriesSample(90_000, 20)), null));
+
+        TimeSeriesResult range = execute("cpu", new TimeSeriesCommand.Range(0, Long.MAX_VALUE, 60_000, 100));
+        assertEquals(List.of(
+                new TimeSeriesBucket(0, 2, 1, 3, 2),
+                new TimeSeriesBucket(60_000, 2, 10, 20, 15)), range.buckets());
+        assertTrue(range.samples().isEmpty());
+    }
+
+    @Test
+    void shouldApplyTheRetentionOfTheLastAdd() {
+        execute("cpu", new TimeSeriesCommand.Add(List.of(
+                new TimeSeriesSample(0, 1),
+                new TimeSeriesSample(60_000, 2)), null));
+        execute("cpu", new TimeSeriesCommand.Add(List.of(new TimeSeriesSample(120_000, 3)), 60_000L));
+
+        TimeSeriesResult range = execute("cpu", new TimeSeriesCommand.Range(0, Long.MAX_VALUE, 0, 100));
+        assertEquals(List.of(
+                new TimeSeriesSample(60_000, 2),
+                new TimeSeriesSample(120_000, 3)), range.samples());
+    }
+
+    @Test
+    void shouldNotCreateASeriesWithoutSamples() {
+        TimeSeriesResult added = execute("cpu", new TimeSeriesCommand.Add(List.of(), 1000L));
+        assertEquals(0L, added.count());
+        assertNull(added.version());
+        assertNull(waitFuture(keyValueStore.get(new DataKey("cpu"))));
+        assertNull(execute("cpu", new TimeSeriesCommand.Range(0, Long.MAX_VALUE, 0, 100)).version());
+    }
+}
@@ -0,0 +1,149 @@
+package com.bcorp.backingstore;
+
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackingStoreTest {
+
+    private static KeyValueStore openStore(CacheLoader loader, CacheWriter writer) {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        // batches are only written when the tests flush them
+        config.getWriteBehind().setFlushIntervalMs(60_000);
+        config.getWriteBehind().setBatchSize(100);
+        return new KeyValueStore(new SystemClock(), config, loader, writer);
+    }
+
+    private static String valueOf(CachedDataValue value) {
+        return value == null ? null : new String(value.data(), StandardCharsets.UTF_8);
+    }
+
+    private static String valueOf(RequestDataValue value) {
+        return value == null ? null : new String(value.data(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldLoadAMissingKeyOnceForAllTheReadsWaitingForIt() {
+        InMemoryBackingStore backingStore = new InMemoryBackingStore(100);
+        DataKey key = new DataKey("hot");
+        backingStore.put(key, RequestDataValue.fromString("{\"v\":1}"));
+        KeyValueStore store = openStore(backingStore, null);
+
+        List<CompletableFuture<CachedDataValue>> reads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            reads.add(store.get(key));
+        }
+        for (CompletableFuture<CachedDataValue> read : reads) {
+            assertEquals("{\"v\":1}", valueOf(waitFuture(read)));
+        }
+        assertEquals(1, backingStore.loads());
+
+        CachedDataValue value = waitFuture(store.get(key));
+        assertEquals(0L, value.version());
+        assertEquals(1, backingStore.loads());
+
+        // a key missing from both isn't remembered as missing
+        assertNull(waitFuture(store.get(new DataKey("missing"))));
+        assertNull(waitFuture(store.get(new DataKey("missing"))));
+        assertEquals(3, backingStore.loads());
+        assertEquals(1L, waitFuture(store.totalKeys()));
+        store.close();
+    }
+
+    @Test
+    void shouldKeepWhatWasWrittenOrRemovedWhileTheKeyLoaded() {
+        InMemoryBackingStore backingStore = new InMemoryBackingStore(100);
+        DataKey written = new DataKey("written");
+        DataKey removed = new DataKey("removed");
+        backingStore.put(written, RequestDataValue.fromString("\"stale\""));
+        backingStore.put(removed, RequestDataValue.fromString("\"stale\""));
+        KeyValueStore store = openStore(backingStore, null);
+
+        CompletableFuture<CachedDataValue> writtenRead = store.get(written);
+        waitFuture(store.set(written, RequestDataValue.fromString("\"fresh\""), null));
+        CompletableFuture<CachedDataValue> removedRead = store.get(removed);
+        waitFuture(store.remove(removed));
+
+        assertEquals("\"fresh\"", valueOf(waitFuture(writtenRead)));
+        assertNull(waitFuture(removedRead));
+        assertEquals("\"fresh\"", valueOf(waitFuture(store.get(written))));
+        assertFalse(waitFuture(store.containsKey(removed)));
+        store.close();
+    }
+
+    @Test
+    void shouldFailTheReadsOfAFailedLoadAndLoadAgainOnTheNextRead() {
+        AtomicInteger loads = new AtomicInteger();
+        KeyValueStore store = openStore(key -> loads.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(new IllegalStateException("database is down"))
+                : CompletableFuture.completedFuture(RequestDataValue.fromString("1")), null);
+
+        DataKey key = new DataKey("key");
+        CompletionException error = assertThrows(CompletionException.class, () -> store.get(key).join());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals("1", valueOf(waitFuture(store.get(key))));
+        assertEquals(2, loads.get());
+        store.close();
+    }
+
+    @Test
+    void shouldWriteOnlyTheLatestChangeOfEveryKeyBehind() {
+        InMemoryBackingStore backingStore = new InMemoryBackingStore(0);
+        backingStore.put(new DataKey("only-in-backing-store"), RequestDataValue.fromString("1"));
+        KeyValueStore store = openStore(null, backingStore);
+
+        for (int version = 0; version < 5; version++) {
+            for (int i = 0; i < 10; i++) {
+                waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString("{\"v\":" + version + "}"), null));
+            }
+        }
+        waitFuture(store.remove(new DataKey("key:9")));
+        waitFuture(store.remove(new DataKey("only-in-backing-store")));
+        waitFuture(store.flushWriteBehind());
+
+        assertEquals(11, backingStore.writes());
+        assertEquals(1, backingStore.batches());
+        assertEquals("{\"v\":4}", valueOf(backingStore.get(new DataKey("key:0"))));
+        assertNull(backingStore.get(new DataKey("key:9")));
+        assertNull(backingStore.get(new DataKey("only-in-backing-store")));
+        assertEquals(new WriteBehindStats(0, 11, 1, 0), store.writeBehindStats());
+        store.close();
+    }
+
+    @Test
+    void shouldRetryAFailedBatchUnlessTheKeyChangedAgain() {
+        InMemoryBackingStore backingStore = new InMemoryBackingStore(0);
+        KeyValueStore store = openStore(null, backingStore);
+        DataKey key = new DataKey("key");
+        DataKey other = new DataKey("other");
+
+        backingStore.setFailingWrites(true);
+        waitFuture(store.set(key, RequestDataValue.fromString("1"), null));
+        waitFuture(store.set(other, RequestDataValue.fromString("1"), null));
+        waitFuture(store.flushWriteBehind());
+        assertEquals(new WriteBehindStats(2, 0, 0, 1), store.writeBehindStats());
+
+        backingStore.setFailingWrites(false);
+        waitFuture(store.set(key, RequestDataValue.fromString("2"), null));
+        store.close();
+
+        // the close writes what is left
+        assertEquals("2", valueOf(backingStore.get(key)));
+        assertEquals("1", valueOf(backingStore.get(other)));
+        assertEquals(2, backingStore.writes());
+    }
+}
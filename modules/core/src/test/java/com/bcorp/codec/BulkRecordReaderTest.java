@@ -0,0 +1,83 @@
+package com.bcorp.codec;
+
+import com.bcorp.exceptions.JsonDecodingFailed;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkRecordReaderTest {
+
+    private final JsonCodec jsonCodec = new JsonCodec();
+
+    private List<BulkRecord> read(String body, int chunkSize) {
+        List<BulkRecord> records = new ArrayList<>();
+        BulkRecordReader reader = jsonCodec.newBulkRecordReader(records::add);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        for (int start = 0; start < bytes.length; start += chunkSize) {
+            int offset = start;
+            int length = Math.min(chunkSize, bytes.length - start);
+            reader.append(length, (target, targetOffset) ->
+                    System.arraycopy(bytes, offset, target, targetOffset, length));
+        }
+        reader.finish();
+        return records;
+    }
+
+    private static String valueOf(BulkRecord record) {
+        return new String(record.value(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldReadEveryLineWhateverTheChunksAre() {
+        String body = "{\"key\":\"a\",\"value\":{\"name\": \"x\", \"tags\": [1, {\"n\": null}]},\"version\":3}\n"
+                + "\n"
+                + "{\"value\":\"quoted \\\"text\\\"\",\"key\":\"b\",\"ttl\":60000}\r\n"
+                + "  {\"key\":\"c\",\"extra\":{\"ignored\":[1]},\"value\":12.5}  \n"
+                + "{\"key\":\"d\",\"value\":true,\"version\":null}";
+
+        for (int chunkSize : new int[]{1, 7, 1 << 20}) {
+            List<BulkRecord> records = read(body, chunkSize);
+
+            assertEquals(4, records.size());
+            assertEquals("a", records.get(0).key());
+            assertEquals("{\"name\": \"x\", \"tags\": [1, {\"n\": null}]}", valueOf(records.get(0)));
+            assertEquals(3L, records.get(0).version());
+            assertEquals("\"quoted \\\"text\\\"\"", valueOf(records.get(1)));
+            assertEquals(60000L, records.get(1).ttl());
+            assertEquals(3, records.get(1).line());
+            assertEquals("12.5", valueOf(records.get(2)));
+            assertNull(records.get(2).version());
+            assertEquals("true", valueOf(records.get(3)));
+            assertNull(records.get(3).version());
+            assertEquals(5, records.get(3).line());
+        }
+    }
+
+    @Test
+    void shouldReadLinesLongerThanTheBuffer() {
+        String value = "\"" + "x".repeat(200_000) + "\"";
+        List<BulkRecord> records = read("{\"key\":\"big\",\"value\":" + value + "}\n{\"key\":\"small\",\"value\":1}\n", 4096);
+
+        assertEquals(value, valueOf(records.get(0)));
+        assertEquals("1", valueOf(records.get(1)));
+    }
+
+    @Test
+    void shouldRejectMalformedLinesNamingTheLine() {
+        JsonDecodingFailed error = assertThrows(JsonDecodingFailed.class,
+                () -> read("{\"key\":\"a\",\"value\":1}\n{\"key\":\"b\",\"value\":\n", 5));
+        assertTrue(error.getMessage().contains("Line 2"), error.getMessage());
+
+        assertThrows(JsonDecodingFailed.class, () -> read("[1,2]\n", 5));
+        assertThrows(JsonDecodingFailed.class, () -> read("{\"key\":1,\"value\":1}\n", 5));
+        assertThrows(JsonDecodingFailed.class, () -> read("{\"key\":\"a\"}\n", 5));
+        assertThrows(JsonDecodingFailed.class, () -> read("{\"value\":1}\n", 5));
+        assertThrows(JsonDecodingFailed.class, () -> read("{\"key\":\"a\",\"value\":1,\"version\":\"3\"}\n", 5));
+        assertThrows(JsonDecodingFailed.class, () -> read("{\"key\":\"a\",\"value\":1} {\"key\":\"b\",\"value\":1}\n", 5));
+    }
+}
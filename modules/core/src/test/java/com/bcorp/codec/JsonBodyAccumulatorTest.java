@@ -0,0 +1,114 @@
+package com.bcorp.codec;
+
+import com.bcorp.exceptions.JsonDecodingFailed;
+import com.bcorp.exceptions.ValueTooLargeException;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonBodyAccumulatorTest {
+
+    private final JsonCodec jsonCodec = new JsonCodec();
+
+    private byte[] accumulate(String body, int chunkSize, int expectedSize) {
+        JsonBodyAccumulator accumulator = jsonCodec.newBodyAccumulator(expectedSize);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        for (int start = 0; start < bytes.length; start += chunkSize) {
+            int offset = start;
+            int length = Math.min(chunkSize, bytes.length - start);
+            accumulator.append(length, (target, targetOffset) ->
+                    System.arraycopy(bytes, offset, target, targetOffset, length));
+        }
+        return accumulator.finish();
+    }
+
+    @Test
+    void shouldReturnBodyUnchangedWhenJsonIsValid() {
+        String body = "{\"name\": \"John\", \"tags\": [1, 2, {\"nested\": true}]}";
+
+        assertEquals(body, new String(accumulate(body, 3, 0), StandardCharsets.UTF_8));
+        assertEquals(body, new String(accumulate(body, 1024, 0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldNotCopyWhenExpectedSizeMatchesBody() {
+        String body = "{\"a\":1}";
+        JsonBodyAccumulator accumulator = jsonCodec.newBodyAccumulator(body.length());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        byte[][] target = new byte[1][];
+
+        accumulator.append(bytes.length, (array, offset) -> {
+            target[0] = array;
+            System.arraycopy(bytes, 0, array, offset, bytes.length);
+        });
+
+        assertSame(target[0], accumulator.finish());
+    }
+
+    @Test
+    void shouldAcceptScalarRootValues() {
+        assertEquals("42", new String(accumulate("42", 1, 0), StandardCharsets.UTF_8));
+        assertEquals("\"text\"", new String(accumulate("\"text\"", 2, 0), StandardCharsets.UTF_8));
+        assertEquals("null", new String(accumulate("null", 4, 0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRejectInvalidJson() {
+        assertThrows(JsonDecodingFailed.class, () -> accumulate("not json", 3, 0));
+        assertThrows(JsonDecodingFailed.class, () -> accumulate("{\"a\":", 3, 0));
+    }
+
+    @Test
+    void shouldRejectEmptyBody() {
+        assertThrows(JsonDecodingFailed.class, () -> accumulate("", 3, 0));
+    }
+
+    @Test
+    void shouldRejectMultipleRootValues() {
+        assertThrows(JsonDecodingFailed.class, () -> accumulate("{\"a\":1} {\"b\":2}", 4, 0));
+        assertThrows(JsonDecodingFailed.class, () -> accumulate("12 13", 1, 0));
+    }
+
+    @Test
+    void shouldAcceptBodyLargerThanTheExpectedSize() {
+        String body = "{\"name\": \"John\", \"tags\": [1, 2, 3]}";
+
+        assertEquals(body, new String(accumulate(body, 5, 8), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldNotPreallocateALargeAnnouncedSize() {
+        String body = "{\"name\": \"John\"}";
+
+        // a short body announced as nearly 2GB
+        assertEquals(body, new String(accumulate(body, 5, Integer.MAX_VALUE - 8), StandardCharsets.UTF_8));
+        assertEquals(body, new String(accumulate(body, 64, JsonBodyAccumulator.MAX_PREALLOCATED_BYTES + 1),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRejectBodyLargerThanTheLimit() {
+        byte[] chunk = "[1,2,3,".getBytes(StandardCharsets.UTF_8);
+        JsonBodyAccumulator accumulator = jsonCodec.newBodyAccumulator(0, 10);
+        accumulator.append(chunk.length, (target, offset) -> System.arraycopy(chunk, 0, target, offset, chunk.length));
+
+        int[] copied = {0};
+        assertThrows(ValueTooLargeException.class, () -> accumulator.append(chunk.length, (target, offset) -> copied[0]++));
+        assertEquals(0, copied[0]);
+        assertThrows(ValueTooLargeException.class, () -> jsonCodec.newBodyAccumulator(11, 10));
+    }
+
+    @Test
+    void shouldTakeTheDataTypeFromTheRootValue() {
+        assertEquals(ObjectNode.class, jsonCodec.fromValidatedBytes(accumulate(" {\"a\": [1]}", 4, 0)).dataType());
+        assertEquals(ArrayNode.class, jsonCodec.fromValidatedBytes(accumulate("\n[{\"a\": 1}]", 4, 0)).dataType());
+        assertEquals(ValueNode.class, jsonCodec.fromValidatedBytes(accumulate("\"text\"", 4, 0)).dataType());
+        assertEquals(ArrayNode.class, jsonCodec.encode(jsonCodec.fromString("[1, 2]")).dataType());
+    }
+}
@@ -0,0 +1,144 @@
+package com.bcorp.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeValueSerializationTest {
+
+    private interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    private static <T extends NativeValue> T roundTrip(T value, Reader<T> reader) throws IOException {
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        value.writeTo(new DataOutputStream(image));
+        return reader.read(new DataInputStream(new ByteArrayInputStream(image.toByteArray())));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldRoundTripListsHashesAndSortedSets() throws IOException {
+        ListValue list = new ListValue();
+        for (int i = 0; i < 20; i++) {
+            list.pushRight(bytes("r" + i));
+        }
+        // moves the head of the ring away from 0
+        list.popLeft();
+        list.pushLeft(bytes("l"));
+
+        ListValue restoredList = roundTrip(list, ListValue::readFrom);
+        assertEquals(20, restoredList.size());
+        assertEquals("l", string(restoredList.range(0, 0).get(0)));
+        assertEquals("r19", string(restoredList.range(-1, -1).get(0)));
+        restoredList.pushRight(bytes("after"));
+        assertEquals("after", string(restoredList.popRight()));
+
+        HashValue hash = new HashValue();
+        hash.put("name", bytes("\"ada\""));
+        hash.put("empty", new byte[0]);
+        HashValue restoredHash = roundTrip(hash, HashValue::readFrom);
+        assertEquals(2, restoredHash.size());
+        assertEquals("\"ada\"", string(restoredHash.get("name")));
+        assertEquals(0, restoredHash.get("empty").length);
+
+        SortedSetValue set = new SortedSetValue();
+        for (int i = 0; i < 100; i++) {
+            set.add("m" + i, i % 10);
+        }
+        SortedSetValue restoredSet = roundTrip(set, SortedSetValue::readFrom);
+        assertEquals(set.rangeByRank(0, -1), restoredSet.rangeByRank(0, -1));
+        assertEquals(set.rank("m55"), restoredSet.rank("m55"));
+        assertEquals(5.0, restoredSet.score("m55"));
+    }
+
+    @Test
+    void shouldRoundTripATrimmedStreamWithItsGroups() throws IOException {
+        StreamValue stream = new StreamValue();
+        for (int i = 0; i < 600; i++) {
+            stream.append(bytes("e" + i), 1000 + i);
+        }
+        stream.trimToLength(100);
+        stream.readGroup("workers", 10);
+
+        StreamValue restored = roundTrip(stream, StreamValue::readFrom);
+        assertEquals(500, restored.firstOffset());
+        assertEquals(600, restored.nextOffset());
+        assertEquals(510, restored.groupOffset("workers"));
+        assertEquals("e500", string(restored.read(0, 1).get(0).value()));
+        assertEquals(1599, restored.read(599, 1).get(0).timestampMs());
+
+        assertEquals(600, restored.append(bytes("e600"), 1600));
+        assertEquals(51, restored.trimOlderThan(1551));
+        assertEquals("e551", string(restored.read(0, 1).get(0).value()));
+    }
+
+    @Test
+    void shouldKeepTheOffsetsOfAStreamTrimmedToNothing() throws IOException {
+        StreamValue stream = new StreamValue();
+        for (int i = 0; i < 300; i++) {
+            stream.append(bytes("e" + i), i);
+        }
+        stream.trimToLength(0);
+
+        StreamValue restored = roundTrip(stream, StreamValue::readFrom);
+        assertEquals(0, restored.length());
+        assertEquals(300, restored.append(bytes("e300"), 300));
+        assertEquals("e300", string(restored.read(0, 10).get(0).value()));
+    }
+
+    @Test
+    void shouldRoundTripTimeSeriesAndContinueAppending() throws IOException {
+        TimeSeriesValue series = new TimeSeriesValue();
+        for (int i = 0; i < 600; i++) {
+            series.add(i * 1000L, i % 7 * 0.5);
+        }
+        series.setRetentionMs(1_000_000);
+
+        TimeSeriesValue restored = roundTrip(series, TimeSeriesValue::readFrom);
+        assertEquals(series.size(), restored.size());
+        assertEquals(series.range(0, Long.MAX_VALUE, 1000), restored.range(0, Long.MAX_VALUE, 1000));
+
+        assertTrue(restored.add(600_000, 42));
+        assertFalse(restored.add(600_000, 43));
+        List<TimeSeriesSample> last = restored.range(599_000, 600_000, 10);
+        assertEquals(List.of(new TimeSeriesSample(599_000, 599 % 7 * 0.5), new TimeSeriesSample(600_000, 42)), last);
+    }
+
+    @Test
+    void shouldRoundTripProbabilisticValues() throws IOException {
+        HyperLogLogValue hll = new HyperLogLogValue();
+        BloomFilterValue bloom = new BloomFilterValue(1000, 0.01);
+        CountMinSketchValue sketch = new CountMinSketchValue(0.01, 0.01);
+        for (int i = 0; i < 500; i++) {
+            hll.add(bytes("u" + i));
+            bloom.add(bytes("u" + i));
+            sketch.increment(bytes("u" + (i % 10)), 1);
+        }
+
+        assertEquals(hll.count(), roundTrip(hll, HyperLogLogValue::readFrom).count());
+
+        BloomFilterValue restoredBloom = roundTrip(bloom, BloomFilterValue::readFrom);
+        assertEquals(bloom.bitCount(), restoredBloom.bitCount());
+        assertEquals(bloom.hashCount(), restoredBloom.hashCount());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(restoredBloom.mightContain(bytes("u" + i)));
+        }
+
+        CountMinSketchValue restoredSketch = roundTrip(sketch, CountMinSketchValue::readFrom);
+        assertEquals(500, restoredSketch.total());
+        assertEquals(sketch.estimate(bytes("u3")), restoredSketch.estimate(bytes("u3")));
+        restoredSketch.checkMergeable(sketch);
+    }
+}
@@ -0,0 +1,115 @@
+package com.bcorp.datatypes;
+
+import com.bcorp.exceptions.WrongTypeException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbabilisticValuesTest {
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void hyperLogLogShouldEstimateWithinTwoPercent() {
+        HyperLogLogValue hyperLogLog = new HyperLogLogValue();
+        assertEquals(0L, hyperLogLog.count());
+
+        for (int i = 0; i < 100; i++) {
+            hyperLogLog.add(bytes("small-" + i));
+        }
+        assertEquals(100L, hyperLogLog.count(), 2.0);
+
+        for (int i = 0; i < 200_000; i++) {
+            hyperLogLog.add(bytes("element-" + i));
+        }
+        assertEquals(200_100L, hyperLogLog.count(), 200_100 * 0.02);
+        assertFalse(hyperLogLog.add(bytes("element-5")));
+    }
+
+    @Test
+    void hyperLogLogMergeShouldCountTheUnion() {
+        HyperLogLogValue first = new HyperLogLogValue();
+        HyperLogLogValue second = new HyperLogLogValue();
+        for (int i = 0; i < 50_000; i++) {
+            first.add(bytes("element-" + i));
+            second.add(bytes("element-" + (i + 25_000)));
+        }
+
+        first.merge(second);
+        assertEquals(75_000L, first.count(), 75_000 * 0.02);
+    }
+
+    @Test
+    void bloomFilterShouldHaveNoFalseNegativesAndBoundedFalsePositives() {
+        BloomFilterValue bloomFilter = new BloomFilterValue(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.add(bytes("member-" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloomFilter.mightContain(bytes("member-" + i)));
+        }
+        assertFalse(bloomFilter.add(bytes("member-42")));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (bloomFilter.mightContain(bytes("other-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void bloomFilterShouldRejectSizesOverTheLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilterValue(100_000_000, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilterValue(10, 1e-300));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilterValue(0, 0.01));
+        assertTrue(BloomFilterValue.bitsFor(50_000_000, 0.01) <= BloomFilterValue.MAX_BITS);
+        new BloomFilterValue(1000, BloomFilterValue.MIN_ERROR_RATE);
+    }
+
+    @Test
+    void countMinSketchShouldRejectSizesOverTheLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketchValue(0.00001, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketchValue(0.01, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketchValue(0.01, 1e-300));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketchValue(Integer.MAX_VALUE, 2));
+        CountMinSketchValue largest = new CountMinSketchValue(CountMinSketchValue.MIN_ERROR_RATE,
+                CountMinSketchValue.MIN_FAILURE_PROBABILITY);
+        assertTrue((long) largest.width() * largest.depth() <= CountMinSketchValue.MAX_COUNTERS);
+    }
+
+    @Test
+    void countMinSketchShouldNeverUnderestimate() {
+        CountMinSketchValue sketch = new CountMinSketchValue(0.001, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment(bytes("item-" + i), i + 1);
+        }
+
+        long bound = (long) (sketch.total() * 0.001);
+        for (int i = 0; i < 1000; i++) {
+            long estimate = sketch.estimate(bytes("item-" + i));
+            assertTrue(estimate >= i + 1);
+            assertTrue(estimate <= i + 1 + bound);
+        }
+        assertEquals(0L, new CountMinSketchValue(100, 4).estimate(bytes("missing")));
+    }
+
+    @Test
+    void countMinSketchShouldOnlyMergeSameDimensions() {
+        CountMinSketchValue first = new CountMinSketchValue(100, 4);
+        CountMinSketchValue second = new CountMinSketchValue(100, 4);
+        first.increment(bytes("a"), 3);
+        second.increment(bytes("a"), 4);
+
+        first.merge(second);
+        assertEquals(7L, first.estimate(bytes("a")));
+        assertEquals(7L, first.total());
+
+        assertThrows(WrongTypeException.class, () -> first.checkMergeable(new CountMinSketchValue(200, 4)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.bcorp.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedSetValueTest {
+
+    private static List<String> members(List<ScoredMember> range) {
+        return range.stream().map(ScoredMember::member).toList();
+    }
+
+    @Test
+    void shouldOrderByScoreThenMember() {
+        SortedSetValue sortedSet = new SortedSetValue();
+        assertTrue(sortedSet.add("carol", 20));
+        assertTrue(sortedSet.add("bob", 10));
+        assertTrue(sortedSet.add("alice", 10));
+
+        assertEquals(List.of("alice", "bob", "carol"), members(sortedSet.rangeByRank(0, -1)));
+        assertEquals(0L, sortedSet.rank("alice"));
+        assertEquals(2L, sortedSet.rank("carol"));
+        assertNull(sortedSet.rank("dave"));
+    }
+
+    @Test
+    void shouldMoveMemberWhenScoreChanges() {
+        SortedSetValue sortedSet = new SortedSetValue();
+        sortedSet.add("alice", 10);
+        sortedSet.add("bob", 20);
+
+        assertFalse(sortedSet.add("alice", 30));
+
+        assertEquals(2, sortedSet.size());
+        assertEquals(1L, sortedSet.rank("alice"));
+        assertEquals(30.0, sortedSet.score("alice"));
+    }
+
+    @Test
+    void shouldRangeByScoreWithOffsetAndLimit() {
+        SortedSetValue sortedSet = new SortedSetValue();
+        for (int i = 0; i < 10; i++) {
+            sortedSet.add("m" + i, i);
+        }
+
+        assertEquals(List.of("m3", "m4", "m5", "m6"), members(sortedSet.rangeByScore(3, 6, 0, -1)));
+        assertEquals(List.of("m4", "m5"), members(sortedSet.rangeByScore(3, 6, 1, 2)));
+        assertEquals(List.of(), members(sortedSet.rangeByScore(6, 3, 0, -1)));
+        assertEquals(List.of("m8", "m9"), members(sortedSet.rangeByRank(-2, -1)));
+    }
+
+    @Test
+    void shouldKeepRanksConsistentWithSortedOrderUnderRandomUpdates() {
+        SortedSetValue sortedSet = new SortedSetValue();
+        Map<String, Double> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            String member = "m" + random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(member) != null, sortedSet.remove(member));
+            } else {
+                double score = random.nextInt(100);
+                assertEquals(!expected.containsKey(member), sortedSet.add(member, score));
+                expected.put(member, score);
+            }
+        }
+
+        List<String> sorted = expected.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+
+        assertEquals(sorted, members(sortedSet.rangeByRank(0, -1)));
+        for (int rank = 0; rank < sorted.size(); rank++) {
+            assertEquals(rank, sortedSet.rank(sorted.get(rank)));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.bcorp.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesValueTest {
+
+    @Test
+    void shouldDecodeExactlyWhatWasAdded() {
+        Random random = new Random(7);
+        TimeSeriesValue series = new TimeSeriesValue();
+        List<TimeSeriesSample> expected = new ArrayList<>();
+
+        long timestampMs = -1_000_000L;
+        double value = 0.5;
+        for (int i = 0; i < 5_000; i++) {
+            // regular, jittered and huge gaps, and values which repeat, jump or aren't numbers
+            timestampMs += switch (random.nextInt(4)) {
+                case 0 -> 1000;
+                case 1 -> 1000 + random.nextInt(5);
+                case 2 -> 1 + (random.nextLong() >>> 30);
+                default -> 1;
+            };
+            value = switch (random.nextInt(4)) {
+                case 0 -> value;
+                case 1 -> random.nextDouble() * 1e6;
+                case 2 -> Double.NaN;
+                default -> -value;
+            };
+            assertTrue(series.add(timestampMs, value));
+            expected.add(new TimeSeriesSample(timestampMs, value));
+        }
+
+        assertEquals(expected, series.range(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE));
+        assertEquals(expected.subList(1000, 3001),
+                series.range(expected.get(1000).timestampMs(), expected.get(3000).timestampMs(), Integer.MAX_VALUE));
+        assertEquals(expected.subList(1000, 1010),
+                series.range(expected.get(1000).timestampMs(), Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void shouldRejectSamplesWhichAreNotNewer() {
+        TimeSeriesValue series = new TimeSeriesValue();
+        assertTrue(series.add(1000, 1));
+        assertFalse(series.add(1000, 2));
+        assertFalse(series.add(999, 2));
+        assertEquals(List.of(new TimeSeriesSample(1000, 1)), series.range(0, Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void shouldAggregatePerBucket() {
+        TimeSeriesValue series = new TimeSeriesValue();
+        for (int i = 0; i < 30; i++) {
+            series.add(i * 1000L, i % 10);
+        }
+
+        List<TimeSeriesBucket> buckets = series.aggregate(5_000, 24_000, 10_000, 10);
+        assertEquals(List.of(
+                new TimeSeriesBucket(0, 5, 5, 9, 7),
+                new TimeSeriesBucket(10_000, 10, 0, 9, 4.5),
+                new TimeSeriesBucket(20_000, 5, 0, 4, 2)), buckets);
+
+        assertEquals(2, series.aggregate(0, Long.MAX_VALUE, 10_000, 2).size());
+    }
+
+    @Test
+    void shouldExpireSamplesPastTheRetention() {
+        TimeSeriesValue series = new TimeSeriesValue();
+        series.setRetentionMs(60_000);
+        for (int i = 0; i < 10_000; i++) {
+            series.add(i * 1000L, i);
+        }
+
+        List<TimeSeriesSample> samples = series.range(0, Long.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(61, samples.size());
+        assertEquals(9_939_000L, samples.get(0).timestampMs());
+        // only the chunks holding unexpired samples are kept
+        assertTrue(series.size() <= 61 + 2L * TimeSeriesChunk.MAX_SAMPLES);
+    }
+
+    @Test
+    void shouldTakeAFewBytesPerRegularSample() {
+        Random random = new Random(1);
+        TimeSeriesValue series = new TimeSeriesValue();
+        double cpu = 40;
+        for (int i = 0; i < 100_000; i++) {
+            if (random.nextInt(4) == 0) {
+                cpu = Math.round((cpu + random.nextGaussian()) * 10) / 10.0;
+            }
+            series.add(1_700_000_000_000L + i * 10_000L, cpu);
+        }
+
+        assertTrue(series.encodedBytes() < 3L * series.size(), "bytes: " + series.encodedBytes());
+    }
+}
@@ -0,0 +1,120 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.pojos.BulkWrite;
+import com.bcorp.pojos.BulkWriteStats;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkWriterTest {
+
+    private final KeyValueStore store = new KeyValueStore(new SystemClock());
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private static BulkWrite write(String key, String value, Long expectedVersion) {
+        return new BulkWrite(new DataKey(key), RequestDataValue.fromString(value), expectedVersion);
+    }
+
+    @Test
+    void shouldWriteEveryRecordInBatchesPerPartition() {
+        BulkWriter writer = store.newBulkWriter();
+        for (int i = 0; i < 10_000; i++) {
+            writer.add(write("key:" + i, "{\"i\":" + i + "}", null));
+            waitFuture(writer.ready());
+        }
+
+        assertEquals(new BulkWriteStats(10_000, 0, 0), waitFuture(writer.finish()));
+        assertEquals(10_000L, waitFuture(store.totalKeys()));
+        CachedDataValue value = waitFuture(store.get(new DataKey("key:1234")));
+        assertEquals("{\"i\":1234}", new String(value.data(), StandardCharsets.UTF_8));
+        assertEquals(0L, value.version());
+    }
+
+    @Test
+    void shouldCheckVersionsAgainstWhatTheKeyHoldsAtThatPoint() {
+        waitFuture(store.set(new DataKey("existing"), RequestDataValue.fromString("1"), null));
+
+        BulkWriter writer = store.newBulkWriter();
+        writer.add(write("existing", "1", null));
+        writer.add(write("existing", "2", 0L));
+        writer.add(write("existing", "3", 0L));
+        writer.add(write("existing", "4", -1L));
+        writer.add(write("absent", "1", -1L));
+        writer.add(write("absent", "2", 0L));
+        writer.add(write("never-written", "1", 3L));
+
+        assertEquals(new BulkWriteStats(3, 1, 3), waitFuture(writer.finish()));
+        CachedDataValue existing = waitFuture(store.get(new DataKey("existing")));
+        assertEquals("2", new String(existing.data(), StandardCharsets.UTF_8));
+        assertEquals(1L, existing.version());
+        assertEquals(1L, waitFuture(store.get(new DataKey("absent"))).version());
+        assertFalse(waitFuture(store.containsKey(new DataKey("never-written"))));
+    }
+
+    @Test
+    void shouldApplyTheRecordsAfterTheWritesIssuedBeforeTheImport() {
+        DataKey key = new DataKey("key");
+        store.set(key, RequestDataValue.fromString("\"before\""), null);
+
+        BulkWriter writer = store.newBulkWriter();
+        writer.add(write("key", "\"imported\"", null));
+        waitFuture(writer.finish());
+
+        CachedDataValue value = waitFuture(store.get(key));
+        assertEquals("\"imported\"", new String(value.data(), StandardCharsets.UTF_8));
+        assertEquals(1L, value.version());
+    }
+
+    @Test
+    void shouldOnlyWaitForThePartitionWhichHasTooManyBatchesInFlight() {
+        KvStoreClock clock = new SystemClock();
+        KeyValuePartition slow = new KeyValuePartition(0, clock, PartitionConfig.DEFAULTS);
+        KeyValuePartition fast = new KeyValuePartition(1, clock, PartitionConfig.DEFAULTS);
+        BulkWriter writer = new BulkWriter(new KeyValuePartition[]{slow, fast},
+                key -> key.key().startsWith("slow") ? 0 : 1, 1, 1);
+        CountDownLatch slowLoop = new CountDownLatch(1);
+        slow.compute(new DataKey("blocking-key"), existing -> {
+            try {
+                slowLoop.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+
+        try {
+            writer.add(write("slow:0", "0", null));
+            // the batch stuck on the slow partition doesn't hold back the other one
+            for (int i = 0; i < 100; i++) {
+                writer.add(write("fast:" + i, String.valueOf(i), null));
+                waitFuture(writer.ready());
+            }
+
+            writer.add(write("slow:1", "1", null));
+            CompletableFuture<Void> ready = writer.ready();
+            assertFalse(ready.isDone());
+
+            slowLoop.countDown();
+            waitFuture(ready);
+            assertEquals(new BulkWriteStats(102, 0, 0), waitFuture(writer.finish()));
+        } finally {
+            slowLoop.countDown();
+            slow.shutdown();
+            fast.shutdown();
+        }
+    }
+}
@@ -24,7 +24,39 @@ class KeyValuePartitionConcurrencyTest {
 
     @BeforeEach
     void setUp() {
-        partition = new KeyValuePartition(0, clock);
+        partition = new KeyValuePartition(0, clock, PartitionConfig.DEFAULTS);
+    }
+
+    @Test
+    @Timeout(30)
+    void shouldNotLoseUpdatesWhenComputingConcurrentlyOnSameKey() {
+        int numThreads = 8;
+        int operationsPerThread = 100;
+        DataKey counterKey = DataKey.fromString("counter");
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        try {
+            CompletableFuture.allOf(runInFutures(numThreads,
+                    operationsPerThread,
+                    (threadId, numOperations) -> {
+                        for (int op = 0; op < numOperations; op++) {
+                            // read-modify-write in a single hop, no conflicts and no retries
+                            waitFuture(partition.compute(counterKey, existing -> {
+                                long count = existing == null
+                                        ? 0
+                                        : Long.parseLong(new String(existing.data(), StandardCharsets.UTF_8));
+                                return RequestDataValue.fromString(String.valueOf(count + 1));
+                            }));
+                        }
+                    },
+                    executor)).join();
+
+            CachedDataValue counter = waitFuture(partition.get(counterKey));
+            assertEquals(String.valueOf(numThreads * operationsPerThread), new String(counter.data(), StandardCharsets.UTF_8));
+            assertEquals(numThreads * operationsPerThread - 1, counter.version());
+        } finally {
+            executor.shutdown();
+        }
     }
 
     @Test
@@ -1,5 +1,6 @@
 package com.bcorp.kvstore;
 
+import com.bcorp.datatypes.HashValue;
 import com.bcorp.exceptions.ConcurrentUpdateException;
 import com.bcorp.pojos.CachedDataValue;
 import com.bcorp.pojos.DataKey;
@@ -8,7 +9,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -27,14 +32,14 @@ class KeyValuePartitionTest {
     @BeforeEach
     void setUp() {
 
-        partition = new KeyValuePartition(0, clock);
+        partition = new KeyValuePartition(0, clock, PartitionConfig.DEFAULTS);
         testKey = DataKey.fromString("test-key");
         testValue = new RequestDataValue("test-data".getBytes(StandardCharsets.UTF_8), String.class);
     }
 
     @Test
     void shouldInitializeWithCorrectPartitionId() {
-        KeyValuePartition testPartition = new KeyValuePartition(5, clock);
+        KeyValuePartition testPartition = new KeyValuePartition(5, clock, PartitionConfig.DEFAULTS);
         assertNotNull(testPartition);
         assertEquals(0, testPartition.totalKeys().join()); // Initially empty
     }
@@ -126,6 +131,78 @@ class KeyValuePartitionTest {
         assertArrayEquals(testValue.data(), result.data());
     }
 
+    @Test
+    void shouldUpdateWhenDataDiffersWithSameLength() throws ExecutionException, InterruptedException, TimeoutException {
+        // Given - Set initial value
+        partition.set(testKey, RequestDataValue.fromString("data-a"), null).get();
+
+        // When - Set a different value of the same size
+        RequestDataValue newValue = RequestDataValue.fromString("data-b");
+        CachedDataValue result = partition.set(testKey, newValue, null).get(1, TimeUnit.SECONDS);
+
+        // Then - Hashes differ so the value should be updated
+        assertEquals(1, result.version());
+        assertArrayEquals(newValue.data(), result.data());
+        assertEquals(newValue.contentHash(), result.contentHash());
+    }
+
+    @Test
+    void shouldInsertComputedValueWhenKeyIsMissing() throws ExecutionException, InterruptedException, TimeoutException {
+        // When - compute receives null for a missing key
+        CachedDataValue result = partition.compute(testKey, existing -> {
+            assertNull(existing);
+            return testValue;
+        }).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(0L, result.version());
+        assertArrayEquals(testValue.data(), result.data());
+    }
+
+    @Test
+    void shouldUpdateWithComputedValueFromExistingValue() throws ExecutionException, InterruptedException, TimeoutException {
+        // Given
+        waitFuture(partition.set(testKey, testValue, null));
+
+        // When - derive the new value from the existing one
+        CachedDataValue result = partition.compute(testKey, existing ->
+                RequestDataValue.fromString(new String(existing.data(), StandardCharsets.UTF_8) + "-updated")
+        ).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(1L, result.version());
+        assertEquals("test-data-updated", new String(result.data(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldLeaveValueUntouchedWhenComputeReturnsNull() throws ExecutionException, InterruptedException, TimeoutException {
+        // Given
+        waitFuture(partition.set(testKey, testValue, null));
+
+        // When
+        CachedDataValue result = partition.compute(testKey, existing -> null).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(0L, result.version());
+        assertArrayEquals(testValue.data(), result.data());
+    }
+
+    @Test
+    void shouldFailComputeWithExceptionThrownByFunction() {
+        // Given
+        waitFuture(partition.set(testKey, testValue, null));
+
+        // When - the function rejects the existing value
+        CompletableFuture<CachedDataValue> future = partition.compute(testKey, existing -> {
+            throw new ConcurrentUpdateException();
+        });
+
+        // Then - the exception is propagated and the value is untouched
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(ConcurrentUpdateException.class, exception.getCause());
+        assertEquals(0L, waitFuture(partition.get(testKey)).version());
+    }
+
     @Test
     void shouldRemoveExistingKey() throws ExecutionException, InterruptedException, TimeoutException {
         // Given - Set value
@@ -294,7 +371,7 @@ class KeyValuePartitionTest {
     @Test
     void shouldHandleNegativePartitionId() {
         // When - Create partition with negative ID
-        KeyValuePartition negativePartition = new KeyValuePartition(-1, clock);
+        KeyValuePartition negativePartition = new KeyValuePartition(-1, clock, PartitionConfig.DEFAULTS);
 
         // Then - Should work normally
         assertNotNull(negativePartition);
@@ -304,7 +381,7 @@ class KeyValuePartitionTest {
     @Test
     void shouldHandleVeryLargePartitionId() {
         // When - Create partition with large ID
-        KeyValuePartition largePartition = new KeyValuePartition(Integer.MAX_VALUE, clock);
+        KeyValuePartition largePartition = new KeyValuePartition(Integer.MAX_VALUE, clock, PartitionConfig.DEFAULTS);
 
         // Then - Should work normally
         assertNotNull(largePartition);
@@ -364,4 +441,134 @@ class KeyValuePartitionTest {
         assertArrayEquals(largeData, result.data());
         assertEquals(1, partition.totalKeys().join());
     }
+
+    private CountDownLatch blockLoop() {
+        CountDownLatch latch = new CountDownLatch(1);
+        partition.compute(DataKey.fromString("blocking-key"), existing -> {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        return latch;
+    }
+
+    private static RequestDataValue appendTo(CachedDataValue existing, String suffix) {
+        String current = existing == null ? "" : new String(existing.data(), StandardCharsets.UTF_8);
+        return RequestDataValue.fromString(current + suffix);
+    }
+
+    @Test
+    void shouldCompleteEveryQueuedWriteOfSameKeyWithTheValueItProduced() {
+        waitFuture(partition.set(testKey, RequestDataValue.fromString("v"), null));
+
+        // writes queue up while the loop is busy and are drained as one batch
+        CountDownLatch loopBlocked = blockLoop();
+        List<CompletableFuture<CachedDataValue>> writes = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            String suffix = "-" + i;
+            writes.add(partition.compute(testKey, existing -> appendTo(existing, suffix)));
+        }
+        loopBlocked.countDown();
+
+        String expected = "v";
+        for (int i = 1; i <= 5; i++) {
+            expected += "-" + i;
+            CachedDataValue result = waitFuture(writes.get(i - 1));
+            assertEquals(expected, new String(result.data(), StandardCharsets.UTF_8));
+            assertEquals(i, result.version());
+        }
+        CachedDataValue stored = waitFuture(partition.get(testKey));
+        assertEquals("v-1-2-3-4-5", new String(stored.data(), StandardCharsets.UTF_8));
+        assertEquals(5L, stored.version());
+    }
+
+    @Test
+    void shouldAdvanceTheVersionBetweenConditionalWritesOfSameBatch() {
+        for (int i = 0; i <= 5; i++) {
+            waitFuture(partition.set(testKey, RequestDataValue.fromString("v" + i), null));
+        }
+
+        CountDownLatch loopBlocked = blockLoop();
+        CompletableFuture<CachedDataValue> a = partition.set(testKey, RequestDataValue.fromString("a"), 5L);
+        CompletableFuture<CachedDataValue> b = partition.set(testKey, RequestDataValue.fromString("b"), 6L);
+        CompletableFuture<CachedDataValue> c = partition.set(testKey, RequestDataValue.fromString("c"), 6L);
+        loopBlocked.countDown();
+
+        assertEquals("a", new String(waitFuture(a).data(), StandardCharsets.UTF_8));
+        assertEquals(6L, waitFuture(a).version());
+        assertEquals("b", new String(waitFuture(b).data(), StandardCharsets.UTF_8));
+        assertEquals(7L, waitFuture(b).version());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> c.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ConcurrentUpdateException.class, exception.getCause());
+        assertEquals(7L, waitFuture(partition.get(testKey)).version());
+    }
+
+    @Test
+    void shouldCheckVersionsAgainstEarlierWritesOfSameBatch() {
+        waitFuture(partition.set(testKey, RequestDataValue.fromString("v"), null));
+
+        CountDownLatch loopBlocked = blockLoop();
+        CompletableFuture<CachedDataValue> first = partition.set(testKey, RequestDataValue.fromString("first"), 0L);
+        CompletableFuture<CachedDataValue> second = partition.set(testKey, RequestDataValue.fromString("second"), 0L);
+        loopBlocked.countDown();
+
+        assertEquals("first", new String(waitFuture(first).data(), StandardCharsets.UTF_8));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ConcurrentUpdateException.class, exception.getCause());
+    }
+
+    @Test
+    void shouldKeepOrderOfWritesAroundRemoveInSameBatch() {
+        CountDownLatch loopBlocked = blockLoop();
+        partition.set(testKey, RequestDataValue.fromString("before"), null);
+        CompletableFuture<CachedDataValue> removed = partition.remove(testKey);
+        CompletableFuture<CachedDataValue> after = partition.set(testKey, RequestDataValue.fromString("after"), null);
+        loopBlocked.countDown();
+
+        assertEquals("before", new String(waitFuture(removed).data(), StandardCharsets.UTF_8));
+        assertEquals(0L, waitFuture(after).version());
+        assertEquals("after", new String(waitFuture(partition.get(testKey)).data(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRunCounterShardOperationsInOrderWithQueuedOperations() {
+        List<String> completions = Collections.synchronizedList(new ArrayList<>());
+
+        // blocks in the middle of a drain, unlike a write which is held back to the end of it
+        CountDownLatch loopBlocked = new CountDownLatch(1);
+        partition.readNative(DataKey.fromString("blocking-key"), HashValue.class, missing -> {
+            try {
+                loopBlocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        CompletableFuture<Void> incremented = partition.incrementCounterShard(testKey, 3)
+                .thenRun(() -> completions.add("increment"));
+        CompletableFuture<Void> read = partition.get(testKey)
+                .thenRun(() -> completions.add("get"));
+        CompletableFuture<Void> removed = partition.removeCounterShard(testKey)
+                .thenRun(() -> completions.add("remove"));
+        loopBlocked.countDown();
+
+        waitFuture(CompletableFuture.allOf(incremented, read, removed));
+        assertEquals(List.of("increment", "get", "remove"), completions);
+    }
+
+    @Test
+    void shouldFailTheFutureOfAnOperationWhichThrowsOnTheLoop() throws Exception {
+        partition.set(testKey, testValue, null);
+
+        // a chunk starting past the keys can't size its list
+        CompletableFuture<ExportChunk> chunk = partition.exportChunk(new DataKey[0], 1, 10, 1024, Runnable::run);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> chunk.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        // the write drained with it was still applied
+        assertEquals(0L, partition.get(testKey).get(1, TimeUnit.SECONDS).version());
+    }
 }
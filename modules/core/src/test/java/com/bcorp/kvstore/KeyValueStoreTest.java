@@ -1,14 +1,22 @@
 package com.bcorp.kvstore;
 
+import com.bcorp.datatypes.ListValue;
 import com.bcorp.exceptions.ConcurrentUpdateException;
+import com.bcorp.exceptions.ValueTooLargeException;
 import com.bcorp.pojos.CachedDataValue;
 import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.NativeResult;
 import com.bcorp.pojos.RequestDataValue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static com.bcorp.testutils.TestUtils.*;
@@ -342,4 +350,125 @@ class KeyValueStoreTest {
             assertEquals(3L, finalValue.version());
         }
     }
+
+    @Test
+    void shouldSumShardedCounterIncrementsFromManyThreads() throws Exception {
+        DataKey key = DataKey.fromString("sharded-counter");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            CompletableFuture<?>[] increments = new CompletableFuture[8];
+            for (int t = 0; t < increments.length; t++) {
+                increments[t] = CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        keyValueStore.incrementCounter(key, 1).join();
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(increments).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(8000L, waitFuture(keyValueStore.getCounter(key)));
+        // counters don't show up as values
+        assertNull(waitFuture(keyValueStore.get(key)));
+    }
+
+    @Test
+    void shouldServeApproximateCounterReadsFromLastSum() {
+        long[] now = {1000L};
+        KeyValueStore store = new KeyValueStore(() -> now[0]);
+        DataKey key = DataKey.fromString("approximate-counter");
+
+        waitFuture(store.incrementCounter(key, 5));
+        assertEquals(5L, waitFuture(store.getCounter(key, 100)));
+
+        waitFuture(store.incrementCounter(key, 5));
+        now[0] += 50;
+        assertEquals(5L, waitFuture(store.getCounter(key, 100)));
+
+        now[0] += 100;
+        assertEquals(10L, waitFuture(store.getCounter(key, 100)));
+
+        assertEquals(10L, waitFuture(store.removeCounter(key)));
+        assertEquals(0L, waitFuture(store.getCounter(key, 100)));
+    }
+
+    @Test
+    void shouldRejectValuesLargerThanTheLimit() {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.setMaxValueBytes(16);
+        KeyValueStore store = new KeyValueStore(clock, config);
+        DataKey key = DataKey.fromString("limited");
+
+        CompletionException error = assertThrows(CompletionException.class, () ->
+                store.set(key, RequestDataValue.fromString("\"longer than sixteen bytes\""), null).join());
+        assertInstanceOf(ValueTooLargeException.class, error.getCause());
+        assertFalse(waitFuture(store.containsKey(key)));
+
+        waitFuture(store.set(key, RequestDataValue.fromString("\"short\""), null));
+        error = assertThrows(CompletionException.class, () ->
+                store.compute(key, existing -> RequestDataValue.fromString("[\"short\",\"and longer\"]")).join());
+        assertInstanceOf(ValueTooLargeException.class, error.getCause());
+        assertEquals("\"short\"", new String(waitFuture(store.get(key)).data(), StandardCharsets.UTF_8));
+        store.close();
+    }
+
+    @Test
+    void shouldRollBackNativeValuesWhichGrowPastTheLimit() {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.setMaxValueBytes(64);
+        KeyValueStore store = new KeyValueStore(clock, config);
+        DataKey key = DataKey.fromString("list");
+        byte[] item = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+        CompletionException error = null;
+        long lastVersion = -1;
+        for (int i = 0; i < 10 && error == null; i++) {
+            try {
+                lastVersion = store.updateNative(key, ListValue.class, ListValue::new, list -> {
+                    list.pushRight(item);
+                    return list.size();
+                }).join().version();
+            } catch (CompletionException e) {
+                error = e;
+            }
+        }
+
+        assertNotNull(error);
+        assertInstanceOf(ValueTooLargeException.class, error.getCause());
+        NativeResult<Integer> size = waitFuture(store.readNative(key, ListValue.class, ListValue::size));
+        assertEquals(lastVersion + 1, (long) size.result());
+        assertEquals(lastVersion, size.version());
+
+        // a new value which is too large right away isn't created
+        error = assertThrows(CompletionException.class, () -> store.updateNative(DataKey.fromString("large"),
+                ListValue.class, ListValue::new, list -> {
+                    list.pushRight(new byte[100]);
+                    return list.size();
+                }).join());
+        assertInstanceOf(ValueTooLargeException.class, error.getCause());
+        assertFalse(waitFuture(store.containsKey(DataKey.fromString("large"))));
+        store.close();
+    }
+
+    @Test
+    void shouldBumpTheVersionOfALargeValueRewrittenUnchanged() {
+        DataKey small = DataKey.fromString("small");
+        DataKey large = DataKey.fromString("large");
+        byte[] largeData = new byte[KeyValuePartition.MAX_COMPARED_BYTES + 2];
+        Arrays.fill(largeData, (byte) 'a');
+        largeData[0] = '"';
+        largeData[largeData.length - 1] = '"';
+
+        for (int i = 0; i < 2; i++) {
+            waitFuture(keyValueStore.set(small, RequestDataValue.fromString("\"same\""), null));
+            waitFuture(keyValueStore.set(large, new RequestDataValue(largeData.clone(), String.class), null));
+        }
+
+        // small values equal to the stored one are recognized, large ones aren't compared
+        assertEquals(0L, waitFuture(keyValueStore.get(small)).version());
+        assertEquals(1L, waitFuture(keyValueStore.get(large)).version());
+    }
 }
@@ -0,0 +1,91 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.ExportEntry;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreExportTest {
+
+    private final KeyValueStore store = new KeyValueStore(new SystemClock());
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private Map<String, ExportEntry> exportAll(StoreExport export, int[] chunks) {
+        Map<String, ExportEntry> exported = new HashMap<>();
+        List<ExportEntry> chunk;
+        while (!(chunk = waitFuture(export.next())).isEmpty()) {
+            assertTrue(chunk.size() <= 1024);
+            chunks[0]++;
+            for (ExportEntry entry : chunk) {
+                assertFalse(exported.containsKey(entry.key().key()), "exported twice: " + entry.key());
+                exported.put(entry.key().key(), entry);
+            }
+        }
+        return exported;
+    }
+
+    @Test
+    void shouldExportEveryByteValueInBoundedChunks() {
+        for (int i = 0; i < 20_000; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString("{\"v\":" + i + "}"), null));
+        }
+        waitFuture(store.set(new DataKey("key:7"), RequestDataValue.fromString("{\"v\":\"updated\"}"), null));
+        waitFuture(store.updateNative(new DataKey("hash"), HashValue.class, HashValue::new,
+                hash -> hash.put("field", "1".getBytes(StandardCharsets.UTF_8))));
+
+        int[] chunks = new int[1];
+        Map<String, ExportEntry> exported = exportAll(store.newExport(), chunks);
+
+        assertEquals(20_000, exported.size());
+        assertFalse(exported.containsKey("hash"));
+        assertEquals("{\"v\":123}", new String(exported.get("key:123").data(), StandardCharsets.UTF_8));
+        assertEquals(0L, exported.get("key:123").version());
+        assertEquals("{\"v\":\"updated\"}", new String(exported.get("key:7").data(), StandardCharsets.UTF_8));
+        assertEquals(1L, exported.get("key:7").version());
+        assertTrue(chunks[0] >= 32, "every partition is read in its own chunks");
+    }
+
+    @Test
+    void shouldBoundAChunkByTheSizeOfItsValues() {
+        String large = "\"" + "x".repeat(300_000) + "\"";
+        for (int i = 0; i < 64; i++) {
+            waitFuture(store.set(new DataKey("large:" + i), RequestDataValue.fromString(large), null));
+        }
+
+        int[] chunks = new int[1];
+        assertEquals(64, exportAll(store.newExport(), chunks).size());
+        // at most 4 of them fit in a chunk of 1MB
+        assertTrue(chunks[0] >= 16, "chunks: " + chunks[0]);
+    }
+
+    @Test
+    void shouldSkipKeysRemovedWhileTheExportRuns() {
+        for (int i = 0; i < 100; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString("1"), null));
+        }
+
+        StoreExport export = store.newExport();
+        List<ExportEntry> first = waitFuture(export.next());
+        for (int i = 0; i < 100; i++) {
+            waitFuture(store.remove(new DataKey("key:" + i)));
+        }
+
+        int[] chunks = new int[1];
+        assertTrue(exportAll(export, chunks).isEmpty());
+        assertFalse(first.isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package com.bcorp.kvstore;
+
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.DeduplicationStats;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueDeduplicatorTest {
+
+    private final ValueDeduplicator deduplicator = new ValueDeduplicator();
+
+    private RequestDataValue value(String data) {
+        return RequestDataValue.fromString(data);
+    }
+
+    @Test
+    void shouldShareIdenticalPayloads() {
+        RequestDataValue first = value("{\"config\":\"default\"}");
+        RequestDataValue second = value("{\"config\":\"default\"}");
+
+        byte[] firstShared = deduplicator.intern(first.data(), first.contentHash());
+        byte[] secondShared = deduplicator.intern(second.data(), second.contentHash());
+
+        assertSame(first.data(), firstShared);
+        assertSame(firstShared, secondShared);
+        assertEquals(new DeduplicationStats(1, 2, first.data().length, first.data().length), deduplicator.stats());
+    }
+
+    @Test
+    void shouldNotShareDifferentPayloadsWithSameHash() {
+        byte[] first = "value-1".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "value-2".getBytes(StandardCharsets.UTF_8);
+
+        // force a collision by using the same hash for both
+        assertSame(first, deduplicator.intern(first, 42L));
+        assertSame(second, deduplicator.intern(second, 42L));
+        assertEquals(2, deduplicator.stats().uniqueValues());
+        assertEquals(0, deduplicator.stats().savedBytes());
+    }
+
+    @Test
+    void shouldDropPayloadWhenLastReferenceIsReleased() {
+        RequestDataValue data = value("{\"a\":1}");
+        byte[] shared = deduplicator.intern(data.data(), data.contentHash());
+        deduplicator.intern(value("{\"a\":1}").data(), data.contentHash());
+
+        deduplicator.release(shared, data.contentHash());
+        assertEquals(new DeduplicationStats(1, 1, data.data().length, 0), deduplicator.stats());
+
+        deduplicator.release(shared, data.contentHash());
+        assertEquals(new DeduplicationStats(0, 0, 0, 0), deduplicator.stats());
+    }
+
+    @Test
+    void shouldMaintainReferencesThroughStoreOperations() {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.setDeduplicateValues(true);
+        KeyValueStore store = new KeyValueStore(new SystemClock(), config);
+        String json = "{\"feature\":\"enabled\"}";
+        int size = json.getBytes(StandardCharsets.UTF_8).length;
+
+        CachedDataValue first = waitFuture(store.set(DataKey.fromString("key-1"), value(json), null));
+        CachedDataValue second = waitFuture(store.set(DataKey.fromString("key-2"), value(json), null));
+        assertSame(first.data(), second.data());
+        assertEquals(new DeduplicationStats(1, 2, size, size), store.deduplicationStats());
+
+        // overwriting one key releases its reference to the shared payload
+        waitFuture(store.set(DataKey.fromString("key-1"), value("{\"feature\":\"disabled\"}"), null));
+        assertEquals(2, store.deduplicationStats().uniqueValues());
+        assertEquals(0, store.deduplicationStats().savedBytes());
+
+        waitFuture(store.remove(DataKey.fromString("key-2")));
+        assertEquals(1, store.deduplicationStats().uniqueValues());
+        assertEquals(1, store.deduplicationStats().references());
+    }
+
+    @Test
+    void shouldNotReportStatsWhenDisabled() {
+        assertNull(new KeyValueStore(new SystemClock()).deduplicationStats());
+    }
+
+    @Test
+    void shouldNotSharePayloadsLargerThanTheSharingLimit() {
+        byte[] first = new byte[ValueDeduplicator.MAX_SHARED_BYTES + 1];
+        byte[] second = first.clone();
+
+        assertSame(first, deduplicator.intern(first, 7L));
+        assertSame(second, deduplicator.intern(second, 7L));
+        assertEquals(new DeduplicationStats(0, 0, 0, 0), deduplicator.stats());
+
+        // releasing a payload which was never shared does nothing
+        deduplicator.release(first, 7L);
+        assertEquals(new DeduplicationStats(0, 0, 0, 0), deduplicator.stats());
+    }
+}
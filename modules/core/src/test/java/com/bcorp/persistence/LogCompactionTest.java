@@ -0,0 +1,224 @@
+package com.bcorp.persistence;
+
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.NativeResult;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogCompactionTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private KeyValueStore openStore() {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.getPersistence().setDataDirectory(dataDirectory.toString());
+        // a write completes once it's in the log, so the segments are settled when the test looks at them
+        config.getPersistence().setWalFsyncMode(WalFsyncMode.BATCH);
+        config.getPersistence().setWalSegmentBytes(1024);
+        config.getPersistence().setWalCompactionIntervalMs(0);
+        config.getPersistence().setWalCompactionMinSegments(2);
+        config.getPersistence().setSnapshotIntervalMs(0);
+        // counters in the log of their key
+        config.setCounterShards(1);
+        return new KeyValueStore(new SystemClock(), config);
+    }
+
+    private Path logOf(DataKey key) {
+        return WalFormat.partitionDirectory(dataDirectory, (key.hashCode() & 0x7fffffff) % 32);
+    }
+
+    private static List<WalRecord> read(Path partitionDirectory) throws IOException {
+        List<WalRecord> records = new ArrayList<>();
+        WalReader.read(partitionDirectory, 0, records::add);
+        return records;
+    }
+
+    private static String valueOf(CachedDataValue value) {
+        return new String(value.data(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldKeepOnlyTheLatestRecordOfEveryKey() throws IOException {
+        KeyValueStore store = openStore();
+        DataKey key = new DataKey("hot");
+        for (int i = 0; i < 300; i++) {
+            waitFuture(store.set(key, RequestDataValue.fromString("{\"value\":" + i + "}"), null));
+        }
+        Path log = logOf(key);
+        int segmentsBefore = WalReader.segments(log).size();
+
+        CompactionStats stats = waitFuture(store.compactLog());
+        store.close();
+
+        assertEquals(segmentsBefore - 1, stats.segments());
+        assertTrue(stats.bytesAfter() < stats.bytesBefore());
+        assertEquals(1, stats.recordsAfter());
+        // the compacted segment and the one which was being written
+        assertEquals(2, WalReader.segments(log).size());
+        List<WalRecord> compacted = new ArrayList<>();
+        WalReader.readSegment(WalReader.segments(log).get(0), 0, compacted::add);
+        assertEquals(1, compacted.size());
+        List<WalRecord> records = read(log);
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue(records.get(i - 1).sequence() < records.get(i).sequence());
+        }
+
+        KeyValueStore restarted = openStore();
+        CachedDataValue value = waitFuture(restarted.get(key));
+        assertEquals("{\"value\":299}", valueOf(value));
+        assertEquals(299L, value.version());
+        waitFuture(restarted.set(key, RequestDataValue.fromString("{\"value\":300}"), null));
+        restarted.close();
+        assertEquals(300L, read(log).get(read(log).size() - 1).sequence());
+    }
+
+    @Test
+    void shouldKeepTheLatestCounterShardApartFromTheValueOfTheKey() throws IOException {
+        KeyValueStore store = openStore();
+        DataKey key = new DataKey("hot");
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"value\":1}"), null));
+        for (int i = 0; i < 300; i++) {
+            waitFuture(store.incrementCounter(key, 1));
+        }
+
+        waitFuture(store.compactLog());
+        store.close();
+
+        List<WalRecord> compacted = new ArrayList<>();
+        WalReader.readSegment(WalReader.segments(logOf(key)).get(0), 0, compacted::add);
+        assertEquals(List.of(WalRecord.Type.PUT, WalRecord.Type.COUNTER),
+                compacted.stream().map(WalRecord::type).toList());
+        KeyValueStore restarted = openStore();
+        assertEquals(300L, waitFuture(restarted.getCounter(key)));
+        assertEquals("{\"value\":1}", valueOf(waitFuture(restarted.get(key))));
+        restarted.close();
+    }
+
+    @Test
+    void shouldKeepTheLatestImageOfANativeValueAndItsRemove() throws IOException {
+        KeyValueStore store = openStore();
+        DataKey hash = new DataKey("hash");
+        DataKey emptied = new DataKey(sameLogAs(hash));
+        waitFuture(store.updateNative(emptied, HashValue.class, HashValue::new,
+                value -> value.put("field", "1".getBytes(StandardCharsets.UTF_8))));
+        waitFuture(store.snapshot());
+        waitFuture(store.updateNative(emptied, HashValue.class, HashValue::new, value -> value.remove("field")));
+        for (int i = 0; i < 100; i++) {
+            byte[] count = String.valueOf(i).getBytes(StandardCharsets.UTF_8);
+            waitFuture(store.updateNative(hash, HashValue.class, HashValue::new, value -> value.put("count", count)));
+        }
+
+        waitFuture(store.compactLog());
+        store.close();
+
+        List<WalRecord> compacted = new ArrayList<>();
+        WalReader.readSegment(WalReader.segments(logOf(hash)).get(0), 0, compacted::add);
+        assertEquals(List.of(WalRecord.Type.REMOVE), compacted.stream()
+                .filter(record -> record.key().equals(emptied.key())).map(WalRecord::type).toList());
+        assertEquals(1, compacted.stream().filter(record -> record.key().equals("hash")).count());
+        KeyValueStore restarted = openStore();
+        assertNull(waitFuture(restarted.get(emptied)));
+        NativeResult<String> count = waitFuture(restarted.readNative(hash, HashValue.class,
+                value -> new String(value.get("count"), StandardCharsets.UTF_8)));
+        assertEquals("99", count.result());
+        assertEquals(99L, count.version());
+        restarted.close();
+    }
+
+    @Test
+    void shouldDropRemovedKeysOnlyOnceASnapshotCoversTheRemove() throws IOException {
+        KeyValueStore store = openStore();
+        DataKey removed = new DataKey("removed");
+        DataKey filler = new DataKey(sameLogAs(removed));
+        waitFuture(store.set(removed, RequestDataValue.fromString("{\"v\":1}"), null));
+        // the removed key is in the snapshot, a replay on top of it needs the remove
+        waitFuture(store.snapshot());
+        waitFuture(store.remove(removed));
+        for (int i = 0; i < 100; i++) {
+            waitFuture(store.set(filler, RequestDataValue.fromString("{\"value\":" + i + "}"), null));
+        }
+
+        waitFuture(store.compactLog());
+        assertTrue(read(logOf(removed)).stream()
+                .anyMatch(record -> record.key().equals("removed") && record.type() == WalRecord.Type.REMOVE));
+        store.close();
+
+        KeyValueStore restarted = openStore();
+        assertNull(waitFuture(restarted.get(removed)));
+        // once a snapshot covers the remove, nothing of the key is left
+        waitFuture(restarted.snapshot());
+        for (int i = 100; i < 200; i++) {
+            waitFuture(restarted.set(filler, RequestDataValue.fromString("{\"value\":" + i + "}"), null));
+        }
+        waitFuture(restarted.compactLog());
+        restarted.close();
+
+        assertTrue(read(logOf(removed)).stream().noneMatch(record -> record.key().equals("removed")));
+        KeyValueStore reopened = openStore();
+        assertNull(waitFuture(reopened.get(removed)));
+        assertEquals("{\"value\":199}", valueOf(waitFuture(reopened.get(filler))));
+        reopened.close();
+    }
+
+    @Test
+    void shouldReplayCorrectlyWhenACompactionStoppedBeforeDeletingTheOldSegments() throws IOException {
+        KeyValueStore store = openStore();
+        DataKey key = new DataKey("hot");
+        for (int i = 0; i < 300; i++) {
+            waitFuture(store.set(key, RequestDataValue.fromString("{\"value\":" + i + "}"), null));
+        }
+        Path log = logOf(key);
+        List<Path> segments = WalReader.segments(log);
+        List<byte[]> oldSegments = new ArrayList<>();
+        for (Path segment : segments) {
+            oldSegments.add(Files.readAllBytes(segment));
+        }
+
+        waitFuture(store.compactLog());
+        store.close();
+        // puts back every segment the compaction deleted, as if it crashed right after replacing the first one
+        for (int i = 1; i < segments.size() - 1; i++) {
+            Files.write(segments.get(i), oldSegments.get(i));
+        }
+
+        List<WalRecord> records = read(log);
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue(records.get(i - 1).sequence() < records.get(i).sequence());
+        }
+        KeyValueStore restarted = openStore();
+        CachedDataValue value = waitFuture(restarted.get(key));
+        assertEquals("{\"value\":299}", valueOf(value));
+        assertEquals(299L, value.version());
+        restarted.close();
+    }
+
+    /**
+     * @return a key logged by the same partition as {@code key}
+     */
+    private static String sameLogAs(DataKey key) {
+        int partition = (key.hashCode() & 0x7fffffff) % 32;
+        for (int i = 0; ; i++) {
+            String candidate = "filler-" + i;
+            if ((new DataKey(candidate).hashCode() & 0x7fffffff) % 32 == partition) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.bcorp.persistence;
+
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.datatypes.ListValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.NativeResult;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecoveryTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private KeyValueStore openStore() {
+        return openStore(true);
+    }
+
+    private KeyValueStore openStore(boolean mapValues) {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.getPersistence().setDataDirectory(dataDirectory.toString());
+        config.getPersistence().setWalFsyncMode(WalFsyncMode.NONE);
+        config.getPersistence().setSnapshotIntervalMs(0);
+        config.getPersistence().setSnapshotMapValues(mapValues);
+        return new KeyValueStore(new SystemClock(), config);
+    }
+
+    private static String valueOf(CachedDataValue value) {
+        return new String(value.data(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldRestoreTheSnapshotAndReplayTheLogAfterIt() throws IOException {
+        KeyValueStore store = openStore();
+        for (int i = 0; i < 500; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString("{\"v\":" + i + "}"), null));
+        }
+        waitFuture(store.set(new DataKey("key:1"), RequestDataValue.fromString("{\"v\":\"snapshot\"}"), null));
+        waitFuture(store.updateNative(new DataKey("hash"), HashValue.class, HashValue::new,
+                hash -> hash.put("field", "1".getBytes(StandardCharsets.UTF_8))));
+        waitFuture(store.incrementCounter(new DataKey("hits"), 7));
+        waitFuture(store.snapshot());
+
+        // the tail of the log, written after the snapshot
+        waitFuture(store.set(new DataKey("key:1"), RequestDataValue.fromString("{\"v\":\"tail\"}"), null));
+        waitFuture(store.set(new DataKey("key:new"), RequestDataValue.fromString("{\"v\":\"new\"}"), null));
+        waitFuture(store.remove(new DataKey("key:2")));
+        store.close();
+
+        KeyValueStore restarted = openStore();
+        RecoveryStats stats = waitFuture(restarted.recovery());
+        assertEquals(32, restarted.recoveredPartitions());
+        assertEquals(502, stats.entries());
+        assertEquals(3, stats.replayedRecords());
+        assertEquals(0, stats.discardedSnapshots());
+        assertTrue(stats.bytesRead() > 0);
+
+        assertEquals(501L, waitFuture(restarted.totalKeys()));
+        CachedDataValue updated = waitFuture(restarted.get(new DataKey("key:1")));
+        assertEquals("{\"v\":\"tail\"}", valueOf(updated));
+        assertEquals(2L, updated.version());
+        assertEquals(0L, waitFuture(restarted.get(new DataKey("key:3"))).version());
+        assertEquals("{\"v\":\"new\"}", valueOf(waitFuture(restarted.get(new DataKey("key:new")))));
+        assertNull(waitFuture(restarted.get(new DataKey("key:2"))));
+        assertEquals("1", waitFuture(restarted.readNative(new DataKey("hash"), HashValue.class,
+                hash -> new String(hash.get("field"), StandardCharsets.UTF_8))).result());
+        assertEquals(7L, waitFuture(restarted.getCounter(new DataKey("hits"))));
+        restarted.close();
+    }
+
+    @Test
+    void shouldReplayNativeMutationsAfterTheSnapshot() {
+        KeyValueStore store = openStore();
+        DataKey hash = new DataKey("hash");
+        DataKey list = new DataKey("list");
+        DataKey emptied = new DataKey("emptied");
+        waitFuture(store.updateNative(hash, HashValue.class, HashValue::new,
+                value -> value.put("kept", "1".getBytes(StandardCharsets.UTF_8))));
+        waitFuture(store.updateNative(list, ListValue.class, ListValue::new, value -> {
+            value.pushRight("a".getBytes(StandardCharsets.UTF_8));
+            return value.size();
+        }));
+        waitFuture(store.updateNative(emptied, HashValue.class, HashValue::new,
+                value -> value.put("field", "1".getBytes(StandardCharsets.UTF_8))));
+        waitFuture(store.snapshot());
+
+        // the snapshot holds the first state of every key, the log the mutations after it
+        waitFuture(store.updateNative(hash, HashValue.class, HashValue::new,
+                value -> value.put("kept", "2".getBytes(StandardCharsets.UTF_8))));
+        waitFuture(store.updateNative(hash, HashValue.class, HashValue::new,
+                value -> value.put("added", "3".getBytes(StandardCharsets.UTF_8))));
+        waitFuture(store.updateNative(list, ListValue.class, ListValue::new, value -> {
+            value.pushRight("b".getBytes(StandardCharsets.UTF_8));
+            return value.popLeft();
+        }));
+        waitFuture(store.updateNative(emptied, HashValue.class, HashValue::new, value -> value.remove("field")));
+        store.close();
+
+        KeyValueStore restarted = openStore();
+        assertEquals(4, waitFuture(restarted.recovery()).replayedRecords());
+        NativeResult<Map<String, String>> hashResult = waitFuture(restarted.readNative(hash, HashValue.class,
+                value -> Map.of("kept", new String(value.get("kept"), StandardCharsets.UTF_8),
+                        "added", new String(value.get("added"), StandardCharsets.UTF_8))));
+        assertEquals(Map.of("kept", "2", "added", "3"), hashResult.result());
+        assertEquals(2L, hashResult.version());
+        assertEquals(List.of("b"), waitFuture(restarted.readNative(list, ListValue.class,
+                value -> value.range(0, -1).stream().map(item -> new String(item, StandardCharsets.UTF_8)).toList()))
+                .result());
+        assertNull(waitFuture(restarted.get(emptied)));
+        restarted.close();
+    }
+
+    @Test
+    void shouldReplayCounterShardsFromTheLog() {
+        KeyValueStore store = openStore();
+        DataKey hits = new DataKey("hits");
+        DataKey removed = new DataKey("removed");
+        for (int i = 0; i < 10; i++) {
+            waitFuture(store.incrementCounter(hits, 3));
+            waitFuture(store.incrementCounter(removed, 1));
+        }
+        waitFuture(store.snapshot());
+        waitFuture(store.incrementCounter(hits, 12));
+        waitFuture(store.removeCounter(removed));
+        // a counter and a value of the same key are kept apart
+        waitFuture(store.set(hits, RequestDataValue.fromString("{\"v\":1}"), null));
+        store.close();
+
+        KeyValueStore restarted = openStore();
+        assertEquals(42L, waitFuture(restarted.getCounter(hits)));
+        assertEquals(0L, waitFuture(restarted.getCounter(removed)));
+        assertEquals("{\"v\":1}", valueOf(waitFuture(restarted.get(hits))));
+        restarted.close();
+    }
+
+    @Test
+    void shouldReplayTheWholeLogWhenTheSnapshotIsCorrupted() throws IOException {
+        KeyValueStore store = openStore();
+        DataKey key = new DataKey("key");
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":1}"), null));
+        List<Path> snapshots = waitFuture(store.snapshot());
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":2}"), null));
+        store.close();
+
+        for (Path snapshot : snapshots) {
+            byte[] bytes = Files.readAllBytes(snapshot);
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(snapshot, bytes);
+        }
+
+        KeyValueStore restarted = openStore();
+        RecoveryStats stats = waitFuture(restarted.recovery());
+        assertEquals(32, stats.discardedSnapshots());
+        assertEquals(2, stats.replayedRecords());
+        CachedDataValue value = waitFuture(restarted.get(key));
+        assertEquals("{\"v\":2}", valueOf(value));
+        assertEquals(1L, value.version());
+        restarted.close();
+    }
+
+    @Test
+    void shouldContinueTheLogAfterARecoveredSnapshot() throws IOException {
+        KeyValueStore store = openStore();
+        DataKey key = new DataKey("key");
+        for (int i = 0; i < 5; i++) {
+            waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":" + i + "}"), null));
+        }
+        waitFuture(store.snapshot());
+        store.close();
+
+        Path partitionDirectory = WalFormat.partitionDirectory(dataDirectory, partitionOf(key));
+        // as if the log was dropped once the snapshot held it all
+        for (Path segment : WalReader.segments(partitionDirectory)) {
+            Files.delete(segment);
+        }
+
+        KeyValueStore restarted = openStore();
+        waitFuture(restarted.set(key, RequestDataValue.fromString("{\"v\":\"after\"}"), null));
+        restarted.close();
+
+        List<WalRecord> records = new ArrayList<>();
+        WalReader.read(partitionDirectory, 0, records::add);
+        assertEquals(1, records.size());
+        assertEquals(5L, records.get(0).sequence());
+        assertEquals(5L, records.get(0).version());
+
+        KeyValueStore reopened = openStore();
+        assertEquals("{\"v\":\"after\"}", valueOf(waitFuture(reopened.get(key))));
+        reopened.close();
+    }
+
+    @Test
+    void shouldServeOperationsIssuedDuringRecoveryFromTheRecoveredState() {
+        KeyValueStore store = openStore();
+        DataKey key = new DataKey("counter");
+        for (int i = 0; i < 100; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString(String.valueOf(i)), null));
+        }
+        waitFuture(store.set(key, RequestDataValue.fromString("41"), null));
+        store.close();
+
+        KeyValueStore restarted = openStore();
+        // issued right away, queued behind the recovery of the partition
+        CachedDataValue value = waitFuture(restarted.set(key, RequestDataValue.fromString("42"), 0L));
+        assertEquals(1L, value.version());
+        assertEquals(101L, waitFuture(restarted.totalKeys()));
+        assertTrue(restarted.recovery().isDone());
+        restarted.close();
+    }
+
+    @Test
+    void shouldLeaveValuesInTheMappedSnapshotUntilTheyAreRead() throws IOException {
+        KeyValueStore store = openStore();
+        for (int i = 0; i < 200; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString("{\"value\":\"v" + i + "\"}"), null));
+        }
+        Path snapshot = findSnapshotOf(waitFuture(store.snapshot()), "{\"value\":\"v7\"}");
+        store.close();
+
+        // corrupts the bytes of one value, which only its content hash notices
+        byte[] bytes = Files.readAllBytes(snapshot);
+        int valueOffset = indexOf(bytes, "{\"value\":\"v7\"}".getBytes(StandardCharsets.UTF_8));
+        bytes[valueOffset + 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        KeyValueStore restarted = openStore();
+        RecoveryStats stats = waitFuture(restarted.recovery());
+        assertEquals(0, stats.discardedSnapshots());
+        assertTrue(stats.mappedBytes() >= 200 * "{\"value\":\"v0\"}".length());
+
+        CachedDataValue value = waitFuture(restarted.get(new DataKey("key:3")));
+        assertEquals("{\"value\":\"v3\"}", valueOf(value));
+        assertEquals(0L, value.version());
+        assertFalse(value.isDeferred());
+        // the corrupted value is dropped when it's read
+        assertNull(waitFuture(restarted.get(new DataKey("key:7"))));
+        assertEquals(199L, waitFuture(restarted.totalKeys()));
+        // the next snapshot copies the values which are still mapped
+        waitFuture(restarted.snapshot());
+        restarted.close();
+
+        KeyValueStore reopened = openStore(false);
+        assertEquals(0L, waitFuture(reopened.recovery()).mappedBytes());
+        assertEquals("{\"value\":\"v199\"}", valueOf(waitFuture(reopened.get(new DataKey("key:199")))));
+        assertEquals(199L, waitFuture(reopened.totalKeys()));
+        reopened.close();
+    }
+
+    private static Path findSnapshotOf(List<Path> snapshots, String value) throws IOException {
+        for (Path snapshot : snapshots) {
+            if (indexOf(Files.readAllBytes(snapshot), value.getBytes(StandardCharsets.UTF_8)) >= 0) {
+                return snapshot;
+            }
+        }
+        throw new AssertionError("No snapshot holds " + value);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] slice) {
+        for (int i = 0; i + slice.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + slice.length, slice, 0, slice.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int partitionOf(DataKey key) {
+        return (key.hashCode() & 0x7fffffff) % 32;
+    }
+}
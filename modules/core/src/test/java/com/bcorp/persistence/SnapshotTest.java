@@ -0,0 +1,229 @@
+package com.bcorp.persistence;
+
+import com.bcorp.datatypes.HashValue;
+import com.bcorp.datatypes.ListValue;
+import com.bcorp.datatypes.NativeValue;
+import com.bcorp.kvstore.KeyValuePartition;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.PartitionConfig;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private record Entry(long version, Object value) {
+    }
+
+    private KeyValueStore openStore(boolean compression) {
+        return openStore(dataDirectory, compression);
+    }
+
+    private static KeyValueStore openStore(Path directory, boolean compression) {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.getPersistence().setDataDirectory(directory.toString());
+        config.getPersistence().setWalFsyncMode(WalFsyncMode.NONE);
+        config.getPersistence().setSnapshotIntervalMs(0);
+        config.getPersistence().setSnapshotCompression(compression);
+        return new KeyValueStore(new SystemClock(), config);
+    }
+
+    private static Map<String, Entry> readSnapshot(Path snapshot) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        SnapshotReader.read(snapshot, new SnapshotReader.Visitor() {
+            @Override
+            public void value(String key, long version, long lastAccessTimeMs, Class<?> dataType, byte[] value) {
+                entries.put(key, new Entry(version, new String(value, StandardCharsets.UTF_8)));
+            }
+
+            @Override
+            public void nativeValue(String key, long version, long lastAccessTimeMs, NativeValue value) {
+                entries.put(key, new Entry(version, value));
+            }
+
+            @Override
+            public void counterShard(String key, long value) {
+                entries.merge("counter:" + key, new Entry(0, value),
+                        (a, b) -> new Entry(0, (long) a.value() + (long) b.value()));
+            }
+        });
+        return entries;
+    }
+
+    private static Map<String, Entry> readAllSnapshots(List<Path> snapshots) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        for (Path snapshot : snapshots) {
+            readSnapshot(snapshot).forEach((key, entry) -> entries.merge(key, entry,
+                    (a, b) -> new Entry(0, (long) a.value() + (long) b.value())));
+        }
+        return entries;
+    }
+
+    @Test
+    void shouldSnapshotEveryPartitionWithItsValuesAndCounters() throws IOException {
+        for (boolean compression : new boolean[]{false, true}) {
+            // a store of its own, the second one would recover the first one otherwise
+            KeyValueStore store = openStore(dataDirectory.resolve(compression ? "compressed" : "plain"), compression);
+            for (int i = 0; i < 1000; i++) {
+                waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString("{\"v\":" + i + "}"), null));
+            }
+            waitFuture(store.set(new DataKey("key:7"), RequestDataValue.fromString("{\"v\":\"updated\"}"), null));
+            waitFuture(store.updateNative(new DataKey("hash"), HashValue.class, HashValue::new,
+                    hash -> hash.put("field", "1".getBytes(StandardCharsets.UTF_8))));
+            waitFuture(store.incrementCounter(new DataKey("hits"), 5));
+
+            List<Path> snapshots = waitFuture(store.snapshot());
+            store.close();
+
+            assertEquals(32, snapshots.size());
+            long entryCount = 0;
+            long walSequence = -1;
+            for (Path snapshot : snapshots) {
+                SnapshotHeader header = SnapshotReader.readHeader(snapshot);
+                assertEquals(compression, header.compressed());
+                entryCount += header.entryCount();
+                walSequence = Math.max(walSequence, header.walSequence());
+            }
+            assertEquals(1001, entryCount);
+            assertTrue(walSequence > 0);
+
+            Map<String, Entry> entries = readAllSnapshots(snapshots);
+            assertEquals(new Entry(0, "{\"v\":3}"), entries.get("key:3"));
+            assertEquals(new Entry(1, "{\"v\":\"updated\"}"), entries.get("key:7"));
+            HashValue hash = (HashValue) entries.get("hash").value();
+            assertEquals("1", new String(hash.get("field"), StandardCharsets.UTF_8));
+            assertEquals(5L, entries.get("counter:hits").value());
+        }
+    }
+
+    @Test
+    void shouldKeepTheValuesAsTheyWereAtTheCut() throws IOException {
+        KeyValuePartition partition = new KeyValuePartition(0, new SystemClock(), PartitionConfig.DEFAULTS);
+        DataKey listKey = new DataKey("list");
+        DataKey valueKey = new DataKey("value");
+        for (int i = 0; i < 3; i++) {
+            String element = "e" + i;
+            waitFuture(partition.updateNative(listKey, ListValue.class, ListValue::new,
+                    list -> {
+                        list.pushRight(element.getBytes(StandardCharsets.UTF_8));
+                        return list.size();
+                    }));
+        }
+        waitFuture(partition.set(valueKey, RequestDataValue.fromString("\"before\""), null));
+
+        CountDownLatch cutTaken = new CountDownLatch(1);
+        CountDownLatch mutated = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CompletableFuture<Path> snapshot = partition.snapshot((walSequence, entryCount, counterShardCount) -> {
+            cutTaken.countDown();
+            try {
+                mutated.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return SnapshotWriter.create(dataDirectory, 0,
+                    new SnapshotHeader(walSequence, entryCount, counterShardCount, 0, false), new BandwidthThrottle(0));
+        }, executor);
+
+        try {
+            cutTaken.await();
+            // the list is modified in place, the snapshot has to serialize it before
+            waitFuture(partition.updateNative(listKey, ListValue.class, ListValue::new,
+                    list -> {
+                        list.pushRight("e3".getBytes(StandardCharsets.UTF_8));
+                        return list.size();
+                    }));
+            waitFuture(partition.set(valueKey, RequestDataValue.fromString("\"after\""), null));
+            waitFuture(partition.set(new DataKey("new"), RequestDataValue.fromString("1"), null));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            mutated.countDown();
+        }
+
+        Map<String, Entry> entries = readSnapshot(waitFuture(snapshot));
+        executor.shutdown();
+
+        assertEquals(2, entries.size());
+        assertEquals(new Entry(0, "\"before\""), entries.get("value"));
+        ListValue list = (ListValue) entries.get("list").value();
+        assertEquals(3, list.size());
+        assertEquals(2L, entries.get("list").version());
+        // the partition went on with the modified list
+        assertEquals(4, waitFuture(partition.readNative(listKey, ListValue.class, ListValue::size)).result());
+    }
+
+    @Test
+    void shouldReplaceTheOlderSnapshotAndDetectCorruption() throws IOException {
+        KeyValueStore store = openStore(false);
+        DataKey key = new DataKey("key");
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":1}"), null));
+        Path first = findSnapshotOf(waitFuture(store.snapshot()), "key");
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":2}"), null));
+        Path second = findSnapshotOf(waitFuture(store.snapshot()), "key");
+        store.close();
+
+        assertNotEquals(first, second);
+        assertFalse(Files.exists(first));
+        assertEquals(List.of(second), Files.list(second.getParent()).toList());
+        assertEquals(second, SnapshotReader.latest(dataDirectory, partitionOf(second)));
+
+        byte[] bytes = Files.readAllBytes(second);
+        // flips a byte of the first key of the index, which starts where the trailer says
+        int indexOffset = (int) ByteBuffer.wrap(bytes, bytes.length - 12, 8).getLong();
+        bytes[indexOffset + 5] ^= 1;
+        Files.write(second, bytes);
+        IOException error = assertThrows(IOException.class, () -> readSnapshot(second));
+        assertTrue(error.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void shouldThrottleWritesSharingABandwidth() {
+        BandwidthThrottle throttle = new BandwidthThrottle(1 << 20);
+        long startNs = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            throttle.acquire(256 * 1024);
+        }
+        long elapsedMs = (System.nanoTime() - startNs) / 1_000_000;
+
+        // the first write goes right away, the other four wait for a quarter of a second each
+        assertTrue(elapsedMs >= 950, "took " + elapsedMs + "ms");
+        assertTrue(elapsedMs < 3000, "took " + elapsedMs + "ms");
+    }
+
+    private static Path findSnapshotOf(List<Path> snapshots, String key) throws IOException {
+        for (Path snapshot : snapshots) {
+            if (readSnapshot(snapshot).containsKey(key)) {
+                return snapshot;
+            }
+        }
+        throw new AssertionError("No snapshot holds " + key);
+    }
+
+    private static int partitionOf(Path snapshot) {
+        String directory = snapshot.getParent().getFileName().toString();
+        return Integer.parseInt(directory.substring("partition-".length()));
+    }
+}
@@ -0,0 +1,188 @@
+package com.bcorp.persistence;
+
+import com.bcorp.datatypes.ListValue;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private KeyValueStore openStore(WalFsyncMode fsyncMode, long segmentBytes) {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.getPersistence().setDataDirectory(dataDirectory.toString());
+        config.getPersistence().setWalFsyncMode(fsyncMode);
+        config.getPersistence().setWalSegmentBytes(segmentBytes);
+        return new KeyValueStore(new SystemClock(), config);
+    }
+
+    private List<WalRecord> recordsOf(String key) throws IOException {
+        List<WalRecord> records = new ArrayList<>();
+        for (int partition = 0; partition < 32; partition++) {
+            WalReader.read(WalFormat.partitionDirectory(dataDirectory, partition), 0, record -> {
+                if (record.key().equals(key)) {
+                    records.add(record);
+                }
+            });
+        }
+        return records;
+    }
+
+    private static String valueOf(WalRecord record) {
+        return new String(record.value(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldLogPutsAndRemovesWithTheirVersions() throws IOException {
+        KeyValueStore store = openStore(WalFsyncMode.NONE, 1 << 20);
+        DataKey key = new DataKey("user:1");
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":1}"), null));
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":2}"), 0L));
+        // unchanged, nothing to log
+        waitFuture(store.set(key, RequestDataValue.fromString("{\"v\":2}"), null));
+        waitFuture(store.remove(key));
+        waitFuture(store.remove(key));
+        store.close();
+
+        List<WalRecord> records = recordsOf("user:1");
+        assertEquals(3, records.size());
+        assertEquals(WalRecord.Type.PUT, records.get(0).type());
+        assertEquals("{\"v\":1}", valueOf(records.get(0)));
+        assertEquals(0L, records.get(0).version());
+        assertEquals(String.class, records.get(0).dataType());
+        assertEquals("{\"v\":2}", valueOf(records.get(1)));
+        assertEquals(1L, records.get(1).version());
+        assertEquals(WalRecord.Type.REMOVE, records.get(2).type());
+        assertTrue(records.get(0).sequence() < records.get(1).sequence());
+        assertTrue(records.get(1).sequence() < records.get(2).sequence());
+    }
+
+    @Test
+    void shouldLogNativeValuesAndTheRemovalOfAnEmptiedOne() throws IOException {
+        KeyValueStore store = openStore(WalFsyncMode.NONE, 1 << 20);
+        DataKey key = new DataKey("queue");
+        waitFuture(store.updateNative(key, ListValue.class, ListValue::new,
+                list -> {
+                    list.pushRight("a".getBytes(StandardCharsets.UTF_8));
+                    return list.size();
+                }));
+        waitFuture(store.updateNative(key, ListValue.class, ListValue::new, ListValue::popLeft));
+        store.close();
+
+        List<WalRecord> records = recordsOf("queue");
+        assertEquals(2, records.size());
+        assertEquals(WalRecord.Type.NATIVE, records.get(0).type());
+        assertEquals(ListValue.class, records.get(0).dataType());
+        assertEquals(0L, records.get(0).version());
+        ListValue logged = (ListValue) SnapshotReader.decodeNative(ListValue.class, records.get(0).value());
+        assertEquals(1, logged.size());
+        assertEquals(WalRecord.Type.REMOVE, records.get(1).type());
+    }
+
+    @Test
+    void shouldAcknowledgeBatchNativeUpdatesOnceForced() throws IOException {
+        KeyValueStore store = openStore(WalFsyncMode.BATCH, 1 << 20);
+        DataKey key = new DataKey("queue");
+        for (int i = 0; i < 3; i++) {
+            String item = "item-" + i;
+            waitFuture(store.updateNative(key, ListValue.class, ListValue::new,
+                    list -> {
+                        list.pushRight(item.getBytes(StandardCharsets.UTF_8));
+                        return list.size();
+                    }));
+        }
+
+        // read while the store is still open, every acknowledged update is on disk
+        List<WalRecord> records = recordsOf("queue");
+        assertEquals(3, records.size());
+        assertEquals(2L, records.get(2).version());
+        assertEquals(3, ((ListValue) SnapshotReader.decodeNative(ListValue.class, records.get(2).value())).size());
+        store.close();
+    }
+
+    @Test
+    void shouldAcknowledgeBatchWritesOnceForced() throws IOException {
+        KeyValueStore store = openStore(WalFsyncMode.BATCH, 1 << 20);
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            writes.add(store.set(new DataKey("key-" + (i % 100)), RequestDataValue.fromString("{\"v\":" + i + "}"), null));
+        }
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+
+        // read while the store is still open, everything acknowledged is on disk
+        List<WalRecord> records = recordsOf("key-7");
+        assertFalse(records.isEmpty());
+        assertEquals("{\"v\":1907}", valueOf(records.get(records.size() - 1)));
+        store.close();
+    }
+
+    @Test
+    void shouldRollSegmentsAndReadFromASequence() throws IOException {
+        KeyValueStore store = openStore(WalFsyncMode.INTERVAL, 1024);
+        DataKey key = new DataKey("rolling");
+        for (int i = 0; i < 200; i++) {
+            waitFuture(store.set(key, RequestDataValue.fromString("{\"value\":" + i + "}"), null));
+        }
+        store.close();
+
+        Path partitionDirectory = WalFormat.partitionDirectory(dataDirectory, partitionOf(key));
+        assertTrue(WalReader.segments(partitionDirectory).size() > 5);
+
+        List<WalRecord> tail = new ArrayList<>();
+        long lastSequence = WalReader.read(partitionDirectory, 150, tail::add);
+        assertEquals(199L, lastSequence);
+        assertEquals(50, tail.size());
+        assertEquals(150L, tail.get(0).sequence());
+        assertEquals("{\"value\":150}", valueOf(tail.get(0)));
+    }
+
+    @Test
+    void shouldStopAtATornRecordAndContinueAfterRestart() throws IOException {
+        KeyValueStore store = openStore(WalFsyncMode.BATCH, 1 << 20);
+        DataKey key = new DataKey("torn");
+        for (int i = 0; i < 10; i++) {
+            waitFuture(store.set(key, RequestDataValue.fromString("{\"value\":" + i + "}"), null));
+        }
+        store.close();
+
+        // cut the last record in half, as a crash in the middle of a write would
+        Path partitionDirectory = WalFormat.partitionDirectory(dataDirectory, partitionOf(key));
+        Path segment = WalReader.segments(partitionDirectory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        assertEquals(9, recordsOf("torn").size());
+
+        KeyValueStore restarted = openStore(WalFsyncMode.BATCH, 1 << 20);
+        waitFuture(restarted.set(key, RequestDataValue.fromString("{\"value\":\"after\"}"), null));
+        restarted.close();
+
+        List<WalRecord> records = recordsOf("torn");
+        assertEquals(10, records.size());
+        assertEquals(8L, records.get(8).sequence());
+        assertEquals(9L, records.get(9).sequence());
+        assertEquals("{\"value\":\"after\"}", valueOf(records.get(9)));
+    }
+
+    private static int partitionOf(DataKey key) {
+        return (key.hashCode() & 0x7fffffff) % 32;
+    }
+}
@@ -0,0 +1,188 @@
+package com.bcorp.tiering;
+
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.StoreExport;
+import com.bcorp.persistence.WalFsyncMode;
+import com.bcorp.pojos.CachedDataValue;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.DeduplicationStats;
+import com.bcorp.pojos.ExportEntry;
+import com.bcorp.pojos.RequestDataValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.bcorp.testutils.TestUtils.waitFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskTierTest {
+    private static final long COLD_AFTER_MS = 1000;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong nowMs = new AtomicLong(1_000_000);
+
+    private KeyValueStore openStore(long segmentBytes, boolean persistent) {
+        return openStore(segmentBytes, persistent, false);
+    }
+
+    private KeyValueStore openStore(long segmentBytes, boolean persistent, boolean deduplicate) {
+        KeyValueStoreConfig config = new KeyValueStoreConfig();
+        config.setDeduplicateValues(deduplicate);
+        config.getTiering().setDirectory(directory.resolve("tier").toString());
+        config.getTiering().setColdAfterMs(COLD_AFTER_MS);
+        config.getTiering().setMoveIntervalMs(0);
+        config.getTiering().setMinValueBytes(16);
+        config.getTiering().setSegmentBytes(segmentBytes);
+        if (persistent) {
+            config.getPersistence().setDataDirectory(directory.resolve("data").toString());
+            config.getPersistence().setWalFsyncMode(WalFsyncMode.NONE);
+            config.getPersistence().setSnapshotIntervalMs(0);
+            config.getPersistence().setWalCompactionIntervalMs(0);
+        }
+        return new KeyValueStore(nowMs::get, config);
+    }
+
+    private static String valueOf(int i) {
+        // of the same size for every key
+        return String.format("{\"value\":\"%s%04d\"}", "x".repeat(80), i);
+    }
+
+    private static String valueOf(CachedDataValue value) {
+        return new String(value.data(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldMoveColdValuesToTheTierAndBringThemBackWhenAccessed() {
+        KeyValueStore store = openStore(1 << 20, false);
+        for (int i = 0; i < 100; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString(valueOf(i)), null));
+        }
+        waitFuture(store.set(new DataKey("small"), RequestDataValue.fromString("1"), null));
+        nowMs.addAndGet(COLD_AFTER_MS + 1);
+        // accessed right before, it stays in memory
+        waitFuture(store.get(new DataKey("key:0")));
+
+        TieringStats stats = waitFuture(store.moveColdValues());
+        assertEquals(99, stats.movedValues());
+        assertEquals(99L * valueOf(10).length(), stats.movedBytes());
+        assertEquals(99, store.tierUsage().values());
+
+        CachedDataValue value = waitFuture(store.get(new DataKey("key:5")));
+        assertEquals(valueOf(5), valueOf(value));
+        assertEquals(0L, value.version());
+        assertFalse(value.isDeferred());
+        assertEquals(98, store.tierUsage().values());
+
+        // queued behind the read of the value, in their arrival order
+        DataKey key = new DataKey("key:6");
+        CompletableFuture<CachedDataValue> before = store.get(key);
+        CompletableFuture<CachedDataValue> write = store.set(key, RequestDataValue.fromString("{\"value\":\"new\"}"), 0L);
+        CompletableFuture<CachedDataValue> after = store.get(key);
+        assertEquals(valueOf(6), valueOf(waitFuture(before)));
+        assertEquals(1L, waitFuture(write).version());
+        assertEquals("{\"value\":\"new\"}", valueOf(waitFuture(after)));
+
+        assertEquals(valueOf(7), valueOf(waitFuture(store.remove(new DataKey("key:7")))));
+        assertNull(waitFuture(store.get(new DataKey("key:7"))));
+        assertEquals(100L, waitFuture(store.totalKeys()));
+        assertEquals(96, store.tierUsage().values());
+
+        // what was read back is hot again, the rest is in the tier already
+        assertEquals(0, waitFuture(store.moveColdValues()).movedValues());
+        store.close();
+        assertFalse(Files.exists(DiskTier.partitionDirectory(directory.resolve("tier"), 0).resolve(
+                String.format("%020d%s", 0, DiskTier.SUFFIX))));
+    }
+
+    @Test
+    void shouldRelocateSparseSegmentsAndDeleteTheEmptyOnes() {
+        int valueBytes = valueOf(100).length();
+        KeyValueStore store = openStore(5L * valueBytes, false);
+        for (int i = 100; i < 1100; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString(valueOf(i)), null));
+        }
+        nowMs.addAndGet(COLD_AFTER_MS + 1);
+        assertEquals(1000, waitFuture(store.moveColdValues()).movedValues());
+        TierUsage moved = store.tierUsage();
+        assertEquals(1000L * valueBytes, moved.fileBytes());
+
+        for (int i = 100; i < 900; i++) {
+            waitFuture(store.get(new DataKey("key:" + i)));
+        }
+        TierUsage promoted = store.tierUsage();
+        assertEquals(200, promoted.values());
+        assertEquals(moved.fileBytes(), promoted.fileBytes());
+
+        // the first round relocates the sparse segments, the second deletes what they left
+        TieringStats relocation = waitFuture(store.moveColdValues());
+        TieringStats cleanup = waitFuture(store.moveColdValues());
+        assertEquals(0, relocation.movedValues() + cleanup.movedValues());
+        assertTrue(relocation.relocatedValues() > 0);
+        assertTrue(relocation.deletedSegments() + cleanup.deletedSegments() > 0);
+
+        TierUsage compacted = store.tierUsage();
+        assertEquals(200, compacted.values());
+        assertEquals(200L * valueBytes, compacted.liveBytes());
+        assertTrue(compacted.fileBytes() < promoted.fileBytes() / 2,
+                compacted.fileBytes() + " of " + promoted.fileBytes());
+        for (int i = 100; i < 1100; i++) {
+            assertEquals(valueOf(i), valueOf(waitFuture(store.get(new DataKey("key:" + i)))));
+        }
+        store.close();
+    }
+
+    @Test
+    void shouldExportTheValuesOfTheTierWithoutBringingThemBack() {
+        KeyValueStore store = openStore(1 << 20, false, true);
+        for (int i = 0; i < 50; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString(valueOf(i)), null));
+        }
+        nowMs.addAndGet(COLD_AFTER_MS + 1);
+        assertEquals(50, waitFuture(store.moveColdValues()).movedValues());
+        DeduplicationStats before = store.deduplicationStats();
+
+        StoreExport export = store.newExport();
+        Map<String, String> exported = new HashMap<>();
+        List<ExportEntry> chunk;
+        while (!(chunk = waitFuture(export.next())).isEmpty()) {
+            chunk.forEach(entry -> exported.put(entry.key().key(), new String(entry.data(), StandardCharsets.UTF_8)));
+        }
+
+        assertEquals(50, exported.size());
+        assertEquals(valueOf(7), exported.get("key:7"));
+        assertEquals(50, store.tierUsage().values());
+        // the exported values aren't interned
+        assertEquals(before, store.deduplicationStats());
+        store.close();
+    }
+
+    @Test
+    void shouldSnapshotTheValuesOfTheTier() {
+        KeyValueStore store = openStore(1 << 20, true);
+        for (int i = 0; i < 50; i++) {
+            waitFuture(store.set(new DataKey("key:" + i), RequestDataValue.fromString(valueOf(i)), null));
+        }
+        nowMs.addAndGet(COLD_AFTER_MS + 1);
+        assertEquals(50, waitFuture(store.moveColdValues()).movedValues());
+        waitFuture(store.snapshot());
+        store.close();
+
+        KeyValueStore restarted = openStore(1 << 20, true);
+        assertEquals(0, restarted.tierUsage().values());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(valueOf(i), valueOf(waitFuture(restarted.get(new DataKey("key:" + i)))));
+        }
+        restarted.close();
+    }
+}
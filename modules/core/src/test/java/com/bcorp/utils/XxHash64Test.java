@@ -0,0 +1,35 @@
+package com.bcorp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XxHash64Test {
+
+    private long hash(String value) {
+        return XxHash64.hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldMatchReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+        // longer than 32 bytes to go through the striped rounds
+        assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    void shouldHashSliceSameAsCopy() {
+        byte[] data = "prefix-{\"count\":1}-suffix".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(hash("{\"count\":1}"), XxHash64.hash(data, 7, 11, 0L));
+    }
+
+    @Test
+    void shouldReturnZeroForNull() {
+        assertEquals(0L, XxHash64.hash(null));
+    }
+}
@@ -4,12 +4,26 @@ package com.bcorp.loadtest;
  * Simple results for counter load test
  */
 public class CounterLoadTestResults {
+    private final String testName;
     private final long finalCounterValue;
     private final long totalDurationMs;
+    private final long successfulOperations;
+    private final long failedAttempts;
 
-    public CounterLoadTestResults(long finalCounterValue, long totalDurationMs) {
+    public CounterLoadTestResults(String testName,
+                                  long finalCounterValue,
+                                  long totalDurationMs,
+                                  long successfulOperations,
+                                  long failedAttempts) {
+        this.testName = testName;
         this.finalCounterValue = finalCounterValue;
         this.totalDurationMs = totalDurationMs;
+        this.successfulOperations = successfulOperations;
+        this.failedAttempts = failedAttempts;
+    }
+
+    public String getTestName() {
+        return testName;
     }
 
     public long getFinalCounterValue() {
@@ -20,9 +34,27 @@ public class CounterLoadTestResults {
         return totalDurationMs;
     }
 
+    public long getSuccessfulOperations() {
+        return successfulOperations;
+    }
+
+    /**
+     * Requests which didn't increment the counter, e.g. version conflicts of the CAS loop
+     */
+    public long getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    public double getThroughputPerSecond() {
+        return totalDurationMs == 0 ? 0 : successfulOperations * 1000.0 / totalDurationMs;
+    }
+
     @Override
     public String toString() {
-        return "Counter Test Results: Final Value = " + finalCounterValue +
-               ", Total Time = " + totalDurationMs + "ms";
+        return "Counter Test Results [" + testName + "]: Final Value = " + finalCounterValue +
+               ", Total Time = " + totalDurationMs + "ms" +
+               ", Successful Operations = " + successfulOperations +
+               ", Failed Attempts = " + failedAttempts +
+               ", Throughput = " + String.format("%.1f", getThroughputPerSecond()) + " ops/s";
     }
 }
@@ -4,28 +4,76 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
 
 public class CounterLoadTestService {
 
     private static final Logger logger = LoggerFactory.getLogger(CounterLoadTestService.class);
 
     private static final String COUNTER_KEY = "shared-counter";
+    private static final String ATOMIC_COUNTER_KEY = "shared-counter-atomic";
+    private static final String SHARDED_COUNTER_KEY = "shared-counter-sharded";
+    private static final String COUNTER_PATH = "/count";
     private static final long RETRY_DELAY_MS = 10;
 
     private final LoadTestConfig config;
     private final KvStoreHttpClient httpClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private final AtomicLong successfulOperations = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+
     public CounterLoadTestService(LoadTestConfig config) {
         this.config = config;
         this.httpClient = new KvStoreHttpClient(config.getBaseUrl());
     }
 
+    /**
+     * Increments the counter with a GET followed by a PUT?ifVersion, retrying on conflicts
+     */
     public CounterLoadTestResults runCounterLoadTest() throws InterruptedException {
         logger.info("Starting counter load test with {} threads, {} updates per thread",
                 config.getThreadCount(), config.getRequestsPerThread());
 
+        return runWorkers("cas-loop", () -> getFinalCounterValue(COUNTER_KEY),
+                (threadId, latch) -> new CounterUpdateWorker(threadId, latch));
+    }
+
+    /**
+     * Increments the counter with the server side atomic increment, a single request per update
+     */
+    public CounterLoadTestResults runAtomicIncrementLoadTest() throws InterruptedException {
+        logger.info("Starting atomic increment load test with {} threads, {} updates per thread",
+                config.getThreadCount(), config.getRequestsPerThread());
+
+        return runWorkers("atomic-incr", () -> getFinalCounterValue(ATOMIC_COUNTER_KEY),
+                (threadId, latch) -> new AtomicIncrementWorker(threadId, latch,
+                        () -> httpClient.increment(ATOMIC_COUNTER_KEY, COUNTER_PATH, 1)));
+    }
+
+    /**
+     * Increments a sharded counter, the increments of the single key are spread over several partitions
+     */
+    public CounterLoadTestResults runShardedCounterLoadTest() throws InterruptedException {
+        logger.info("Starting sharded counter load test with {} threads, {} updates per thread",
+                config.getThreadCount(), config.getRequestsPerThread());
+
+        return runWorkers("sharded-counter", () -> getFinalShardedCounterValue(SHARDED_COUNTER_KEY),
+                (threadId, latch) -> new AtomicIncrementWorker(threadId, latch,
+                        () -> httpClient.incrementCounter(SHARDED_COUNTER_KEY, 1)));
+    }
+
+    private CounterLoadTestResults runWorkers(String testName,
+                                              LongSupplier finalValueReader,
+                                              BiFunction<Integer, CountDownLatch, Runnable> workerFactory)
+            throws InterruptedException {
+        successfulOperations.set(0);
+        failedAttempts.set(0);
+
         ExecutorService executor = Executors.newFixedThreadPool(config.getThreadCount());
         CountDownLatch latch = new CountDownLatch(config.getThreadCount());
 
@@ -33,7 +81,7 @@ public class CounterLoadTestService {
 
         // Submit worker threads
         for (int i = 0; i < config.getThreadCount(); i++) {
-            executor.submit(new CounterUpdateWorker(i, latch));
+            executor.submit(workerFactory.apply(i, latch));
         }
 
         // Wait for completion or timeout
@@ -51,15 +99,18 @@ public class CounterLoadTestService {
         }
 
         if (!completed) {
-            logger.warn("Counter load test timed out after {} seconds", config.getMaxDurationSeconds());
+            logger.warn("Counter load test {} timed out after {} seconds", testName, config.getMaxDurationSeconds());
         }
 
         // Get final counter value
-        long finalCounterValue = getFinalCounterValue();
+        long finalCounterValue = finalValueReader.getAsLong();
 
         return new CounterLoadTestResults(
+                testName,
                 finalCounterValue,
-                endTime - startTime
+                endTime - startTime,
+                successfulOperations.get(),
+                failedAttempts.get()
         );
     }
 
@@ -75,9 +126,9 @@ public class CounterLoadTestService {
         }
     }
 
-    private long getFinalCounterValue() {
+    private long getFinalCounterValue(String counterKey) {
         try {
-            String response = httpClient.get(COUNTER_KEY);
+            String response = httpClient.get(counterKey);
             if (response != null) {
                 // Simple JSON parsing to extract count value
                 return parseCounterValue(response).count;
@@ -88,6 +139,18 @@ public class CounterLoadTestService {
         return -1; // Error value
     }
 
+    private long getFinalShardedCounterValue(String counterKey) {
+        try {
+            String response = httpClient.getCounter(counterKey);
+            if (response != null) {
+                return Long.parseLong(objectMapper.readValue(response, CacheResponse.class).data);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to get final sharded counter value: {}", e.getMessage());
+        }
+        return -1; // Error value
+    }
+
     private CounterData parseCounterValue(String jsonValue) {
         try {
             CacheResponse response = objectMapper.readValue(jsonValue, CacheResponse.class);
@@ -123,7 +186,10 @@ public class CounterLoadTestService {
 
                 while (numberOfSuccessfulOperations < config.getRequestsPerThread()) {
                     if (!performCounterUpdate(threadId)) {
+                        failedAttempts.incrementAndGet();
                         Thread.sleep(RETRY_DELAY_MS + random.nextInt(5));
+                    } else {
+                        successfulOperations.incrementAndGet();
                     }
                 }
 
@@ -180,6 +246,54 @@ public class CounterLoadTestService {
     }
 
 
+    @FunctionalInterface
+    private interface IncrementRequest {
+        void send() throws IOException;
+    }
+
+    /**
+     * Sends one server side increment request per update, there are no conflicts to retry
+     */
+    private class AtomicIncrementWorker implements Runnable {
+
+        private final int threadId;
+        private final CountDownLatch latch;
+        private final IncrementRequest incrementRequest;
+
+        public AtomicIncrementWorker(int threadId, CountDownLatch latch, IncrementRequest incrementRequest) {
+            this.threadId = threadId;
+            this.latch = latch;
+            this.incrementRequest = incrementRequest;
+        }
+
+        @Override
+        public void run() {
+            long threadStartTime = System.currentTimeMillis();
+            int numberOfSuccessfulOperations = 0;
+
+            try {
+                logger.debug("Atomic increment worker thread {} starting", threadId);
+
+                while (numberOfSuccessfulOperations < config.getRequestsPerThread()) {
+                    try {
+                        incrementRequest.send();
+                        numberOfSuccessfulOperations++;
+                        successfulOperations.incrementAndGet();
+                    } catch (IOException e) {
+                        logger.debug("Atomic increment failed for thread {}: {}", threadId, e.getMessage());
+                        failedAttempts.incrementAndGet();
+                    }
+                }
+
+                long threadDuration = System.currentTimeMillis() - threadStartTime;
+                logger.info("Atomic increment worker thread {} completed with {} operations in {}ms",
+                           threadId, numberOfSuccessfulOperations, threadDuration);
+            } finally {
+                latch.countDown();
+            }
+        }
+    }
+
     private boolean isConflictException(Exception e) {
         // Check if this is a 409 Conflict response
         String message = e.getMessage();
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.hc.client5.http.classic.methods.HttpDelete;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPatch;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
@@ -18,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -69,6 +71,61 @@ public class KvStoreHttpClient {
         return parseHttpResponse(key, httpClient.execute(get), baseUrl + "/kv/" + key);
     }
 
+    /**
+     * INCREMENT operation - atomically add to the number at a json pointer inside the value
+     */
+    public String increment(String key, String path, long by) throws IOException {
+        String url = baseUrl + "/kv/" + key + "/_incr?path=" + URLEncoder.encode(path, StandardCharsets.UTF_8) + "&by=" + by;
+        HttpPost post = new HttpPost(url);
+        return parseHttpResponse(key, httpClient.execute(post), url);
+    }
+
+    /**
+     * POST /counters/{key}/_incr - increment a sharded counter
+     */
+    public String incrementCounter(String key, long by) throws IOException {
+        String url = baseUrl + "/counters/" + key + "/_incr?by=" + by;
+        HttpPost post = new HttpPost(url);
+        return parseHttpResponse(key, httpClient.execute(post), url);
+    }
+
+    /**
+     * GET /counters/{key} - read the sum of all shards of a sharded counter
+     */
+    public String getCounter(String key) throws IOException {
+        String url = baseUrl + "/counters/" + key;
+        HttpGet get = new HttpGet(url);
+        return parseHttpResponse(key, httpClient.execute(get), url);
+    }
+
+    /**
+     * POST /kv/{key}/_list - push the elements of a json array to the tail of a list
+     */
+    public String pushList(String key, String jsonArray) throws IOException {
+        String url = baseUrl + "/kv/" + key + "/_list";
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new StringEntity(jsonArray, ContentType.APPLICATION_JSON));
+        return parseHttpResponse(key, httpClient.execute(post), url);
+    }
+
+    /**
+     * POST /kv/{key}/_list/_pop - pop a value from the head of a list
+     */
+    public String popList(String key) throws IOException {
+        String url = baseUrl + "/kv/" + key + "/_list/_pop";
+        HttpPost post = new HttpPost(url);
+        return parseHttpResponse(key, httpClient.execute(post), url);
+    }
+
+    /**
+     * GET /kv/{key}/_list - read all values of a list
+     */
+    public String getList(String key) throws IOException {
+        String url = baseUrl + "/kv/" + key + "/_list";
+        HttpGet get = new HttpGet(url);
+        return parseHttpResponse(key, httpClient.execute(get), url);
+    }
+
     private String parseHttpResponse(String key, ClassicHttpResponse response, String url) throws IOException {
         int statusCode = response.getCode();
         if (statusCode == 404) {
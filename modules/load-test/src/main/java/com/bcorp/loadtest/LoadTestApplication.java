@@ -1,5 +1,7 @@
 package com.bcorp.loadtest;
 
+import com.bcorp.persistence.RecoveryStats;
+import com.bcorp.persistence.WalFsyncMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,9 +22,60 @@ public class LoadTestApplication {
         try {
             logger.info("Starting load test with configuration: {}", config);
             CounterLoadTestService counterService = new CounterLoadTestService(config);
-            CounterLoadTestResults results = counterService.runCounterLoadTest();
-            logger.info("Counter load test completed. Results: {}", results);
-            printCounterResults(results);
+            CounterLoadTestResults casResults = null;
+            CounterLoadTestResults atomicResults = null;
+            CounterLoadTestResults shardedResults = null;
+
+            if (config.isCounterTest()) {
+                casResults = counterService.runCounterLoadTest();
+                logger.info("Counter load test completed. Results: {}", casResults);
+                printCounterResults(casResults);
+            }
+
+            if (config.isAtomicCounterTest()) {
+                atomicResults = counterService.runAtomicIncrementLoadTest();
+                logger.info("Atomic increment load test completed. Results: {}", atomicResults);
+                printCounterResults(atomicResults);
+            }
+
+            if (config.isShardedCounterTest()) {
+                shardedResults = counterService.runShardedCounterLoadTest();
+                logger.info("Sharded counter load test completed. Results: {}", shardedResults);
+                printCounterResults(shardedResults);
+            }
+
+            if (casResults != null && atomicResults != null) {
+                printComparison("CAS loop", casResults, "Atomic increment", atomicResults);
+            }
+
+            if (atomicResults != null && shardedResults != null) {
+                printComparison("Atomic increment", atomicResults, "Sharded counter", shardedResults);
+            }
+
+            if (config.isQueueTest()) {
+                QueueLoadTestService queueService = new QueueLoadTestService(config);
+                CounterLoadTestResults jsonArrayResults = queueService.runJsonArrayQueueLoadTest();
+                printCounterResults(jsonArrayResults);
+                CounterLoadTestResults listResults = queueService.runListQueueLoadTest();
+                printCounterResults(listResults);
+                printComparison("Json array queue", jsonArrayResults, "List queue", listResults);
+            }
+
+            if (config.isWalBenchmark()) {
+                WalBenchmark walBenchmark = new WalBenchmark(config);
+                WalBenchmark.Result inMemory = walBenchmark.run(null);
+                printWalResult(inMemory, inMemory);
+                for (WalFsyncMode fsyncMode : WalFsyncMode.values()) {
+                    printWalResult(walBenchmark.run(fsyncMode), inMemory);
+                }
+            }
+
+            if (config.isRecoveryBenchmark()) {
+                RecoveryBenchmark recoveryBenchmark = new RecoveryBenchmark(config);
+                printRecoveryResult(recoveryBenchmark.run(false, false));
+                printRecoveryResult(recoveryBenchmark.run(false, true));
+                printRecoveryResult(recoveryBenchmark.run(true, false));
+            }
 
         } catch (Exception e) {
             logger.error("Load test failed", e);
@@ -31,9 +84,41 @@ public class LoadTestApplication {
     }
 
     private static void printCounterResults(CounterLoadTestResults results) {
-        System.out.println("\n=== Counter Load Test Results ===");
+        System.out.println("\n=== Counter Load Test Results (" + results.getTestName() + ") ===");
         System.out.println("Final Counter Value: " + results.getFinalCounterValue());
         System.out.println("Total Duration: " + results.getTotalDurationMs() + "ms");
+        System.out.println("Successful Operations: " + results.getSuccessfulOperations());
+        System.out.println("Failed Attempts: " + results.getFailedAttempts());
+        System.out.printf("Throughput: %.1f ops/s%n", results.getThroughputPerSecond());
         System.out.println("=================================\n");
     }
+
+    private static void printWalResult(WalBenchmark.Result result, WalBenchmark.Result inMemory) {
+        System.out.printf("%-14s %10.1f writes/s %8.1f MB/s of log   %.2fx of in-memory%n",
+                result.name() + ":", result.writesPerSecond(), result.logMegabytesPerSecond(),
+                inMemory.writesPerSecond() == 0 ? 0 : result.writesPerSecond() / inMemory.writesPerSecond());
+    }
+
+    private static void printRecoveryResult(RecoveryBenchmark.Result result) {
+        RecoveryStats stats = result.stats();
+        System.out.printf("%-14s %8.1f MB/s %8d MB read, %6d MB mapped in %6d ms, %d entries, %d replayed records, "
+                        + "every key read in %d ms%n",
+                result.name() + ":", stats.megabytesPerSecond(), stats.bytesRead() / 1024 / 1024,
+                stats.mappedBytes() / 1024 / 1024, stats.durationMs(), stats.entries(), stats.replayedRecords(),
+                result.readAllMs());
+    }
+
+    private static void printComparison(String baselineName, CounterLoadTestResults baseline,
+                                        String candidateName, CounterLoadTestResults candidate) {
+        System.out.println("=== " + baselineName + " vs " + candidateName + " ===");
+        System.out.printf("%-18s %.1f ops/s, %d failed attempts%n", baselineName + ":",
+                baseline.getThroughputPerSecond(), baseline.getFailedAttempts());
+        System.out.printf("%-18s %.1f ops/s, %d failed attempts%n", candidateName + ":",
+                candidate.getThroughputPerSecond(), candidate.getFailedAttempts());
+        if (baseline.getThroughputPerSecond() > 0) {
+            System.out.printf("Speedup: %.2fx%n",
+                    candidate.getThroughputPerSecond() / baseline.getThroughputPerSecond());
+        }
+        System.out.println("====================================\n");
+    }
 }
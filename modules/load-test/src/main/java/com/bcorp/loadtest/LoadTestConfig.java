@@ -8,6 +8,17 @@ public class LoadTestConfig {
     private int port = 8080;
     private int maxDurationSeconds = 300; // 5 minutes
     private boolean counterTest = true;
+    private boolean atomicCounterTest = true;
+    private boolean shardedCounterTest = true;
+    private boolean queueTest = true;
+    // runs an in-process store, no server needed
+    private boolean walBenchmark = false;
+    private int walBenchmarkThreads = 64;
+    private int walBenchmarkWritesPerThread = 5_000;
+    // runs an in-process store, no server needed
+    private boolean recoveryBenchmark = false;
+    private int recoveryBenchmarkMegabytes = 512;
+    private int recoveryBenchmarkValueBytes = 1024;
 
     public String getBaseUrl() {
         return "http://" + host + ":" + port;
@@ -22,6 +33,15 @@ public class LoadTestConfig {
                 ", port=" + port +
                 ", maxDurationSeconds=" + maxDurationSeconds +
                 ", counterTest=" + counterTest +
+                ", atomicCounterTest=" + atomicCounterTest +
+                ", shardedCounterTest=" + shardedCounterTest +
+                ", queueTest=" + queueTest +
+                ", walBenchmark=" + walBenchmark +
+                ", walBenchmarkThreads=" + walBenchmarkThreads +
+                ", walBenchmarkWritesPerThread=" + walBenchmarkWritesPerThread +
+                ", recoveryBenchmark=" + recoveryBenchmark +
+                ", recoveryBenchmarkMegabytes=" + recoveryBenchmarkMegabytes +
+                ", recoveryBenchmarkValueBytes=" + recoveryBenchmarkValueBytes +
                 '}';
     }
 
@@ -73,5 +93,77 @@ public class LoadTestConfig {
         this.counterTest = counterTest;
     }
 
+    public boolean isAtomicCounterTest() {
+        return atomicCounterTest;
+    }
+
+    public void setAtomicCounterTest(boolean atomicCounterTest) {
+        this.atomicCounterTest = atomicCounterTest;
+    }
+
+    public boolean isShardedCounterTest() {
+        return shardedCounterTest;
+    }
+
+    public void setShardedCounterTest(boolean shardedCounterTest) {
+        this.shardedCounterTest = shardedCounterTest;
+    }
+
+    public boolean isQueueTest() {
+        return queueTest;
+    }
+
+    public void setQueueTest(boolean queueTest) {
+        this.queueTest = queueTest;
+    }
+
+
+
+    public boolean isWalBenchmark() {
+        return walBenchmark;
+    }
+
+    public void setWalBenchmark(boolean walBenchmark) {
+        this.walBenchmark = walBenchmark;
+    }
+
+    public int getWalBenchmarkThreads() {
+        return walBenchmarkThreads;
+    }
+
+    public void setWalBenchmarkThreads(int walBenchmarkThreads) {
+        this.walBenchmarkThreads = walBenchmarkThreads;
+    }
+
+    public int getWalBenchmarkWritesPerThread() {
+        return walBenchmarkWritesPerThread;
+    }
+
+    public void setWalBenchmarkWritesPerThread(int walBenchmarkWritesPerThread) {
+        this.walBenchmarkWritesPerThread = walBenchmarkWritesPerThread;
+    }
+
+    public boolean isRecoveryBenchmark() {
+        return recoveryBenchmark;
+    }
 
+    public void setRecoveryBenchmark(boolean recoveryBenchmark) {
+        this.recoveryBenchmark = recoveryBenchmark;
+    }
+
+    public int getRecoveryBenchmarkMegabytes() {
+        return recoveryBenchmarkMegabytes;
+    }
+
+    public void setRecoveryBenchmarkMegabytes(int recoveryBenchmarkMegabytes) {
+        this.recoveryBenchmarkMegabytes = recoveryBenchmarkMegabytes;
+    }
+
+    public int getRecoveryBenchmarkValueBytes() {
+        return recoveryBenchmarkValueBytes;
+    }
+
+    public void setRecoveryBenchmarkValueBytes(int recoveryBenchmarkValueBytes) {
+        this.recoveryBenchmarkValueBytes = recoveryBenchmarkValueBytes;
+    }
 }
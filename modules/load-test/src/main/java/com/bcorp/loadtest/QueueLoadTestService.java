@@ -0,0 +1,231 @@
+package com.bcorp.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares a work queue kept as a json array, updated with GET + PUT?ifVersion, against the native
+ * list type. Every worker pushes a value and then pops one, so the queue never runs dry.
+ */
+public class QueueLoadTestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueLoadTestService.class);
+
+    private static final String JSON_ARRAY_QUEUE_KEY = "shared-queue-json";
+    private static final String LIST_QUEUE_KEY = "shared-queue-list";
+    private static final long RETRY_DELAY_MS = 10;
+
+    private final LoadTestConfig config;
+    private final KvStoreHttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong successfulOperations = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+
+    public QueueLoadTestService(LoadTestConfig config) {
+        this.config = config;
+        this.httpClient = new KvStoreHttpClient(config.getBaseUrl());
+    }
+
+    /**
+     * Pushes and pops by rewriting the whole json array, retrying on version conflicts
+     */
+    public CounterLoadTestResults runJsonArrayQueueLoadTest() throws InterruptedException {
+        logger.info("Starting json array queue load test with {} threads, {} push/pop pairs per thread",
+                config.getThreadCount(), config.getRequestsPerThread());
+
+        return runWorkers("json-array-queue", this::jsonArrayQueueLength, new QueueOperations() {
+            @Override
+            public boolean push(String value) throws IOException {
+                return updateJsonArray(queue -> {
+                    queue.add(value);
+                    return true;
+                });
+            }
+
+            @Override
+            public boolean pop() throws IOException {
+                return updateJsonArray(queue -> {
+                    if (queue.isEmpty()) {
+                        return false;
+                    }
+                    queue.remove(0);
+                    return true;
+                });
+            }
+        });
+    }
+
+    /**
+     * Pushes and pops with the list commands, a single request per operation
+     */
+    public CounterLoadTestResults runListQueueLoadTest() throws InterruptedException {
+        logger.info("Starting list queue load test with {} threads, {} push/pop pairs per thread",
+                config.getThreadCount(), config.getRequestsPerThread());
+
+        return runWorkers("list-queue", this::listQueueLength, new QueueOperations() {
+            @Override
+            public boolean push(String value) throws IOException {
+                httpClient.pushList(LIST_QUEUE_KEY, "[\"" + value + "\"]");
+                return true;
+            }
+
+            @Override
+            public boolean pop() throws IOException {
+                CacheResponse response = objectMapper.readValue(httpClient.popList(LIST_QUEUE_KEY), CacheResponse.class);
+                return !objectMapper.readTree(response.data).isEmpty();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ArrayUpdate {
+        boolean apply(ArrayNode queue);
+    }
+
+    private interface QueueOperations {
+        boolean push(String value) throws IOException;
+
+        boolean pop() throws IOException;
+    }
+
+    private boolean updateJsonArray(ArrayUpdate update) throws IOException {
+        String currentValue = httpClient.get(JSON_ARRAY_QUEUE_KEY);
+
+        ArrayNode queue;
+        long expectedVersion;
+        if (currentValue == null) {
+            queue = objectMapper.createArrayNode();
+            expectedVersion = -1;
+        } else {
+            CacheResponse response = objectMapper.readValue(currentValue, CacheResponse.class);
+            queue = (ArrayNode) objectMapper.readTree(response.data);
+            expectedVersion = response.version;
+        }
+
+        if (!update.apply(queue)) {
+            return false;
+        }
+        httpClient.put(JSON_ARRAY_QUEUE_KEY, objectMapper.writeValueAsString(queue), expectedVersion);
+        return true;
+    }
+
+    private long jsonArrayQueueLength() {
+        try {
+            String response = httpClient.get(JSON_ARRAY_QUEUE_KEY);
+            return response == null ? 0 : objectMapper.readTree(objectMapper.readValue(response, CacheResponse.class).data).size();
+        } catch (Exception e) {
+            logger.warn("Failed to read json array queue: {}", e.getMessage());
+            return -1; // Error value
+        }
+    }
+
+    private long listQueueLength() {
+        try {
+            String response = httpClient.getList(LIST_QUEUE_KEY);
+            return response == null ? 0 : objectMapper.readTree(objectMapper.readValue(response, CacheResponse.class).data).size();
+        } catch (Exception e) {
+            logger.warn("Failed to read list queue: {}", e.getMessage());
+            return -1; // Error value
+        }
+    }
+
+    private CounterLoadTestResults runWorkers(String testName,
+                                              LongSupplier finalLengthReader,
+                                              QueueOperations operations) throws InterruptedException {
+        successfulOperations.set(0);
+        failedAttempts.set(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.getThreadCount());
+        CountDownLatch latch = new CountDownLatch(config.getThreadCount());
+
+        long startTime = System.currentTimeMillis();
+
+        for (int i = 0; i < config.getThreadCount(); i++) {
+            executor.submit(new QueueWorker(i, latch, operations));
+        }
+
+        boolean completed = latch.await(config.getMaxDurationSeconds(), TimeUnit.SECONDS);
+        long endTime = System.currentTimeMillis();
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        if (!completed) {
+            logger.warn("Queue load test {} timed out after {} seconds", testName, config.getMaxDurationSeconds());
+        }
+
+        // whatever is left in the queue, 0 when every push was matched by a pop
+        return new CounterLoadTestResults(
+                testName,
+                finalLengthReader.getAsLong(),
+                endTime - startTime,
+                successfulOperations.get(),
+                failedAttempts.get()
+        );
+    }
+
+    private class QueueWorker implements Runnable {
+
+        private final int threadId;
+        private final CountDownLatch latch;
+        private final QueueOperations operations;
+
+        public QueueWorker(int threadId, CountDownLatch latch, QueueOperations operations) {
+            this.threadId = threadId;
+            this.latch = latch;
+            this.operations = operations;
+        }
+
+        @Override
+        public void run() {
+            long threadStartTime = System.currentTimeMillis();
+
+            try {
+                for (int i = 0; i < config.getRequestsPerThread(); i++) {
+                    String value = "job-" + threadId + "-" + i;
+                    while (!attempt(() -> operations.push(value))) {
+                        Thread.sleep(RETRY_DELAY_MS + ThreadLocalRandom.current().nextInt(5));
+                    }
+                    while (!attempt(operations::pop)) {
+                        Thread.sleep(RETRY_DELAY_MS + ThreadLocalRandom.current().nextInt(5));
+                    }
+                }
+
+                logger.info("Queue worker thread {} completed {} push/pop pairs in {}ms",
+                        threadId, config.getRequestsPerThread(), System.currentTimeMillis() - threadStartTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                latch.countDown();
+            }
+        }
+
+        private boolean attempt(Callable<Boolean> operation) {
+            try {
+                if (operation.call()) {
+                    successfulOperations.incrementAndGet();
+                    return true;
+                }
+            } catch (Exception e) {
+                logger.debug("Queue operation failed for thread {}: {}", threadId, e.getMessage());
+            }
+            failedAttempts.incrementAndGet();
+            return false;
+        }
+    }
+}
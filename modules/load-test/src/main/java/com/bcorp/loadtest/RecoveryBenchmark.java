@@ -0,0 +1,118 @@
+package com.bcorp.loadtest;
+
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.persistence.RecoveryStats;
+import com.bcorp.persistence.WalFsyncMode;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Measures how fast an in-process store comes back after a restart. The store is filled with
+ * {@code recoveryBenchmarkMegabytes} of values, snapshotted, then a tenth of the keys are overwritten
+ * so the recovery replays a log tail on top of the snapshots. The restarted store is timed until every
+ * partition recovered, then while every key is read once, which loads the values left in mapped snapshots.
+ */
+public class RecoveryBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecoveryBenchmark.class);
+
+    // writes, or reads, in flight at a time
+    private static final int WRITE_BATCH = 10_000;
+
+    private final LoadTestConfig config;
+
+    public record Result(String name, RecoveryStats stats, long readAllMs) {
+    }
+
+    public RecoveryBenchmark(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @param snapshotCompression compressed snapshots, which are read back whole
+     * @param mapValues           leave the values of the mapped snapshots in the file until they're read
+     */
+    public Result run(boolean snapshotCompression, boolean mapValues) throws IOException {
+        String name = snapshotCompression ? "compressed" : mapValues ? "mapped" : "uncompressed";
+        int valueBytes = config.getRecoveryBenchmarkValueBytes();
+        int keys = (int) ((long) config.getRecoveryBenchmarkMegabytes() * 1024 * 1024 / valueBytes);
+        logger.info("Starting {} recovery benchmark with {} keys of {} bytes", name, keys, valueBytes);
+
+        Path dataDirectory = Files.createTempDirectory("inflightkv-recovery-benchmark");
+        KeyValueStoreConfig storeConfig = new KeyValueStoreConfig();
+        storeConfig.getPersistence().setDataDirectory(dataDirectory.toString());
+        storeConfig.getPersistence().setWalFsyncMode(WalFsyncMode.NONE);
+        storeConfig.getPersistence().setSnapshotIntervalMs(0);
+        storeConfig.getPersistence().setSnapshotCompression(snapshotCompression);
+        storeConfig.getPersistence().setSnapshotMapValues(mapValues);
+
+        KeyValueStore store = new KeyValueStore(new SystemClock(), storeConfig);
+        write(store, 0, keys, valueBytes);
+        store.snapshot().join();
+        write(store, 0, keys / 10, valueBytes);
+        store.close();
+
+        KeyValueStore restarted = new KeyValueStore(new SystemClock(), storeConfig);
+        RecoveryStats stats = restarted.recovery().join();
+        long readStartNs = System.nanoTime();
+        readAll(restarted, keys);
+        long readAllMs = (System.nanoTime() - readStartNs) / 1_000_000;
+        restarted.close();
+        delete(dataDirectory);
+
+        return new Result(name, stats, readAllMs);
+    }
+
+    private static void write(KeyValueStore store, int fromKey, int toKey, int valueBytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<CompletableFuture<?>> writes = new ArrayList<>(WRITE_BATCH);
+        for (int i = fromKey; i < toKey; i++) {
+            writes.add(store.set(new DataKey("recovery-" + i), RequestDataValue.fromString(randomJson(random, valueBytes)), null));
+            if (writes.size() == WRITE_BATCH) {
+                CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+                writes.clear();
+            }
+        }
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private static void readAll(KeyValueStore store, int keys) {
+        List<CompletableFuture<?>> reads = new ArrayList<>(WRITE_BATCH);
+        for (int i = 0; i < keys; i++) {
+            reads.add(store.get(new DataKey("recovery-" + i)));
+            if (reads.size() == WRITE_BATCH) {
+                CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+                reads.clear();
+            }
+        }
+        CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private static String randomJson(ThreadLocalRandom random, int valueBytes) {
+        StringBuilder json = new StringBuilder(valueBytes).append("{\"payload\":\"");
+        while (json.length() < valueBytes - 2) {
+            json.append((char) ('a' + random.nextInt(26)));
+        }
+        return json.append("\"}").toString();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
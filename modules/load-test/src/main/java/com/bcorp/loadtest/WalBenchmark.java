@@ -0,0 +1,124 @@
+package com.bcorp.loadtest;
+
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import com.bcorp.kvstore.SystemClock;
+import com.bcorp.persistence.WalFsyncMode;
+import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Measures the write throughput of an in-process store with the write ahead log in every fsync mode,
+ * against the same store without a log. Every thread writes one value at a time and waits for its
+ * acknowledgement, like a request thread of the server would.
+ */
+public class WalBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalBenchmark.class);
+
+    private static final int KEY_SPACE = 100_000;
+    private static final int VALUE_BYTES = 256;
+
+    private final LoadTestConfig config;
+
+    public record Result(String name, long writes, long durationMs, long logBytes) {
+        public double writesPerSecond() {
+            return durationMs == 0 ? 0 : writes * 1000.0 / durationMs;
+        }
+
+        public double logMegabytesPerSecond() {
+            return durationMs == 0 ? 0 : logBytes / 1024.0 / 1024.0 * 1000.0 / durationMs;
+        }
+    }
+
+    public WalBenchmark(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @param fsyncMode fsync mode of the log, null runs the store without a log
+     */
+    public Result run(WalFsyncMode fsyncMode) throws InterruptedException, IOException {
+        String name = fsyncMode == null ? "in-memory" : "wal-" + fsyncMode.name().toLowerCase();
+        int threads = config.getWalBenchmarkThreads();
+        int writesPerThread = config.getWalBenchmarkWritesPerThread();
+        logger.info("Starting {} write benchmark with {} threads, {} writes per thread", name, threads, writesPerThread);
+
+        Path dataDirectory = Files.createTempDirectory("inflightkv-wal-benchmark");
+        KeyValueStoreConfig storeConfig = new KeyValueStoreConfig();
+        if (fsyncMode != null) {
+            storeConfig.getPersistence().setDataDirectory(dataDirectory.toString());
+            storeConfig.getPersistence().setWalFsyncMode(fsyncMode);
+        }
+
+        KeyValueStore store = new KeyValueStore(new SystemClock(), storeConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong writes = new AtomicLong();
+
+        long startMs = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < writesPerThread; i++) {
+                        DataKey key = new DataKey("benchmark-" + random.nextInt(KEY_SPACE));
+                        store.set(key, RequestDataValue.fromString(randomJson(random)), null).join();
+                        writes.incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long durationMs = System.currentTimeMillis() - startMs;
+
+        executor.shutdown();
+        store.close();
+        long logBytes = sizeOf(dataDirectory);
+        delete(dataDirectory);
+
+        return new Result(name, writes.get(), durationMs, logBytes);
+    }
+
+    private static String randomJson(ThreadLocalRandom random) {
+        StringBuilder json = new StringBuilder(VALUE_BYTES).append("{\"payload\":\"");
+        while (json.length() < VALUE_BYTES - 2) {
+            json.append((char) ('a' + random.nextInt(26)));
+        }
+        return json.append("\"}").toString();
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -1,9 +1,24 @@
 package com.bcorp.InFlightKv.config;
 
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.backingstore.CacheLoader;
+import com.bcorp.backingstore.CacheWriter;
+import com.bcorp.api.handlers.HandlerResolver;
+import com.bcorp.api.handlers.bloom.BloomFilterHandlers;
+import com.bcorp.api.handlers.countmin.CountMinSketchHandlers;
+import com.bcorp.api.handlers.hash.HashHandlers;
+import com.bcorp.api.handlers.hyperloglog.HyperLogLogHandlers;
+import com.bcorp.api.handlers.list.ListHandlers;
+import com.bcorp.api.handlers.sortedset.SortedSetHandlers;
+import com.bcorp.api.handlers.stream.StreamHandlers;
+import com.bcorp.api.handlers.timeseries.TimeSeriesHandlers;
 import com.bcorp.codec.JsonCodec;
 import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
 import com.bcorp.kvstore.KvStoreClock;
 import com.bcorp.kvstore.SystemClock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,7 +36,39 @@ public class KeyValueStoreConfiguration {
     }
 
     @Bean
-    public KeyValueStore keyValueStore(KvStoreClock clock) {
-        return new KeyValueStore(clock);
+    @ConfigurationProperties(prefix = "inflight-kv.store")
+    public KeyValueStoreConfig keyValueStoreConfig() {
+        return new KeyValueStoreConfig();
+    }
+
+    /**
+     * The store reads through the {@link CacheLoader} bean and writes behind to the {@link CacheWriter} bean,
+     * when the application declares them.
+     */
+    @Bean
+    public KeyValueStore keyValueStore(KvStoreClock clock,
+                                       KeyValueStoreConfig config,
+                                       ObjectProvider<CacheLoader> loader,
+                                       ObjectProvider<CacheWriter> writer) {
+        return new KeyValueStore(clock, config, loader.getIfAvailable(), writer.getIfAvailable());
+    }
+
+    @Bean
+    public HandlerResolver handlerResolver() {
+        HandlerResolver handlerResolver = new HandlerResolver();
+        HashHandlers.register(handlerResolver);
+        SortedSetHandlers.register(handlerResolver);
+        ListHandlers.register(handlerResolver);
+        StreamHandlers.register(handlerResolver);
+        HyperLogLogHandlers.register(handlerResolver);
+        BloomFilterHandlers.register(handlerResolver);
+        CountMinSketchHandlers.register(handlerResolver);
+        TimeSeriesHandlers.register(handlerResolver);
+        return handlerResolver;
+    }
+
+    @Bean
+    public KeyValueStoreEngine keyValueStoreEngine(KeyValueStore keyValueStore, HandlerResolver handlerResolver) {
+        return new KeyValueStoreEngine(keyValueStore, handlerResolver);
     }
 }
@@ -0,0 +1,130 @@
+package com.bcorp.InFlightKv.controller;
+
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.service.ClusterService;
+import com.bcorp.InFlightKv.service.HashService;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.bcorp.InFlightKv.controller.JsonKeyValueStoreController.VERSION_HEADER;
+
+/**
+ * Field level access to hash values, HGET / HMGET / HGETALL / HSET / HDEL.
+ */
+@RestController
+@RequestMapping("/kv/{key}/_hash")
+public class HashController {
+
+    private final HashService hashService;
+    private final ClusterService clusterService;
+
+    public HashController(HashService hashService, ClusterService clusterService) {
+        this.hashService = hashService;
+        this.clusterService = clusterService;
+    }
+
+    @GetMapping("")
+    public Mono<ResponseEntity<?>> getFields(@PathVariable String key,
+                                             @RequestParam(required = false, defaultValue = "") List<String> fields,
+                                             ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                hashService.getFields(key, fields)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @GetMapping("/{field}")
+    public Mono<ResponseEntity<?>> getField(@PathVariable String key,
+                                            @PathVariable String field,
+                                            ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                hashService.getField(key, field)
+                                        .thenApply(this::convertToRawResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @PutMapping("")
+    public Mono<ResponseEntity<?>> setFields(@PathVariable String key,
+                                             @RequestBody Mono<String> jsonBody,
+                                             ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return jsonBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return jsonBody
+                        .map(strBody ->
+                                hashService.setFields(key, strBody)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @DeleteMapping("")
+    public Mono<ResponseEntity<?>> deleteFields(@PathVariable String key,
+                                                @RequestParam List<String> fields,
+                                                ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                hashService.deleteFields(key, fields)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+
+
+    private ResponseEntity<?> convertToRawResponse(CacheResponse<byte[]> response) {
+        if (response.data() != null) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(VERSION_HEADER, String.valueOf(response.version()))
+                    .body(DefaultDataBufferFactory.sharedInstance.wrap(response.data()));
+        }
+        return CacheHandlerUtils.handleError(response.error());
+    }
+}
@@ -1,14 +1,25 @@
 package com.bcorp.InFlightKv.controller;
 
-import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.BulkImportResult;
 import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.service.BulkExportService;
+import com.bcorp.InFlightKv.service.BulkImportService;
 import com.bcorp.InFlightKv.service.ClusterKeyService;
 import com.bcorp.InFlightKv.service.ClusterService;
 import com.bcorp.InFlightKv.service.KeyRoutingResult;
 import com.bcorp.InFlightKv.service.KeyValueStoreService;
+import com.bcorp.InFlightKv.utils.JsonBodyReader;
+import com.bcorp.codec.JsonCodec;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -17,34 +28,52 @@ import java.util.List;
 @RequestMapping("/kv")
 public class JsonKeyValueStoreController {
 
+    public static final String VERSION_HEADER = "X-Version";
+    public static final String JSON_PATCH_MEDIA_TYPE = "application/json-patch+json";
+    public static final String MERGE_PATCH_MEDIA_TYPE = "application/merge-patch+json";
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
     private final KeyValueStoreService keyValueStoreService;
     private final ClusterService clusterService;
     private final ClusterKeyService clusterKeyService;
+    private final BulkImportService bulkImportService;
+    private final BulkExportService bulkExportService;
+    private final JsonCodec jsonCodec;
 
     public JsonKeyValueStoreController(KeyValueStoreService keyValueStoreService,
                                        ClusterService clusterService,
-                                       ClusterKeyService clusterKeyService) {
+                                       ClusterKeyService clusterKeyService,
+                                       BulkImportService bulkImportService,
+                                       BulkExportService bulkExportService,
+                                       JsonCodec jsonCodec) {
         this.keyValueStoreService = keyValueStoreService;
         this.clusterService = clusterService;
         this.clusterKeyService = clusterKeyService;
+        this.bulkImportService = bulkImportService;
+        this.bulkExportService = bulkExportService;
+        this.jsonCodec = jsonCodec;
     }
 
     @GetMapping("/{key}")
-    public Mono<ResponseEntity<?>> get(@PathVariable String key) {
+    public Mono<ResponseEntity<?>> get(@PathVariable String key,
+                                       @RequestParam(required = false) boolean raw,
+                                       ServerHttpRequest request) {
         try {
             KeyRoutingResult routing = clusterService.routeKey(key);
 
             if (routing.isShouldRedirect()) {
-                // Redirect to the correct node
-                String redirectUrl = routing.getExternalUrl() + "/kv/" + key;
-                return Mono.just(ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
-                        .header("Location", redirectUrl)
-                        .build());
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else if (raw) {
+                // the stored bytes are written straight into the response body
+                return Mono.fromCallable(() ->
+                                keyValueStoreService.getRaw(key)
+                                        .thenApply(this::convertToRawResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
             } else {
-                // Handle locally
                 return Mono.fromCallable(() ->
                                 keyValueStoreService.get(key)
-                                        .thenApply(this::convertToControllerResponse)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
                         )
                         .flatMap(Mono::fromFuture);
             }
@@ -55,28 +84,33 @@ public class JsonKeyValueStoreController {
 
     @PutMapping("/{key}")
     public Mono<ResponseEntity<?>> put(@PathVariable String key,
-                                       @RequestBody Mono<String> jsonBody,
-                                       @RequestParam(required = false) Long ifVersion) {
+                                       @RequestBody Flux<DataBuffer> body,
+                                       @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                       @RequestParam(required = false) Long ifVersion,
+                                       ServerHttpRequest request) {
         try {
             KeyRoutingResult routing = clusterService.routeKey(key);
 
             if (routing.isShouldRedirect()) {
-                // Redirect to the correct node
-                return jsonBody.map(strBody -> {
-                    String redirectUrl = routing.getExternalUrl() + "/kv/" + key +
-                            (ifVersion != null ? "?ifVersion=" + ifVersion : "");
-                    return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
-                            .header("Location", redirectUrl)
-                            .header("X-Redirect-Reason", "Key belongs to different node")
-                            .build();
-                });
+                return JsonBodyReader.discard(body)
+                        .then(Mono.fromSupplier(() -> CacheHandlerUtils.redirectToOwner(routing, request)));
+            }
+
+            int maxValueBytes = keyValueStoreService.maxValueBytes();
+            if (maxValueBytes > 0 && contentLength != null && contentLength > maxValueBytes) {
+                // Rejected before a byte of the body is read
+                return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
             } else {
-                // Handle locally
-                return jsonBody.map(strBody ->
-                                keyValueStoreService.set(key, strBody, ifVersion, false)
-                                        .thenApply(this::convertToControllerResponse)
-                        )
-                        .flatMap(Mono::fromFuture);
+                // the body is validated while streaming in and stored as-is
+                return JsonBodyReader.readValidatedJson(body, contentLength, maxValueBytes, jsonCodec)
+                        .flatMap(validatedBody -> {
+                            if (!validatedBody.isSuccess()) {
+                                return Mono.just(CacheHandlerUtils.handleError(validatedBody.getErrorResponse()));
+                            }
+                            return Mono.fromFuture(
+                                    keyValueStoreService.setJson(key, validatedBody.getSuccessResponse(), ifVersion)
+                                            .thenApply(CacheHandlerUtils::convertToControllerResponse));
+                        });
             }
         } catch (Exception e) {
             return Mono.just(ResponseEntity.internalServerError().build());
@@ -86,26 +120,86 @@ public class JsonKeyValueStoreController {
     @PatchMapping("/{key}")
     public Mono<ResponseEntity<?>> patch(@PathVariable String key,
                                          @RequestBody Mono<String> jsonBody,
-                                         @RequestParam(required = false) Long ifVersion) {
+                                         @RequestParam(required = false) Long ifVersion,
+                                         ServerHttpRequest request) {
         try {
             KeyRoutingResult routing = clusterService.routeKey(key);
 
             if (routing.isShouldRedirect()) {
-                // Redirect to the correct node
-                return jsonBody.map(strBody -> {
-                    String redirectUrl = routing.getExternalUrl() + "/kv/" + key +
-                            (ifVersion != null ? "?ifVersion=" + ifVersion : "");
-                    return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
-                            .header("Location", redirectUrl)
-                            .header("X-Redirect-Reason", "Key belongs to different node")
-                            .build();
-                });
+                return jsonBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
             } else {
-                // Handle locally
                 return jsonBody
                         .map(strBody ->
                                 keyValueStoreService.set(key, strBody, ifVersion, true)
-                                        .thenApply(this::convertToControllerResponse)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @PatchMapping(value = "/{key}", consumes = JSON_PATCH_MEDIA_TYPE)
+    public Mono<ResponseEntity<?>> jsonPatch(@PathVariable String key,
+                                             @RequestBody Mono<String> patchBody,
+                                             @RequestParam(required = false) Long ifVersion,
+                                             ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return patchBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return patchBody
+                        .map(strBody ->
+                                keyValueStoreService.jsonPatch(key, strBody, ifVersion)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @PatchMapping(value = "/{key}", consumes = MERGE_PATCH_MEDIA_TYPE)
+    public Mono<ResponseEntity<?>> mergePatch(@PathVariable String key,
+                                              @RequestBody Mono<String> patchBody,
+                                              @RequestParam(required = false) Long ifVersion,
+                                              ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return patchBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return patchBody
+                        .map(strBody ->
+                                keyValueStoreService.mergePatch(key, strBody, ifVersion)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @PostMapping("/{key}/_incr")
+    public Mono<ResponseEntity<?>> increment(@PathVariable String key,
+                                             @RequestParam(defaultValue = "") String path,
+                                             @RequestParam(defaultValue = "1") long by,
+                                             ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                keyValueStoreService.increment(key, path, by)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
                         )
                         .flatMap(Mono::fromFuture);
             }
@@ -115,22 +209,16 @@ public class JsonKeyValueStoreController {
     }
 
     @DeleteMapping("/{key}")
-    public Mono<ResponseEntity<?>> delete(@PathVariable String key) {
+    public Mono<ResponseEntity<?>> delete(@PathVariable String key, ServerHttpRequest request) {
         try {
             KeyRoutingResult routing = clusterService.routeKey(key);
 
             if (routing.isShouldRedirect()) {
-                // Redirect to the correct node
-                String redirectUrl = routing.getExternalUrl() + "/kv/" + key;
-                return Mono.just(ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
-                        .header("Location", redirectUrl)
-                        .header("X-Redirect-Reason", "Key belongs to different node")
-                        .build());
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
             } else {
-                // Handle locally
                 return Mono.fromCallable(() ->
                                 keyValueStoreService.remove(key)
-                                        .thenApply(this::convertToControllerResponse)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
                         )
                         .flatMap(Mono::fromFuture);
             }
@@ -139,6 +227,29 @@ public class JsonKeyValueStoreController {
         }
     }
 
+    /**
+     * Imports newline delimited json, one {"key": ..., "value": ...} object per line with an optional expected
+     * "version", while the body streams in. Keys of other nodes are rejected instead of redirected, a
+     * malformed line stops the import with 400 and the lines before it stay imported.
+     */
+    @PostMapping("/_bulk")
+    public Mono<ResponseEntity<BulkImportResult>> bulkImport(@RequestBody Flux<DataBuffer> body) {
+        return bulkImportService.importRecords(body)
+                .map(result -> result.error() == null
+                        ? ResponseEntity.ok(result)
+                        : ResponseEntity.badRequest().body(result));
+    }
+
+    /**
+     * Streams the JSON values held by this node as newline delimited json, one {"key", "value", "version"} object
+     * per line, read from the partitions a chunk at a time while the client consumes them. Without versions the
+     * lines can be imported with {@code POST /kv/_bulk} as they are.
+     */
+    @GetMapping(value = "/_export", produces = NDJSON_MEDIA_TYPE)
+    public Flux<DataBuffer> export(@RequestParam(defaultValue = "true") boolean versions) {
+        return bulkExportService.exportRecords(versions);
+    }
+
     @GetMapping("")
     public Mono<ResponseEntity<String>> getAllKeys(@RequestParam(required = false) boolean skipOtherNodes) {
         return Mono.fromCallable(() -> clusterKeyService.getAllKeysFromCluster(skipOtherNodes)
@@ -156,7 +267,7 @@ public class JsonKeyValueStoreController {
                   .append("\"}\n");
         }
         return ResponseEntity.ok()
-                .header("Content-Type", "application/x-ndjson")
+                .header("Content-Type", NDJSON_MEDIA_TYPE)
                 .body(ndjson.toString());
     }
 
@@ -169,18 +280,16 @@ public class JsonKeyValueStoreController {
                    .replace("\t", "\\t");
     }
 
-    private ResponseEntity<CacheResponse<String>> convertToControllerResponse(CacheResponse<String> response) {
+
+
+    private ResponseEntity<?> convertToRawResponse(CacheResponse<byte[]> response) {
         if (response.data() != null) {
-            return ResponseEntity.ok(response);
+            // wrapping doesn't copy, the stored array is never mutated once written
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(VERSION_HEADER, String.valueOf(response.version()))
+                    .body(DefaultDataBufferFactory.sharedInstance.wrap(response.data()));
         }
-        return handleError(response.error());
-    }
-
-    private ResponseEntity<CacheResponse<String>> handleError(CacheError error) {
-        return switch (error.errorCode()) {
-            case NOT_FOUND -> ResponseEntity.notFound().build();
-            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT).build();
-            default -> ResponseEntity.internalServerError().build();
-        };
+        return CacheHandlerUtils.handleError(response.error());
     }
 }
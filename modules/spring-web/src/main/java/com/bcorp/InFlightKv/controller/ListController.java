@@ -0,0 +1,105 @@
+package com.bcorp.InFlightKv.controller;
+
+import com.bcorp.InFlightKv.service.ClusterService;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
+import com.bcorp.InFlightKv.service.ListService;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * List commands, LPUSH / RPUSH / LPOP / RPOP / BLPOP / BRPOP / LRANGE.
+ */
+@RestController
+@RequestMapping("/kv/{key}/_list")
+public class ListController {
+
+    private final ListService listService;
+    private final ClusterService clusterService;
+
+    public ListController(ListService listService, ClusterService clusterService) {
+        this.listService = listService;
+        this.clusterService = clusterService;
+    }
+
+    /**
+     * @param side {@code left} pushes to the head, {@code right} to the tail
+     */
+    @PostMapping("")
+    public Mono<ResponseEntity<?>> push(@PathVariable String key,
+                                        @RequestParam(defaultValue = "right") String side,
+                                        @RequestBody Mono<String> jsonBody,
+                                        ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return jsonBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return jsonBody
+                        .map(strBody ->
+                                listService.push(key, strBody, isLeft(side))
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    /**
+     * Pops right away unless {@code timeoutMs} is given, a blocking pop holds the request, not a thread,
+     * until a value is pushed or the timeout expires.
+     */
+    @PostMapping("/_pop")
+    public Mono<ResponseEntity<?>> pop(@PathVariable String key,
+                                       @RequestParam(defaultValue = "left") String side,
+                                       @RequestParam(defaultValue = "1") int count,
+                                       @RequestParam(required = false) Long timeoutMs,
+                                       ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                listService.pop(key, isLeft(side), count, timeoutMs)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @GetMapping("")
+    public Mono<ResponseEntity<?>> range(@PathVariable String key,
+                                         @RequestParam(defaultValue = "0") long start,
+                                         @RequestParam(defaultValue = "-1") long stop,
+                                         ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                listService.range(key, start, stop)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    private static boolean isLeft(String side) {
+        return "left".equalsIgnoreCase(side);
+    }
+}
@@ -0,0 +1,157 @@
+package com.bcorp.InFlightKv.controller;
+
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.service.ClusterService;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
+import com.bcorp.InFlightKv.service.ProbabilisticService;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * HyperLogLog (PFADD / PFCOUNT / PFMERGE), bloom filter (BF.MADD / BF.MEXISTS) and count-min sketch
+ * (CMS.INCRBY / CMS.QUERY / CMS.MERGE) commands.
+ */
+@RestController
+@RequestMapping("/kv/{key}")
+public class ProbabilisticController {
+
+    private final ProbabilisticService probabilisticService;
+    private final ClusterService clusterService;
+
+    public ProbabilisticController(ProbabilisticService probabilisticService, ClusterService clusterService) {
+        this.probabilisticService = probabilisticService;
+        this.clusterService = clusterService;
+    }
+
+    @PostMapping("/_hll")
+    public Mono<ResponseEntity<?>> addToHyperLogLog(@PathVariable String key,
+                                                    @RequestBody Mono<String> jsonBody,
+                                                    ServerHttpRequest request) {
+        return withBody(key, jsonBody, request, strBody -> probabilisticService.addToHyperLogLog(key, strBody));
+    }
+
+    @GetMapping("/_hll")
+    public Mono<ResponseEntity<?>> countHyperLogLog(@PathVariable String key, ServerHttpRequest request) {
+        return withoutBody(key, request, () -> probabilisticService.countHyperLogLog(key));
+    }
+
+    /**
+     * The sources must be owned by this node as well.
+     */
+    @PostMapping("/_hll/_merge")
+    public Mono<ResponseEntity<?>> mergeHyperLogLogs(@PathVariable String key,
+                                                     @RequestParam List<String> sources,
+                                                     ServerHttpRequest request) {
+        if (!ownsAll(sources)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return withoutBody(key, request, () -> probabilisticService.mergeHyperLogLogs(key, sources));
+    }
+
+    /**
+     * @param capacity  number of items a new filter is sized for, ignored if the filter exists
+     * @param errorRate false positive rate of a new filter, ignored if the filter exists
+     */
+    @PostMapping("/_bloom")
+    public Mono<ResponseEntity<?>> addToBloomFilter(@PathVariable String key,
+                                                    @RequestParam(required = false) Long capacity,
+                                                    @RequestParam(required = false) Double errorRate,
+                                                    @RequestBody Mono<String> jsonBody,
+                                                    ServerHttpRequest request) {
+        return withBody(key, jsonBody, request,
+                strBody -> probabilisticService.addToBloomFilter(key, strBody, capacity, errorRate));
+    }
+
+    @GetMapping("/_bloom")
+    public Mono<ResponseEntity<?>> existsInBloomFilter(@PathVariable String key,
+                                                       @RequestParam List<String> items,
+                                                       ServerHttpRequest request) {
+        return withoutBody(key, request, () -> probabilisticService.existsInBloomFilter(key, items));
+    }
+
+    /**
+     * @param errorRate   overestimate bound of a new sketch, as a fraction of the total count
+     * @param probability probability that an estimate of a new sketch exceeds the bound
+     */
+    @PostMapping("/_cms")
+    public Mono<ResponseEntity<?>> incrementCountMinSketch(@PathVariable String key,
+                                                           @RequestParam(required = false) Double errorRate,
+                                                           @RequestParam(required = false) Double probability,
+                                                           @RequestBody Mono<String> jsonBody,
+                                                           ServerHttpRequest request) {
+        return withBody(key, jsonBody, request,
+                strBody -> probabilisticService.incrementCountMinSketch(key, strBody, errorRate, probability));
+    }
+
+    @GetMapping("/_cms")
+    public Mono<ResponseEntity<?>> queryCountMinSketch(@PathVariable String key,
+                                                       @RequestParam List<String> items,
+                                                       ServerHttpRequest request) {
+        return withoutBody(key, request, () -> probabilisticService.queryCountMinSketch(key, items));
+    }
+
+    /**
+     * The sources must be owned by this node as well.
+     */
+    @PostMapping("/_cms/_merge")
+    public Mono<ResponseEntity<?>> mergeCountMinSketches(@PathVariable String key,
+                                                         @RequestParam List<String> sources,
+                                                         ServerHttpRequest request) {
+        if (!ownsAll(sources)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return withoutBody(key, request, () -> probabilisticService.mergeCountMinSketches(key, sources));
+    }
+
+    private Mono<ResponseEntity<?>> withBody(String key,
+                                             Mono<String> jsonBody,
+                                             ServerHttpRequest request,
+                                             Function<String, CompletableFuture<CacheResponse<String>>> command) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return jsonBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return jsonBody
+                        .map(strBody -> command.apply(strBody)
+                                .thenApply(CacheHandlerUtils::convertToControllerResponse))
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    private Mono<ResponseEntity<?>> withoutBody(String key,
+                                                ServerHttpRequest request,
+                                                Supplier<CompletableFuture<CacheResponse<String>>> command) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() -> command.get().thenApply(CacheHandlerUtils::convertToControllerResponse))
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    /**
+     * Merges read their sources locally, a source owned by a different node would be read as missing.
+     */
+    private boolean ownsAll(List<String> keys) {
+        return keys.stream().noneMatch(sourceKey -> clusterService.routeKey(sourceKey).isShouldRedirect());
+    }
+}
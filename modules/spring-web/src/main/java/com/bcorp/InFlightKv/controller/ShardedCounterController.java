@@ -0,0 +1,89 @@
+package com.bcorp.InFlightKv.controller;
+
+import com.bcorp.InFlightKv.service.ClusterService;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
+import com.bcorp.InFlightKv.service.ShardedCounterService;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sharded counters for keys which are incremented too often for a single partition.
+ * A counter is routed to a node like any other key, the sharding happens over the partitions of that node.
+ */
+@RestController
+@RequestMapping("/counters")
+public class ShardedCounterController {
+
+    private final ShardedCounterService shardedCounterService;
+    private final ClusterService clusterService;
+
+    public ShardedCounterController(ShardedCounterService shardedCounterService,
+                                    ClusterService clusterService) {
+        this.shardedCounterService = shardedCounterService;
+        this.clusterService = clusterService;
+    }
+
+    @PostMapping("/{key}/_incr")
+    public Mono<ResponseEntity<?>> increment(@PathVariable String key,
+                                             @RequestParam(defaultValue = "1") long by,
+                                             ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                shardedCounterService.increment(key, by)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @GetMapping("/{key}")
+    public Mono<ResponseEntity<?>> get(@PathVariable String key,
+                                       @RequestParam(required = false) Long maxStalenessMs,
+                                       ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                shardedCounterService.get(key, maxStalenessMs)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @DeleteMapping("/{key}")
+    public Mono<ResponseEntity<?>> delete(@PathVariable String key, ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                shardedCounterService.remove(key)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.bcorp.InFlightKv.controller;
+
+import com.bcorp.InFlightKv.service.ClusterService;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
+import com.bcorp.InFlightKv.service.SortedSetService;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Sorted set commands, ZADD / ZREM / ZRANK / ZRANGEBYSCORE / ZRANGE.
+ */
+@RestController
+@RequestMapping("/kv/{key}/_zset")
+public class SortedSetController {
+
+    private final SortedSetService sortedSetService;
+    private final ClusterService clusterService;
+
+    public SortedSetController(SortedSetService sortedSetService, ClusterService clusterService) {
+        this.sortedSetService = sortedSetService;
+        this.clusterService = clusterService;
+    }
+
+    @PutMapping("")
+    public Mono<ResponseEntity<?>> add(@PathVariable String key,
+                                       @RequestBody Mono<String> jsonBody,
+                                       ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return jsonBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return jsonBody
+                        .map(strBody ->
+                                sortedSetService.add(key, strBody)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @DeleteMapping("")
+    public Mono<ResponseEntity<?>> remove(@PathVariable String key,
+                                          @RequestParam List<String> members,
+                                          ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                sortedSetService.remove(key, members)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @GetMapping("/{member}")
+    public Mono<ResponseEntity<?>> rank(@PathVariable String key,
+                                        @PathVariable String member,
+                                        ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                sortedSetService.rank(key, member)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    /**
+     * Range by score when {@code min} or {@code max} is given, otherwise range by rank.
+     */
+    @GetMapping("")
+    public Mono<ResponseEntity<?>> range(@PathVariable String key,
+                                         @RequestParam(required = false) Double min,
+                                         @RequestParam(required = false) Double max,
+                                         @RequestParam(defaultValue = "0") int offset,
+                                         @RequestParam(defaultValue = "-1") int limit,
+                                         @RequestParam(defaultValue = "0") long start,
+                                         @RequestParam(defaultValue = "-1") long stop,
+                                         ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                boolean byScore = min != null || max != null;
+                return Mono.fromCallable(() ->
+                                (byScore
+                                        ? sortedSetService.rangeByScore(key,
+                                        min != null ? min : Double.NEGATIVE_INFINITY,
+                                        max != null ? max : Double.POSITIVE_INFINITY,
+                                        offset, limit)
+                                        : sortedSetService.rangeByRank(key, start, stop))
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+}
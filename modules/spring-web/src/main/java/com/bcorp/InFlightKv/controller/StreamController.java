@@ -0,0 +1,164 @@
+package com.bcorp.InFlightKv.controller;
+
+import com.bcorp.InFlightKv.service.ClusterService;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
+import com.bcorp.InFlightKv.service.StreamService;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stream commands, XADD / XRANGE / XREAD / XREADGROUP / XTRIM, and a tail streaming the entries as ndjson.
+ */
+@RestController
+@RequestMapping("/kv/{key}/_stream")
+public class StreamController {
+
+    private final StreamService streamService;
+    private final ClusterService clusterService;
+
+    public StreamController(StreamService streamService, ClusterService clusterService) {
+        this.streamService = streamService;
+        this.clusterService = clusterService;
+    }
+
+    @PostMapping("")
+    public Mono<ResponseEntity<?>> append(@PathVariable String key,
+                                          @RequestParam(required = false) Long maxLength,
+                                          @RequestBody Mono<String> jsonBody,
+                                          ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return jsonBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return jsonBody
+                        .map(strBody ->
+                                streamService.append(key, strBody, maxLength)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @GetMapping("")
+    public Mono<ResponseEntity<?>> read(@PathVariable String key,
+                                        @RequestParam(defaultValue = "0") long fromOffset,
+                                        @RequestParam(defaultValue = "100") int limit,
+                                        @RequestParam(required = false) Long timeoutMs,
+                                        ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                streamService.read(key, fromOffset, limit, timeoutMs)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    /**
+     * Keeps the response open and writes every entry from {@code fromOffset} on as one ndjson line,
+     * flushed as soon as it's appended.
+     */
+    @GetMapping("/_tail")
+    public Mono<Void> tail(@PathVariable String key,
+                           @RequestParam(defaultValue = "0") long fromOffset,
+                           ServerHttpRequest request,
+                           ServerHttpResponse response) {
+        KeyRoutingResult routing = clusterService.routeKey(key);
+
+        if (routing.isShouldRedirect()) {
+            response.setStatusCode(HttpStatus.TEMPORARY_REDIRECT);
+            response.getHeaders().set("Location", CacheHandlerUtils.redirectUrl(routing, request));
+            response.getHeaders().set("X-Redirect-Reason", "Key belongs to different node");
+            return response.setComplete();
+        }
+
+        response.getHeaders().set("Content-Type", "application/x-ndjson");
+        return response.writeAndFlushWith(streamService.tail(key, fromOffset)
+                .map(line -> Mono.just(response.bufferFactory().wrap(line))));
+    }
+
+    @PostMapping("/_groups/{group}/_read")
+    public Mono<ResponseEntity<?>> readGroup(@PathVariable String key,
+                                             @PathVariable String group,
+                                             @RequestParam(defaultValue = "100") int limit,
+                                             @RequestParam(required = false) Long timeoutMs,
+                                             ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                streamService.readGroup(key, group, limit, timeoutMs)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @PutMapping("/_groups/{group}")
+    public Mono<ResponseEntity<?>> seekGroup(@PathVariable String key,
+                                             @PathVariable String group,
+                                             @RequestParam long offset,
+                                             ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                streamService.seekGroup(key, group, offset)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    @PostMapping("/_trim")
+    public Mono<ResponseEntity<?>> trim(@PathVariable String key,
+                                        @RequestParam(required = false) Long maxLength,
+                                        @RequestParam(required = false) Long maxAgeMs,
+                                        ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                streamService.trim(key, maxLength, maxAgeMs)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+}
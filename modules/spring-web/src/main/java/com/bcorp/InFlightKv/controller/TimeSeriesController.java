@@ -0,0 +1,79 @@
+package com.bcorp.InFlightKv.controller;
+
+import com.bcorp.InFlightKv.service.ClusterService;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
+import com.bcorp.InFlightKv.service.TimeSeriesService;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Time series commands, TS.MADD / TS.RANGE with aggregation per bucket.
+ */
+@RestController
+@RequestMapping("/kv/{key}/_ts")
+public class TimeSeriesController {
+
+    private final TimeSeriesService timeSeriesService;
+    private final ClusterService clusterService;
+
+    public TimeSeriesController(TimeSeriesService timeSeriesService, ClusterService clusterService) {
+        this.timeSeriesService = timeSeriesService;
+        this.clusterService = clusterService;
+    }
+
+    /**
+     * @param retentionMs if set, replaces the retention of the series, 0 keeps the samples forever
+     */
+    @PostMapping("")
+    public Mono<ResponseEntity<?>> add(@PathVariable String key,
+                                       @RequestParam(required = false) Long retentionMs,
+                                       @RequestBody Mono<String> jsonBody,
+                                       ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return jsonBody.map(strBody -> CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return jsonBody
+                        .map(strBody ->
+                                timeSeriesService.add(key, strBody, retentionMs)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    /**
+     * @param bucketMs if set, returns min / max / avg per bucket instead of the samples
+     */
+    @GetMapping("")
+    public Mono<ResponseEntity<?>> range(@PathVariable String key,
+                                         @RequestParam(defaultValue = "0") long fromMs,
+                                         @RequestParam(required = false) Long toMs,
+                                         @RequestParam(required = false) Long bucketMs,
+                                         @RequestParam(required = false) Integer limit,
+                                         ServerHttpRequest request) {
+        try {
+            KeyRoutingResult routing = clusterService.routeKey(key);
+
+            if (routing.isShouldRedirect()) {
+                return Mono.just(CacheHandlerUtils.redirectToOwner(routing, request));
+            } else {
+                return Mono.fromCallable(() ->
+                                timeSeriesService.range(key, fromMs, toMs == null ? Long.MAX_VALUE : toMs, bucketMs, limit)
+                                        .thenApply(CacheHandlerUtils::convertToControllerResponse)
+                        )
+                        .flatMap(Mono::fromFuture);
+            }
+        } catch (Exception e) {
+            return Mono.just(ResponseEntity.internalServerError().build());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.bcorp.InFlightKv.exceptions;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+
+/**
+ * Carries a {@link CacheError} out of a function executed inside the store, e.g. a compute
+ * on the partition loop, where an {@code Either} can't be returned.
+ */
+public class CacheErrorException extends RuntimeException {
+    private final CacheError error;
+
+    public CacheErrorException(CacheError error) {
+        super(error.errorMessage());
+        this.error = error;
+    }
+
+    public CacheError getError() {
+        return error;
+    }
+}
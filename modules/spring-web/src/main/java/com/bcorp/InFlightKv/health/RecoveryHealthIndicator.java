@@ -0,0 +1,49 @@
+package com.bcorp.InFlightKv.health;
+
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.persistence.RecoveryStats;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Keeps the node out of service until the store recovered its snapshots and log, so the readiness probe
+ * only routes traffic to a node which holds its data.
+ */
+@Component
+public class RecoveryHealthIndicator implements HealthIndicator {
+
+    private final KeyValueStore keyValueStore;
+
+    public RecoveryHealthIndicator(KeyValueStore keyValueStore) {
+        this.keyValueStore = keyValueStore;
+    }
+
+    @Override
+    public Health health() {
+        CompletableFuture<RecoveryStats> recovery = keyValueStore.recovery();
+        if (!recovery.isDone()) {
+            return Health.outOfService()
+                    .withDetail("recoveredPartitions", keyValueStore.recoveredPartitions())
+                    .withDetail("partitions", keyValueStore.partitionCount())
+                    .build();
+        }
+
+        try {
+            RecoveryStats stats = recovery.join();
+            return Health.up()
+                    .withDetail("entries", stats.entries())
+                    .withDetail("replayedRecords", stats.replayedRecords())
+                    .withDetail("bytesRead", stats.bytesRead())
+                    .withDetail("mappedBytes", stats.mappedBytes())
+                    .withDetail("discardedSnapshots", stats.discardedSnapshots())
+                    .withDetail("durationMs", stats.durationMs())
+                    .build();
+        } catch (CompletionException e) {
+            return Health.down(e.getCause()).build();
+        }
+    }
+}
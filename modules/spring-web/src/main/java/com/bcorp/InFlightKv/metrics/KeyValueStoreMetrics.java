@@ -0,0 +1,68 @@
+package com.bcorp.InFlightKv.metrics;
+
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.KeyValueStoreConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the store's internal stats through the actuator metrics endpoint.
+ */
+@Component
+public class KeyValueStoreMetrics {
+
+    public KeyValueStoreMetrics(MeterRegistry meterRegistry,
+                                KeyValueStore keyValueStore,
+                                KeyValueStoreConfig config) {
+        if (config.isDeduplicateValues()) {
+            registerDeduplicationMetrics(meterRegistry, keyValueStore);
+        }
+        if (config.getTiering().isEnabled()) {
+            registerTieringMetrics(meterRegistry, keyValueStore);
+        }
+    }
+
+    private void registerDeduplicationMetrics(MeterRegistry meterRegistry, KeyValueStore keyValueStore) {
+        Gauge.builder("inflightkv.dedup.unique.values", keyValueStore,
+                        store -> store.deduplicationStats().uniqueValues())
+                .description("Distinct value payloads held by the store")
+                .register(meterRegistry);
+
+        Gauge.builder("inflightkv.dedup.references", keyValueStore,
+                        store -> store.deduplicationStats().references())
+                .description("Entries pointing at a shared value payload")
+                .register(meterRegistry);
+
+        Gauge.builder("inflightkv.dedup.stored", keyValueStore,
+                        store -> store.deduplicationStats().storedBytes())
+                .description("Bytes held for the distinct value payloads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        Gauge.builder("inflightkv.dedup.saved", keyValueStore,
+                        store -> store.deduplicationStats().savedBytes())
+                .description("Bytes saved by sharing identical value payloads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private void registerTieringMetrics(MeterRegistry meterRegistry, KeyValueStore keyValueStore) {
+        Gauge.builder("inflightkv.tier.values", keyValueStore,
+                        store -> store.tierUsage().values())
+                .description("Values moved to the disk tier")
+                .register(meterRegistry);
+
+        Gauge.builder("inflightkv.tier.live", keyValueStore,
+                        store -> store.tierUsage().liveBytes())
+                .description("Bytes of the values held by the disk tier")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        Gauge.builder("inflightkv.tier.file", keyValueStore,
+                        store -> store.tierUsage().fileBytes())
+                .description("Bytes of the disk tier segments, including the values read back since")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,21 @@
+package com.bcorp.InFlightKv.pojos;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * @param lines          lines read from the body, blank ones included
+ * @param written        records which inserted or updated their key
+ * @param unchanged      records whose value was the one held already
+ * @param conflicts      records not applied because the key didn't have the expected version
+ * @param rejected       records not applied because the node can't take them, see {@code firstRejection}
+ * @param firstRejection why the first rejected record was rejected, null if none was
+ * @param error          why the import stopped before the end of the body, null if it didn't
+ */
+public record BulkImportResult(long lines,
+                               long written,
+                               long unchanged,
+                               long conflicts,
+                               long rejected,
+                               String firstRejection,
+                               String error) {
+}
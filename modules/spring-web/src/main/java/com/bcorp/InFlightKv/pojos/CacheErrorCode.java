@@ -5,5 +5,6 @@ public enum CacheErrorCode {
     CONFLICT,
     INTERNAL_ERROR,
     ENCODING_FAILURE,
-    WRONG_DATA_TYPE
+    WRONG_DATA_TYPE,
+    VALUE_TOO_LARGE
 }
@@ -0,0 +1,87 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.kvstore.StoreExport;
+import com.bcorp.pojos.ExportEntry;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the values of the store as newline delimited json, see {@link StoreExport}.
+ *
+ * <p>The next chunk is only read from the partitions once the client took the previous one, and every chunk
+ * is written as a single buffer holding the stored values as they are, so the export holds about one chunk
+ * at a time whatever the size of the store. Large values aren't copied into that buffer, the stored array
+ * is written out as a buffer of its own between the lines around it.</p>
+ */
+@Service
+public class BulkExportService {
+    private static final byte[] KEY_FIELD = "{\"key\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE_FIELD = "\",\"value\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VERSION_FIELD = ",\"version\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LINE_END = "}\n".getBytes(StandardCharsets.UTF_8);
+    // fields and version of a line
+    private static final int LINE_OVERHEAD = 48;
+    // larger values are wrapped instead of copied
+    private static final int INLINE_VALUE_BYTES = 64 * 1024;
+
+    private final KeyValueStore keyValueStore;
+
+    public BulkExportService(KeyValueStore _keyValueStore) {
+        this.keyValueStore = _keyValueStore;
+    }
+
+    /**
+     * @param withVersions write the version of every key, lines without it can be imported as they are
+     */
+    public Flux<DataBuffer> exportRecords(boolean withVersions) {
+        return Flux.defer(() -> {
+            StoreExport export = keyValueStore.newExport();
+            return Mono.defer(() -> Mono.fromFuture(export.next()))
+                    .repeat()
+                    .takeWhile(chunk -> !chunk.isEmpty())
+                    .concatMapIterable(chunk -> toNdjson(chunk, withVersions));
+        });
+    }
+
+    private static List<DataBuffer> toNdjson(List<ExportEntry> chunk, boolean withVersions) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        byte[][] keys = new byte[chunk.size()][];
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = encoder.quoteAsUTF8(chunk.get(i).key().key());
+            int valueSize = chunk.get(i).data().length;
+            size += keys[i].length + (valueSize > INLINE_VALUE_BYTES ? 0 : valueSize) + LINE_OVERHEAD;
+        }
+
+        List<DataBuffer> buffers = new ArrayList<>();
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(size);
+        for (int i = 0; i < keys.length; i++) {
+            ExportEntry entry = chunk.get(i);
+            buffer.write(KEY_FIELD).write(keys[i]).write(VALUE_FIELD);
+            if (entry.data().length > INLINE_VALUE_BYTES) {
+                // wrapping doesn't copy, the stored array is never mutated once written
+                size -= buffer.readableByteCount();
+                buffers.add(buffer);
+                buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(entry.data()));
+                buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(Math.max(size, LINE_OVERHEAD));
+            } else {
+                buffer.write(entry.data());
+            }
+            if (withVersions) {
+                buffer.write(VERSION_FIELD).write(Long.toString(entry.version()).getBytes(StandardCharsets.US_ASCII));
+            }
+            buffer.write(LINE_END);
+        }
+        buffers.add(buffer);
+        return buffers;
+    }
+}
@@ -0,0 +1,118 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.BulkImportResult;
+import com.bcorp.codec.BulkRecord;
+import com.bcorp.codec.BulkRecordReader;
+import com.bcorp.codec.JsonCodec;
+import com.bcorp.exceptions.JsonDecodingFailed;
+import com.bcorp.kvstore.BulkWriter;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.BulkWrite;
+import com.bcorp.pojos.DataKey;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Imports newline delimited json records into the store while the body streams in.
+ *
+ * <p>Every chunk of the body is cut into lines and handed to a {@link BulkWriter} as soon as it arrives, the
+ * next chunk is only requested once the partitions took the batches in flight, so the import never holds
+ * more than a few batches per partition. Records are applied in batches, not as one transaction: a malformed
+ * line stops the import and the records before it stay written.</p>
+ *
+ * <p>Values larger than the limit of the store are rejected like any other record which can't be written, a
+ * line which grows far past the limit before its end arrives stops the import instead of being buffered.</p>
+ */
+@Service
+public class BulkImportService {
+    // room for the key and the other fields of a line around a value of the maximum size
+    private static final int MAX_LINE_OVERHEAD = 64 * 1024;
+
+    private final KeyValueStore keyValueStore;
+    private final JsonCodec jsonCodec;
+    private final ClusterService clusterService;
+
+    public BulkImportService(KeyValueStore _keyValueStore, JsonCodec _jsonCodec, ClusterService _clusterService) {
+        this.keyValueStore = _keyValueStore;
+        this.jsonCodec = _jsonCodec;
+        this.clusterService = _clusterService;
+    }
+
+    public Mono<BulkImportResult> importRecords(Flux<DataBuffer> body) {
+        return Mono.defer(() -> {
+            BulkImport bulkImport = new BulkImport(keyValueStore.newBulkWriter());
+            int maxValueBytes = keyValueStore.maxValueBytes();
+            BulkRecordReader reader = jsonCodec.newBulkRecordReader(bulkImport::add,
+                    maxValueBytes > 0 ? maxValueBytes + MAX_LINE_OVERHEAD : 0);
+
+            return body.concatMap(buffer -> {
+                        appendAndRelease(reader, buffer);
+                        return Mono.fromFuture(bulkImport.writer.ready());
+                    }, 1)
+                    .then(Mono.fromCallable(() -> bulkImport.finish(reader.finish(), null)))
+                    .onErrorResume(JsonDecodingFailed.class, e -> Mono.fromCallable(() ->
+                            bulkImport.finish(bulkImport.lines, e.getCause().getMessage())))
+                    .flatMap(Mono::fromFuture);
+        });
+    }
+
+    private static void appendAndRelease(BulkRecordReader reader, DataBuffer buffer) {
+        try {
+            int length = buffer.readableByteCount();
+            reader.append(length, (target, offset) -> buffer.read(target, offset, length));
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * State of one import, only touched by the chunk being read.
+     */
+    private final class BulkImport {
+        private final BulkWriter writer;
+        private long lines;
+        private long rejected;
+        private String firstRejection;
+
+        private BulkImport(BulkWriter _writer) {
+            this.writer = _writer;
+        }
+
+        private void add(BulkRecord record) {
+            lines = record.line();
+            if (record.ttl() != null) {
+                reject(record, "has a ttl, keys of the store don't expire");
+                return;
+            }
+            int maxValueBytes = keyValueStore.maxValueBytes();
+            if (maxValueBytes > 0 && record.value().length > maxValueBytes) {
+                reject(record, "has a value of " + record.value().length + " bytes, larger than the limit of "
+                        + maxValueBytes + " bytes");
+                return;
+            }
+            KeyRoutingResult routing = clusterService.routeKey(record.key());
+            if (routing.isShouldRedirect()) {
+                reject(record, "has a key which belongs to node " + routing.getNodeId());
+                return;
+            }
+            writer.add(new BulkWrite(new DataKey(record.key()), jsonCodec.fromValidatedBytes(record.value()), record.version()));
+        }
+
+        private void reject(BulkRecord record, String reason) {
+            if (firstRejection == null) {
+                firstRejection = "Line " + record.line() + " " + reason;
+            }
+            rejected++;
+        }
+
+        private CompletableFuture<BulkImportResult> finish(long lineCount, String error) {
+            return writer.finish().thenApply(stats -> new BulkImportResult(lineCount,
+                    stats.written(), stats.unchanged(), stats.conflicts(), rejected, firstRejection, error));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import com.bcorp.InFlightKv.utils.Either;
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.hash.HashCommand;
+import com.bcorp.api.handlers.hash.HashResult;
+import com.bcorp.codec.JsonCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hash values, every field is stored as its own json slice so commands only touch the fields they name.
+ */
+@Service
+public class HashService {
+    private final KeyValueStoreEngine keyValueStoreEngine;
+    private final JsonCodec jsonCodec;
+
+    public HashService(KeyValueStoreEngine _keyValueStoreEngine, JsonCodec _jsonCodec) {
+        this.keyValueStoreEngine = _keyValueStoreEngine;
+        this.jsonCodec = _jsonCodec;
+    }
+
+    /**
+     * @return the stored json of the field
+     */
+    public CompletableFuture<CacheResponse<byte[]>> getField(String key, String field) {
+        return keyValueStoreEngine.<String, HashCommand.Get, HashResult>execute(key, new HashCommand.Get(List.of(field)))
+                .thenApply(result -> {
+                    byte[] value = result.fields().get(field);
+                    return value == null
+                            ? CacheResponse.<byte[]>notFound()
+                            : CacheResponse.success(value, result.version());
+                })
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @param fields fields to read, all fields if empty
+     * @return json object of the fields which exist
+     */
+    public CompletableFuture<CacheResponse<String>> getFields(String key, List<String> fields) {
+        Object command = fields.isEmpty() ? new HashCommand.GetAll() : new HashCommand.Get(fields);
+
+        return keyValueStoreEngine.<String, Object, HashResult>execute(key, command)
+                .thenApply(result -> result.version() == null
+                        ? CacheResponse.<String>notFound()
+                        : CacheResponse.success(CacheHandlerUtils.toJsonObject(result.fields()), result.version()))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * Writes every top level field of the json object into the hash, other fields stay untouched.
+     *
+     * @return number of fields which didn't exist before
+     */
+    public CompletableFuture<CacheResponse<String>> setFields(String key, String jsonObject) {
+        Either<JsonNode, CacheError> parsingInput = CacheHandlerUtils.parseJsonString(jsonObject, jsonCodec);
+        if (!parsingInput.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(parsingInput.getErrorResponse()));
+        }
+
+        JsonNode input = parsingInput.getSuccessResponse();
+        if (input == null || !input.isObject() || input.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Hash fields must be a non empty json object"));
+        }
+
+        // fields are encoded here, off the partition loop
+        Map<String, byte[]> fields = new LinkedHashMap<>();
+        input.fields().forEachRemaining(field ->
+                fields.put(field.getKey(), jsonCodec.toString(field.getValue()).getBytes(StandardCharsets.UTF_8)));
+
+        return keyValueStoreEngine.<String, HashCommand.Set, HashResult>execute(key, new HashCommand.Set(fields))
+                .thenApply(this::countResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @return number of fields which were removed
+     */
+    public CompletableFuture<CacheResponse<String>> deleteFields(String key, List<String> fields) {
+        return keyValueStoreEngine.<String, HashCommand.Delete, HashResult>execute(key, new HashCommand.Delete(fields))
+                .thenApply(this::countResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    private CacheResponse<String> countResponse(HashResult result) {
+        return new CacheResponse<>(String.valueOf(result.count()), result.version(), null);
+    }
+}
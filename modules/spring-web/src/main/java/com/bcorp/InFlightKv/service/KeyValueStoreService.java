@@ -1,11 +1,13 @@
 package com.bcorp.InFlightKv.service;
 
+import com.bcorp.InFlightKv.exceptions.CacheErrorException;
 import com.bcorp.InFlightKv.pojos.CacheError;
 import com.bcorp.InFlightKv.pojos.CacheErrorCode;
 import com.bcorp.InFlightKv.pojos.CacheResponse;
 import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
 import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
 import com.bcorp.InFlightKv.utils.Either;
+import com.bcorp.InFlightKv.utils.JsonPatch;
 import com.bcorp.InFlightKv.utils.JsonUtils;
 import com.bcorp.api.filters.Filter;
 import com.bcorp.api.filters.VersionFilter;
@@ -14,12 +16,15 @@ import com.bcorp.kvstore.KeyValueStore;
 import com.bcorp.pojos.CachedDataValue;
 import com.bcorp.pojos.DataKey;
 import com.bcorp.pojos.RequestDataValue;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
 @Service
 public class KeyValueStoreService {
@@ -31,6 +36,13 @@ public class KeyValueStoreService {
         this.keyValueStore = _keyValueStore;
     }
 
+    /**
+     * @return size in bytes above which values are rejected, 0 for no limit
+     */
+    public int maxValueBytes() {
+        return keyValueStore.maxValueBytes();
+    }
+
     public CompletableFuture<CacheResponse<String>> get(String key) {
         DataKey dataKey = new DataKey(key);
 
@@ -39,6 +51,14 @@ public class KeyValueStoreService {
                 .exceptionally(CacheExceptionUtils::handleCacheExceptions);
     }
 
+    public CompletableFuture<CacheResponse<byte[]>> getRaw(String key) {
+        DataKey dataKey = new DataKey(key);
+
+        return keyValueStore.get(dataKey)
+                .thenApply(CacheHandlerUtils::handleRawCacheResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
     public CompletableFuture<CacheResponse<String>> remove(String key) {
         DataKey dataKey = new DataKey(key);
 
@@ -65,22 +85,110 @@ public class KeyValueStoreService {
             return writeValue(dataKey, inputValueNode, null);
         }
 
-        return keyValueStore.get(dataKey)
-                .thenCompose(existingData -> {
-                            Either<Long, CacheError> prevVersionCheck = versionCheck(existingData, expectedLatestVersion);
-                            if (!prevVersionCheck.isSuccess()) {
-                                return CompletableFuture.completedFuture(CacheResponse.failure(prevVersionCheck.getErrorResponse()));
-                            }
-
-                            Either<RequestDataValue, CacheError> dataToSet = getDataToSet(inputValueNode, existingData, mergeInputAndExisting);
-                            if (dataToSet.isSuccess()) {
-                                Long prevVersion = prevVersionCheck.getSuccessResponse();
-                                return keyValueStore.set(dataKey, dataToSet.getSuccessResponse(), prevVersion)
-                                        .thenApply(cacheValue -> CacheHandlerUtils.handleCacheResponse(cacheValue, jsonCodec));
-                            }
-                            return CompletableFuture.completedFuture(CacheResponse.failure(dataToSet.getErrorResponse()));
-                        }
-                );
+        // version check and merge run atomically on the partition loop, no read round-trip and no retries
+        return keyValueStore.compute(dataKey, existingData -> {
+                    checkExpectedVersion(existingData, expectedLatestVersion);
+
+                    Either<RequestDataValue, CacheError> dataToSet = getDataToSet(inputValueNode, existingData, mergeInputAndExisting);
+                    if (!dataToSet.isSuccess()) {
+                        throw new CacheErrorException(dataToSet.getErrorResponse());
+                    }
+                    return dataToSet.getSuccessResponse();
+                })
+                .thenApply(cacheValue -> CacheHandlerUtils.handleCacheResponse(cacheValue, jsonCodec))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * Stores a body which was already validated as json while it was read, without parsing it again.
+     */
+    public CompletableFuture<CacheResponse<String>> setJson(String key,
+                                                            byte[] validatedJson,
+                                                            Long expectedLatestVersion) {
+        DataKey dataKey = new DataKey(key);
+        RequestDataValue dataToSet = jsonCodec.fromValidatedBytes(validatedJson);
+
+        if (expectedLatestVersion == null) {
+            return keyValueStore.set(dataKey, dataToSet, null)
+                    .thenApply(CacheHandlerUtils::handleStoredJsonResponse)
+                    .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+        }
+
+        return keyValueStore.compute(dataKey, existingData -> {
+                    checkExpectedVersion(existingData, expectedLatestVersion);
+                    return dataToSet;
+                })
+                .thenApply(CacheHandlerUtils::handleStoredJsonResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * Atomically adds {@code by} to the integral number at the json pointer {@code path} of the value,
+     * in a single hop on the key's partition.
+     *
+     * @return the incremented number together with the new version of the value
+     */
+    public CompletableFuture<CacheResponse<String>> increment(String key, String path, long by) {
+        DataKey dataKey = new DataKey(key);
+
+        JsonPointer pointer;
+        try {
+            pointer = JsonPointer.compile(path);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Path is not a valid json pointer"));
+        }
+
+        long[] incrementedValue = new long[1];
+        return updateJsonDocument(dataKey, null, existingNode -> {
+                    JsonUtils.IncrementResult incremented = JsonUtils.incrementAt(existingNode, pointer, by);
+                    incrementedValue[0] = incremented.newValue();
+                    return incremented.document();
+                })
+                .thenApply(cacheValue -> CacheResponse.success(String.valueOf(incrementedValue[0]), cacheValue.version()))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * Applies an RFC 6902 JSON Patch to the value on the key's partition. The patch is parsed and
+     * validated before it's sent to the partition and is applied all or nothing, a failing
+     * {@code test} operation fails with CONFLICT.
+     */
+    public CompletableFuture<CacheResponse<String>> jsonPatch(String key, String patchBody, Long expectedLatestVersion) {
+        DataKey dataKey = new DataKey(key);
+
+        JsonPatch patch;
+        try {
+            Either<JsonNode, CacheError> parsingPatch = CacheHandlerUtils.parseJsonString(patchBody, jsonCodec);
+            if (!parsingPatch.isSuccess()) {
+                return CompletableFuture.completedFuture(CacheResponse.failure(parsingPatch.getErrorResponse()));
+            }
+            patch = JsonPatch.fromJson(parsingPatch.getSuccessResponse());
+        } catch (CacheErrorException e) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(e.getError()));
+        }
+
+        return updateJsonDocument(dataKey, expectedLatestVersion, patch::apply)
+                .thenApply(cacheValue -> CacheHandlerUtils.handleCacheResponse(cacheValue, jsonCodec))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * Applies an RFC 7386 merge patch to the value on the key's partition. Unlike the shallow merge
+     * of {@link #set}, nested objects are merged recursively and null members remove fields.
+     */
+    public CompletableFuture<CacheResponse<String>> mergePatch(String key, String patchBody, Long expectedLatestVersion) {
+        DataKey dataKey = new DataKey(key);
+
+        Either<JsonNode, CacheError> parsingPatch = CacheHandlerUtils.parseJsonString(patchBody, jsonCodec);
+        if (!parsingPatch.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(parsingPatch.getErrorResponse()));
+        }
+        JsonNode patch = parsingPatch.getSuccessResponse();
+
+        return updateJsonDocument(dataKey, expectedLatestVersion, existingNode -> JsonUtils.mergePatch(existingNode, patch))
+                .thenApply(cacheValue -> CacheHandlerUtils.handleCacheResponse(cacheValue, jsonCodec))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
     }
 
     public CompletableFuture<List<DataKey>> getAllKeys() {
@@ -101,6 +209,42 @@ public class KeyValueStoreService {
         return Either.failed(new CacheError(CacheErrorCode.CONFLICT, "Expected version doesn't match latest version"));
     }
 
+    private void checkExpectedVersion(CachedDataValue existingValue, Long version) {
+        Either<Long, CacheError> versionCheck = versionCheck(existingValue, version);
+        if (!versionCheck.isSuccess()) {
+            throw new CacheErrorException(versionCheck.getErrorResponse());
+        }
+    }
+
+    /**
+     * Decodes the value, transforms it and writes the result back in a single compute on the key's
+     * partition. The transformation gets null if the key doesn't exist and may modify the document in place.
+     */
+    private CompletableFuture<CachedDataValue> updateJsonDocument(DataKey dataKey,
+                                                                  Long expectedLatestVersion,
+                                                                  UnaryOperator<JsonNode> transformation) {
+        return keyValueStore.compute(dataKey, existingData -> {
+            checkExpectedVersion(existingData, expectedLatestVersion);
+
+            JsonNode existingNode = null;
+            if (existingData != null) {
+                Either<JsonNode, CacheError> decodingExistingNode = CacheHandlerUtils.decodeDataValue(existingData, jsonCodec);
+                if (!decodingExistingNode.isSuccess()) {
+                    throw new CacheErrorException(decodingExistingNode.getErrorResponse());
+                }
+                existingNode = decodingExistingNode.getSuccessResponse();
+            }
+
+            JsonNode updatedNode = transformation.apply(existingNode);
+            Either<RequestDataValue, CacheError> encoded = CacheHandlerUtils.encodeJsonNode(
+                    updatedNode == null ? NullNode.getInstance() : updatedNode, jsonCodec);
+            if (!encoded.isSuccess()) {
+                throw new CacheErrorException(encoded.getErrorResponse());
+            }
+            return encoded.getSuccessResponse();
+        });
+    }
+
     private Either<RequestDataValue, CacheError> getDataToSet(JsonNode inputValueNode,
                                                               CachedDataValue existingData,
                                                               boolean mergeInputAndExisting) {
@@ -136,7 +280,13 @@ public class KeyValueStoreService {
             return Either.failed(decodingExistingNode.getErrorResponse());
         }
 
-        ObjectNode merged = JsonUtils.shallowMerge((ObjectNode) decodingExistingNode.getSuccessResponse(), (ObjectNode) inputValueNode);
+        // only objects have fields to merge, any json root can be stored
+        if (!(decodingExistingNode.getSuccessResponse() instanceof ObjectNode existingNode)
+                || !(inputValueNode instanceof ObjectNode inputNode)) {
+            return Either.failed(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, "Only json objects can be merged"));
+        }
+
+        ObjectNode merged = JsonUtils.shallowMerge(existingNode, inputNode);
 
         Either<RequestDataValue, CacheError> encodingMergedValue = CacheHandlerUtils
                 .encodeJsonNode(merged, jsonCodec);
@@ -0,0 +1,97 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import com.bcorp.InFlightKv.utils.Either;
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.list.ListCommand;
+import com.bcorp.api.handlers.list.ListResult;
+import com.bcorp.codec.JsonCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lists used as queues and stacks, a push or pop touches only the values it moves instead of
+ * rewriting a whole json array.
+ */
+@Service
+public class ListService {
+    // upper bound of a blocking pop, so an idle consumer doesn't keep a request open forever
+    static final long MAX_BLOCKING_POP_TIMEOUT_MS = 30_000;
+
+    private final KeyValueStoreEngine keyValueStoreEngine;
+    private final JsonCodec jsonCodec;
+
+    public ListService(KeyValueStoreEngine _keyValueStoreEngine, JsonCodec _jsonCodec) {
+        this.keyValueStoreEngine = _keyValueStoreEngine;
+        this.jsonCodec = _jsonCodec;
+    }
+
+    /**
+     * @param jsonArray values to push, every element of the array becomes one value of the list
+     * @return length of the list after the push
+     */
+    public CompletableFuture<CacheResponse<String>> push(String key, String jsonArray, boolean left) {
+        Either<JsonNode, CacheError> parsingInput = CacheHandlerUtils.parseJsonString(jsonArray, jsonCodec);
+        if (!parsingInput.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(parsingInput.getErrorResponse()));
+        }
+
+        JsonNode input = parsingInput.getSuccessResponse();
+        if (input == null || !input.isArray() || input.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Values must be a non empty json array"));
+        }
+
+        // values are encoded here, off the partition loop
+        List<byte[]> values = new ArrayList<>(input.size());
+        input.forEach(value -> values.add(jsonCodec.toString(value).getBytes(StandardCharsets.UTF_8)));
+
+        return keyValueStoreEngine.<String, ListCommand.Push, ListResult>execute(key, new ListCommand.Push(values, left))
+                .thenApply(result -> new CacheResponse<>(String.valueOf(result.length()), result.version(), null))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @param timeoutMs if set, pops a single value and waits up to this long for the list to be created
+     *                  when it doesn't exist
+     * @return json array of the popped values, empty if there was nothing to pop
+     */
+    public CompletableFuture<CacheResponse<String>> pop(String key, boolean left, int count, Long timeoutMs) {
+        if (count < 1) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Count must be positive"));
+        }
+        if (timeoutMs != null && count > 1) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "A blocking pop takes a single value"));
+        }
+
+        ListCommand command = timeoutMs == null
+                ? new ListCommand.Pop(count, left)
+                : new ListCommand.BlockingPop(left, Math.min(timeoutMs, MAX_BLOCKING_POP_TIMEOUT_MS));
+
+        return keyValueStoreEngine.<String, ListCommand, ListResult>execute(key, command)
+                .thenApply(result -> new CacheResponse<>(CacheHandlerUtils.toJsonArray(result.values()), result.version(), null))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @return json array of the values from {@code start} to {@code stop}, both inclusive
+     */
+    public CompletableFuture<CacheResponse<String>> range(String key, long start, long stop) {
+        return keyValueStoreEngine.<String, ListCommand.Range, ListResult>execute(key, new ListCommand.Range(start, stop))
+                .thenApply(result -> result.version() == null
+                        ? CacheResponse.<String>notFound()
+                        : CacheResponse.success(CacheHandlerUtils.toJsonArray(result.values()), result.version()))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+}
@@ -0,0 +1,212 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import com.bcorp.InFlightKv.utils.Either;
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.bloom.BloomFilterCommand;
+import com.bcorp.api.handlers.bloom.BloomFilterResult;
+import com.bcorp.api.handlers.countmin.CountMinSketchCommand;
+import com.bcorp.api.handlers.countmin.CountMinSketchResult;
+import com.bcorp.api.handlers.hyperloglog.HyperLogLogCommand;
+import com.bcorp.api.handlers.hyperloglog.HyperLogLogResult;
+import com.bcorp.codec.JsonCodec;
+import com.bcorp.datatypes.BloomFilterValue;
+import com.bcorp.datatypes.CountMinSketchValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HyperLogLog, bloom filter and count-min sketch values, unique counts, seen-before checks and frequency
+ * estimates in a fixed amount of memory per key whatever the number of distinct items.
+ */
+@Service
+public class ProbabilisticService {
+    // bounds of the size of a new bloom filter, 100M items at 1% is about 120 MB
+    static final long DEFAULT_BLOOM_CAPACITY = 100_000;
+    static final double DEFAULT_BLOOM_ERROR_RATE = 0.01;
+    static final double DEFAULT_CMS_ERROR_RATE = 0.001;
+    static final double DEFAULT_CMS_FAILURE_PROBABILITY = 0.01;
+
+    private final KeyValueStoreEngine keyValueStoreEngine;
+    private final JsonCodec jsonCodec;
+
+    public ProbabilisticService(KeyValueStoreEngine _keyValueStoreEngine, JsonCodec _jsonCodec) {
+        this.keyValueStoreEngine = _keyValueStoreEngine;
+        this.jsonCodec = _jsonCodec;
+    }
+
+    /**
+     * @param jsonArray elements to add, strings or numbers
+     * @return 1 if the estimate changed, 0 otherwise
+     */
+    public CompletableFuture<CacheResponse<String>> addToHyperLogLog(String key, String jsonArray) {
+        Either<List<byte[]>, CacheError> items = parseItems(jsonArray);
+        if (!items.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(items.getErrorResponse()));
+        }
+
+        return hyperLogLogResponse(keyValueStoreEngine.execute(key, new HyperLogLogCommand.Add(items.getSuccessResponse())));
+    }
+
+    /**
+     * @return estimated number of distinct elements, 0 if the key doesn't exist
+     */
+    public CompletableFuture<CacheResponse<String>> countHyperLogLog(String key) {
+        return hyperLogLogResponse(keyValueStoreEngine.execute(key, new HyperLogLogCommand.Count()));
+    }
+
+    /**
+     * @return estimated number of distinct elements after the merge
+     */
+    public CompletableFuture<CacheResponse<String>> mergeHyperLogLogs(String key, List<String> sourceKeys) {
+        return hyperLogLogResponse(keyValueStoreEngine.execute(key, new HyperLogLogCommand.Merge(sourceKeys)));
+    }
+
+    /**
+     * @param capacity  number of items a new filter is sized for
+     * @param errorRate false positive rate of a new filter
+     * @return json array with one flag per item, true if the item wasn't in the filter before
+     */
+    public CompletableFuture<CacheResponse<String>> addToBloomFilter(String key, String jsonArray, Long capacity, Double errorRate) {
+        long filterCapacity = capacity != null ? capacity : DEFAULT_BLOOM_CAPACITY;
+        double filterErrorRate = errorRate != null ? errorRate : DEFAULT_BLOOM_ERROR_RATE;
+        if (filterCapacity < 1 || !(filterErrorRate >= BloomFilterValue.MIN_ERROR_RATE && filterErrorRate < 1)
+                || BloomFilterValue.bitsFor(filterCapacity, filterErrorRate) > BloomFilterValue.MAX_BITS) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE,
+                    "Capacity must be positive, the error rate between " + BloomFilterValue.MIN_ERROR_RATE
+                            + " and 1, and the filter at most " + BloomFilterValue.MAX_BITS + " bits"));
+        }
+
+        Either<List<byte[]>, CacheError> items = parseItems(jsonArray);
+        if (!items.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(items.getErrorResponse()));
+        }
+
+        return bloomFilterResponse(keyValueStoreEngine.execute(key,
+                new BloomFilterCommand.Add(items.getSuccessResponse(), filterCapacity, filterErrorRate)));
+    }
+
+    /**
+     * @return json array with one flag per item, false if the item was never added
+     */
+    public CompletableFuture<CacheResponse<String>> existsInBloomFilter(String key, List<String> items) {
+        List<byte[]> itemBytes = items.stream().map(item -> item.getBytes(StandardCharsets.UTF_8)).toList();
+        return bloomFilterResponse(keyValueStoreEngine.execute(key, new BloomFilterCommand.Exists(itemBytes)));
+    }
+
+    /**
+     * @param jsonObject items and what to add to their count, {@code {"page:/home": 1}}
+     * @return json object of the estimated count of every item after the increment
+     */
+    public CompletableFuture<CacheResponse<String>> incrementCountMinSketch(String key, String jsonObject,
+                                                                          Double errorRate, Double failureProbability) {
+        double sketchErrorRate = errorRate != null ? errorRate : DEFAULT_CMS_ERROR_RATE;
+        double sketchFailureProbability = failureProbability != null ? failureProbability : DEFAULT_CMS_FAILURE_PROBABILITY;
+        if (!(sketchErrorRate >= CountMinSketchValue.MIN_ERROR_RATE && sketchErrorRate < 1)
+                || !(sketchFailureProbability >= CountMinSketchValue.MIN_FAILURE_PROBABILITY && sketchFailureProbability < 1)) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE,
+                    "The error rate must be between " + CountMinSketchValue.MIN_ERROR_RATE + " and 1 and the probability between "
+                            + CountMinSketchValue.MIN_FAILURE_PROBABILITY + " and 1"));
+        }
+
+        Either<JsonNode, CacheError> parsingInput = CacheHandlerUtils.parseJsonString(jsonObject, jsonCodec);
+        if (!parsingInput.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(parsingInput.getErrorResponse()));
+        }
+
+        JsonNode input = parsingInput.getSuccessResponse();
+        if (input == null || !input.isObject() || input.isEmpty()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(
+                    CacheErrorCode.WRONG_DATA_TYPE, "Increments must be a non empty json object of item to count"));
+        }
+
+        Map<String, Long> increments = new LinkedHashMap<>();
+        var fields = input.fields();
+        while (fields.hasNext()) {
+            var field = fields.next();
+            if (!field.getValue().canConvertToLong() || field.getValue().asLong() < 0) {
+                return CompletableFuture.completedFuture(CacheResponse.failure(
+                        CacheErrorCode.WRONG_DATA_TYPE, "Increment of " + field.getKey() + " is not a positive integer"));
+            }
+            increments.put(field.getKey(), field.getValue().asLong());
+        }
+
+        return countMinSketchResponse(keyValueStoreEngine.execute(key,
+                new CountMinSketchCommand.Increment(increments, sketchErrorRate, sketchFailureProbability)));
+    }
+
+    /**
+     * @return json object of the estimated count of every item
+     */
+    public CompletableFuture<CacheResponse<String>> queryCountMinSketch(String key, List<String> items) {
+        return countMinSketchResponse(keyValueStoreEngine.execute(key, new CountMinSketchCommand.Query(items)));
+    }
+
+    public CompletableFuture<CacheResponse<String>> mergeCountMinSketches(String key, List<String> sourceKeys) {
+        return countMinSketchResponse(keyValueStoreEngine.execute(key, new CountMinSketchCommand.Merge(sourceKeys)));
+    }
+
+    private CompletableFuture<CacheResponse<String>> hyperLogLogResponse(CompletableFuture<HyperLogLogResult> command) {
+        return command
+                .thenApply(result -> new CacheResponse<>(String.valueOf(result.count()), result.version(), null))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    private CompletableFuture<CacheResponse<String>> bloomFilterResponse(CompletableFuture<BloomFilterResult> command) {
+        return command
+                .thenApply(result -> {
+                    ArrayNode flags = JsonNodeFactory.instance.arrayNode(result.results().size());
+                    result.results().forEach(flags::add);
+                    return new CacheResponse<>(jsonCodec.toString(flags), result.version(), null);
+                })
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    private CompletableFuture<CacheResponse<String>> countMinSketchResponse(CompletableFuture<CountMinSketchResult> command) {
+        return command
+                .thenApply(result -> {
+                    ObjectNode estimates = JsonNodeFactory.instance.objectNode();
+                    result.estimates().forEach(estimates::put);
+                    return new CacheResponse<>(jsonCodec.toString(estimates), result.version(), null);
+                })
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * Items are strings or numbers, a number counts as the same item as its text.
+     */
+    private Either<List<byte[]>, CacheError> parseItems(String jsonArray) {
+        Either<JsonNode, CacheError> parsingInput = CacheHandlerUtils.parseJsonString(jsonArray, jsonCodec);
+        if (!parsingInput.isSuccess()) {
+            return Either.failed(parsingInput.getErrorResponse());
+        }
+
+        JsonNode input = parsingInput.getSuccessResponse();
+        if (input == null || !input.isArray() || input.isEmpty()) {
+            return Either.failed(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, "Items must be a non empty json array"));
+        }
+
+        List<byte[]> items = new ArrayList<>(input.size());
+        for (JsonNode item : input) {
+            if (!item.isTextual() && !item.isNumber()) {
+                return Either.failed(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, "Items must be strings or numbers"));
+            }
+            items.add(item.asText().getBytes(StandardCharsets.UTF_8));
+        }
+        return Either.success(items);
+    }
+}
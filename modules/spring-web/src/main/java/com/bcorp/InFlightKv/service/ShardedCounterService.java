@@ -0,0 +1,51 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
+import com.bcorp.kvstore.KeyValueStore;
+import com.bcorp.pojos.DataKey;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sharded counters for hot keys. Increments are spread over several partitions and reads sum the
+ * shards, so the counters have no version and don't take part in the json values of the key.
+ */
+@Service
+public class ShardedCounterService {
+    private final KeyValueStore keyValueStore;
+
+    public ShardedCounterService(KeyValueStore _keyValueStore) {
+        this.keyValueStore = _keyValueStore;
+    }
+
+    public CompletableFuture<CacheResponse<String>> increment(String key, long by) {
+        return keyValueStore.incrementCounter(new DataKey(key), by)
+                .thenApply(v -> counterResponse(by))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @param maxStalenessMs if set, a sum computed at most this long ago may be returned instead of reading every shard
+     */
+    public CompletableFuture<CacheResponse<String>> get(String key, Long maxStalenessMs) {
+        DataKey dataKey = new DataKey(key);
+        CompletableFuture<Long> counter = maxStalenessMs == null
+                ? keyValueStore.getCounter(dataKey)
+                : keyValueStore.getCounter(dataKey, maxStalenessMs);
+
+        return counter.thenApply(this::counterResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    public CompletableFuture<CacheResponse<String>> remove(String key) {
+        return keyValueStore.removeCounter(new DataKey(key))
+                .thenApply(this::counterResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    private CacheResponse<String> counterResponse(long value) {
+        return new CacheResponse<>(String.valueOf(value), null, null);
+    }
+}
@@ -0,0 +1,124 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import com.bcorp.InFlightKv.utils.Either;
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.sortedset.SortedSetCommand;
+import com.bcorp.api.handlers.sortedset.SortedSetResult;
+import com.bcorp.codec.JsonCodec;
+import com.bcorp.datatypes.ScoredMember;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sorted sets for leaderboards and time ordered indexes, updates and reads never copy the whole set.
+ */
+@Service
+public class SortedSetService {
+    private final KeyValueStoreEngine keyValueStoreEngine;
+    private final JsonCodec jsonCodec;
+
+    public SortedSetService(KeyValueStoreEngine _keyValueStoreEngine, JsonCodec _jsonCodec) {
+        this.keyValueStoreEngine = _keyValueStoreEngine;
+        this.jsonCodec = _jsonCodec;
+    }
+
+    /**
+     * @param jsonObject members and their scores, {@code {"alice": 120, "bob": 95.5}}
+     * @return number of members which didn't exist before
+     */
+    public CompletableFuture<CacheResponse<String>> add(String key, String jsonObject) {
+        Either<JsonNode, CacheError> parsingInput = CacheHandlerUtils.parseJsonString(jsonObject, jsonCodec);
+        if (!parsingInput.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(parsingInput.getErrorResponse()));
+        }
+
+        JsonNode input = parsingInput.getSuccessResponse();
+        if (input == null || !input.isObject() || input.isEmpty()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(
+                    CacheErrorCode.WRONG_DATA_TYPE, "Members must be a non empty json object of member to score"));
+        }
+
+        Map<String, Double> members = new LinkedHashMap<>();
+        var fields = input.fields();
+        while (fields.hasNext()) {
+            var field = fields.next();
+            if (!field.getValue().isNumber() || !Double.isFinite(field.getValue().doubleValue())) {
+                return CompletableFuture.completedFuture(CacheResponse.failure(
+                        CacheErrorCode.WRONG_DATA_TYPE, "Score of " + field.getKey() + " is not a finite number"));
+            }
+            members.put(field.getKey(), field.getValue().doubleValue());
+        }
+
+        return keyValueStoreEngine.<String, SortedSetCommand.Add, SortedSetResult>execute(key, new SortedSetCommand.Add(members))
+                .thenApply(this::countResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @return number of members which were removed
+     */
+    public CompletableFuture<CacheResponse<String>> remove(String key, List<String> members) {
+        return keyValueStoreEngine.<String, SortedSetCommand.Remove, SortedSetResult>execute(key, new SortedSetCommand.Remove(members))
+                .thenApply(this::countResponse)
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @return {@code {"member": "alice", "score": 120.0, "rank": 3}}, rank is 0 based in ascending score order
+     */
+    public CompletableFuture<CacheResponse<String>> rank(String key, String member) {
+        return keyValueStoreEngine.<String, SortedSetCommand.Rank, SortedSetResult>execute(key, new SortedSetCommand.Rank(member))
+                .thenApply(result -> {
+                    if (result.rank() == null) {
+                        return CacheResponse.<String>notFound();
+                    }
+                    ObjectNode node = toJson(result.members().get(0)).put("rank", result.rank());
+                    return CacheResponse.success(jsonCodec.toString(node), result.version());
+                })
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    public CompletableFuture<CacheResponse<String>> rangeByScore(String key, double min, double max, int offset, int limit) {
+        return range(key, new SortedSetCommand.RangeByScore(min, max, offset, limit));
+    }
+
+    public CompletableFuture<CacheResponse<String>> rangeByRank(String key, long start, long stop) {
+        return range(key, new SortedSetCommand.RangeByRank(start, stop));
+    }
+
+    private CompletableFuture<CacheResponse<String>> range(String key, SortedSetCommand command) {
+        return keyValueStoreEngine.<String, SortedSetCommand, SortedSetResult>execute(key, command)
+                .thenApply(result -> {
+                    if (result.version() == null) {
+                        return CacheResponse.<String>notFound();
+                    }
+                    ArrayNode members = JsonNodeFactory.instance.arrayNode(result.members().size());
+                    result.members().forEach(member -> members.add(toJson(member)));
+                    return CacheResponse.success(jsonCodec.toString(members), result.version());
+                })
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    private ObjectNode toJson(ScoredMember member) {
+        return JsonNodeFactory.instance.objectNode()
+                .put("member", member.member())
+                .put("score", member.score());
+    }
+
+    private CacheResponse<String> countResponse(SortedSetResult result) {
+        return new CacheResponse<>(String.valueOf(result.count()), result.version(), null);
+    }
+}
@@ -0,0 +1,181 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import com.bcorp.InFlightKv.utils.Either;
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.stream.StreamCommand;
+import com.bcorp.api.handlers.stream.StreamResult;
+import com.bcorp.codec.JsonCodec;
+import com.bcorp.datatypes.StreamEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Append-only streams for event fan-out. Entries are appended and read by offset, consumer groups keep
+ * their offset on the server, and a tail follows the stream as entries are appended.
+ */
+@Service
+public class StreamService {
+    // upper bound of a blocking read, so an idle consumer doesn't keep a request open forever
+    static final long MAX_READ_TIMEOUT_MS = 30_000;
+    // a tail re-issues its parked read this often while the stream is idle
+    static final long TAIL_POLL_MS = 10_000;
+    static final int TAIL_BATCH_SIZE = 256;
+
+    private final KeyValueStoreEngine keyValueStoreEngine;
+    private final JsonCodec jsonCodec;
+
+    private record TailBatch(long nextOffset, List<StreamEntry> entries) {
+    }
+
+    public StreamService(KeyValueStoreEngine _keyValueStoreEngine, JsonCodec _jsonCodec) {
+        this.keyValueStoreEngine = _keyValueStoreEngine;
+        this.jsonCodec = _jsonCodec;
+    }
+
+    /**
+     * @param jsonArray entries to append, every element of the array becomes one entry
+     * @param maxLength if set, the oldest entries are trimmed so that at most this many are kept
+     * @return json array of the offsets of the appended entries
+     */
+    public CompletableFuture<CacheResponse<String>> append(String key, String jsonArray, Long maxLength) {
+        Either<JsonNode, CacheError> parsingInput = CacheHandlerUtils.parseJsonString(jsonArray, jsonCodec);
+        if (!parsingInput.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(parsingInput.getErrorResponse()));
+        }
+
+        JsonNode input = parsingInput.getSuccessResponse();
+        if (input == null || !input.isArray() || input.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Entries must be a non empty json array"));
+        }
+
+        // entries are encoded here, off the partition loop
+        List<byte[]> values = new ArrayList<>(input.size());
+        input.forEach(value -> values.add(jsonCodec.toString(value).getBytes(StandardCharsets.UTF_8)));
+
+        StreamCommand.Append command = new StreamCommand.Append(values, maxLength == null ? 0 : maxLength);
+        return keyValueStoreEngine.<String, StreamCommand.Append, StreamResult>execute(key, command)
+                .thenApply(result -> {
+                    List<byte[]> offsets = result.entries().stream()
+                            .map(entry -> String.valueOf(entry.offset()).getBytes(StandardCharsets.UTF_8))
+                            .toList();
+                    return CacheResponse.success(CacheHandlerUtils.toJsonArray(offsets), result.version());
+                })
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @param timeoutMs if set, waits up to this long for an append when there is nothing to read yet
+     * @return json array of {@code {"offset":.., "timestampMs":.., "value":..}} entries
+     */
+    public CompletableFuture<CacheResponse<String>> read(String key, long fromOffset, int limit, Long timeoutMs) {
+        if (limit < 1) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Limit must be positive"));
+        }
+
+        return entriesResponse(keyValueStoreEngine.execute(key,
+                new StreamCommand.Read(fromOffset, limit, cappedTimeout(timeoutMs))));
+    }
+
+    /**
+     * Reads from the offset of the group and moves the group past the returned entries.
+     */
+    public CompletableFuture<CacheResponse<String>> readGroup(String key, String group, int limit, Long timeoutMs) {
+        if (limit < 1) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Limit must be positive"));
+        }
+
+        return entriesResponse(keyValueStoreEngine.execute(key,
+                new StreamCommand.ReadGroup(group, limit, cappedTimeout(timeoutMs))));
+    }
+
+    /**
+     * @return the offset the group reads from next
+     */
+    public CompletableFuture<CacheResponse<String>> seekGroup(String key, String group, long offset) {
+        return keyValueStoreEngine.<String, StreamCommand.SeekGroup, StreamResult>execute(key, new StreamCommand.SeekGroup(group, offset))
+                .thenApply(result -> result.version() == null
+                        ? CacheResponse.<String>notFound()
+                        : CacheResponse.success(String.valueOf(result.count()), result.version()))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @return number of entries trimmed
+     */
+    public CompletableFuture<CacheResponse<String>> trim(String key, Long maxLength, Long maxAgeMs) {
+        return keyValueStoreEngine.<String, StreamCommand.Trim, StreamResult>execute(key, new StreamCommand.Trim(maxLength, maxAgeMs))
+                .thenApply(result -> new CacheResponse<>(String.valueOf(result.count()), result.version(), null))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * Follows the stream from {@code fromOffset}, one ndjson line per entry. Every read is parked on the
+     * partition until there is something past the last entry sent, so an idle tail costs no thread and no
+     * polling of the stream. Cancelling the subscription cancels the parked read, which leaves the partition
+     * right away.
+     */
+    public Flux<byte[]> tail(String key, long fromOffset) {
+        return Mono.fromFuture(() -> readTailBatch(key, fromOffset))
+                .expand(batch -> Mono.fromFuture(() -> readTailBatch(key, batch.nextOffset())))
+                .concatMapIterable(TailBatch::entries)
+                .map(entry -> {
+                    byte[] json = toJson(entry);
+                    byte[] line = Arrays.copyOf(json, json.length + 1);
+                    line[json.length] = '\n';
+                    return line;
+                });
+    }
+
+    private CompletableFuture<TailBatch> readTailBatch(String key, long fromOffset) {
+        CompletableFuture<StreamResult> read = keyValueStoreEngine.execute(key,
+                new StreamCommand.Read(fromOffset, TAIL_BATCH_SIZE, TAIL_POLL_MS));
+        CompletableFuture<TailBatch> batch = read.thenApply(result -> result.entries().isEmpty()
+                ? new TailBatch(fromOffset, List.of())
+                : new TailBatch(result.entries().get(result.entries().size() - 1).offset() + 1, result.entries()));
+        // a cancelled subscription cancels the batch, the read parked under it is cancelled with it
+        batch.whenComplete((ignored, error) -> {
+            if (batch.isCancelled()) {
+                read.cancel(false);
+            }
+        });
+        return batch;
+    }
+
+    private CompletableFuture<CacheResponse<String>> entriesResponse(CompletableFuture<StreamResult> read) {
+        return read.thenApply(result -> {
+                    List<byte[]> entries = result.entries().stream().map(this::toJson).toList();
+                    return new CacheResponse<>(CacheHandlerUtils.toJsonArray(entries), result.version(), null);
+                })
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    private byte[] toJson(StreamEntry entry) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(entry.value().length + 48);
+        json.writeBytes(("{\"offset\":" + entry.offset() + ",\"timestampMs\":" + entry.timestampMs() + ",\"value\":")
+                .getBytes(StandardCharsets.UTF_8));
+        json.writeBytes(entry.value());
+        json.write('}');
+        return json.toByteArray();
+    }
+
+    private static long cappedTimeout(Long timeoutMs) {
+        return timeoutMs == null ? 0 : Math.min(timeoutMs, MAX_READ_TIMEOUT_MS);
+    }
+}
@@ -0,0 +1,122 @@
+package com.bcorp.InFlightKv.service;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.utils.CacheExceptionUtils;
+import com.bcorp.InFlightKv.utils.CacheHandlerUtils;
+import com.bcorp.InFlightKv.utils.Either;
+import com.bcorp.api.KeyValueStoreEngine;
+import com.bcorp.api.handlers.timeseries.TimeSeriesCommand;
+import com.bcorp.api.handlers.timeseries.TimeSeriesResult;
+import com.bcorp.codec.JsonCodec;
+import com.bcorp.datatypes.TimeSeriesSample;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Time series of metric samples. Samples are stored compressed, a range is read as raw samples or as
+ * min / max / avg per bucket, aggregated on the server.
+ */
+@Service
+public class TimeSeriesService {
+    static final int DEFAULT_RANGE_LIMIT = 10_000;
+    // upper bound of the samples or buckets of a single range, a wider range is paged by fromMs
+    static final int MAX_RANGE_LIMIT = 100_000;
+
+    private final KeyValueStoreEngine keyValueStoreEngine;
+    private final JsonCodec jsonCodec;
+
+    public TimeSeriesService(KeyValueStoreEngine _keyValueStoreEngine, JsonCodec _jsonCodec) {
+        this.keyValueStoreEngine = _keyValueStoreEngine;
+        this.jsonCodec = _jsonCodec;
+    }
+
+    /**
+     * @param jsonArray   samples as {@code [[timestampMs, value], ...]}, in any order
+     * @param retentionMs if set, replaces the retention of the series, 0 keeps the samples forever
+     * @return number of samples added, samples which aren't newer than the newest stored one are skipped
+     */
+    public CompletableFuture<CacheResponse<String>> add(String key, String jsonArray, Long retentionMs) {
+        if (retentionMs != null && retentionMs < 0) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Retention can't be negative"));
+        }
+
+        Either<List<TimeSeriesSample>, CacheError> parsingSamples = parseSamples(jsonArray);
+        if (!parsingSamples.isSuccess()) {
+            return CompletableFuture.completedFuture(CacheResponse.failure(parsingSamples.getErrorResponse()));
+        }
+
+        TimeSeriesCommand.Add command = new TimeSeriesCommand.Add(parsingSamples.getSuccessResponse(), retentionMs);
+        return keyValueStoreEngine.<String, TimeSeriesCommand.Add, TimeSeriesResult>execute(key, command)
+                .thenApply(result -> new CacheResponse<>(String.valueOf(result.count()), result.version(), null))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    /**
+     * @param bucketMs if set, returns {@code [{"startMs", "count", "min", "max", "avg"}, ...]} per bucket,
+     *                 otherwise the samples as {@code [[timestampMs, value], ...]}
+     */
+    public CompletableFuture<CacheResponse<String>> range(String key, long fromMs, long toMs, Long bucketMs, Integer limit) {
+        int rangeLimit = limit == null ? DEFAULT_RANGE_LIMIT : Math.min(limit, MAX_RANGE_LIMIT);
+        if (rangeLimit < 1 || (bucketMs != null && bucketMs < 1)) {
+            return CompletableFuture.completedFuture(
+                    CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "Limit and bucket must be positive"));
+        }
+
+        TimeSeriesCommand.Range command = new TimeSeriesCommand.Range(fromMs, toMs, bucketMs == null ? 0 : bucketMs, rangeLimit);
+        return keyValueStoreEngine.<String, TimeSeriesCommand.Range, TimeSeriesResult>execute(key, command)
+                .thenApply(result -> result.version() == null
+                        ? CacheResponse.<String>notFound()
+                        : CacheResponse.success(toJson(result, bucketMs != null), result.version()))
+                .exceptionally(CacheExceptionUtils::handleCacheExceptions);
+    }
+
+    private String toJson(TimeSeriesResult result, boolean bucketed) {
+        ArrayNode array = JsonNodeFactory.instance.arrayNode();
+        if (bucketed) {
+            result.buckets().forEach(bucket -> array.addObject()
+                    .put("startMs", bucket.startMs())
+                    .put("count", bucket.count())
+                    .put("min", bucket.min())
+                    .put("max", bucket.max())
+                    .put("avg", bucket.avg()));
+        } else {
+            result.samples().forEach(sample -> array.addArray()
+                    .add(sample.timestampMs())
+                    .add(sample.value()));
+        }
+        return jsonCodec.toString(array);
+    }
+
+    private Either<List<TimeSeriesSample>, CacheError> parseSamples(String jsonArray) {
+        Either<JsonNode, CacheError> parsingInput = CacheHandlerUtils.parseJsonString(jsonArray, jsonCodec);
+        if (!parsingInput.isSuccess()) {
+            return Either.failed(parsingInput.getErrorResponse());
+        }
+
+        JsonNode input = parsingInput.getSuccessResponse();
+        if (input == null || !input.isArray() || input.isEmpty()) {
+            return Either.failed(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, "Samples must be a non empty json array"));
+        }
+
+        List<TimeSeriesSample> samples = new ArrayList<>(input.size());
+        for (JsonNode sample : input) {
+            boolean valid = sample.isArray() && sample.size() == 2
+                    && sample.get(0).isIntegralNumber() && sample.get(0).canConvertToLong()
+                    && sample.get(1).isNumber();
+            if (!valid) {
+                return Either.failed(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, "A sample must be [timestampMs, value]"));
+            }
+            samples.add(new TimeSeriesSample(sample.get(0).asLong(), sample.get(1).asDouble()));
+        }
+        return Either.success(samples);
+    }
+}
@@ -1,28 +1,40 @@
 package com.bcorp.InFlightKv.utils;
 
+import com.bcorp.InFlightKv.exceptions.CacheErrorException;
 import com.bcorp.InFlightKv.pojos.CacheErrorCode;
 import com.bcorp.InFlightKv.pojos.CacheResponse;
 import com.bcorp.exceptions.ConcurrentUpdateException;
+import com.bcorp.exceptions.ValueTooLargeException;
+import com.bcorp.exceptions.WrongTypeException;
 
 import java.util.concurrent.CompletionException;
 
 public class CacheExceptionUtils {
-    public static CacheResponse<String> handleCacheExceptions(Throwable e) {
+    public static <T> CacheResponse<T> handleCacheExceptions(Throwable e) {
         // CompletableFuture wraps exceptions in CompletionException
         Throwable cause = (e instanceof CompletionException) ? e.getCause() : e;
 
+        if (cause instanceof CacheErrorException cacheErrorException) {
+            return CacheResponse.failure(cacheErrorException.getError());
+        }
         if (cause instanceof ConcurrentUpdateException) {
             return handleConflict((ConcurrentUpdateException) cause);
         }
+        if (cause instanceof WrongTypeException) {
+            return CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, cause.getMessage());
+        }
+        if (cause instanceof ValueTooLargeException) {
+            return CacheResponse.failure(CacheErrorCode.VALUE_TOO_LARGE, cause.getMessage());
+        }
         return handleGenericError(cause);
     }
 
-    private static CacheResponse<String> handleConflict(ConcurrentUpdateException ex) {
+    private static <T> CacheResponse<T> handleConflict(ConcurrentUpdateException ex) {
         return CacheResponse.failure(CacheErrorCode.CONFLICT,
                 "Value got updated concurrently by a different request. Try again");
     }
 
-    private static CacheResponse<String> handleGenericError(Throwable ex) {
+    private static <T> CacheResponse<T> handleGenericError(Throwable ex) {
         return CacheResponse.failure(CacheErrorCode.INTERNAL_ERROR,
                 "Something failed during processing of the request. Try again");
     }
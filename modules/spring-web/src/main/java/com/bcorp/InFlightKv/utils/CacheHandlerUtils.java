@@ -3,11 +3,21 @@ package com.bcorp.InFlightKv.utils;
 import com.bcorp.InFlightKv.pojos.CacheError;
 import com.bcorp.InFlightKv.pojos.CacheErrorCode;
 import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
 import com.bcorp.codec.JsonCodec;
 import com.bcorp.exceptions.JsonDecodingFailed;
 import com.bcorp.pojos.CachedDataValue;
 import com.bcorp.pojos.RequestDataValue;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 public class CacheHandlerUtils {
 
@@ -26,6 +36,9 @@ public class CacheHandlerUtils {
         if (cacheResponse == null) {
             return CacheResponse.notFound();
         }
+        if (cacheResponse.isNative()) {
+            return CacheResponse.failure(nativeValueError(cacheResponse));
+        }
 
         Either<JsonNode, CacheError> decodingResponse = decodeDataValue(cacheResponse, jsonCodec);
         if (!decodingResponse.isSuccess()) {
@@ -43,7 +56,39 @@ public class CacheHandlerUtils {
         return CacheResponse.success(serializingJsonData.getSuccessResponse(), cacheResponse.version());
     }
 
+    /**
+     * Returns the stored bytes as-is without decoding them. The stored value is always valid json
+     * as it was either validated or encoded by the codec before being written.
+     */
+    public static CacheResponse<byte[]> handleRawCacheResponse(CachedDataValue cacheResponse) {
+        if (cacheResponse == null) {
+            return CacheResponse.notFound();
+        }
+        if (cacheResponse.isNative()) {
+            return CacheResponse.failure(nativeValueError(cacheResponse));
+        }
+
+        return CacheResponse.success(cacheResponse.data(), cacheResponse.version());
+    }
+
+    /**
+     * Builds the response from the stored bytes directly, without going through a json tree.
+     */
+    public static CacheResponse<String> handleStoredJsonResponse(CachedDataValue cacheResponse) {
+        if (cacheResponse == null) {
+            return CacheResponse.notFound();
+        }
+        if (cacheResponse.isNative()) {
+            return CacheResponse.failure(nativeValueError(cacheResponse));
+        }
+
+        return CacheResponse.success(new String(cacheResponse.data(), StandardCharsets.UTF_8), cacheResponse.version());
+    }
+
     public static Either<JsonNode, CacheError> decodeDataValue(CachedDataValue requestDataValue, JsonCodec jsonCodec) {
+        if (requestDataValue.isNative()) {
+            return Either.failed(nativeValueError(requestDataValue));
+        }
         try {
             JsonNode node = jsonCodec.decode(requestDataValue);
             return Either.success(node);
@@ -68,4 +113,78 @@ public class CacheHandlerUtils {
             return Either.failed(new CacheError(CacheErrorCode.ENCODING_FAILURE, "Failed to encode json node to byte[]"));
         }
     }
+
+    /**
+     * Writes the fields as a json object. The field values are stored json and are copied as-is.
+     */
+    public static String toJsonObject(Map<String, byte[]> fields) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('{');
+        boolean first = true;
+        for (Map.Entry<String, byte[]> field : fields.entrySet()) {
+            if (!first) {
+                json.write(',');
+            }
+            first = false;
+
+            json.write('"');
+            json.writeBytes(JsonStringEncoder.getInstance().quoteAsUTF8(field.getKey()));
+            json.write('"');
+            json.write(':');
+            json.writeBytes(field.getValue());
+        }
+        json.write('}');
+        return json.toString(StandardCharsets.UTF_8);
+    }
+
+    public static String toJsonArray(List<byte[]> values) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                json.write(',');
+            }
+            json.writeBytes(values.get(i));
+        }
+        json.write(']');
+        return json.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Redirects a request for a key of another node to the same path and query on that node, 307 keeps the
+     * method and the body.
+     */
+    public static ResponseEntity<?> redirectToOwner(KeyRoutingResult routing, ServerHttpRequest request) {
+        return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                .header("Location", redirectUrl(routing, request))
+                .header("X-Redirect-Reason", "Key belongs to different node")
+                .build();
+    }
+
+    public static String redirectUrl(KeyRoutingResult routing, ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        return routing.getExternalUrl() + request.getURI().getRawPath() + (query != null ? "?" + query : "");
+    }
+
+    public static ResponseEntity<CacheResponse<String>> convertToControllerResponse(CacheResponse<String> response) {
+        if (response.data() != null) {
+            return ResponseEntity.ok(response);
+        }
+        return handleError(response.error());
+    }
+
+    public static <T> ResponseEntity<T> handleError(CacheError error) {
+        return switch (error.errorCode()) {
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+            case WRONG_DATA_TYPE -> ResponseEntity.badRequest().build();
+            case VALUE_TOO_LARGE -> ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+            default -> ResponseEntity.internalServerError().build();
+        };
+    }
+
+    private static CacheError nativeValueError(CachedDataValue value) {
+        return new CacheError(CacheErrorCode.WRONG_DATA_TYPE,
+                "Key holds a " + value.dataType().getSimpleName() + " value, not json");
+    }
 }
@@ -0,0 +1,61 @@
+package com.bcorp.InFlightKv.utils;
+
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.bcorp.codec.JsonBodyAccumulator;
+import com.bcorp.codec.JsonCodec;
+import com.bcorp.exceptions.JsonDecodingFailed;
+import com.bcorp.exceptions.ValueTooLargeException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class JsonBodyReader {
+
+    /**
+     * Reads the request body into a single byte[] while validating it as json.
+     * Every incoming buffer is copied once and released right away, no String or tree is built.
+     *
+     * A body growing past the limit fails as soon as the chunk crossing it arrives, the rest isn't read.
+     * A content length no array can hold fails right away.
+     *
+     * @param expectedSize content length of the request if known, used to size the target array of a small body
+     * @param maxSize      size in bytes above which the body is rejected, 0 for no limit
+     */
+    public static Mono<Either<byte[], CacheError>> readValidatedJson(Flux<DataBuffer> body,
+                                                                    Long expectedSize,
+                                                                    int maxSize,
+                                                                    JsonCodec jsonCodec) {
+        return Mono.defer(() -> {
+            if (expectedSize != null && expectedSize > Integer.MAX_VALUE) {
+                return Mono.<Either<byte[], CacheError>>error(new ValueTooLargeException(expectedSize, Integer.MAX_VALUE));
+            }
+            JsonBodyAccumulator accumulator = jsonCodec.newBodyAccumulator(
+                    expectedSize != null ? expectedSize.intValue() : 0, maxSize);
+
+            return body.doOnNext(buffer -> appendAndRelease(accumulator, buffer))
+                    .then(Mono.fromCallable(() -> Either.<byte[], CacheError>success(accumulator.finish())));
+        })
+                .onErrorResume(JsonDecodingFailed.class, e -> Mono.just(
+                        Either.failed(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, "Value is not a proper json string"))))
+                .onErrorResume(ValueTooLargeException.class, e -> Mono.just(
+                        Either.failed(new CacheError(CacheErrorCode.VALUE_TOO_LARGE, e.getMessage()))));
+    }
+
+    /**
+     * Drains the body without reading it, used when the request is redirected to a different node.
+     */
+    public static Mono<Void> discard(Flux<DataBuffer> body) {
+        return body.doOnNext(DataBufferUtils::release).then();
+    }
+
+    private static void appendAndRelease(JsonBodyAccumulator accumulator, DataBuffer buffer) {
+        try {
+            int length = buffer.readableByteCount();
+            accumulator.append(length, (target, offset) -> buffer.read(target, offset, length));
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.bcorp.InFlightKv.utils;
+
+import com.bcorp.InFlightKv.exceptions.CacheErrorException;
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 6902 JSON Patch.
+ *
+ * <p>The patch is parsed and validated when it's created, off the partition loop, so applying it
+ * only walks the pointers of the document. Operations are applied in order and the patch fails as
+ * a whole: a failing operation, including a failed {@code test}, leaves the stored value untouched.</p>
+ */
+public class JsonPatch {
+
+    private record Operation(String op, JsonPointer path, JsonPointer from, JsonNode value) {
+    }
+
+    private final List<Operation> operations;
+
+    private JsonPatch(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * @throws CacheErrorException if the body is not a valid array of patch operations
+     */
+    public static JsonPatch fromJson(JsonNode patchNode) {
+        if (patchNode == null || !patchNode.isArray()) {
+            throw invalidPatch("JSON Patch must be an array of operations");
+        }
+
+        List<Operation> operations = new ArrayList<>(patchNode.size());
+        for (JsonNode operationNode : patchNode) {
+            String op = operationNode.path("op").asText(null);
+            if (op == null) {
+                throw invalidPatch("JSON Patch operation is missing 'op'");
+            }
+
+            JsonPointer path = pointer(operationNode, "path");
+            switch (op) {
+                case "add", "replace", "test" -> {
+                    if (!operationNode.has("value")) {
+                        throw invalidPatch("JSON Patch operation '" + op + "' is missing 'value'");
+                    }
+                    operations.add(new Operation(op, path, null, operationNode.get("value")));
+                }
+                case "remove" -> operations.add(new Operation(op, path, null, null));
+                case "move", "copy" -> operations.add(new Operation(op, path, pointer(operationNode, "from"), null));
+                default -> throw invalidPatch("Unknown JSON Patch operation '" + op + "'");
+            }
+        }
+        return new JsonPatch(operations);
+    }
+
+    /**
+     * Applies the patch to the document, which may be modified in place.
+     *
+     * @param document decoded value of the key, or null if the key doesn't exist
+     * @return the patched document
+     */
+    public JsonNode apply(JsonNode document) {
+        JsonNode result = document;
+        for (Operation operation : operations) {
+            result = switch (operation.op()) {
+                case "add" -> add(result, operation.path(), operation.value().deepCopy());
+                case "remove" -> remove(result, operation.path());
+                case "replace" -> add(remove(result, operation.path()), operation.path(), operation.value().deepCopy());
+                case "move" -> {
+                    if (isProperPrefix(operation.from(), operation.path())) {
+                        throw invalidPatch("Can't move " + operation.from() + " into its own child " + operation.path());
+                    }
+                    JsonNode moved = existing(result, operation.from());
+                    yield add(remove(result, operation.from()), operation.path(), moved);
+                }
+                case "copy" -> add(result, operation.path(), existing(result, operation.from()).deepCopy());
+                case "test" -> {
+                    if (!existing(result, operation.path()).equals(operation.value())) {
+                        throw new CacheErrorException(new CacheError(CacheErrorCode.CONFLICT,
+                                "JSON Patch test failed at " + operation.path()));
+                    }
+                    yield result;
+                }
+                default -> throw invalidPatch("Unknown JSON Patch operation '" + operation.op() + "'");
+            };
+        }
+        return result;
+    }
+
+    private static JsonNode add(JsonNode document, JsonPointer path, JsonNode value) {
+        if (path.matches()) {
+            return value;
+        }
+
+        JsonNode parent = parentOf(document, path);
+        String segment = path.last().getMatchingProperty();
+        if (parent instanceof ObjectNode objectNode) {
+            objectNode.set(segment, value);
+        } else if (parent instanceof ArrayNode arrayNode) {
+            int index = "-".equals(segment) ? arrayNode.size() : arrayIndex(segment, arrayNode.size() + 1, path);
+            arrayNode.insert(index, value);
+        } else {
+            throw invalidPatch("Parent of " + path + " is not an object or array");
+        }
+        return document;
+    }
+
+    private static JsonNode remove(JsonNode document, JsonPointer path) {
+        if (path.matches()) {
+            existing(document, path);
+            return null;
+        }
+
+        JsonNode parent = parentOf(document, path);
+        String segment = path.last().getMatchingProperty();
+        if (parent instanceof ObjectNode objectNode && objectNode.has(segment)) {
+            objectNode.remove(segment);
+        } else if (parent instanceof ArrayNode arrayNode) {
+            arrayNode.remove(arrayIndex(segment, arrayNode.size(), path));
+        } else {
+            throw invalidPatch("Path " + path + " doesn't exist");
+        }
+        return document;
+    }
+
+    private static JsonNode parentOf(JsonNode document, JsonPointer path) {
+        JsonNode parent = document == null ? null : document.at(path.head());
+        if (parent == null || parent.isMissingNode()) {
+            throw invalidPatch("Parent of " + path + " doesn't exist");
+        }
+        return parent;
+    }
+
+    private static JsonNode existing(JsonNode document, JsonPointer path) {
+        JsonNode node = document == null ? null : document.at(path);
+        if (node == null || node.isMissingNode()) {
+            throw invalidPatch("Path " + path + " doesn't exist");
+        }
+        return node;
+    }
+
+    private static int arrayIndex(String segment, int limit, JsonPointer path) {
+        try {
+            int index = Integer.parseInt(segment);
+            if (index >= 0 && index < limit && (segment.equals("0") || !segment.startsWith("0"))) {
+                return index;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw invalidPatch("Path " + path + " is not a valid array index");
+    }
+
+    private static boolean isProperPrefix(JsonPointer prefix, JsonPointer path) {
+        String prefixString = prefix.toString();
+        return path.toString().startsWith(prefixString + "/");
+    }
+
+    private static JsonPointer pointer(JsonNode operationNode, String field) {
+        JsonNode pointerNode = operationNode.get(field);
+        if (pointerNode == null || !pointerNode.isTextual()) {
+            throw invalidPatch("JSON Patch operation is missing '" + field + "'");
+        }
+        try {
+            return JsonPointer.compile(pointerNode.asText());
+        } catch (IllegalArgumentException e) {
+            throw invalidPatch("'" + pointerNode.asText() + "' is not a valid json pointer");
+        }
+    }
+
+    private static CacheErrorException invalidPatch(String message) {
+        return new CacheErrorException(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, message));
+    }
+}
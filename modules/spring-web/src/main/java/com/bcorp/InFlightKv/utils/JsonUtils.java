@@ -1,5 +1,13 @@
 package com.bcorp.InFlightKv.utils;
 
+import com.bcorp.InFlightKv.exceptions.CacheErrorException;
+import com.bcorp.InFlightKv.pojos.CacheError;
+import com.bcorp.InFlightKv.pojos.CacheErrorCode;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class JsonUtils {
@@ -23,4 +31,99 @@ public class JsonUtils {
 
         return result;
     }
+
+    /**
+     * RFC 7386 merge patch: objects in the patch are merged recursively, a null member removes the
+     * field and any other value, arrays included, replaces the target.
+     * The target is modified in place when both sides are objects.
+     *
+     * @param target decoded value of the key, or null if the key doesn't exist
+     * @return the patched document
+     */
+    public static JsonNode mergePatch(JsonNode target, JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch.deepCopy();
+        }
+
+        ObjectNode result = target instanceof ObjectNode objectNode ? objectNode : JsonNodeFactory.instance.objectNode();
+        patch.fields().forEachRemaining(field -> {
+            if (field.getValue().isNull()) {
+                result.remove(field.getKey());
+            } else {
+                result.set(field.getKey(), mergePatch(result.get(field.getKey()), field.getValue()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Adds {@code by} to the integral number at {@code path} inside {@code document}.
+     * Missing objects along the path and a missing field are created, a missing field starts at 0.
+     * The document is modified in place, except for an empty path which addresses the document itself.
+     *
+     * @param document decoded value of the key, or null if the key doesn't exist
+     * @return the document holding the incremented number together with the number itself
+     * @throws CacheErrorException if the path doesn't lead to an integral number
+     */
+    public static IncrementResult incrementAt(JsonNode document, JsonPointer path, long by) {
+        if (path.matches()) {
+            long newValue = add(document, by);
+            return new IncrementResult(LongNode.valueOf(newValue), newValue);
+        }
+
+        JsonNode root = document == null ? JsonNodeFactory.instance.objectNode() : document;
+        JsonNode parent = root;
+        JsonPointer current = path;
+
+        while (!current.tail().matches()) {
+            parent = childContainer(parent, current);
+            current = current.tail();
+        }
+
+        long newValue;
+        if (parent instanceof ObjectNode objectNode) {
+            newValue = add(objectNode.get(current.getMatchingProperty()), by);
+            objectNode.put(current.getMatchingProperty(), newValue);
+        } else if (parent instanceof ArrayNode arrayNode && current.mayMatchElement()
+                && current.getMatchingIndex() < arrayNode.size()) {
+            newValue = add(arrayNode.get(current.getMatchingIndex()), by);
+            arrayNode.set(current.getMatchingIndex(), LongNode.valueOf(newValue));
+        } else {
+            throw wrongType("Path " + path + " doesn't point to a field");
+        }
+        return new IncrementResult(root, newValue);
+    }
+
+    public record IncrementResult(JsonNode document, long newValue) {
+    }
+
+    private static JsonNode childContainer(JsonNode parent, JsonPointer segment) {
+        if (parent instanceof ObjectNode objectNode) {
+            JsonNode child = objectNode.get(segment.getMatchingProperty());
+            return child == null ? objectNode.putObject(segment.getMatchingProperty()) : child;
+        }
+        if (parent instanceof ArrayNode arrayNode && segment.mayMatchElement()
+                && segment.getMatchingIndex() < arrayNode.size()) {
+            return arrayNode.get(segment.getMatchingIndex());
+        }
+        throw wrongType("Path segment " + segment + " doesn't point to an object or array element");
+    }
+
+    private static long add(JsonNode current, long by) {
+        if (current == null || current.isNull() || current.isMissingNode()) {
+            return by;
+        }
+        if (!current.isIntegralNumber() || !current.canConvertToLong()) {
+            throw wrongType("Value at path is not an integral number");
+        }
+        try {
+            return Math.addExact(current.longValue(), by);
+        } catch (ArithmeticException e) {
+            throw wrongType("Incrementing the value overflows");
+        }
+    }
+
+    private static CacheErrorException wrongType(String message) {
+        return new CacheErrorException(new CacheError(CacheErrorCode.WRONG_DATA_TYPE, message));
+    }
 }
@@ -7,6 +7,7 @@ import com.bcorp.codec.JsonCodec;
 import com.bcorp.kvstore.KeyValueStore;
 import com.bcorp.pojos.CachedDataValue;
 import com.bcorp.pojos.DataKey;
+import com.bcorp.pojos.RequestDataValue;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -14,20 +15,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for KeyValueStoreService.
  * <p>
- * Tests the get and remove operations with both success and error scenarios.
+ * Tests the get, remove, set, patch and increment operations with both success and error scenarios.
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("KeyValueStoreService Unit Tests")
@@ -199,4 +205,263 @@ class KeyValueStoreServiceTest {
         assertEquals(CacheErrorCode.INTERNAL_ERROR, result.error().errorCode());
         assertEquals("Something failed during processing of the request. Try again", result.error().errorMessage());
     }
+
+    // ==================== set Tests ====================
+
+    private void runComputeOn(DataKey dataKey, CachedDataValue existingData) {
+        when(keyValueStore.compute(eq(dataKey), any())).thenAnswer(invocation -> {
+            Function<CachedDataValue, RequestDataValue> remapping = invocation.getArgument(1);
+            try {
+                RequestDataValue newValue = remapping.apply(existingData);
+                long now = System.currentTimeMillis();
+                return CompletableFuture.completedFuture(existingData == null
+                        ? CachedDataValue.createNewFrom(newValue, now)
+                        : CachedDataValue.createUpdatedFrom(newValue, now, existingData.version() + 1));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Should return conflict when expected version doesn't match inside compute")
+    void shouldReturnConflictWhenVersionDoesNotMatch() {
+        // Given
+        String key = "test-key";
+        String input = "{\"key\":\"new\"}";
+        when(jsonCodec.fromString(input)).thenReturn(objectMapper.createObjectNode().put("key", "new"));
+        runComputeOn(new DataKey(key), createTestCachedData());
+
+        // When - existing version is 1
+        CacheResponse<String> result = keyValueStoreService.set(key, input, 5L, false).join();
+
+        // Then
+        assertNull(result.data(), "Data should be null");
+        assertEquals(CacheErrorCode.CONFLICT, result.error().errorCode());
+        assertEquals("Expected version doesn't match latest version", result.error().errorMessage());
+        verify(keyValueStore, never()).get(any());
+        verify(keyValueStore, never()).set(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should merge with existing value in a single compute")
+    void shouldMergeWithExistingValueInSingleCompute() {
+        // Given
+        String key = "test-key";
+        String input = "{\"extra\":true}";
+        CachedDataValue cachedData = createTestCachedData();
+        ObjectNode inputNode = objectMapper.createObjectNode().put("extra", true);
+        ObjectNode existingNode = objectMapper.createObjectNode().put("key", "value").put("number", 42);
+        String mergedJson = "{\"key\":\"value\",\"number\":42,\"extra\":true}";
+
+        when(jsonCodec.fromString(input)).thenReturn(inputNode);
+        // the existing value is decoded for the merge, the merged value for the response
+        when(jsonCodec.decode(any())).thenAnswer(invocation ->
+                invocation.getArgument(0) == cachedData ? existingNode : objectMapper.readTree(mergedJson));
+        when(jsonCodec.encode(any())).thenReturn(
+                new RequestDataValue(mergedJson.getBytes(StandardCharsets.UTF_8), ObjectNode.class));
+        when(jsonCodec.toString(any())).thenReturn(mergedJson);
+        runComputeOn(new DataKey(key), cachedData);
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.set(key, input, 1L, true).join();
+
+        // Then
+        assertNull(result.error(), "Error should be null");
+        assertEquals(mergedJson, result.data());
+        assertEquals(2L, result.version());
+        verify(keyValueStore, never()).get(any());
+    }
+
+    @Test
+    @DisplayName("Should reject merging into a value which isn't a json object")
+    void shouldRejectMergingIntoNonObjectValue() throws Exception {
+        // Given
+        String key = "test-key";
+        String input = "{\"extra\":true}";
+        CachedDataValue cachedData = createCachedJson("[1,2]");
+
+        when(jsonCodec.fromString(input)).thenReturn(objectMapper.readTree(input));
+        runComputeOn(new DataKey(key), cachedData);
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.set(key, input, null, true).join();
+
+        // Then
+        assertNull(result.data(), "Data should be null");
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, result.error().errorCode());
+        verify(jsonCodec, never()).encode(any());
+    }
+
+    @Test
+    @DisplayName("Should not write anything when a JSON Patch test operation fails")
+    void shouldReturnConflictWhenJsonPatchTestFails() throws Exception {
+        // Given
+        String key = "test-key";
+        String patch = "[{\"op\":\"test\",\"path\":\"/number\",\"value\":7},{\"op\":\"remove\",\"path\":\"/key\"}]";
+        CachedDataValue cachedData = createTestCachedData();
+
+        when(jsonCodec.fromString(patch)).thenReturn(objectMapper.readTree(patch));
+        when(jsonCodec.decode(cachedData)).thenReturn(objectMapper.createObjectNode().put("key", "value").put("number", 42));
+        runComputeOn(new DataKey(key), cachedData);
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.jsonPatch(key, patch, null).join();
+
+        // Then
+        assertNull(result.data(), "Data should be null");
+        assertEquals(CacheErrorCode.CONFLICT, result.error().errorCode());
+        verify(jsonCodec, never()).encode(any());
+        verify(keyValueStore, never()).set(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid JSON Patch before reaching the partition")
+    void shouldRejectInvalidJsonPatch() throws Exception {
+        // Given
+        String key = "test-key";
+        String patch = "[{\"op\":\"rename\",\"path\":\"/key\"}]";
+        when(jsonCodec.fromString(patch)).thenReturn(objectMapper.readTree(patch));
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.jsonPatch(key, patch, null).join();
+
+        // Then
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, result.error().errorCode());
+        verify(keyValueStore, never()).compute(any(), any());
+    }
+
+    // ==================== increment Tests ====================
+
+    private CachedDataValue createCachedJson(String json) throws Exception {
+        CachedDataValue cachedData = new CachedDataValue(
+                json.getBytes(StandardCharsets.UTF_8),
+                ObjectNode.class,
+                System.currentTimeMillis(),
+                1L
+        );
+        when(jsonCodec.decode(cachedData)).thenReturn(objectMapper.readTree(json));
+        return cachedData;
+    }
+
+    private ArgumentCaptor<JsonNode> captureEncodedDocument() {
+        ArgumentCaptor<JsonNode> encodedDocument = ArgumentCaptor.forClass(JsonNode.class);
+        when(jsonCodec.encode(encodedDocument.capture())).thenAnswer(invocation -> new RequestDataValue(
+                objectMapper.writeValueAsBytes(invocation.getArgument(0)), ObjectNode.class));
+        return encodedDocument;
+    }
+
+    @Test
+    @DisplayName("Should create the key, the objects along the path and the field when incrementing a missing key")
+    void shouldCreateMissingKeyAndFieldsOnIncrement() {
+        // Given
+        String key = "test-key";
+        ArgumentCaptor<JsonNode> encodedDocument = captureEncodedDocument();
+        runComputeOn(new DataKey(key), null);
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.increment(key, "/stats/hits", 5).join();
+
+        // Then
+        assertNull(result.error(), "Error should be null");
+        assertEquals("5", result.data(), "A missing field should start at 0");
+        assertEquals(0L, result.version(), "Version should be the one of the new value");
+        assertEquals("{\"stats\":{\"hits\":5}}", encodedDocument.getValue().toString());
+    }
+
+    @Test
+    @DisplayName("Should increment a field of an existing value and return its new version")
+    void shouldIncrementExistingField() throws Exception {
+        // Given
+        String key = "test-key";
+        ArgumentCaptor<JsonNode> encodedDocument = captureEncodedDocument();
+        runComputeOn(new DataKey(key), createCachedJson("{\"key\":\"value\",\"number\":42}"));
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.increment(key, "/number", -2).join();
+
+        // Then
+        assertNull(result.error(), "Error should be null");
+        assertEquals("40", result.data());
+        assertEquals(2L, result.version(), "Version should be the one of the incremented value");
+        assertEquals("{\"key\":\"value\",\"number\":40}", encodedDocument.getValue().toString());
+    }
+
+    @Test
+    @DisplayName("Should increment an element of an array")
+    void shouldIncrementArrayElement() throws Exception {
+        // Given
+        String key = "test-key";
+        ArgumentCaptor<JsonNode> encodedDocument = captureEncodedDocument();
+        runComputeOn(new DataKey(key), createCachedJson("{\"counts\":[1,2,3]}"));
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.increment(key, "/counts/1", 10).join();
+
+        // Then
+        assertNull(result.error(), "Error should be null");
+        assertEquals("12", result.data());
+        assertEquals("{\"counts\":[1,12,3]}", encodedDocument.getValue().toString());
+    }
+
+    @Test
+    @DisplayName("Should reject an array index past the end of the array")
+    void shouldRejectArrayIndexPastTheEnd() throws Exception {
+        // Given
+        String key = "test-key";
+        runComputeOn(new DataKey(key), createCachedJson("{\"counts\":[1]}"));
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.increment(key, "/counts/3", 1).join();
+
+        // Then
+        assertNull(result.data(), "Data should be null");
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, result.error().errorCode());
+        verify(jsonCodec, never()).encode(any());
+    }
+
+    @Test
+    @DisplayName("Should reject incrementing a value which isn't an integral number")
+    void shouldRejectNonIntegralValue() throws Exception {
+        // Given
+        String key = "test-key";
+        runComputeOn(new DataKey(key), createCachedJson("{\"price\":1.5,\"name\":\"item\"}"));
+
+        // When
+        CacheResponse<String> decimalResult = keyValueStoreService.increment(key, "/price", 1).join();
+        CacheResponse<String> textResult = keyValueStoreService.increment(key, "/name", 1).join();
+
+        // Then
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, decimalResult.error().errorCode());
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, textResult.error().errorCode());
+        verify(jsonCodec, never()).encode(any());
+    }
+
+    @Test
+    @DisplayName("Should reject an increment which overflows a long")
+    void shouldRejectOverflowingIncrement() throws Exception {
+        // Given
+        String key = "test-key";
+        runComputeOn(new DataKey(key), createCachedJson("{\"number\":" + Long.MAX_VALUE + "}"));
+
+        // When
+        CacheResponse<String> result = keyValueStoreService.increment(key, "/number", 1).join();
+
+        // Then
+        assertNull(result.data(), "Data should be null");
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, result.error().errorCode());
+        assertEquals("Incrementing the value overflows", result.error().errorMessage());
+        verify(jsonCodec, never()).encode(any());
+    }
+
+    @Test
+    @DisplayName("Should reject a path which isn't a json pointer before reaching the partition")
+    void shouldRejectInvalidIncrementPath() {
+        // When
+        CacheResponse<String> result = keyValueStoreService.increment("test-key", "number", 1).join();
+
+        // Then
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, result.error().errorCode());
+        verify(keyValueStore, never()).compute(any(), any());
+    }
 }
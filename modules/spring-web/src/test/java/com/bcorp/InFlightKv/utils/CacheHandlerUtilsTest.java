@@ -2,7 +2,9 @@ package com.bcorp.InFlightKv.utils;
 
 import com.bcorp.InFlightKv.pojos.CacheErrorCode;
 import com.bcorp.InFlightKv.pojos.CacheResponse;
+import com.bcorp.InFlightKv.service.KeyRoutingResult;
 import com.bcorp.codec.JsonCodec;
+import com.bcorp.datatypes.HashValue;
 import com.bcorp.exceptions.JsonDecodingFailed;
 import com.bcorp.pojos.CachedDataValue;
 import com.bcorp.pojos.RequestDataValue;
@@ -15,6 +17,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -25,8 +30,8 @@ import static org.mockito.Mockito.*;
 /**
  * Unit tests for CacheHandlerUtils.
  * <p>
- * Tests all utility methods for JSON parsing, encoding, decoding, and serialization
- * with both success and error scenarios.
+ * Tests all utility methods for JSON parsing, encoding, decoding, serialization and the controller
+ * responses with both success and error scenarios.
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("CacheHandlerUtils Unit Tests")
@@ -230,4 +235,83 @@ public class CacheHandlerUtilsTest {
         verify(jsonCodec).decode(testCachedData);
         verify(jsonCodec).toString(testJsonNode);
     }
+
+    // ==================== handleRawCacheResponse Tests ====================
+
+    @Test
+    @DisplayName("Should return not found for raw response when DataValue is null")
+    void shouldReturnNotFoundForRawResponseWhenDataValueIsNull() {
+        // When
+        CacheResponse<byte[]> result = CacheHandlerUtils.handleRawCacheResponse(null);
+
+        // Then
+        assertNull(result.data(), "Data should be null");
+        assertNull(result.version(), "Version should be null");
+        assertEquals(CacheErrorCode.NOT_FOUND, result.error().errorCode());
+    }
+
+    @Test
+    @DisplayName("Should return stored bytes without decoding for raw response")
+    void shouldReturnStoredBytesForRawResponse() {
+        // When
+        CacheResponse<byte[]> result = CacheHandlerUtils.handleRawCacheResponse(testCachedData);
+
+        // Then
+        assertSame(testCachedData.data(), result.data(), "Stored bytes should be returned without copying");
+        assertEquals(0L, result.version(), "Version should match DataValue version");
+        assertNull(result.error(), "Error should be null");
+        verifyNoInteractions(jsonCodec);
+    }
+
+    @Test
+    @DisplayName("Should reject a native value for stored json response")
+    void shouldRejectNativeValueForStoredJsonResponse() {
+        // Given
+        CachedDataValue hash = CachedDataValue.fromNative(new HashValue(), System.currentTimeMillis(), 0L);
+
+        // When
+        CacheResponse<String> result = CacheHandlerUtils.handleStoredJsonResponse(hash);
+
+        // Then
+        assertNull(result.data(), "Data should be null");
+        assertEquals(CacheErrorCode.WRONG_DATA_TYPE, result.error().errorCode());
+    }
+
+    // ==================== controller response Tests ====================
+
+    @Test
+    @DisplayName("Should map the error of a response to its http status")
+    void shouldMapErrorsToHttpStatus() {
+        assertEquals(HttpStatus.OK,
+                CacheHandlerUtils.convertToControllerResponse(CacheResponse.success("1", 1L)).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND,
+                CacheHandlerUtils.convertToControllerResponse(CacheResponse.notFound()).getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, CacheHandlerUtils.convertToControllerResponse(
+                CacheResponse.failure(CacheErrorCode.CONFLICT, "conflict")).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, CacheHandlerUtils.convertToControllerResponse(
+                CacheResponse.failure(CacheErrorCode.WRONG_DATA_TYPE, "wrong type")).getStatusCode());
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, CacheHandlerUtils.convertToControllerResponse(
+                CacheResponse.failure(CacheErrorCode.VALUE_TOO_LARGE, "too large")).getStatusCode());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, CacheHandlerUtils.convertToControllerResponse(
+                CacheResponse.failure(CacheErrorCode.INTERNAL_ERROR, "failed")).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should redirect to the same path and query on the owning node")
+    void shouldRedirectToSamePathOnOwner() {
+        // Given
+        KeyRoutingResult routing = new KeyRoutingResult("node-2", "node-2", "host-2", 8080,
+                "http://host-2:8080", true);
+        MockServerHttpRequest request = MockServerHttpRequest
+                .post("http://host-1:8080/kv/test-key/_incr?path=%2Fa%2Fb&by=2")
+                .build();
+
+        // When
+        ResponseEntity<?> result = CacheHandlerUtils.redirectToOwner(routing, request);
+
+        // Then
+        assertEquals(HttpStatus.TEMPORARY_REDIRECT, result.getStatusCode());
+        assertEquals("http://host-2:8080/kv/test-key/_incr?path=%2Fa%2Fb&by=2",
+                result.getHeaders().getFirst("Location"));
+    }
 }